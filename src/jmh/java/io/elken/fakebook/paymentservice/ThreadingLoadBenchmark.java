@@ -0,0 +1,145 @@
+package io.elken.fakebook.paymentservice;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.elken.fakebook.paymentservice.domain.Currency;
+import io.elken.fakebook.paymentservice.domain.Payment;
+import io.elken.fakebook.paymentservice.domain.Status;
+import io.elken.fakebook.paymentservice.load.CoolpaySimulator;
+import io.elken.fakebook.paymentservice.load.Latency;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@State(Scope.Benchmark)
+public class ThreadingLoadBenchmark {
+
+	private static final String TOKEN = "5b1ac6b7-3f3c-4a3f-8e57-6a0d3f31f4a2";
+	private static final Path PROC_STATUS = Paths.get("/proc/self/status");
+
+	@Param({"platform", "virtual"})
+	private String threading;
+
+	@Param({"5000"})
+	private int concurrency;
+
+	@Param({"100"})
+	private int upstreamDelayMillis;
+
+	private CoolpaySimulator stub;
+	private ConfigurableApplicationContext application;
+	private ExecutorService clientExecutor;
+	private HttpClient client;
+	private HttpRequest request;
+	private ThreadMXBean threads;
+
+	@Setup
+	public void setup() throws Exception {
+		ObjectMapper objectMapper = new ObjectMapper();
+		Payment payment = new Payment(null, Status.paid, "6e7b4cea-5957-11e6-8b77-86f30ca893d3", Currency.GBP, 1099);
+
+		System.setProperty("sun.net.httpserver.maxIdleConnections", Integer.toString(concurrency));
+		stub = new CoolpaySimulator(Latency.fixed(upstreamDelayMillis), 0, 1, 0);
+
+		application = new SpringApplicationBuilder(PaymentServiceApplication.class).run(
+				"--server.port=0",
+				"--spring.main.banner-mode=off",
+				"--spring.threads.virtual.enabled=" + "virtual".equals(threading),
+				"--server.tomcat.max-connections=" + concurrency * 2,
+				"--server.tomcat.accept-count=" + concurrency,
+				"--coolpay.rate-limit.enabled=false",
+				"--coolpay.base.uri=" + stub.getBaseUri(),
+				"--coolpay.http-client.max-connections-total=" + concurrency,
+				"--coolpay.http-client.max-connections-per-route=" + concurrency,
+				"--coolpay.http-client.pool-acquire-timeout-millis=60000",
+				"--coolpay.http-client.read-timeout-millis=60000",
+				"--coolpay.resilience.initial-limit=" + concurrency,
+				"--coolpay.resilience.max-limit=" + concurrency,
+				"--coolpay.resilience.latency-threshold-millis=60000");
+
+		clientExecutor = Executors.newVirtualThreadPerTaskExecutor();
+		client = HttpClient.newBuilder().executor(clientExecutor).version(HttpClient.Version.HTTP_1_1).build();
+		request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + application.getEnvironment().getProperty("local.server.port") + "/coolpay/payments"))
+				.header("Authorization", TOKEN)
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(payment)))
+				.build();
+		threads = ManagementFactory.getThreadMXBean();
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		application.close();
+		stub.close();
+		clientExecutor.shutdownNow();
+	}
+
+	@Benchmark
+	public int burst(Footprint footprint) throws Exception {
+		threads.resetPeakThreadCount();
+		CompletableFuture<?>[] responses = new CompletableFuture<?>[concurrency];
+		for (int i = 0; i < concurrency; i++) {
+			responses[i] = client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).thenAccept(response -> {
+				if (response.statusCode() != 200) {
+					throw new IllegalStateException("Unexpected status " + response.statusCode());
+				}
+			});
+		}
+		CompletableFuture.allOf(responses).join();
+		footprint.record(threads.getPeakThreadCount(), residentSetKb());
+		return concurrency;
+	}
+
+	private static long residentSetKb() throws IOException {
+		if (!Files.isReadable(PROC_STATUS)) {
+			return -1;
+		}
+		for (String line : Files.readAllLines(PROC_STATUS)) {
+			if (line.startsWith("VmRSS:")) {
+				return Long.parseLong(line.replaceAll("[^0-9]", ""));
+			}
+		}
+		return -1;
+	}
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Footprint {
+
+		public long peakThreads;
+		public long residentSetMb;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			peakThreads = 0;
+			residentSetMb = 0;
+		}
+
+		private void record(int peakThreads, long residentSetKb) {
+			this.peakThreads = Math.max(this.peakThreads, peakThreads);
+			this.residentSetMb = Math.max(this.residentSetMb, residentSetKb / 1024);
+		}
+
+	}
+
+}
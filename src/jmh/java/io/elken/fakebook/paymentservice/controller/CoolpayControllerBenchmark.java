@@ -0,0 +1,103 @@
+package io.elken.fakebook.paymentservice.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.elken.fakebook.paymentservice.batch.BatchPaymentService;
+import io.elken.fakebook.paymentservice.domain.LoginRequest;
+import io.elken.fakebook.paymentservice.domain.LoginResponse;
+import io.elken.fakebook.paymentservice.domain.Payment;
+import io.elken.fakebook.paymentservice.domain.Recipient;
+import io.elken.fakebook.paymentservice.idempotency.IdempotencyService;
+import io.elken.fakebook.paymentservice.idempotency.InMemoryIdempotencyStore;
+import io.elken.fakebook.paymentservice.provider.CachingPaymentProvider;
+import io.elken.fakebook.paymentservice.provider.Fixtures;
+import io.elken.fakebook.paymentservice.provider.PaymentProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.standaloneSetup;
+
+@State(Scope.Benchmark)
+public class CoolpayControllerBenchmark {
+
+	private static final String TOKEN = "5b1ac6b7-3f3c-4a3f-8e57-6a0d3f31f4a2";
+
+	@Param({"10", "100", "1000", "10000", "100000"})
+	private int size;
+
+	private ExecutorService batchExecutor;
+	private MockMvc mockMvc;
+
+	@Setup
+	public void setup() throws Exception {
+		List<Payment> payments = Fixtures.payments(size);
+		List<Recipient> recipients = Fixtures.recipients(size);
+		PaymentProvider upstream = new PaymentProvider() {
+
+			@Override
+			public LoginResponse login(LoginRequest loginRequest) {
+				return new LoginResponse(TOKEN);
+			}
+
+			@Override
+			public List<Recipient> listRecipients(String token) {
+				return recipients;
+			}
+
+			@Override
+			public Recipient createRecipient(String token, Recipient recipient) {
+				return recipient;
+			}
+
+			@Override
+			public List<Payment> listPayments(String token) {
+				return payments;
+			}
+
+			@Override
+			public Payment createPayment(String token, Payment payment) {
+				return payment;
+			}
+
+		};
+		ObjectMapper objectMapper = new ObjectMapper();
+		CachingPaymentProvider provider = new CachingPaymentProvider(upstream, Caffeine.newBuilder().buildAsync(),
+				Caffeine.newBuilder().buildAsync(), Caffeine.newBuilder().buildAsync());
+		IdempotencyService idempotencyService = new IdempotencyService(
+				new InMemoryIdempotencyStore(1, 1000, 60000, Clock.systemUTC()), objectMapper);
+		batchExecutor = Executors.newFixedThreadPool(4);
+		BatchPaymentService batchPaymentService = new BatchPaymentService(provider, batchExecutor, 4, 1000);
+		mockMvc = standaloneSetup(new CoolpayController(provider, provider, provider, idempotencyService, batchPaymentService,
+				Optional.empty(), Optional.empty(), objectMapper)).build();
+	}
+
+	@TearDown
+	public void tearDown() {
+		batchExecutor.shutdownNow();
+	}
+
+	@Benchmark
+	public byte[] listPayments() throws Exception {
+		return mockMvc.perform(get("/coolpay/payments").header("Authorization", TOKEN))
+				.andReturn().getResponse().getContentAsByteArray();
+	}
+
+	@Benchmark
+	public byte[] streamPayments() throws Exception {
+		return mockMvc.perform(get("/coolpay/payments").accept("application/x-ndjson").header("Authorization", TOKEN))
+				.andReturn().getResponse().getContentAsByteArray();
+	}
+
+}
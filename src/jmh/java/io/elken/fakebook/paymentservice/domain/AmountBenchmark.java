@@ -0,0 +1,130 @@
+package io.elken.fakebook.paymentservice.domain;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.elken.fakebook.paymentservice.provider.Fixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@State(Scope.Benchmark)
+public class AmountBenchmark {
+
+	@Param({"100", "10000"})
+	private int size;
+
+	private ObjectReader fixedPointReader;
+	private ObjectReader doubleReader;
+	private ObjectReader bigDecimalReader;
+	private ObjectWriter fixedPointWriter;
+	private ObjectWriter doubleWriter;
+	private ObjectWriter bigDecimalWriter;
+	private Payment[] fixedPointPayments;
+	private DoublePayment[] doublePayments;
+	private BigDecimalPayment[] bigDecimalPayments;
+	private byte[] json;
+
+	@Setup
+	public void setup() throws Exception {
+		ObjectMapper objectMapper = new ObjectMapper();
+		fixedPointReader = objectMapper.readerFor(Payment[].class);
+		doubleReader = objectMapper.readerFor(DoublePayment[].class);
+		bigDecimalReader = objectMapper.readerFor(BigDecimalPayment[].class);
+		fixedPointWriter = objectMapper.writerFor(Payment[].class);
+		doubleWriter = objectMapper.writerFor(DoublePayment[].class);
+		bigDecimalWriter = objectMapper.writerFor(BigDecimalPayment[].class);
+
+		List<Payment> payments = Fixtures.payments(size);
+		fixedPointPayments = payments.toArray(new Payment[0]);
+		json = fixedPointWriter.writeValueAsBytes(fixedPointPayments);
+		doublePayments = doubleReader.readValue(json);
+		bigDecimalPayments = bigDecimalReader.readValue(json);
+	}
+
+	@Benchmark
+	public Payment[] readFixedPoint() throws Exception {
+		return fixedPointReader.readValue(json);
+	}
+
+	@Benchmark
+	public DoublePayment[] readDouble() throws Exception {
+		return doubleReader.readValue(json);
+	}
+
+	@Benchmark
+	public BigDecimalPayment[] readBigDecimal() throws Exception {
+		return bigDecimalReader.readValue(json);
+	}
+
+	@Benchmark
+	public byte[] writeFixedPoint() throws Exception {
+		return fixedPointWriter.writeValueAsBytes(fixedPointPayments);
+	}
+
+	@Benchmark
+	public byte[] writeDouble() throws Exception {
+		return doubleWriter.writeValueAsBytes(doublePayments);
+	}
+
+	@Benchmark
+	public byte[] writeBigDecimal() throws Exception {
+		return bigDecimalWriter.writeValueAsBytes(bigDecimalPayments);
+	}
+
+	@Benchmark
+	public long sumFixedPoint() {
+		long total = 0;
+		for (Payment payment : fixedPointPayments) {
+			total = Math.addExact(total, payment.getAmount());
+		}
+		return total;
+	}
+
+	@Benchmark
+	public double sumDouble() {
+		double total = 0;
+		for (DoublePayment payment : doublePayments) {
+			total += payment.amount;
+		}
+		return total;
+	}
+
+	@Benchmark
+	public BigDecimal sumBigDecimal() {
+		BigDecimal total = BigDecimal.ZERO;
+		for (BigDecimalPayment payment : bigDecimalPayments) {
+			total = total.add(payment.amount);
+		}
+		return total;
+	}
+
+	public static class DoublePayment {
+
+		public String id;
+		public Status status;
+		@JsonProperty("recipient_id")
+		public String recipientId;
+		public Currency currency;
+		public double amount;
+
+	}
+
+	public static class BigDecimalPayment {
+
+		public String id;
+		public Status status;
+		@JsonProperty("recipient_id")
+		public String recipientId;
+		public Currency currency;
+		public BigDecimal amount;
+
+	}
+
+}
@@ -0,0 +1,109 @@
+package io.elken.fakebook.paymentservice.index;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.elken.fakebook.paymentservice.domain.Amount;
+import io.elken.fakebook.paymentservice.domain.Payment;
+import io.elken.fakebook.paymentservice.domain.PaymentPage;
+import io.elken.fakebook.paymentservice.domain.PaymentQuery;
+import io.elken.fakebook.paymentservice.provider.Fixtures;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@State(Scope.Benchmark)
+@Fork(jvmArgsAppend = {"-Djdk.attach.allowAttachSelf", "-XX:+EnableDynamicAgentLoading"})
+public class PaymentStoreBenchmark {
+
+	private static final int PAGE_SIZE = 50;
+
+	@Param({"1000", "100000", "1000000"})
+	private int size;
+
+	private List<Payment> list;
+	private PaymentIndex index;
+	private PaymentQuery query;
+	private ObjectWriter writer;
+	private long listHeapBytes;
+	private long indexHeapBytes;
+
+	@Setup
+	public void setup() {
+		list = new ArrayList<>(Fixtures.payments(size));
+		index = new PaymentIndex(Fixtures.payments(size));
+		query = new PaymentQuery(null, PAGE_SIZE, null, null, null, Amount.parse("19.90"), null);
+		writer = new ObjectMapper().writerFor(List.class);
+		listHeapBytes = GraphLayout.parseInstance(list).totalSize();
+		indexHeapBytes = GraphLayout.parseInstance(index).totalSize();
+	}
+
+	@Benchmark
+	public List<Payment> findList(Footprint footprint) {
+		footprint.record(listHeapBytes, 0, size);
+		List<Payment> page = new ArrayList<>(PAGE_SIZE);
+		for (int i = list.size() - 1; i >= 0 && page.size() < PAGE_SIZE; i--) {
+			Payment payment = list.get(i);
+			if (query.matches(payment)) {
+				page.add(payment);
+			}
+		}
+		return page;
+	}
+
+	@Benchmark
+	public PaymentPage findColumns(Footprint footprint) {
+		footprint.record(indexHeapBytes, index.offHeapBytes(), size);
+		return index.find(query);
+	}
+
+	@Benchmark
+	public byte[] serializeList(Footprint footprint) throws Exception {
+		footprint.record(listHeapBytes, 0, size);
+		return writer.writeValueAsBytes(list);
+	}
+
+	@Benchmark
+	public byte[] serializeColumns(Footprint footprint) throws Exception {
+		footprint.record(indexHeapBytes, index.offHeapBytes(), size);
+		return writer.writeValueAsBytes(index.asList());
+	}
+
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	@State(Scope.Thread)
+	public static class Footprint {
+
+		public long heapBytesPerPayment;
+		public long offHeapBytesPerPayment;
+		private boolean reported;
+		private boolean armed;
+
+		// EVENTS counters are summed across measurement iterations, so only one iteration reports the footprint
+		@Setup(Level.Iteration)
+		public void reset(IterationParams iteration) {
+			heapBytesPerPayment = 0;
+			offHeapBytesPerPayment = 0;
+			armed = iteration.getType() == IterationType.MEASUREMENT && !reported;
+			reported |= armed;
+		}
+
+		void record(long heapBytes, long offHeapBytes, int payments) {
+			if (armed) {
+				heapBytesPerPayment = heapBytes / payments;
+				offHeapBytesPerPayment = offHeapBytes / payments;
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,132 @@
+package io.elken.fakebook.paymentservice.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.elken.fakebook.paymentservice.domain.LoginResponse;
+import io.elken.fakebook.paymentservice.domain.Payment;
+import io.elken.fakebook.paymentservice.domain.Recipient;
+import io.elken.fakebook.paymentservice.provider.Fixtures;
+import io.elken.fakebook.paymentservice.provider.api.coolpay.PaymentWrapper;
+import io.elken.fakebook.paymentservice.provider.api.coolpay.PaymentsResponse;
+import io.elken.fakebook.paymentservice.provider.api.coolpay.RecipientWrapper;
+import io.elken.fakebook.paymentservice.provider.api.coolpay.RecipientsResponse;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+public class CoolpaySimulator implements Closeable {
+
+	private static final int BACKLOG = 10000;
+
+	private final Latency latency;
+	private final double errorRate;
+	private final AtomicLong seeds;
+	private final ObjectReader recipientReader;
+	private final ObjectReader paymentReader;
+	private final ObjectWriter recipientWriter;
+	private final ObjectWriter paymentWriter;
+	private final byte[] login;
+	private final byte[] recipients;
+	private final byte[] payments;
+	private final LongAdder requests = new LongAdder();
+	private final LongAdder errors = new LongAdder();
+	private final ExecutorService executor;
+	private final HttpServer server;
+
+	public CoolpaySimulator(Latency latency, double errorRate, int payloadSize, long seed) throws IOException {
+		this.latency = latency;
+		this.errorRate = errorRate;
+		this.seeds = new AtomicLong(seed);
+		ObjectMapper objectMapper = new ObjectMapper();
+		this.recipientReader = objectMapper.readerFor(RecipientWrapper.class);
+		this.paymentReader = objectMapper.readerFor(PaymentWrapper.class);
+		this.recipientWriter = objectMapper.writerFor(RecipientWrapper.class);
+		this.paymentWriter = objectMapper.writerFor(PaymentWrapper.class);
+		this.login = objectMapper.writeValueAsBytes(new LoginResponse(UUID.nameUUIDFromBytes(Long.toString(seed).getBytes()).toString()));
+		this.recipients = objectMapper.writeValueAsBytes(new RecipientsResponse(Fixtures.recipients(payloadSize)));
+		this.payments = objectMapper.writeValueAsBytes(new PaymentsResponse(Fixtures.payments(payloadSize)));
+
+		this.executor = Executors.newVirtualThreadPerTaskExecutor();
+		this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), BACKLOG);
+		server.setExecutor(executor);
+		server.createContext("/api/login", exchange -> handle(exchange, (method, body) -> login));
+		server.createContext("/api/recipients", exchange -> handle(exchange,
+				(method, body) -> "POST".equals(method) ? createRecipient(body) : recipients));
+		server.createContext("/api/payments", exchange -> handle(exchange,
+				(method, body) -> "POST".equals(method) ? createPayment(body) : payments));
+		server.start();
+	}
+
+	public String getBaseUri() {
+		return "http://127.0.0.1:" + server.getAddress().getPort() + "/api";
+	}
+
+	public long getRequests() {
+		return requests.sum();
+	}
+
+	public long getErrors() {
+		return errors.sum();
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	private void handle(HttpExchange exchange, Response response) throws IOException {
+		requests.increment();
+		SplittableRandom random = new SplittableRandom(seeds.getAndIncrement());
+		try (InputStream in = exchange.getRequestBody(); OutputStream out = exchange.getResponseBody()) {
+			byte[] body = in.readAllBytes();
+			NANOSECONDS.sleep(latency.sampleNanos(random));
+			if (random.nextDouble() < errorRate) {
+				errors.increment();
+				exchange.sendResponseHeaders(503, -1);
+				return;
+			}
+			byte[] json = response.write(exchange.getRequestMethod(), body);
+			exchange.getResponseHeaders().set("Content-Type", "application/json");
+			exchange.sendResponseHeaders(200, json.length);
+			out.write(json);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private byte[] createRecipient(byte[] body) throws IOException {
+		Recipient recipient = recipientReader.<RecipientWrapper>readValue(body).getRecipient();
+		recipient.setId(UUID.randomUUID().toString());
+		return recipientWriter.writeValueAsBytes(new RecipientWrapper(recipient));
+	}
+
+	private byte[] createPayment(byte[] body) throws IOException {
+		Payment payment = paymentReader.<PaymentWrapper>readValue(body).getPayment();
+		payment.setId(UUID.randomUUID().toString());
+		return paymentWriter.writeValueAsBytes(new PaymentWrapper(payment));
+	}
+
+	@FunctionalInterface
+	private interface Response {
+
+		byte[] write(String method, byte[] body) throws IOException;
+
+	}
+
+}
@@ -0,0 +1,56 @@
+package io.elken.fakebook.paymentservice.load;
+
+import java.util.SplittableRandom;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+@FunctionalInterface
+public interface Latency {
+
+	long sampleNanos(SplittableRandom random);
+
+	static Latency fixed(long millis) {
+		long nanos = MILLISECONDS.toNanos(millis);
+		return random -> nanos;
+	}
+
+	static Latency uniform(long minMillis, long maxMillis) {
+		long min = MILLISECONDS.toNanos(minMillis);
+		long max = MILLISECONDS.toNanos(maxMillis);
+		return random -> min == max ? min : random.nextLong(min, max + 1);
+	}
+
+	static Latency exponential(long meanMillis) {
+		double mean = MILLISECONDS.toNanos(meanMillis);
+		return random -> (long) (-mean * Math.log(1 - random.nextDouble()));
+	}
+
+	static Latency logNormal(long medianMillis, double sigma) {
+		double mu = Math.log(MILLISECONDS.toNanos(medianMillis));
+		return random -> (long) Math.exp(mu + sigma * gaussian(random));
+	}
+
+	static Latency parse(String spec) {
+		String[] parts = spec.split(":");
+		switch (parts[0]) {
+			case "fixed":
+				return fixed(Long.parseLong(parts[1]));
+			case "uniform":
+				return uniform(Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+			case "exponential":
+				return exponential(Long.parseLong(parts[1]));
+			case "lognormal":
+				return logNormal(Long.parseLong(parts[1]), Double.parseDouble(parts[2]));
+			default:
+				throw new IllegalArgumentException("Unknown latency distribution '" + spec
+						+ "', expected fixed:ms, uniform:min:max, exponential:mean or lognormal:median:sigma");
+		}
+	}
+
+	private static double gaussian(SplittableRandom random) {
+		double u = 1 - random.nextDouble();
+		double v = random.nextDouble();
+		return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * v);
+	}
+
+}
@@ -0,0 +1,321 @@
+package io.elken.fakebook.paymentservice.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.elken.fakebook.paymentservice.PaymentServiceApplication;
+import io.elken.fakebook.paymentservice.domain.Currency;
+import io.elken.fakebook.paymentservice.domain.Payment;
+import io.elken.fakebook.paymentservice.domain.Status;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+public final class LoadTest {
+
+	private static final long MAX_LATENCY_NANOS = SECONDS.toNanos(60);
+	private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+	private final Map<String, String> options;
+	private final List<String> applicationArgs;
+	private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+	private final HttpClient client = HttpClient.newBuilder().executor(executor).version(HttpClient.Version.HTTP_1_1).build();
+	private final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	private HttpRequest[] requests;
+	private int[] weights;
+
+	private LoadTest(Map<String, String> options, List<String> applicationArgs) {
+		this.options = options;
+		this.applicationArgs = applicationArgs;
+	}
+
+	public static void main(String[] args) throws Exception {
+		Map<String, String> options = new LinkedHashMap<>();
+		options.put("mode", "closed,open");
+		options.put("concurrency", "64");
+		options.put("rate", "1000");
+		options.put("warmup-seconds", "10");
+		options.put("duration-seconds", "30");
+		options.put("threading", "platform");
+		options.put("upstream-latency", "lognormal:20:0.5");
+		options.put("upstream-error-rate", "0");
+		options.put("payload-size", "100");
+		options.put("tokens", "100");
+		options.put("mix", "list-payments:70,list-recipients:20,create-payment:10");
+		options.put("seed", "42");
+		options.put("report", "build/reports/load/load-test.json");
+		List<String> applicationArgs = new ArrayList<>();
+		for (String arg : args) {
+			int separator = arg.indexOf('=');
+			String key = separator < 0 ? arg.substring(2) : arg.substring(2, separator);
+			if (arg.startsWith("--") && separator > 0 && options.containsKey(key)) {
+				options.put(key, arg.substring(separator + 1));
+			} else {
+				applicationArgs.add(arg);
+			}
+		}
+		new LoadTest(options, applicationArgs).run();
+		System.exit(0);
+	}
+
+	private void run() throws Exception {
+		long seed = Long.parseLong(options.get("seed"));
+		Latency latency = Latency.parse(options.get("upstream-latency"));
+		double errorRate = Double.parseDouble(options.get("upstream-error-rate"));
+		int payloadSize = Integer.parseInt(options.get("payload-size"));
+		Map<String, Object> report = new LinkedHashMap<>();
+		report.put("timestamp", Instant.now().toString());
+		report.put("java", System.getProperty("java.vm.version"));
+		report.put("options", options);
+		report.put("applicationArgs", applicationArgs);
+		try (CoolpaySimulator simulator = new CoolpaySimulator(latency, errorRate, payloadSize, seed);
+			 ConfigurableApplicationContext application = start(simulator)) {
+			buildRequests(Integer.parseInt(application.getEnvironment().getProperty("local.server.port")));
+			Map<String, Object> results = new LinkedHashMap<>();
+			for (String mode : options.get("mode").split(",")) {
+				SplittableRandom random = new SplittableRandom(seed);
+				System.out.printf("Warming up %s loop for %ss%n", mode, options.get("warmup-seconds"));
+				measure(mode, random, SECONDS.toNanos(Long.parseLong(options.get("warmup-seconds"))), simulator);
+				System.out.printf("Measuring %s loop for %ss%n", mode, options.get("duration-seconds"));
+				Map<String, Object> result = measure(mode, random, SECONDS.toNanos(Long.parseLong(options.get("duration-seconds"))), simulator);
+				results.put(mode, result);
+				print(mode, result);
+			}
+			report.put("results", results);
+		} finally {
+			executor.shutdownNow();
+		}
+		write(report);
+	}
+
+	private ConfigurableApplicationContext start(CoolpaySimulator simulator) {
+		int connections = Math.max(1000, Integer.parseInt(options.get("concurrency")) * 2);
+		List<String> args = new ArrayList<>(List.of(
+				"--server.port=0",
+				"--spring.main.banner-mode=off",
+				"--logging.level.root=WARN",
+				"--spring.threads.virtual.enabled=" + "virtual".equals(options.get("threading")),
+				"--server.tomcat.max-connections=" + connections,
+				"--coolpay.rate-limit.enabled=false",
+				"--coolpay.base.uri=" + simulator.getBaseUri(),
+				"--coolpay.http-client.max-connections-total=" + connections,
+				"--coolpay.http-client.max-connections-per-route=" + connections));
+		args.addAll(applicationArgs);
+		System.setProperty("spring.devtools.restart.enabled", "false");
+		return new SpringApplicationBuilder(PaymentServiceApplication.class).run(args.toArray(new String[0]));
+	}
+
+	private void buildRequests(int port) throws IOException {
+		String[] mix = options.get("mix").split(",");
+		int tokens = Integer.parseInt(options.get("tokens"));
+		byte[] payment = new ObjectMapper().writeValueAsBytes(
+				new Payment(null, Status.paid, "6e7b4cea-5957-11e6-8b77-86f30ca893d3", Currency.GBP, 1099));
+		requests = new HttpRequest[mix.length * tokens];
+		weights = new int[mix.length];
+		for (int i = 0; i < mix.length; i++) {
+			String[] operation = mix[i].split(":");
+			weights[i] = (i == 0 ? 0 : weights[i - 1]) + Integer.parseInt(operation[1]);
+			for (int token = 0; token < tokens; token++) {
+				HttpRequest.Builder request = HttpRequest.newBuilder()
+						.header("Authorization", "load-test-token-" + token)
+						.header("Content-Type", "application/json");
+				String base = "http://127.0.0.1:" + port + "/coolpay";
+				switch (operation[0]) {
+					case "list-payments":
+						request.uri(URI.create(base + "/payments")).GET();
+						break;
+					case "list-recipients":
+						request.uri(URI.create(base + "/recipients")).GET();
+						break;
+					case "create-payment":
+						request.uri(URI.create(base + "/payments")).POST(HttpRequest.BodyPublishers.ofByteArray(payment));
+						break;
+					default:
+						throw new IllegalArgumentException("Unknown operation '" + operation[0]
+								+ "', expected list-payments, list-recipients or create-payment");
+				}
+				requests[i * tokens + token] = request.build();
+			}
+		}
+	}
+
+	private Map<String, Object> measure(String mode, SplittableRandom random, long durationNanos, CoolpaySimulator simulator)
+			throws Exception {
+		Recorder recorder = new Recorder(MAX_LATENCY_NANOS, 3);
+		LongAdder errors = new LongAdder();
+		long upstreamRequests = simulator.getRequests();
+		long upstreamErrors = simulator.getErrors();
+		long gcCount = gcCount();
+		long gcMillis = gcMillis();
+		long allocated = threads.getTotalThreadAllocatedBytes();
+		ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+		long start = System.nanoTime();
+		switch (mode) {
+			case "closed":
+				closedLoop(random, start + durationNanos, recorder, errors);
+				break;
+			case "open":
+				openLoop(random, start, start + durationNanos, recorder, errors);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown mode '" + mode + "', expected closed or open");
+		}
+		long elapsed = System.nanoTime() - start;
+		Histogram histogram = recorder.getIntervalHistogram();
+
+		Map<String, Object> latency = new LinkedHashMap<>();
+		for (double percentile : PERCENTILES) {
+			latency.put("p" + (percentile % 1 == 0 ? Long.toString((long) percentile) : Double.toString(percentile)),
+					millis(histogram.getValueAtPercentile(percentile)));
+		}
+		latency.put("max", millis(histogram.getMaxValue()));
+		latency.put("mean", millis((long) histogram.getMean()));
+		Map<String, Object> result = new LinkedHashMap<>();
+		result.put("requests", histogram.getTotalCount());
+		result.put("errors", errors.sum());
+		result.put("seconds", elapsed / 1e9);
+		result.put("throughput", histogram.getTotalCount() / (elapsed / 1e9));
+		result.put("latencyMillis", latency);
+		result.put("gcCount", gcCount() - gcCount);
+		result.put("gcMillis", gcMillis() - gcMillis);
+		result.put("allocatedMb", (threads.getTotalThreadAllocatedBytes() - allocated) >> 20);
+		result.put("heapPeakMb", heapPeak() >> 20);
+		result.put("upstreamRequests", simulator.getRequests() - upstreamRequests);
+		result.put("upstreamErrors", simulator.getErrors() - upstreamErrors);
+		result.put("histogram", histogram);
+		return result;
+	}
+
+	private void closedLoop(SplittableRandom random, long deadline, Recorder recorder, LongAdder errors) throws InterruptedException {
+		int concurrency = Integer.parseInt(options.get("concurrency"));
+		List<Thread> workers = new ArrayList<>(concurrency);
+		for (int i = 0; i < concurrency; i++) {
+			SplittableRandom workerRandom = random.split();
+			workers.add(Thread.ofVirtual().name("load-closed-" + i).start(() -> {
+				while (System.nanoTime() < deadline) {
+					long start = System.nanoTime();
+					send(next(workerRandom), errors);
+					recorder.recordValue(Math.min(MAX_LATENCY_NANOS, System.nanoTime() - start));
+				}
+			}));
+		}
+		for (Thread worker : workers) {
+			worker.join();
+		}
+	}
+
+	private void openLoop(SplittableRandom random, long start, long deadline, Recorder recorder, LongAdder errors)
+			throws InterruptedException {
+		long intervalNanos = SECONDS.toNanos(1) / Long.parseLong(options.get("rate"));
+		List<Thread> inFlight = new ArrayList<>();
+		for (long intended = start; intended < deadline; intended += intervalNanos) {
+			long wait = intended - System.nanoTime();
+			if (wait > 0) {
+				LockSupport.parkNanos(wait);
+			}
+			long scheduled = intended;
+			HttpRequest request = next(random);
+			inFlight.add(Thread.ofVirtual().start(() -> {
+				send(request, errors);
+				recorder.recordValue(Math.min(MAX_LATENCY_NANOS, System.nanoTime() - scheduled));
+			}));
+		}
+		for (Thread request : inFlight) {
+			request.join(NANOSECONDS.toMillis(MAX_LATENCY_NANOS));
+		}
+	}
+
+	private HttpRequest next(SplittableRandom random) {
+		int weight = random.nextInt(weights[weights.length - 1]);
+		int operation = 0;
+		while (weight >= weights[operation]) {
+			operation++;
+		}
+		int tokens = requests.length / weights.length;
+		return requests[operation * tokens + random.nextInt(tokens)];
+	}
+
+	private void send(HttpRequest request, LongAdder errors) {
+		try {
+			HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+			if (response.statusCode() >= 300) {
+				errors.increment();
+			}
+		} catch (IOException e) {
+			errors.increment();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			errors.increment();
+		}
+	}
+
+	private void print(String mode, Map<String, Object> result) {
+		System.out.printf("%s loop: %d requests, %d errors, %.1f req/s, latency ms %s, gc %d in %dms, allocated %dMB, heap peak %dMB%n",
+				mode, result.get("requests"), result.get("errors"), result.get("throughput"), result.get("latencyMillis"),
+				result.get("gcCount"), result.get("gcMillis"), result.get("allocatedMb"), result.get("heapPeakMb"));
+	}
+
+	@SuppressWarnings("unchecked")
+	private void write(Map<String, Object> report) throws IOException {
+		Path path = Paths.get(options.get("report"));
+		Files.createDirectories(path.toAbsolutePath().getParent());
+		String name = path.getFileName().toString().replaceFirst("\\.json$", "");
+		for (Map.Entry<String, Object> result : ((Map<String, Object>) report.get("results")).entrySet()) {
+			Histogram histogram = (Histogram) ((Map<String, Object>) result.getValue()).remove("histogram");
+			try (PrintStream out = new PrintStream(Files.newOutputStream(path.resolveSibling(name + "-" + result.getKey() + ".hgrm")))) {
+				histogram.outputPercentileDistribution(out, (double) MILLISECONDS.toNanos(1));
+			}
+		}
+		new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(path.toFile(), report);
+		System.out.println("Wrote " + path.toAbsolutePath());
+	}
+
+	private static double millis(long nanos) {
+		return Math.round(nanos / 1e3) / 1e3;
+	}
+
+	private static long gcCount() {
+		return ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+	}
+
+	private static long gcMillis() {
+		return ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+	}
+
+	private static long heapPeak() {
+		return ManagementFactory.getMemoryPoolMXBeans().stream()
+				.filter(pool -> pool.getType() == MemoryType.HEAP)
+				.mapToLong(pool -> pool.getPeakUsage().getUsed())
+				.sum();
+	}
+
+}
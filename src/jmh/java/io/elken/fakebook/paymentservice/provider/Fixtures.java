@@ -0,0 +1,34 @@
+package io.elken.fakebook.paymentservice.provider;
+
+import io.elken.fakebook.paymentservice.domain.Currency;
+import io.elken.fakebook.paymentservice.domain.Payment;
+import io.elken.fakebook.paymentservice.domain.Recipient;
+import io.elken.fakebook.paymentservice.domain.Status;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class Fixtures {
+
+	private Fixtures() {
+	}
+
+	public static List<Payment> payments(int count) {
+		Currency[] currencies = Currency.values();
+		List<Payment> payments = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			payments.add(new Payment("31db334f-9ac0-42cb-804b-" + String.format("%012d", i), Status.paid,
+					"6e7b4cea-5957-11e6-8b77-" + String.format("%012d", i % 97), currencies[i % currencies.length], 1000 + i % 1000));
+		}
+		return payments;
+	}
+
+	public static List<Recipient> recipients(int count) {
+		List<Recipient> recipients = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			recipients.add(new Recipient("6e7b4cea-5957-11e6-8b77-" + String.format("%012d", i), "Recipient " + i));
+		}
+		return recipients;
+	}
+
+}
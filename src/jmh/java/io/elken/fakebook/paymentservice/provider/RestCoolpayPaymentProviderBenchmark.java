@@ -0,0 +1,73 @@
+package io.elken.fakebook.paymentservice.provider;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.elken.fakebook.paymentservice.domain.LoginRequest;
+import io.elken.fakebook.paymentservice.domain.LoginResponse;
+import io.elken.fakebook.paymentservice.domain.Payment;
+import io.elken.fakebook.paymentservice.domain.Recipient;
+import io.elken.fakebook.paymentservice.provider.api.coolpay.PaymentWrapper;
+import io.elken.fakebook.paymentservice.provider.api.coolpay.PaymentsResponse;
+import io.elken.fakebook.paymentservice.provider.api.coolpay.RecipientsResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+
+import static org.springframework.http.HttpMethod.GET;
+import static org.springframework.http.HttpMethod.POST;
+
+@State(Scope.Benchmark)
+public class RestCoolpayPaymentProviderBenchmark {
+
+	private static final String TOKEN = "5b1ac6b7-3f3c-4a3f-8e57-6a0d3f31f4a2";
+
+	@Param({"10", "100", "1000", "10000", "100000"})
+	private int size;
+
+	private RestCoolpayPaymentProvider provider;
+	private Payment payment;
+
+	@Setup
+	public void setup() throws Exception {
+		ObjectMapper objectMapper = new ObjectMapper();
+		List<Payment> payments = Fixtures.payments(size);
+		payment = payments.get(0);
+		StubClientHttpRequestFactory upstream = new StubClientHttpRequestFactory()
+				.respond(POST, "/api/login", objectMapper.writeValueAsBytes(new LoginResponse(TOKEN)))
+				.respond(GET, "/api/payments", objectMapper.writeValueAsBytes(new PaymentsResponse(payments)))
+				.respond(GET, "/api/recipients", objectMapper.writeValueAsBytes(new RecipientsResponse(Fixtures.recipients(size))))
+				.respond(POST, "/api/payments", objectMapper.writeValueAsBytes(new PaymentWrapper(payment)));
+		provider = new RestCoolpayPaymentProvider(new RestTemplate(upstream), "http://coolpay.local/api");
+	}
+
+	@Benchmark
+	public LoginResponse login() {
+		return provider.login(new LoginRequest("user", "apikey"));
+	}
+
+	@Benchmark
+	public Payment createPayment() {
+		return provider.createPayment(TOKEN, payment);
+	}
+
+	@Benchmark
+	public List<Payment> listPayments() {
+		return provider.listPayments(TOKEN);
+	}
+
+	@Benchmark
+	public void streamPayments(Blackhole blackhole) {
+		provider.streamPayments(TOKEN, blackhole::consume);
+	}
+
+	@Benchmark
+	public List<Recipient> listRecipients() {
+		return provider.listRecipients(TOKEN);
+	}
+
+}
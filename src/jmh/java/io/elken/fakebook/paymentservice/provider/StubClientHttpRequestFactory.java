@@ -0,0 +1,36 @@
+package io.elken.fakebook.paymentservice.provider;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+
+public class StubClientHttpRequestFactory implements ClientHttpRequestFactory {
+
+	private final Map<String, byte[]> responses = new HashMap<>();
+
+	public StubClientHttpRequestFactory respond(HttpMethod method, String path, byte[] body) {
+		responses.put(method + " " + path, body);
+		return this;
+	}
+
+	@Override
+	public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) {
+		byte[] body = responses.get(httpMethod + " " + uri.getPath());
+		MockClientHttpRequest request = new MockClientHttpRequest(httpMethod, uri);
+		MockClientHttpResponse response = body == null
+				? new MockClientHttpResponse(new byte[0], HttpStatus.NOT_FOUND)
+				: new MockClientHttpResponse(body, HttpStatus.OK);
+		response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+		request.setResponse(response);
+		return request;
+	}
+
+}
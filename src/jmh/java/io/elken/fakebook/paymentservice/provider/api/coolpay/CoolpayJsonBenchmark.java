@@ -0,0 +1,68 @@
+package io.elken.fakebook.paymentservice.provider.api.coolpay;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import io.elken.fakebook.paymentservice.provider.Fixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Benchmark)
+public class CoolpayJsonBenchmark {
+
+	@Param({"10", "100", "1000", "10000", "100000"})
+	private int size;
+
+	@Param({"reflection", "blackbird"})
+	private String accessors;
+
+	private ObjectReader paymentsReader;
+	private ObjectReader recipientsReader;
+	private ObjectWriter paymentsWriter;
+	private ObjectWriter recipientsWriter;
+	private PaymentsResponse payments;
+	private RecipientsResponse recipients;
+	private byte[] paymentsJson;
+	private byte[] recipientsJson;
+
+	@Setup
+	public void setup() throws Exception {
+		ObjectMapper objectMapper = new ObjectMapper();
+		if ("blackbird".equals(accessors)) {
+			objectMapper.registerModule(new BlackbirdModule());
+		}
+		paymentsReader = objectMapper.readerFor(PaymentsResponse.class);
+		recipientsReader = objectMapper.readerFor(RecipientsResponse.class);
+		paymentsWriter = objectMapper.writerFor(PaymentsResponse.class);
+		recipientsWriter = objectMapper.writerFor(RecipientsResponse.class);
+		payments = new PaymentsResponse(Fixtures.payments(size));
+		paymentsJson = paymentsWriter.writeValueAsBytes(payments);
+		recipients = new RecipientsResponse(Fixtures.recipients(size));
+		recipientsJson = recipientsWriter.writeValueAsBytes(recipients);
+	}
+
+	@Benchmark
+	public PaymentsResponse readPayments() throws Exception {
+		return paymentsReader.readValue(paymentsJson);
+	}
+
+	@Benchmark
+	public RecipientsResponse readRecipients() throws Exception {
+		return recipientsReader.readValue(recipientsJson);
+	}
+
+	@Benchmark
+	public byte[] writePayments() throws Exception {
+		return paymentsWriter.writeValueAsBytes(payments);
+	}
+
+	@Benchmark
+	public byte[] writeRecipients() throws Exception {
+		return recipientsWriter.writeValueAsBytes(recipients);
+	}
+
+}
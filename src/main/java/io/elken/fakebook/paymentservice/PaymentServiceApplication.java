@@ -6,7 +6,6 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Profile;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
-import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
 
 @SpringBootApplication
 public class PaymentServiceApplication {
@@ -18,10 +17,10 @@ public class PaymentServiceApplication {
 	@Bean
 	@Profile("!prod")
 	public WebMvcConfigurer corsConfigurer() {
-		return new WebMvcConfigurerAdapter() {
+		return new WebMvcConfigurer() {
 			@Override
 			public void addCorsMappings(CorsRegistry registry) {
-				registry.addMapping("/coolpay/*").allowedOrigins("*");
+				registry.addMapping("/coolpay/**").allowedOrigins("*").exposedHeaders("X-Next-Cursor", "Retry-After", "ETag");
 			}
 		};
 	}
@@ -0,0 +1,88 @@
+package io.elken.fakebook.paymentservice.batch;
+
+import io.elken.fakebook.paymentservice.domain.BatchPaymentResult;
+import io.elken.fakebook.paymentservice.domain.Payment;
+import io.elken.fakebook.paymentservice.exception.BadRequestException;
+import io.elken.fakebook.paymentservice.exception.ErrorStatus;
+import io.elken.fakebook.paymentservice.exception.ServiceException;
+import io.elken.fakebook.paymentservice.provider.PaymentProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+public class BatchPaymentService {
+
+	private static final Logger log = LoggerFactory.getLogger(BatchPaymentService.class);
+
+	private final PaymentProvider paymentProvider;
+	private final ExecutorService executor;
+	private final int concurrency;
+	private final int maximumBatchSize;
+
+	public BatchPaymentService(PaymentProvider paymentProvider, ExecutorService executor, int concurrency, int maximumBatchSize) {
+		this.paymentProvider = paymentProvider;
+		this.executor = executor;
+		this.concurrency = concurrency;
+		this.maximumBatchSize = maximumBatchSize;
+	}
+
+	public List<BatchPaymentResult> createPayments(String token, List<Payment> payments) {
+		List<BatchPaymentResult> results = new ArrayList<>(payments.size());
+		createPayments(token, payments, results::add);
+		results.sort(Comparator.comparingInt(BatchPaymentResult::getIndex));
+		return results;
+	}
+
+	public void createPayments(String token, List<Payment> payments, Consumer<BatchPaymentResult> consumer) {
+		if (payments.size() > maximumBatchSize) {
+			throw new BadRequestException("Batch must not contain more than " + maximumBatchSize + " payments");
+		}
+		CompletionService<BatchPaymentResult> completions = new ExecutorCompletionService<>(executor);
+		List<Future<BatchPaymentResult>> submitted = new ArrayList<>(payments.size());
+		try {
+			int next = 0;
+			for (; next < payments.size() && next < concurrency; next++) {
+				submitted.add(completions.submit(createPayment(token, next, payments.get(next))));
+			}
+			for (int completed = 0; completed < payments.size(); completed++) {
+				BatchPaymentResult result = completions.take().get();
+				if (next < payments.size()) {
+					submitted.add(completions.submit(createPayment(token, next, payments.get(next))));
+					next++;
+				}
+				consumer.accept(result);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ServiceException(e);
+		} catch (ExecutionException e) {
+			throw new ServiceException(e.getCause());
+		} finally {
+			submitted.forEach(future -> future.cancel(true));
+		}
+	}
+
+	private Callable<BatchPaymentResult> createPayment(String token, int index, Payment payment) {
+		return () -> {
+			try {
+				return new BatchPaymentResult(index, HttpStatus.OK.value(), paymentProvider.createPayment(token, payment), null);
+			} catch (RuntimeException e) {
+				HttpStatus status = ErrorStatus.of(e);
+				log.debug("Batch payment {} failed with {}", index, status, e);
+				return new BatchPaymentResult(index, status.value(), null, status.getReasonPhrase());
+			}
+		};
+	}
+
+}
@@ -0,0 +1,53 @@
+package io.elken.fakebook.paymentservice.config;
+
+import io.elken.fakebook.paymentservice.batch.BatchPaymentService;
+import io.elken.fakebook.paymentservice.provider.PaymentProvider;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+@EnableConfigurationProperties(BatchProperties.class)
+public class BatchConfig {
+
+	private static final Logger log = LoggerFactory.getLogger(BatchConfig.class);
+
+	@Bean(destroyMethod = "shutdownNow")
+	@ConditionalOnThreading(Threading.PLATFORM)
+	public ExecutorService batchPaymentExecutor(BatchProperties properties) {
+		log.info("Using batch payment executor {}", properties);
+		return Executors.newFixedThreadPool(properties.getThreads(), new CustomizableThreadFactory("coolpay-batch-"));
+	}
+
+	@Bean(name = "batchPaymentExecutor", destroyMethod = "shutdownNow")
+	@ConditionalOnThreading(Threading.VIRTUAL)
+	public ExecutorService virtualBatchPaymentExecutor(BatchProperties properties) {
+		log.info("Using virtual thread batch payment executor {}", properties);
+		return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("coolpay-batch-", 0).factory());
+	}
+
+	@Bean
+	public MeterBinder batchPaymentExecutorMetrics(@Qualifier("batchPaymentExecutor") ExecutorService batchPaymentExecutor) {
+		return registry -> new ExecutorServiceMetrics(batchPaymentExecutor, "coolpay.batch", Collections.emptyList()).bindTo(registry);
+	}
+
+	@Bean
+	public BatchPaymentService batchPaymentService(PaymentProvider paymentProvider,
+												   @Qualifier("batchPaymentExecutor") ExecutorService batchPaymentExecutor,
+												   BatchProperties properties) {
+		return new BatchPaymentService(paymentProvider, batchPaymentExecutor, properties.getConcurrency(), properties.getMaximumSize());
+	}
+
+}
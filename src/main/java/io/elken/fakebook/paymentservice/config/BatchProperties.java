@@ -0,0 +1,48 @@
+package io.elken.fakebook.paymentservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "coolpay.batch")
+public class BatchProperties {
+
+	private int threads = 32;
+	private int concurrency = 16;
+	private int maximumSize = 10000;
+
+	public int getThreads() {
+		return threads;
+	}
+
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	public int getConcurrency() {
+		return concurrency;
+	}
+
+	public void setConcurrency(int concurrency) {
+		if (concurrency < 1) {
+			throw new IllegalArgumentException("coolpay.batch.concurrency must be at least 1");
+		}
+		this.concurrency = concurrency;
+	}
+
+	public int getMaximumSize() {
+		return maximumSize;
+	}
+
+	public void setMaximumSize(int maximumSize) {
+		this.maximumSize = maximumSize;
+	}
+
+	@Override
+	public String toString() {
+		return "BatchProperties{" +
+				"threads=" + threads +
+				", concurrency=" + concurrency +
+				", maximumSize=" + maximumSize +
+				'}';
+	}
+
+}
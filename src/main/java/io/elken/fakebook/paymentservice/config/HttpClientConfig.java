@@ -1,15 +1,159 @@
 package io.elken.fakebook.paymentservice.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.hc.client5.http.ConnectionKeepAliveStrategy;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.DefaultConnectionKeepAliveStrategy;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
 
 @Configuration
+@EnableConfigurationProperties(HttpClientProperties.class)
 public class HttpClientConfig {
 
+	private static final Logger log = LoggerFactory.getLogger(HttpClientConfig.class);
+
+	private static final String ENGINE_PROPERTY = "coolpay.http-client.engine";
+	private static final String POOL_METRIC_PREFIX = "coolpay.http.pool.";
+
+	@Bean
+	public RestTemplate restTemplate(ClientHttpRequestFactory clientHttpRequestFactory,
+									 ObjectProvider<List<ClientHttpRequestInterceptor>> interceptors,
+									 ObjectProvider<ObjectMapper> objectMapper) {
+		RestTemplate restTemplate = new RestTemplate(clientHttpRequestFactory);
+		objectMapper.ifAvailable(mapper -> restTemplate.getMessageConverters().replaceAll(converter ->
+				converter instanceof MappingJackson2HttpMessageConverter ? new MappingJackson2HttpMessageConverter(mapper) : converter));
+		restTemplate.setInterceptors(interceptors.getIfAvailable(Collections::emptyList));
+		return restTemplate;
+	}
+
 	@Bean
-	public RestTemplate restTemplate() {
-		return new RestTemplate();
+	public WebClient webClient() {
+		return WebClient.builder().build();
+	}
+
+	@Configuration
+	@ConditionalOnProperty(name = ENGINE_PROPERTY, havingValue = "simple")
+	static class SimpleEngineConfig {
+
+		@Bean
+		public ClientHttpRequestFactory clientHttpRequestFactory(HttpClientProperties properties) {
+			log.info("Using simple http client engine {}", properties);
+			SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+			requestFactory.setConnectTimeout(properties.getConnectTimeoutMillis());
+			requestFactory.setReadTimeout(properties.getReadTimeoutMillis());
+			return requestFactory;
+		}
+
+	}
+
+	@Configuration
+	@ConditionalOnProperty(name = ENGINE_PROPERTY, havingValue = "apache", matchIfMissing = true)
+	static class ApacheEngineConfig {
+
+		@Bean(destroyMethod = "close")
+		public PoolingHttpClientConnectionManager poolingConnectionManager(HttpClientProperties properties) {
+			return PoolingHttpClientConnectionManagerBuilder.create()
+					.setMaxConnTotal(properties.getMaxConnectionsTotal())
+					.setMaxConnPerRoute(properties.getMaxConnectionsPerRoute())
+					.setDefaultConnectionConfig(ConnectionConfig.custom()
+							.setConnectTimeout(Timeout.ofMilliseconds(properties.getConnectTimeoutMillis()))
+							.setSocketTimeout(Timeout.ofMilliseconds(properties.getReadTimeoutMillis()))
+							.build())
+					.build();
+		}
+
+		@Bean(destroyMethod = "close")
+		public CloseableHttpClient apacheHttpClient(PoolingHttpClientConnectionManager connectionManager, HttpClientProperties properties) {
+			RequestConfig requestConfig = RequestConfig.custom()
+					.setResponseTimeout(Timeout.ofMilliseconds(properties.getReadTimeoutMillis()))
+					.setConnectionRequestTimeout(Timeout.ofMilliseconds(properties.getPoolAcquireTimeoutMillis()))
+					.build();
+			return HttpClients.custom()
+					.setConnectionManager(connectionManager)
+					.setDefaultRequestConfig(requestConfig)
+					.setKeepAliveStrategy(keepAliveStrategy(properties.getKeepAliveMillis()))
+					.evictExpiredConnections()
+					.evictIdleConnections(TimeValue.ofMilliseconds(properties.getIdleEvictionMillis()))
+					.build();
+		}
+
+		@Bean
+		public ClientHttpRequestFactory clientHttpRequestFactory(CloseableHttpClient apacheHttpClient, HttpClientProperties properties) {
+			log.info("Using apache http client engine {}", properties);
+			return new HttpComponentsClientHttpRequestFactory(apacheHttpClient);
+		}
+
+		@Bean
+		public MeterBinder apacheConnectionPoolMetrics(PoolingHttpClientConnectionManager connectionManager) {
+			return registry -> {
+				Gauge.builder(POOL_METRIC_PREFIX + "leased", connectionManager, m -> m.getTotalStats().getLeased())
+						.tag("engine", "apache").register(registry);
+				Gauge.builder(POOL_METRIC_PREFIX + "idle", connectionManager, m -> m.getTotalStats().getAvailable())
+						.tag("engine", "apache").register(registry);
+				Gauge.builder(POOL_METRIC_PREFIX + "pending", connectionManager, m -> m.getTotalStats().getPending())
+						.tag("engine", "apache").register(registry);
+				Gauge.builder(POOL_METRIC_PREFIX + "max", connectionManager, m -> m.getTotalStats().getMax())
+						.tag("engine", "apache").register(registry);
+			};
+		}
+
+		private static ConnectionKeepAliveStrategy keepAliveStrategy(long keepAliveMillis) {
+			return (response, context) -> {
+				long advertised = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context).toMilliseconds();
+				return TimeValue.ofMilliseconds(advertised > 0 ? Math.min(advertised, keepAliveMillis) : keepAliveMillis);
+			};
+		}
+
+	}
+
+	@Configuration
+	@ConditionalOnProperty(name = ENGINE_PROPERTY, havingValue = "jdk")
+	static class JdkEngineConfig {
+
+		@Bean
+		public HttpClient jdkHttpClient(HttpClientProperties properties) {
+			return HttpClient.newBuilder()
+					.connectTimeout(Duration.ofMillis(properties.getConnectTimeoutMillis()))
+					.version(properties.isHttp2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+					.build();
+		}
+
+		@Bean
+		public ClientHttpRequestFactory clientHttpRequestFactory(HttpClient jdkHttpClient, HttpClientProperties properties) {
+			log.info("Using jdk http client engine {}", properties);
+			JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(jdkHttpClient);
+			requestFactory.setReadTimeout(properties.getReadTimeoutMillis());
+			return requestFactory;
+		}
+
 	}
 
 }
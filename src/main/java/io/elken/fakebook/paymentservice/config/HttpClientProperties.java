@@ -0,0 +1,109 @@
+package io.elken.fakebook.paymentservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "coolpay.http-client")
+public class HttpClientProperties {
+
+	public enum Engine {
+		SIMPLE, APACHE, JDK
+	}
+
+	private Engine engine = Engine.APACHE;
+	private int maxConnectionsTotal = 200;
+	private int maxConnectionsPerRoute = 50;
+	private int connectTimeoutMillis = 2000;
+	private int readTimeoutMillis = 10000;
+	private int poolAcquireTimeoutMillis = 1000;
+	private long keepAliveMillis = 30000;
+	private long idleEvictionMillis = 60000;
+	private boolean http2 = true;
+
+	public Engine getEngine() {
+		return engine;
+	}
+
+	public void setEngine(Engine engine) {
+		this.engine = engine;
+	}
+
+	public int getMaxConnectionsTotal() {
+		return maxConnectionsTotal;
+	}
+
+	public void setMaxConnectionsTotal(int maxConnectionsTotal) {
+		this.maxConnectionsTotal = maxConnectionsTotal;
+	}
+
+	public int getMaxConnectionsPerRoute() {
+		return maxConnectionsPerRoute;
+	}
+
+	public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+		this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+	}
+
+	public int getConnectTimeoutMillis() {
+		return connectTimeoutMillis;
+	}
+
+	public void setConnectTimeoutMillis(int connectTimeoutMillis) {
+		this.connectTimeoutMillis = connectTimeoutMillis;
+	}
+
+	public int getReadTimeoutMillis() {
+		return readTimeoutMillis;
+	}
+
+	public void setReadTimeoutMillis(int readTimeoutMillis) {
+		this.readTimeoutMillis = readTimeoutMillis;
+	}
+
+	public int getPoolAcquireTimeoutMillis() {
+		return poolAcquireTimeoutMillis;
+	}
+
+	public void setPoolAcquireTimeoutMillis(int poolAcquireTimeoutMillis) {
+		this.poolAcquireTimeoutMillis = poolAcquireTimeoutMillis;
+	}
+
+	public long getKeepAliveMillis() {
+		return keepAliveMillis;
+	}
+
+	public void setKeepAliveMillis(long keepAliveMillis) {
+		this.keepAliveMillis = keepAliveMillis;
+	}
+
+	public long getIdleEvictionMillis() {
+		return idleEvictionMillis;
+	}
+
+	public void setIdleEvictionMillis(long idleEvictionMillis) {
+		this.idleEvictionMillis = idleEvictionMillis;
+	}
+
+	public boolean isHttp2() {
+		return http2;
+	}
+
+	public void setHttp2(boolean http2) {
+		this.http2 = http2;
+	}
+
+	@Override
+	public String toString() {
+		return "HttpClientProperties{" +
+				"engine=" + engine +
+				", maxConnectionsTotal=" + maxConnectionsTotal +
+				", maxConnectionsPerRoute=" + maxConnectionsPerRoute +
+				", connectTimeoutMillis=" + connectTimeoutMillis +
+				", readTimeoutMillis=" + readTimeoutMillis +
+				", poolAcquireTimeoutMillis=" + poolAcquireTimeoutMillis +
+				", keepAliveMillis=" + keepAliveMillis +
+				", idleEvictionMillis=" + idleEvictionMillis +
+				", http2=" + http2 +
+				'}';
+	}
+
+}
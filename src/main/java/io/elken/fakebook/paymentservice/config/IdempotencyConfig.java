@@ -0,0 +1,60 @@
+package io.elken.fakebook.paymentservice.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.elken.fakebook.paymentservice.idempotency.FileIdempotencyStore;
+import io.elken.fakebook.paymentservice.idempotency.IdempotencyService;
+import io.elken.fakebook.paymentservice.idempotency.IdempotencyStore;
+import io.elken.fakebook.paymentservice.idempotency.InMemoryIdempotencyStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Clock;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+@Configuration
+@EnableConfigurationProperties(IdempotencyProperties.class)
+public class IdempotencyConfig {
+
+	private static final Logger log = LoggerFactory.getLogger(IdempotencyConfig.class);
+
+	private static final String STORE_PROPERTY = "coolpay.idempotency.store";
+
+	@Bean
+	public IdempotencyService idempotencyService(IdempotencyStore idempotencyStore, ObjectMapper objectMapper) {
+		return new IdempotencyService(idempotencyStore, objectMapper);
+	}
+
+	@Configuration
+	@ConditionalOnProperty(name = STORE_PROPERTY, havingValue = "memory", matchIfMissing = true)
+	static class MemoryStoreConfig {
+
+		@Bean
+		public IdempotencyStore idempotencyStore(IdempotencyProperties properties) {
+			log.info("Using in-memory idempotency store {}", properties);
+			return new InMemoryIdempotencyStore(properties.getStripes(), properties.getMaximumEntries(),
+					SECONDS.toMillis(properties.getTtlSeconds()), Clock.systemUTC());
+		}
+
+	}
+
+	@Configuration
+	@ConditionalOnProperty(name = STORE_PROPERTY, havingValue = "file")
+	static class FileStoreConfig {
+
+		@Bean(destroyMethod = "close")
+		public IdempotencyStore idempotencyStore(IdempotencyProperties properties) throws IOException {
+			log.info("Using file idempotency store {}", properties);
+			return new FileIdempotencyStore(Paths.get(properties.getFile()), properties.getStripes(), properties.getMaximumEntries(),
+					SECONDS.toMillis(properties.getTtlSeconds()), Clock.systemUTC());
+		}
+
+	}
+
+}
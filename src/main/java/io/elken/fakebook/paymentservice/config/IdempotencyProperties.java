@@ -0,0 +1,69 @@
+package io.elken.fakebook.paymentservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "coolpay.idempotency")
+public class IdempotencyProperties {
+
+	public enum Store {
+		MEMORY, FILE
+	}
+
+	private Store store = Store.MEMORY;
+	private long ttlSeconds = 86400;
+	private int maximumEntries = 100000;
+	private int stripes = 16;
+	private String file = "idempotency-keys.log";
+
+	public Store getStore() {
+		return store;
+	}
+
+	public void setStore(Store store) {
+		this.store = store;
+	}
+
+	public long getTtlSeconds() {
+		return ttlSeconds;
+	}
+
+	public void setTtlSeconds(long ttlSeconds) {
+		this.ttlSeconds = ttlSeconds;
+	}
+
+	public int getMaximumEntries() {
+		return maximumEntries;
+	}
+
+	public void setMaximumEntries(int maximumEntries) {
+		this.maximumEntries = maximumEntries;
+	}
+
+	public int getStripes() {
+		return stripes;
+	}
+
+	public void setStripes(int stripes) {
+		this.stripes = stripes;
+	}
+
+	public String getFile() {
+		return file;
+	}
+
+	public void setFile(String file) {
+		this.file = file;
+	}
+
+	@Override
+	public String toString() {
+		return "IdempotencyProperties{" +
+				"store=" + store +
+				", ttlSeconds=" + ttlSeconds +
+				", maximumEntries=" + maximumEntries +
+				", stripes=" + stripes +
+				", file='" + file + '\'' +
+				'}';
+	}
+
+}
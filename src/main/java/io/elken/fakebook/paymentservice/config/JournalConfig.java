@@ -0,0 +1,67 @@
+package io.elken.fakebook.paymentservice.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.elken.fakebook.paymentservice.journal.PaymentDispatcher;
+import io.elken.fakebook.paymentservice.provider.PaymentProvider;
+import io.elken.fakebook.paymentservice.resilience.RetryPolicy;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+@Configuration
+@EnableConfigurationProperties(JournalProperties.class)
+@ConditionalOnProperty(name = "coolpay.journal.enabled", havingValue = "true")
+public class JournalConfig {
+
+	private static final Logger log = LoggerFactory.getLogger(JournalConfig.class);
+
+	@Bean(destroyMethod = "shutdownNow")
+	@ConditionalOnThreading(Threading.PLATFORM)
+	public ExecutorService journalDispatchExecutor(JournalProperties properties) {
+		return Executors.newFixedThreadPool(properties.getThreads(), new CustomizableThreadFactory("coolpay-journal-"));
+	}
+
+	@Bean(name = "journalDispatchExecutor", destroyMethod = "shutdownNow")
+	@ConditionalOnThreading(Threading.VIRTUAL)
+	public ExecutorService virtualJournalDispatchExecutor() {
+		return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("coolpay-journal-", 0).factory());
+	}
+
+	@Bean(destroyMethod = "close")
+	public PaymentDispatcher paymentDispatcher(PaymentProvider paymentProvider,
+											   @Qualifier("journalDispatchExecutor") ExecutorService journalDispatchExecutor,
+											   JournalProperties properties, ObjectMapper objectMapper) throws IOException {
+		log.info("Journaling payment submissions {}", properties);
+		RetryPolicy retryPolicy = new RetryPolicy(properties.getMaxAttempts(), properties.getInitialBackoffMillis(),
+				properties.getMaxBackoffMillis(), null);
+		return new PaymentDispatcher(Paths.get(properties.getFile()), properties.getCapacityBytes(), paymentProvider, retryPolicy,
+				journalDispatchExecutor, properties.getConcurrency(), SECONDS.toMillis(properties.getRetentionSeconds()), objectMapper);
+	}
+
+	@Bean
+	public MeterBinder journalMetrics(PaymentDispatcher paymentDispatcher) {
+		return registry -> {
+			Gauge.builder("coolpay.journal.pending", paymentDispatcher, PaymentDispatcher::getPending).register(registry);
+			Gauge.builder("coolpay.journal.bytes", paymentDispatcher, PaymentDispatcher::getJournalBytes).register(registry);
+			FunctionCounter.builder("coolpay.journal.unknown", paymentDispatcher, PaymentDispatcher::getUnknown).register(registry);
+		};
+	}
+
+}
@@ -0,0 +1,105 @@
+package io.elken.fakebook.paymentservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "coolpay.journal")
+public class JournalProperties {
+
+	private boolean enabled = false;
+	private String file = "payment-journal.dat";
+	private int capacityBytes = 64 * 1024 * 1024;
+	private int threads = 16;
+	private int concurrency = 16;
+	private int maxAttempts = 5;
+	private long initialBackoffMillis = 200;
+	private long maxBackoffMillis = 10000;
+	private long retentionSeconds = 3600;
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public String getFile() {
+		return file;
+	}
+
+	public void setFile(String file) {
+		this.file = file;
+	}
+
+	public int getCapacityBytes() {
+		return capacityBytes;
+	}
+
+	public void setCapacityBytes(int capacityBytes) {
+		this.capacityBytes = capacityBytes;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	public int getConcurrency() {
+		return concurrency;
+	}
+
+	public void setConcurrency(int concurrency) {
+		this.concurrency = concurrency;
+	}
+
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	public void setMaxAttempts(int maxAttempts) {
+		this.maxAttempts = maxAttempts;
+	}
+
+	public long getInitialBackoffMillis() {
+		return initialBackoffMillis;
+	}
+
+	public void setInitialBackoffMillis(long initialBackoffMillis) {
+		this.initialBackoffMillis = initialBackoffMillis;
+	}
+
+	public long getMaxBackoffMillis() {
+		return maxBackoffMillis;
+	}
+
+	public void setMaxBackoffMillis(long maxBackoffMillis) {
+		this.maxBackoffMillis = maxBackoffMillis;
+	}
+
+	public long getRetentionSeconds() {
+		return retentionSeconds;
+	}
+
+	public void setRetentionSeconds(long retentionSeconds) {
+		this.retentionSeconds = retentionSeconds;
+	}
+
+	@Override
+	public String toString() {
+		return "JournalProperties{" +
+				"enabled=" + enabled +
+				", file='" + file + '\'' +
+				", capacityBytes=" + capacityBytes +
+				", threads=" + threads +
+				", concurrency=" + concurrency +
+				", maxAttempts=" + maxAttempts +
+				", initialBackoffMillis=" + initialBackoffMillis +
+				", maxBackoffMillis=" + maxBackoffMillis +
+				", retentionSeconds=" + retentionSeconds +
+				'}';
+	}
+
+}
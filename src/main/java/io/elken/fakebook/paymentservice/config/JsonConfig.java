@@ -0,0 +1,27 @@
+package io.elken.fakebook.paymentservice.config;
+
+import com.fasterxml.jackson.core.util.JsonRecyclerPools;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class JsonConfig {
+
+	@Bean
+	public Module blackbirdModule() {
+		return new BlackbirdModule();
+	}
+
+	@Bean
+	@ConditionalOnThreading(Threading.VIRTUAL)
+	public Jackson2ObjectMapperBuilderCustomizer sharedBufferPool() {
+		return builder -> builder.postConfigurer(objectMapper ->
+				objectMapper.getFactory().setRecyclerPool(JsonRecyclerPools.sharedConcurrentDequePool()));
+	}
+
+}
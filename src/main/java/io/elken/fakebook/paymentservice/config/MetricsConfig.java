@@ -0,0 +1,26 @@
+package io.elken.fakebook.paymentservice.config;
+
+import io.elken.fakebook.paymentservice.metrics.UpstreamMetricsInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+@Configuration
+@EnableConfigurationProperties(MetricsProperties.class)
+public class MetricsConfig {
+
+	private static final Logger log = LoggerFactory.getLogger(MetricsConfig.class);
+
+	@Bean
+	@Order(Ordered.LOWEST_PRECEDENCE)
+	public UpstreamMetricsInterceptor upstreamMetricsInterceptor(MeterRegistry meterRegistry, MetricsProperties properties) {
+		log.info("Timing Coolpay endpoints {}", properties);
+		return new UpstreamMetricsInterceptor(meterRegistry, "coolpay.upstream", properties.getEndpoints(), properties.isPercentileHistogram());
+	}
+
+}
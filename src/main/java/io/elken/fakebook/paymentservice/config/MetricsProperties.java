@@ -0,0 +1,38 @@
+package io.elken.fakebook.paymentservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.Arrays;
+import java.util.List;
+
+@ConfigurationProperties(prefix = "coolpay.metrics")
+public class MetricsProperties {
+
+	private List<String> endpoints = Arrays.asList("/login", "/recipients", "/payments");
+	private boolean percentileHistogram = true;
+
+	public List<String> getEndpoints() {
+		return endpoints;
+	}
+
+	public void setEndpoints(List<String> endpoints) {
+		this.endpoints = endpoints;
+	}
+
+	public boolean isPercentileHistogram() {
+		return percentileHistogram;
+	}
+
+	public void setPercentileHistogram(boolean percentileHistogram) {
+		this.percentileHistogram = percentileHistogram;
+	}
+
+	@Override
+	public String toString() {
+		return "MetricsProperties{" +
+				"endpoints=" + endpoints +
+				", percentileHistogram=" + percentileHistogram +
+				'}';
+	}
+
+}
@@ -0,0 +1,154 @@
+package io.elken.fakebook.paymentservice.config;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.elken.fakebook.paymentservice.domain.LoginResponse;
+import io.elken.fakebook.paymentservice.index.PaymentIndex;
+import io.elken.fakebook.paymentservice.index.RecipientIndex;
+import io.elken.fakebook.paymentservice.provider.CachingPaymentProvider;
+import io.elken.fakebook.paymentservice.provider.MeteredPaymentProvider;
+import io.elken.fakebook.paymentservice.provider.PaymentProvider;
+import io.elken.fakebook.paymentservice.provider.RetryingPaymentProvider;
+import io.elken.fakebook.paymentservice.resilience.LatencyTracker;
+import io.elken.fakebook.paymentservice.resilience.RetryBudget;
+import io.elken.fakebook.paymentservice.resilience.RetryPolicy;
+import io.elken.fakebook.paymentservice.routing.RoutingPaymentProvider;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+@Configuration
+@EnableConfigurationProperties({ProviderCacheProperties.class, RetryProperties.class})
+public class PaymentProviderConfig {
+
+	private static final Logger log = LoggerFactory.getLogger(PaymentProviderConfig.class);
+
+	private static final String HEDGING_PROPERTY = "coolpay.retry.hedging-enabled";
+
+	@Bean
+	public AsyncCache<String, LoginResponse> loginCache(ProviderCacheProperties properties) {
+		return Caffeine.newBuilder()
+				.expireAfterWrite(properties.getLogins().getTtlSeconds(), SECONDS)
+				.maximumSize(properties.getLogins().getMaximumSize())
+				.recordStats()
+				.buildAsync();
+	}
+
+	@Bean
+	public AsyncCache<String, RecipientIndex> recipientsCache(ProviderCacheProperties properties) {
+		Duration ttl = Duration.ofSeconds(properties.getRecipients().getTtlSeconds());
+		return Caffeine.newBuilder()
+				.expireAfter(Expiry.<String, RecipientIndex>creating((token, index) -> ttl))
+				.maximumWeight(properties.getRecipients().getMaximumWeight())
+				.<String, RecipientIndex>weigher((token, index) -> index.size() + 1)
+				.recordStats()
+				.buildAsync();
+	}
+
+	@Bean
+	public AsyncCache<String, PaymentIndex> paymentsCache(ProviderCacheProperties properties) {
+		Duration ttl = Duration.ofSeconds(properties.getPayments().getTtlSeconds());
+		return Caffeine.newBuilder()
+				.expireAfter(Expiry.<String, PaymentIndex>creating((token, index) -> ttl))
+				.maximumWeight(properties.getPayments().getMaximumBytes())
+				.<String, PaymentIndex>weigher((token, index) -> (int) Math.min(Integer.MAX_VALUE, index.offHeapBytes()))
+				.recordStats()
+				.buildAsync();
+	}
+
+	@Bean
+	public MeterBinder loginCacheMetrics(AsyncCache<String, LoginResponse> loginCache) {
+		return registry -> CaffeineCacheMetrics.monitor(registry, loginCache, "coolpay.logins");
+	}
+
+	@Bean
+	public MeterBinder recipientsCacheMetrics(AsyncCache<String, RecipientIndex> recipientsCache) {
+		return registry -> CaffeineCacheMetrics.monitor(registry, recipientsCache, "coolpay.recipients");
+	}
+
+	@Bean
+	public MeterBinder paymentsCacheMetrics(AsyncCache<String, PaymentIndex> paymentsCache) {
+		return registry -> CaffeineCacheMetrics.monitor(registry, paymentsCache, "coolpay.payments");
+	}
+
+	@Bean(destroyMethod = "shutdownNow")
+	@ConditionalOnProperty(name = HEDGING_PROPERTY, havingValue = "true")
+	@ConditionalOnThreading(Threading.PLATFORM)
+	public ExecutorService hedgeExecutor(RetryProperties properties) {
+		return Executors.newFixedThreadPool(properties.getHedgeThreads(), new CustomizableThreadFactory("coolpay-hedge-"));
+	}
+
+	@Bean(name = "hedgeExecutor", destroyMethod = "shutdownNow")
+	@ConditionalOnProperty(name = HEDGING_PROPERTY, havingValue = "true")
+	@ConditionalOnThreading(Threading.VIRTUAL)
+	public ExecutorService virtualHedgeExecutor() {
+		return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("coolpay-hedge-", 0).factory());
+	}
+
+	@Bean
+	public RetryBudget retryBudget(RetryProperties properties) {
+		return new RetryBudget(properties.getBudgetRatio(), properties.getBudgetInitial(), properties.getBudgetMaximum());
+	}
+
+	@Bean
+	public RetryingPaymentProvider retryingPaymentProvider(RoutingPaymentProvider routingPaymentProvider, RetryBudget budget,
+														   RetryProperties properties,
+														   @Qualifier("hedgeExecutor") ObjectProvider<ExecutorService> hedgeExecutor) {
+		log.info("Retrying Coolpay reads {}", properties);
+		RetryPolicy retryPolicy = new RetryPolicy(properties.getMaxAttempts(), properties.getInitialBackoffMillis(),
+				properties.getMaxBackoffMillis(), budget);
+		LatencyTracker latencyTracker = new LatencyTracker(properties.getLatencySamples(), properties.getHedgePercentile(),
+				MILLISECONDS.toNanos(properties.getHedgeDefaultDelayMillis()));
+		return new RetryingPaymentProvider(routingPaymentProvider, routingPaymentProvider.uncoalesced(), retryPolicy, latencyTracker,
+				hedgeExecutor.getIfAvailable(), MILLISECONDS.toNanos(properties.getHedgeMinDelayMillis()));
+	}
+
+	@Bean
+	public MeterBinder retryMetrics(RetryingPaymentProvider retryingPaymentProvider, RetryBudget retryBudget) {
+		return registry -> {
+			Gauge.builder("coolpay.retry.budget", retryBudget, RetryBudget::getBalance).register(registry);
+			FunctionCounter.builder("coolpay.retry.budget.exhausted", retryBudget, RetryBudget::getExhausted).register(registry);
+			FunctionCounter.builder("coolpay.retries", retryingPaymentProvider, RetryingPaymentProvider::getRetries).register(registry);
+			FunctionCounter.builder("coolpay.hedges", retryingPaymentProvider, RetryingPaymentProvider::getHedges).register(registry);
+			FunctionCounter.builder("coolpay.hedges.won", retryingPaymentProvider, RetryingPaymentProvider::getHedgeWins).register(registry);
+		};
+	}
+
+	@Bean
+	public CachingPaymentProvider cachingPaymentProvider(RetryingPaymentProvider retryingPaymentProvider,
+														 AsyncCache<String, LoginResponse> loginCache,
+														 AsyncCache<String, RecipientIndex> recipientsCache,
+														 AsyncCache<String, PaymentIndex> paymentsCache) {
+		return new CachingPaymentProvider(retryingPaymentProvider, loginCache, recipientsCache, paymentsCache);
+	}
+
+	@Bean
+	@Primary
+	public PaymentProvider paymentProvider(CachingPaymentProvider cachingPaymentProvider, MeterRegistry meterRegistry,
+										   MetricsProperties properties) {
+		return new MeteredPaymentProvider(cachingPaymentProvider, meterRegistry, properties.isPercentileHistogram());
+	}
+
+}
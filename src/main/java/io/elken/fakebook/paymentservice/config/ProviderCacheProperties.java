@@ -0,0 +1,93 @@
+package io.elken.fakebook.paymentservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "coolpay.cache")
+public class ProviderCacheProperties {
+
+	private final Logins logins = new Logins();
+	private final Recipients recipients = new Recipients();
+	private final Payments payments = new Payments();
+
+	public Logins getLogins() {
+		return logins;
+	}
+
+	public Recipients getRecipients() {
+		return recipients;
+	}
+
+	public Payments getPayments() {
+		return payments;
+	}
+
+	public static class Logins {
+
+		private long ttlSeconds = 600;
+		private long maximumSize = 10000;
+
+		public long getTtlSeconds() {
+			return ttlSeconds;
+		}
+
+		public void setTtlSeconds(long ttlSeconds) {
+			this.ttlSeconds = ttlSeconds;
+		}
+
+		public long getMaximumSize() {
+			return maximumSize;
+		}
+
+		public void setMaximumSize(long maximumSize) {
+			this.maximumSize = maximumSize;
+		}
+
+	}
+
+	public static class Recipients {
+
+		private long ttlSeconds = 300;
+		private long maximumWeight = 100000;
+
+		public long getTtlSeconds() {
+			return ttlSeconds;
+		}
+
+		public void setTtlSeconds(long ttlSeconds) {
+			this.ttlSeconds = ttlSeconds;
+		}
+
+		public long getMaximumWeight() {
+			return maximumWeight;
+		}
+
+		public void setMaximumWeight(long maximumWeight) {
+			this.maximumWeight = maximumWeight;
+		}
+
+	}
+
+	public static class Payments {
+
+		private long ttlSeconds = 60;
+		private long maximumBytes = 64 * 1024 * 1024;
+
+		public long getTtlSeconds() {
+			return ttlSeconds;
+		}
+
+		public void setTtlSeconds(long ttlSeconds) {
+			this.ttlSeconds = ttlSeconds;
+		}
+
+		public long getMaximumBytes() {
+			return maximumBytes;
+		}
+
+		public void setMaximumBytes(long maximumBytes) {
+			this.maximumBytes = maximumBytes;
+		}
+
+	}
+
+}
@@ -0,0 +1,73 @@
+package io.elken.fakebook.paymentservice.config;
+
+import io.elken.fakebook.paymentservice.ratelimit.RateLimit;
+import io.elken.fakebook.paymentservice.ratelimit.RateLimitInterceptor;
+import io.elken.fakebook.paymentservice.ratelimit.RateLimitRule;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+@Configuration
+@EnableConfigurationProperties(RateLimitProperties.class)
+@ConditionalOnProperty(name = "coolpay.rate-limit.enabled", havingValue = "true", matchIfMissing = true)
+public class RateLimitConfig {
+
+	private static final Logger log = LoggerFactory.getLogger(RateLimitConfig.class);
+
+	@Bean
+	public RateLimitInterceptor rateLimitInterceptor(RateLimitProperties properties) {
+		log.info("Rate limiting requests {}", properties);
+		List<RateLimitRule> rules = new ArrayList<>();
+		for (RateLimitProperties.Rule rule : properties.getRules()) {
+			RateLimit global = rule.getGlobalPerSecond() <= 0 ? null : new RateLimit(intervalNanos(rule.getGlobalPerSecond()), rule.getGlobalBurst());
+			long tokenIntervalNanos = rule.getTokenPerSecond() <= 0 ? 0 : intervalNanos(rule.getTokenPerSecond());
+			rules.add(new RateLimitRule(rule.getPath(), rule.getMethod(), tokenIntervalNanos, rule.getTokenBurst(), global,
+					properties.getMaximumTokens()));
+		}
+		return new RateLimitInterceptor(rules, System::nanoTime);
+	}
+
+	@Bean
+	public WebMvcConfigurer rateLimitConfigurer(RateLimitInterceptor rateLimitInterceptor) {
+		return new WebMvcConfigurer() {
+			@Override
+			public void addInterceptors(InterceptorRegistry registry) {
+				registry.addInterceptor(rateLimitInterceptor);
+			}
+		};
+	}
+
+	@Bean
+	public MeterBinder rateLimitMetrics(RateLimitInterceptor rateLimitInterceptor) {
+		return registry -> rateLimitInterceptor.getRules().forEach(rule -> {
+			String method = rule.getMethod() == null ? "any" : rule.getMethod();
+			FunctionCounter.builder("coolpay.ratelimit.rejected", rule, RateLimitRule::getTokenRejections)
+					.tags("path", rule.getPath(), "method", method, "scope", "token")
+					.register(registry);
+			FunctionCounter.builder("coolpay.ratelimit.rejected", rule, RateLimitRule::getGlobalRejections)
+					.tags("path", rule.getPath(), "method", method, "scope", "global")
+					.register(registry);
+			Gauge.builder("coolpay.ratelimit.tokens", rule, RateLimitRule::getTrackedTokens)
+					.tags("path", rule.getPath(), "method", method)
+					.register(registry);
+		});
+	}
+
+	private static long intervalNanos(double perSecond) {
+		return Math.max(1, (long) (SECONDS.toNanos(1) / perSecond));
+	}
+
+}
@@ -0,0 +1,119 @@
+package io.elken.fakebook.paymentservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@ConfigurationProperties(prefix = "coolpay.rate-limit")
+public class RateLimitProperties {
+
+	private boolean enabled = true;
+	private long maximumTokens = 1000000;
+	private List<Rule> rules = new ArrayList<>();
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public long getMaximumTokens() {
+		return maximumTokens;
+	}
+
+	public void setMaximumTokens(long maximumTokens) {
+		this.maximumTokens = maximumTokens;
+	}
+
+	public List<Rule> getRules() {
+		return rules;
+	}
+
+	public void setRules(List<Rule> rules) {
+		this.rules = rules;
+	}
+
+	@Override
+	public String toString() {
+		return "RateLimitProperties{" +
+				"enabled=" + enabled +
+				", maximumTokens=" + maximumTokens +
+				", rules=" + rules +
+				'}';
+	}
+
+	public static class Rule {
+
+		private String path;
+		private String method;
+		private double tokenPerSecond;
+		private int tokenBurst = 1;
+		private double globalPerSecond;
+		private int globalBurst = 1;
+
+		public String getPath() {
+			return path;
+		}
+
+		public void setPath(String path) {
+			this.path = path;
+		}
+
+		public String getMethod() {
+			return method;
+		}
+
+		public void setMethod(String method) {
+			this.method = method;
+		}
+
+		public double getTokenPerSecond() {
+			return tokenPerSecond;
+		}
+
+		public void setTokenPerSecond(double tokenPerSecond) {
+			this.tokenPerSecond = tokenPerSecond;
+		}
+
+		public int getTokenBurst() {
+			return tokenBurst;
+		}
+
+		public void setTokenBurst(int tokenBurst) {
+			this.tokenBurst = tokenBurst;
+		}
+
+		public double getGlobalPerSecond() {
+			return globalPerSecond;
+		}
+
+		public void setGlobalPerSecond(double globalPerSecond) {
+			this.globalPerSecond = globalPerSecond;
+		}
+
+		public int getGlobalBurst() {
+			return globalBurst;
+		}
+
+		public void setGlobalBurst(int globalBurst) {
+			this.globalBurst = globalBurst;
+		}
+
+		@Override
+		public String toString() {
+			return "Rule{" +
+					"path='" + path + '\'' +
+					", method='" + method + '\'' +
+					", tokenPerSecond=" + tokenPerSecond +
+					", tokenBurst=" + tokenBurst +
+					", globalPerSecond=" + globalPerSecond +
+					", globalBurst=" + globalBurst +
+					'}';
+		}
+
+	}
+
+}
@@ -0,0 +1,80 @@
+package io.elken.fakebook.paymentservice.config;
+
+import io.elken.fakebook.paymentservice.resilience.AimdLimiter;
+import io.elken.fakebook.paymentservice.resilience.CircuitBreaker;
+import io.elken.fakebook.paymentservice.resilience.EndpointGuard;
+import io.elken.fakebook.paymentservice.resilience.ResilienceInterceptor;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+@Configuration
+@EnableConfigurationProperties(ResilienceProperties.class)
+public class ResilienceConfig {
+
+	private static final Logger log = LoggerFactory.getLogger(ResilienceConfig.class);
+
+	private static final String FALLBACK_ENDPOINT = "other";
+
+	@Bean
+	@Order(Ordered.HIGHEST_PRECEDENCE)
+	public ResilienceInterceptor resilienceInterceptor(ResilienceProperties properties) {
+		log.info("Guarding Coolpay endpoints {}", properties);
+		List<EndpointGuard> guards = new ArrayList<>();
+		for (String endpoint : properties.getEndpoints()) {
+			guards.add(endpointGuard(endpoint, properties));
+		}
+		return new ResilienceInterceptor(guards, endpointGuard(FALLBACK_ENDPOINT, properties));
+	}
+
+	@Bean
+	public MeterBinder resilienceMetrics(ResilienceInterceptor resilienceInterceptor) {
+		return registry -> resilienceInterceptor.getGuards().forEach(guard -> {
+			CircuitBreaker circuitBreaker = guard.getCircuitBreaker();
+			AimdLimiter limiter = guard.getLimiter();
+			Gauge.builder("coolpay.circuit.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+					.tag("endpoint", guard.getEndpoint())
+					.description("0 closed, 1 half open, 2 open")
+					.register(registry);
+			for (CircuitBreaker.State state : CircuitBreaker.State.values()) {
+				FunctionCounter.builder("coolpay.circuit.transitions", circuitBreaker, breaker -> breaker.getTransitions(state))
+						.tags("endpoint", guard.getEndpoint(), "state", state.name().toLowerCase())
+						.register(registry);
+			}
+			Gauge.builder("coolpay.limiter.limit", limiter, AimdLimiter::getLimit)
+					.tag("endpoint", guard.getEndpoint())
+					.register(registry);
+			Gauge.builder("coolpay.limiter.inflight", limiter, AimdLimiter::getInFlight)
+					.tag("endpoint", guard.getEndpoint())
+					.register(registry);
+			FunctionCounter.builder("coolpay.rejected", guard, EndpointGuard::getCircuitRejections)
+					.tags("endpoint", guard.getEndpoint(), "reason", "circuit")
+					.register(registry);
+			FunctionCounter.builder("coolpay.rejected", guard, EndpointGuard::getLimitRejections)
+					.tags("endpoint", guard.getEndpoint(), "reason", "limit")
+					.register(registry);
+		});
+	}
+
+	private static EndpointGuard endpointGuard(String endpoint, ResilienceProperties properties) {
+		CircuitBreaker circuitBreaker = new CircuitBreaker(endpoint, properties.getFailureRateThreshold(),
+				properties.getSlidingWindowSize(), properties.getMinimumCalls(), properties.getHalfOpenProbes(),
+				MILLISECONDS.toNanos(properties.getOpenMillis()), System::nanoTime);
+		AimdLimiter limiter = new AimdLimiter(properties.getInitialLimit(), properties.getMinLimit(), properties.getMaxLimit(),
+				MILLISECONDS.toNanos(properties.getLatencyThresholdMillis()), properties.getBackoffRatio());
+		return new EndpointGuard(endpoint, circuitBreaker, limiter);
+	}
+
+}
@@ -0,0 +1,128 @@
+package io.elken.fakebook.paymentservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.Arrays;
+import java.util.List;
+
+@ConfigurationProperties(prefix = "coolpay.resilience")
+public class ResilienceProperties {
+
+	private List<String> endpoints = Arrays.asList("/login", "/recipients", "/payments");
+	private int failureRateThreshold = 50;
+	private int slidingWindowSize = 50;
+	private int minimumCalls = 20;
+	private int halfOpenProbes = 3;
+	private long openMillis = 10000;
+	private int initialLimit = 20;
+	private int minLimit = 2;
+	private int maxLimit = 200;
+	private long latencyThresholdMillis = 2000;
+	private double backoffRatio = 0.9;
+
+	public List<String> getEndpoints() {
+		return endpoints;
+	}
+
+	public void setEndpoints(List<String> endpoints) {
+		this.endpoints = endpoints;
+	}
+
+	public int getFailureRateThreshold() {
+		return failureRateThreshold;
+	}
+
+	public void setFailureRateThreshold(int failureRateThreshold) {
+		this.failureRateThreshold = failureRateThreshold;
+	}
+
+	public int getSlidingWindowSize() {
+		return slidingWindowSize;
+	}
+
+	public void setSlidingWindowSize(int slidingWindowSize) {
+		this.slidingWindowSize = slidingWindowSize;
+	}
+
+	public int getMinimumCalls() {
+		return minimumCalls;
+	}
+
+	public void setMinimumCalls(int minimumCalls) {
+		this.minimumCalls = minimumCalls;
+	}
+
+	public int getHalfOpenProbes() {
+		return halfOpenProbes;
+	}
+
+	public void setHalfOpenProbes(int halfOpenProbes) {
+		this.halfOpenProbes = halfOpenProbes;
+	}
+
+	public long getOpenMillis() {
+		return openMillis;
+	}
+
+	public void setOpenMillis(long openMillis) {
+		this.openMillis = openMillis;
+	}
+
+	public int getInitialLimit() {
+		return initialLimit;
+	}
+
+	public void setInitialLimit(int initialLimit) {
+		this.initialLimit = initialLimit;
+	}
+
+	public int getMinLimit() {
+		return minLimit;
+	}
+
+	public void setMinLimit(int minLimit) {
+		this.minLimit = minLimit;
+	}
+
+	public int getMaxLimit() {
+		return maxLimit;
+	}
+
+	public void setMaxLimit(int maxLimit) {
+		this.maxLimit = maxLimit;
+	}
+
+	public long getLatencyThresholdMillis() {
+		return latencyThresholdMillis;
+	}
+
+	public void setLatencyThresholdMillis(long latencyThresholdMillis) {
+		this.latencyThresholdMillis = latencyThresholdMillis;
+	}
+
+	public double getBackoffRatio() {
+		return backoffRatio;
+	}
+
+	public void setBackoffRatio(double backoffRatio) {
+		this.backoffRatio = backoffRatio;
+	}
+
+	@Override
+	public String toString() {
+		return "ResilienceProperties{" +
+				"endpoints=" + endpoints +
+				", failureRateThreshold=" + failureRateThreshold +
+				", slidingWindowSize=" + slidingWindowSize +
+				", minimumCalls=" + minimumCalls +
+				", halfOpenProbes=" + halfOpenProbes +
+				", openMillis=" + openMillis +
+				", initialLimit=" + initialLimit +
+				", minLimit=" + minLimit +
+				", maxLimit=" + maxLimit +
+				", latencyThresholdMillis=" + latencyThresholdMillis +
+				", backoffRatio=" + backoffRatio +
+				'}';
+	}
+
+}
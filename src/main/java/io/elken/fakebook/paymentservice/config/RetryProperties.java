@@ -0,0 +1,135 @@
+package io.elken.fakebook.paymentservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "coolpay.retry")
+public class RetryProperties {
+
+	private int maxAttempts = 3;
+	private long initialBackoffMillis = 50;
+	private long maxBackoffMillis = 1000;
+	private double budgetRatio = 0.1;
+	private int budgetInitial = 10;
+	private int budgetMaximum = 100;
+	private boolean hedgingEnabled = false;
+	private double hedgePercentile = 0.95;
+	private long hedgeMinDelayMillis = 20;
+	private long hedgeDefaultDelayMillis = 500;
+	private int hedgeThreads = 32;
+	private int latencySamples = 1024;
+
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	public void setMaxAttempts(int maxAttempts) {
+		this.maxAttempts = maxAttempts;
+	}
+
+	public long getInitialBackoffMillis() {
+		return initialBackoffMillis;
+	}
+
+	public void setInitialBackoffMillis(long initialBackoffMillis) {
+		this.initialBackoffMillis = initialBackoffMillis;
+	}
+
+	public long getMaxBackoffMillis() {
+		return maxBackoffMillis;
+	}
+
+	public void setMaxBackoffMillis(long maxBackoffMillis) {
+		this.maxBackoffMillis = maxBackoffMillis;
+	}
+
+	public double getBudgetRatio() {
+		return budgetRatio;
+	}
+
+	public void setBudgetRatio(double budgetRatio) {
+		this.budgetRatio = budgetRatio;
+	}
+
+	public int getBudgetInitial() {
+		return budgetInitial;
+	}
+
+	public void setBudgetInitial(int budgetInitial) {
+		this.budgetInitial = budgetInitial;
+	}
+
+	public int getBudgetMaximum() {
+		return budgetMaximum;
+	}
+
+	public void setBudgetMaximum(int budgetMaximum) {
+		this.budgetMaximum = budgetMaximum;
+	}
+
+	public boolean isHedgingEnabled() {
+		return hedgingEnabled;
+	}
+
+	public void setHedgingEnabled(boolean hedgingEnabled) {
+		this.hedgingEnabled = hedgingEnabled;
+	}
+
+	public double getHedgePercentile() {
+		return hedgePercentile;
+	}
+
+	public void setHedgePercentile(double hedgePercentile) {
+		this.hedgePercentile = hedgePercentile;
+	}
+
+	public long getHedgeMinDelayMillis() {
+		return hedgeMinDelayMillis;
+	}
+
+	public void setHedgeMinDelayMillis(long hedgeMinDelayMillis) {
+		this.hedgeMinDelayMillis = hedgeMinDelayMillis;
+	}
+
+	public long getHedgeDefaultDelayMillis() {
+		return hedgeDefaultDelayMillis;
+	}
+
+	public void setHedgeDefaultDelayMillis(long hedgeDefaultDelayMillis) {
+		this.hedgeDefaultDelayMillis = hedgeDefaultDelayMillis;
+	}
+
+	public int getHedgeThreads() {
+		return hedgeThreads;
+	}
+
+	public void setHedgeThreads(int hedgeThreads) {
+		this.hedgeThreads = hedgeThreads;
+	}
+
+	public int getLatencySamples() {
+		return latencySamples;
+	}
+
+	public void setLatencySamples(int latencySamples) {
+		this.latencySamples = latencySamples;
+	}
+
+	@Override
+	public String toString() {
+		return "RetryProperties{" +
+				"maxAttempts=" + maxAttempts +
+				", initialBackoffMillis=" + initialBackoffMillis +
+				", maxBackoffMillis=" + maxBackoffMillis +
+				", budgetRatio=" + budgetRatio +
+				", budgetInitial=" + budgetInitial +
+				", budgetMaximum=" + budgetMaximum +
+				", hedgingEnabled=" + hedgingEnabled +
+				", hedgePercentile=" + hedgePercentile +
+				", hedgeMinDelayMillis=" + hedgeMinDelayMillis +
+				", hedgeDefaultDelayMillis=" + hedgeDefaultDelayMillis +
+				", hedgeThreads=" + hedgeThreads +
+				", latencySamples=" + latencySamples +
+				'}';
+	}
+
+}
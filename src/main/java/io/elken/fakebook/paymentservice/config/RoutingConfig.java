@@ -0,0 +1,91 @@
+package io.elken.fakebook.paymentservice.config;
+
+import io.elken.fakebook.paymentservice.provider.RestCoolpayPaymentProvider;
+import io.elken.fakebook.paymentservice.resilience.SingleFlight;
+import io.elken.fakebook.paymentservice.routing.ProviderRoute;
+import io.elken.fakebook.paymentservice.routing.RoutingPaymentProvider;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+@Configuration
+@EnableConfigurationProperties(RoutingProperties.class)
+public class RoutingConfig {
+
+	private static final Logger log = LoggerFactory.getLogger(RoutingConfig.class);
+
+	private static final String DEFAULT_ROUTE = "default";
+
+	@Bean
+	public SingleFlight<String, Object> coolpayReads() {
+		return new SingleFlight<>();
+	}
+
+	@Bean
+	public RoutingPaymentProvider routingPaymentProvider(RestTemplate restTemplate, RoutingProperties properties,
+														 SingleFlight<String, Object> coolpayReads,
+														 @Value("${coolpay.base.uri}") String coolpayBaseUri) {
+		log.info("Routing Coolpay calls {}", properties);
+		SingleFlight<String, Object> reads = properties.isCoalesceReads() ? coolpayReads : null;
+		List<ProviderRoute> routes = new ArrayList<>();
+		for (RoutingProperties.Route route : properties.getRoutes()) {
+			routes.add(route(route.getName(), route.getBaseUri(), restTemplate, reads, properties));
+		}
+		if (routes.isEmpty()) {
+			routes.add(route(DEFAULT_ROUTE, coolpayBaseUri, restTemplate, reads, properties));
+		}
+		return new RoutingPaymentProvider(routes, System::nanoTime);
+	}
+
+	@Bean
+	public MeterBinder coalescingMetrics(SingleFlight<String, Object> coolpayReads) {
+		return registry -> {
+			FunctionCounter.builder("coolpay.reads.upstream", coolpayReads, SingleFlight::getCalls).register(registry);
+			FunctionCounter.builder("coolpay.reads.coalesced", coolpayReads, SingleFlight::getJoins).register(registry);
+			Gauge.builder("coolpay.reads.inflight", coolpayReads, SingleFlight::getInFlight).register(registry);
+		};
+	}
+
+	@Bean
+	public MeterBinder routingMetrics(RoutingPaymentProvider routingPaymentProvider) {
+		return registry -> routingPaymentProvider.getRoutes().forEach(route -> {
+			Gauge.builder("coolpay.route.latency", route, r -> r.getLatencyNanos() / MILLISECONDS.toNanos(1))
+					.tag("route", route.getName())
+					.baseUnit("milliseconds")
+					.register(registry);
+			Gauge.builder("coolpay.route.errors", route, ProviderRoute::getErrorRate)
+					.tag("route", route.getName())
+					.register(registry);
+			Gauge.builder("coolpay.route.inflight", route, ProviderRoute::getInFlight)
+					.tag("route", route.getName())
+					.register(registry);
+			Gauge.builder("coolpay.route.available", route, r -> r.isAvailable() ? 1 : 0)
+					.tag("route", route.getName())
+					.register(registry);
+			FunctionCounter.builder("coolpay.route.ejections", route, ProviderRoute::getEjections)
+					.tag("route", route.getName())
+					.register(registry);
+		});
+	}
+
+	private static ProviderRoute route(String name, String baseUri, RestTemplate restTemplate, SingleFlight<String, Object> reads,
+									   RoutingProperties properties) {
+		RestCoolpayPaymentProvider provider = new RestCoolpayPaymentProvider(restTemplate, baseUri, reads);
+		return new ProviderRoute(name, provider, provider.uncoalesced(), MILLISECONDS.toNanos(properties.getInitialLatencyMillis()),
+				MILLISECONDS.toNanos(properties.getDecayMillis()), properties.getEjectionThreshold(),
+				MILLISECONDS.toNanos(properties.getEjectionMillis()), System::nanoTime);
+	}
+
+}
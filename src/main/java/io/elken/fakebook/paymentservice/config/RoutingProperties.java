@@ -0,0 +1,109 @@
+package io.elken.fakebook.paymentservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@ConfigurationProperties(prefix = "coolpay.routing")
+public class RoutingProperties {
+
+	private List<Route> routes = new ArrayList<>();
+	private long initialLatencyMillis = 100;
+	private long decayMillis = 10000;
+	private int ejectionThreshold = 5;
+	private long ejectionMillis = 30000;
+	private boolean coalesceReads = true;
+
+	public List<Route> getRoutes() {
+		return routes;
+	}
+
+	public void setRoutes(List<Route> routes) {
+		this.routes = routes;
+	}
+
+	public long getInitialLatencyMillis() {
+		return initialLatencyMillis;
+	}
+
+	public void setInitialLatencyMillis(long initialLatencyMillis) {
+		this.initialLatencyMillis = initialLatencyMillis;
+	}
+
+	public long getDecayMillis() {
+		return decayMillis;
+	}
+
+	public void setDecayMillis(long decayMillis) {
+		this.decayMillis = decayMillis;
+	}
+
+	public int getEjectionThreshold() {
+		return ejectionThreshold;
+	}
+
+	public void setEjectionThreshold(int ejectionThreshold) {
+		this.ejectionThreshold = ejectionThreshold;
+	}
+
+	public long getEjectionMillis() {
+		return ejectionMillis;
+	}
+
+	public void setEjectionMillis(long ejectionMillis) {
+		this.ejectionMillis = ejectionMillis;
+	}
+
+	public boolean isCoalesceReads() {
+		return coalesceReads;
+	}
+
+	public void setCoalesceReads(boolean coalesceReads) {
+		this.coalesceReads = coalesceReads;
+	}
+
+	@Override
+	public String toString() {
+		return "RoutingProperties{" +
+				"routes=" + routes +
+				", initialLatencyMillis=" + initialLatencyMillis +
+				", decayMillis=" + decayMillis +
+				", ejectionThreshold=" + ejectionThreshold +
+				", ejectionMillis=" + ejectionMillis +
+				", coalesceReads=" + coalesceReads +
+				'}';
+	}
+
+	public static class Route {
+
+		private String name;
+		private String baseUri;
+
+		public String getName() {
+			return name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public String getBaseUri() {
+			return baseUri;
+		}
+
+		public void setBaseUri(String baseUri) {
+			this.baseUri = baseUri;
+		}
+
+		@Override
+		public String toString() {
+			return "Route{" +
+					"name='" + name + '\'' +
+					", baseUri='" + baseUri + '\'' +
+					'}';
+		}
+
+	}
+
+}
@@ -0,0 +1,73 @@
+package io.elken.fakebook.paymentservice.config;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import io.elken.fakebook.paymentservice.index.PaymentIndex;
+import io.elken.fakebook.paymentservice.provider.RetryingPaymentProvider;
+import io.elken.fakebook.paymentservice.sync.PaymentSync;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+@Configuration
+@EnableConfigurationProperties(SyncProperties.class)
+@ConditionalOnProperty(name = "coolpay.sync.enabled", havingValue = "true", matchIfMissing = true)
+public class SyncConfig {
+
+	private static final Logger log = LoggerFactory.getLogger(SyncConfig.class);
+
+	@Bean(destroyMethod = "shutdownNow")
+	public ScheduledExecutorService syncScheduler() {
+		return Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("coolpay-sync-scheduler-"));
+	}
+
+	@Bean(destroyMethod = "shutdownNow")
+	@ConditionalOnThreading(Threading.PLATFORM)
+	public ExecutorService syncPollExecutor(SyncProperties properties) {
+		return Executors.newFixedThreadPool(properties.getThreads(), new CustomizableThreadFactory("coolpay-sync-"));
+	}
+
+	@Bean(name = "syncPollExecutor", destroyMethod = "shutdownNow")
+	@ConditionalOnThreading(Threading.VIRTUAL)
+	public ExecutorService virtualSyncPollExecutor() {
+		return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("coolpay-sync-", 0).factory());
+	}
+
+	@Bean
+	public PaymentSync paymentSync(RetryingPaymentProvider retryingPaymentProvider, AsyncCache<String, PaymentIndex> paymentsCache,
+								   ScheduledExecutorService syncScheduler,
+								   @Qualifier("syncPollExecutor") ExecutorService syncPollExecutor, SyncProperties properties) {
+		log.info("Syncing Coolpay payments {}", properties);
+		return new PaymentSync(retryingPaymentProvider, paymentsCache, syncScheduler, syncPollExecutor,
+				MILLISECONDS.toNanos(properties.getMinIntervalMillis()), MILLISECONDS.toNanos(properties.getMaxIntervalMillis()),
+				properties.getBackoffMultiplier(), SECONDS.toNanos(properties.getRetentionSeconds()), properties.getMaximumTokens(),
+				System::nanoTime);
+	}
+
+	@Bean
+	public MeterBinder syncMetrics(PaymentSync paymentSync) {
+		return registry -> {
+			Gauge.builder("coolpay.sync.tokens", paymentSync, PaymentSync::getTokens).register(registry);
+			Gauge.builder("coolpay.sync.payments", paymentSync, PaymentSync::getPayments).register(registry);
+			FunctionCounter.builder("coolpay.sync.polls", paymentSync, PaymentSync::getPolls).register(registry);
+			FunctionCounter.builder("coolpay.sync.changes", paymentSync, PaymentSync::getChanges).register(registry);
+		};
+	}
+
+}
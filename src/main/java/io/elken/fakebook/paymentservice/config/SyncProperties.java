@@ -0,0 +1,85 @@
+package io.elken.fakebook.paymentservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "coolpay.sync")
+public class SyncProperties {
+
+	private boolean enabled = true;
+	private int threads = 8;
+	private long minIntervalMillis = 1000;
+	private long maxIntervalMillis = 60000;
+	private double backoffMultiplier = 2.0;
+	private long retentionSeconds = 300;
+	private int maximumTokens = 10000;
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	public long getMinIntervalMillis() {
+		return minIntervalMillis;
+	}
+
+	public void setMinIntervalMillis(long minIntervalMillis) {
+		this.minIntervalMillis = minIntervalMillis;
+	}
+
+	public long getMaxIntervalMillis() {
+		return maxIntervalMillis;
+	}
+
+	public void setMaxIntervalMillis(long maxIntervalMillis) {
+		this.maxIntervalMillis = maxIntervalMillis;
+	}
+
+	public double getBackoffMultiplier() {
+		return backoffMultiplier;
+	}
+
+	public void setBackoffMultiplier(double backoffMultiplier) {
+		this.backoffMultiplier = backoffMultiplier;
+	}
+
+	public long getRetentionSeconds() {
+		return retentionSeconds;
+	}
+
+	public void setRetentionSeconds(long retentionSeconds) {
+		this.retentionSeconds = retentionSeconds;
+	}
+
+	public int getMaximumTokens() {
+		return maximumTokens;
+	}
+
+	public void setMaximumTokens(int maximumTokens) {
+		this.maximumTokens = maximumTokens;
+	}
+
+	@Override
+	public String toString() {
+		return "SyncProperties{" +
+				"enabled=" + enabled +
+				", threads=" + threads +
+				", minIntervalMillis=" + minIntervalMillis +
+				", maxIntervalMillis=" + maxIntervalMillis +
+				", backoffMultiplier=" + backoffMultiplier +
+				", retentionSeconds=" + retentionSeconds +
+				", maximumTokens=" + maximumTokens +
+				'}';
+	}
+
+}
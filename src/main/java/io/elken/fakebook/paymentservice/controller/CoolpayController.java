@@ -1,20 +1,57 @@
 package io.elken.fakebook.paymentservice.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.elken.fakebook.paymentservice.batch.BatchPaymentService;
+import io.elken.fakebook.paymentservice.domain.Amount;
+import io.elken.fakebook.paymentservice.domain.BatchPaymentResult;
+import io.elken.fakebook.paymentservice.domain.Currency;
+import io.elken.fakebook.paymentservice.domain.ListSnapshot;
 import io.elken.fakebook.paymentservice.domain.LoginRequest;
 import io.elken.fakebook.paymentservice.domain.LoginResponse;
 import io.elken.fakebook.paymentservice.domain.Payment;
+import io.elken.fakebook.paymentservice.domain.PaymentChange;
+import io.elken.fakebook.paymentservice.domain.PaymentCursor;
+import io.elken.fakebook.paymentservice.domain.PaymentPage;
+import io.elken.fakebook.paymentservice.domain.PaymentQuery;
+import io.elken.fakebook.paymentservice.domain.PaymentSubmission;
+import io.elken.fakebook.paymentservice.domain.PaymentSummary;
 import io.elken.fakebook.paymentservice.domain.Recipient;
+import io.elken.fakebook.paymentservice.domain.Status;
+import io.elken.fakebook.paymentservice.exception.BadRequestException;
+import io.elken.fakebook.paymentservice.exception.NotFoundException;
+import io.elken.fakebook.paymentservice.idempotency.IdempotencyService;
+import io.elken.fakebook.paymentservice.journal.PaymentDispatcher;
+import io.elken.fakebook.paymentservice.provider.PaymentDirectory;
 import io.elken.fakebook.paymentservice.provider.PaymentProvider;
+import io.elken.fakebook.paymentservice.provider.RecipientDirectory;
+import io.elken.fakebook.paymentservice.sync.ChangeListener;
+import io.elken.fakebook.paymentservice.sync.PaymentSync;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 import static java.util.stream.Collectors.toList;
 
@@ -24,10 +61,38 @@ public class CoolpayController {
 
 	private static final Logger log = LoggerFactory.getLogger(CoolpayController.class);
 
+	private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+	private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+	private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+	private static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+	private static final String PAYMENTS_EVENT = "payments";
+	private static final int MAX_PAGE_SIZE = 1000;
+
 	private final PaymentProvider paymentProvider;
+	private final RecipientDirectory recipientDirectory;
+	private final PaymentDirectory paymentDirectory;
+	private final IdempotencyService idempotencyService;
+	private final BatchPaymentService batchPaymentService;
+	private final PaymentDispatcher paymentDispatcher;
+	private final PaymentSync paymentSync;
+	private final ObjectMapper objectMapper;
+	private final ObjectWriter paymentWriter;
+	private final ObjectWriter batchResultWriter;
 
-	public CoolpayController(PaymentProvider paymentProvider) {
+	public CoolpayController(PaymentProvider paymentProvider, RecipientDirectory recipientDirectory,
+							 PaymentDirectory paymentDirectory, IdempotencyService idempotencyService,
+							 BatchPaymentService batchPaymentService, Optional<PaymentDispatcher> paymentDispatcher,
+							 Optional<PaymentSync> paymentSync, ObjectMapper objectMapper) {
 		this.paymentProvider = paymentProvider;
+		this.recipientDirectory = recipientDirectory;
+		this.paymentDirectory = paymentDirectory;
+		this.idempotencyService = idempotencyService;
+		this.batchPaymentService = batchPaymentService;
+		this.paymentDispatcher = paymentDispatcher.orElse(null);
+		this.paymentSync = paymentSync.orElse(null);
+		this.objectMapper = objectMapper;
+		this.paymentWriter = objectMapper.writerFor(Payment.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+		this.batchResultWriter = objectMapper.writerFor(BatchPaymentResult.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
 	}
 
 	@ResponseBody
@@ -38,29 +103,219 @@ public class CoolpayController {
 
 	@ResponseBody
 	@RequestMapping(path = "/recipients", method = RequestMethod.GET)
-	public List<Recipient> listRecipients(@RequestHeader(value = "Authorization") String authHeader) {
-		return paymentProvider.listRecipients(authHeader);
+	public List<Recipient> listRecipients(@RequestHeader(value = "Authorization") String authHeader, WebRequest webRequest) {
+		ListSnapshot<Recipient> recipients = recipientDirectory.recipientsSnapshot(authHeader);
+		if (webRequest.checkNotModified(etag(recipients.getContentHash()))) {
+			return null;
+		}
+		return recipients.getItems();
+	}
+
+	@ResponseBody
+	@RequestMapping(path = "/recipients", method = RequestMethod.GET, params = "name")
+	public List<Recipient> searchRecipients(@RequestHeader(value = "Authorization") String authHeader, @RequestParam("name") String namePrefix) {
+		return recipientDirectory.findRecipientsByName(authHeader, namePrefix);
+	}
+
+	@ResponseBody
+	@RequestMapping(path = "/recipients/{id}", method = RequestMethod.GET)
+	public Recipient getRecipient(@RequestHeader(value = "Authorization") String authHeader, @PathVariable("id") String id) {
+		Recipient recipient = recipientDirectory.findRecipient(authHeader, id);
+		if (recipient == null) {
+			throw new NotFoundException();
+		}
+		return recipient;
 	}
 
 	@ResponseBody
 	@RequestMapping(path = "/recipients", method = RequestMethod.POST)
-	public Recipient createRecipient(@RequestHeader(value = "Authorization") String authHeader, @RequestBody Recipient recipient) {
+	public Recipient createRecipient(@RequestHeader(value = "Authorization") String authHeader,
+									 @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+									 @RequestBody Recipient recipient) {
 		log.debug("Create recipient request '{}'", recipient);
-		return paymentProvider.createRecipient(authHeader, recipient);
+		if (idempotencyKey == null) {
+			return paymentProvider.createRecipient(authHeader, recipient);
+		}
+		return idempotencyService.execute(authHeader, "recipients", idempotencyKey, recipient, Recipient.class,
+				() -> paymentProvider.createRecipient(authHeader, recipient));
 	}
 
 	@ResponseBody
 	@RequestMapping(path = "/payments", method = RequestMethod.GET)
-	public List<Payment> listPayments(@RequestHeader(value = "Authorization") String authHeader) {
-		return paymentProvider.listPayments(authHeader);
+	public ResponseEntity<List<Payment>> listPayments(@RequestHeader(value = "Authorization") String authHeader,
+													  @RequestParam(value = "limit", required = false) Integer limit,
+													  @RequestParam(value = "cursor", required = false) String cursor,
+													  @RequestParam(value = "recipient_id", required = false) String recipientId,
+													  @RequestParam(value = "currency", required = false) Currency currency,
+													  @RequestParam(value = "status", required = false) Status status,
+													  @RequestParam(value = "min_amount", required = false) String minAmount,
+													  @RequestParam(value = "max_amount", required = false) String maxAmount,
+													  WebRequest webRequest) {
+		if (limit != null && (limit < 1 || limit > MAX_PAGE_SIZE)) {
+			throw new BadRequestException("limit must be between 1 and " + MAX_PAGE_SIZE);
+		}
+		PaymentQuery query = new PaymentQuery(parseCursor(cursor), limit, recipientId, currency, status,
+				parseAmount("min_amount", minAmount), parseAmount("max_amount", maxAmount));
+		if (query.isUnrestricted()) {
+			ListSnapshot<Payment> payments = paymentDirectory.paymentsSnapshot(authHeader);
+			if (webRequest.checkNotModified(etag(payments.getContentHash()))) {
+				return null;
+			}
+			return ResponseEntity.ok(payments.getItems());
+		}
+		log.debug("Find payments request '{}'", query);
+		PaymentPage page = paymentDirectory.findPayments(authHeader, query);
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+		if (page.getNextCursor() != null) {
+			response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+		}
+		return response.body(page.getPayments());
+	}
+
+	@RequestMapping(path = "/payments", method = RequestMethod.GET, produces = APPLICATION_NDJSON_VALUE)
+	public void streamPayments(@RequestHeader(value = "Authorization") String authHeader, HttpServletResponse response) throws IOException {
+		try (JsonGenerator generator = ndjsonGenerator(response)) {
+			paymentProvider.streamPayments(authHeader, payment -> writeLine(generator, paymentWriter, payment, false));
+		}
+	}
+
+	@RequestMapping(path = "/payments/changes", method = RequestMethod.GET, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public SseEmitter streamPaymentChanges(@RequestHeader(value = "Authorization") String authHeader,
+										   @RequestHeader(value = LAST_EVENT_ID_HEADER, required = false) String lastEventId) {
+		if (paymentSync == null) {
+			throw new NotFoundException();
+		}
+		SseEmitter emitter = new SseEmitter();
+		ChangeListener listener = new ChangeListener() {
+			@Override
+			public void onChanges(String eventId, List<PaymentChange> changes) {
+				try {
+					emitter.send(SseEmitter.event().id(eventId).name(PAYMENTS_EVENT).data(changes, MediaType.APPLICATION_JSON));
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+
+			@Override
+			public void onError(RuntimeException e) {
+				emitter.completeWithError(e);
+			}
+		};
+		emitter.onCompletion(() -> paymentSync.unsubscribe(authHeader, listener));
+		emitter.onTimeout(() -> paymentSync.unsubscribe(authHeader, listener));
+		emitter.onError(e -> paymentSync.unsubscribe(authHeader, listener));
+		log.debug("Payment changes subscription from event {}", lastEventId);
+		paymentSync.subscribe(authHeader, lastEventId, listener);
+		return emitter;
+	}
+
+	@ResponseBody
+	@RequestMapping(path = "/payments/summary", method = RequestMethod.GET)
+	public List<PaymentSummary> summarizePayments(@RequestHeader(value = "Authorization") String authHeader,
+												  @RequestParam(value = "recipient_id", required = false) Set<String> recipientIds) {
+		log.debug("Summarize payments request for recipients {}", recipientIds);
+		return paymentDirectory.summarizePayments(authHeader, recipientIds);
 	}
 
 	@ResponseBody
 	@RequestMapping(path = "/payments", method = RequestMethod.POST)
-	public Payment createPayment(@RequestHeader(value = "Authorization") String authHeader, @RequestBody Payment payment) {
+	public ResponseEntity<?> createPayment(@RequestHeader(value = "Authorization") String authHeader,
+										   @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+										   @RequestBody Payment payment) {
 		log.debug("Create payment request '{}'", payment);
-		return paymentProvider.createPayment(authHeader, payment);
+		if (paymentDispatcher != null) {
+			return submitPayment(authHeader, idempotencyKey, payment);
+		}
+		if (idempotencyKey == null) {
+			return ResponseEntity.ok(paymentProvider.createPayment(authHeader, payment));
+		}
+		return ResponseEntity.ok(idempotencyService.execute(authHeader, "payments", idempotencyKey, payment, Payment.class,
+				() -> paymentProvider.createPayment(authHeader, payment)));
 	}
 
-}
+	@ResponseBody
+	@RequestMapping(path = "/payments/submissions/{id}", method = RequestMethod.GET)
+	public PaymentSubmission getPaymentSubmission(@RequestHeader(value = "Authorization") String authHeader, @PathVariable("id") String id) {
+		PaymentSubmission submission = paymentDispatcher == null ? null : paymentDispatcher.find(authHeader, id);
+		if (submission == null) {
+			throw new NotFoundException();
+		}
+		return submission;
+	}
 
+	@ResponseBody
+	@RequestMapping(path = "/payments/batch", method = RequestMethod.POST)
+	public List<BatchPaymentResult> createPayments(@RequestHeader(value = "Authorization") String authHeader, @RequestBody List<Payment> payments) {
+		log.debug("Create batch of {} payments", payments.size());
+		return batchPaymentService.createPayments(authHeader, payments);
+	}
+
+	@RequestMapping(path = "/payments/batch", method = RequestMethod.POST, produces = APPLICATION_NDJSON_VALUE)
+	public void streamCreatePayments(@RequestHeader(value = "Authorization") String authHeader, @RequestBody List<Payment> payments,
+									 HttpServletResponse response) throws IOException {
+		log.debug("Create streamed batch of {} payments", payments.size());
+		try (JsonGenerator generator = ndjsonGenerator(response)) {
+			batchPaymentService.createPayments(authHeader, payments, result -> writeLine(generator, batchResultWriter, result, true));
+		}
+	}
+
+	private ResponseEntity<PaymentSubmission> submitPayment(String authHeader, String idempotencyKey, Payment payment) {
+		PaymentSubmission submission = idempotencyKey == null
+				? paymentDispatcher.submit(authHeader, payment)
+				: idempotencyService.execute(authHeader, "payments", idempotencyKey, payment, PaymentSubmission.class,
+						() -> paymentDispatcher.submit(authHeader, payment));
+		return ResponseEntity.accepted()
+				.location(URI.create("/coolpay/payments/submissions/" + submission.getId()))
+				.body(submission);
+	}
+
+	private JsonGenerator ndjsonGenerator(HttpServletResponse response) throws IOException {
+		response.setContentType(APPLICATION_NDJSON_VALUE);
+		return objectMapper.getFactory().createGenerator(response.getOutputStream())
+				.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+				.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM)
+				.setRootValueSeparator(null);
+	}
+
+	private static void writeLine(JsonGenerator generator, ObjectWriter writer, Object value, boolean flush) {
+		try {
+			writer.writeValue(generator, value);
+			generator.writeRaw('\n');
+			if (flush) {
+				generator.flush();
+				((OutputStream) generator.getOutputTarget()).flush();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static String etag(long contentHash) {
+		return "W/\"" + Long.toHexString(contentHash) + '"';
+	}
+
+	private static Amount parseAmount(String name, String amount) {
+		if (amount == null) {
+			return null;
+		}
+		try {
+			return Amount.parse(amount);
+		} catch (NumberFormatException | ArithmeticException e) {
+			log.debug("Invalid {} '{}'", name, amount, e);
+		}
+		throw new BadRequestException("Invalid " + name);
+	}
+
+	private static PaymentCursor parseCursor(String cursor) {
+		if (cursor == null) {
+			return null;
+		}
+		try {
+			return PaymentCursor.parse(cursor);
+		} catch (IllegalArgumentException e) {
+			log.debug("Invalid cursor '{}'", cursor, e);
+		}
+		throw new BadRequestException("Invalid cursor");
+	}
+
+}
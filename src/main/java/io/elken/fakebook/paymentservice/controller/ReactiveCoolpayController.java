@@ -0,0 +1,63 @@
+package io.elken.fakebook.paymentservice.controller;
+
+import io.elken.fakebook.paymentservice.domain.LoginRequest;
+import io.elken.fakebook.paymentservice.domain.LoginResponse;
+import io.elken.fakebook.paymentservice.domain.Payment;
+import io.elken.fakebook.paymentservice.domain.Recipient;
+import io.elken.fakebook.paymentservice.provider.ReactivePaymentProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Controller
+@RequestMapping("/coolpay/reactive")
+public class ReactiveCoolpayController {
+
+	private static final Logger log = LoggerFactory.getLogger(ReactiveCoolpayController.class);
+
+	private final ReactivePaymentProvider paymentProvider;
+
+	public ReactiveCoolpayController(ReactivePaymentProvider paymentProvider) {
+		this.paymentProvider = paymentProvider;
+	}
+
+	@ResponseBody
+	@RequestMapping(path = "/login", method = RequestMethod.POST)
+	public Mono<LoginResponse> login(@RequestBody LoginRequest loginRequest) {
+		return paymentProvider.login(loginRequest);
+	}
+
+	@ResponseBody
+	@RequestMapping(path = "/recipients", method = RequestMethod.GET)
+	public Flux<Recipient> listRecipients(@RequestHeader(value = "Authorization") String authHeader) {
+		return paymentProvider.listRecipients(authHeader);
+	}
+
+	@ResponseBody
+	@RequestMapping(path = "/recipients", method = RequestMethod.POST)
+	public Mono<Recipient> createRecipient(@RequestHeader(value = "Authorization") String authHeader, @RequestBody Recipient recipient) {
+		log.debug("Create recipient request '{}'", recipient);
+		return paymentProvider.createRecipient(authHeader, recipient);
+	}
+
+	@ResponseBody
+	@RequestMapping(path = "/payments", method = RequestMethod.GET)
+	public Flux<Payment> listPayments(@RequestHeader(value = "Authorization") String authHeader) {
+		return paymentProvider.listPayments(authHeader);
+	}
+
+	@ResponseBody
+	@RequestMapping(path = "/payments", method = RequestMethod.POST)
+	public Mono<Payment> createPayment(@RequestHeader(value = "Authorization") String authHeader, @RequestBody Payment payment) {
+		log.debug("Create payment request '{}'", payment);
+		return paymentProvider.createPayment(authHeader, payment);
+	}
+
+}
@@ -0,0 +1,184 @@
+package io.elken.fakebook.paymentservice.domain;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import io.elken.fakebook.paymentservice.json.AmountSerializer;
+
+@JsonSerialize(using = AmountSerializer.class)
+public final class Amount implements Comparable<Amount> {
+
+	public static final int DEFAULT_SCALE = 2;
+	public static final int MAX_LENGTH = 21;
+
+	public static final int MAX_SCALE = 18;
+	private static final long[] POWERS_OF_TEN = new long[MAX_SCALE + 1];
+
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i <= MAX_SCALE; i++) {
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+		}
+	}
+
+	private final long unscaled;
+	private final int scale;
+
+	public Amount(long unscaled, int scale) {
+		checkScale(scale);
+		this.unscaled = unscaled;
+		this.scale = scale;
+	}
+
+	public static Amount parse(CharSequence text) {
+		char[] chars = text.toString().toCharArray();
+		int scale = scaleOf(chars, 0, chars.length);
+		return new Amount(parse(chars, 0, chars.length, scale), scale);
+	}
+
+	public long getUnscaled() {
+		return unscaled;
+	}
+
+	public int getScale() {
+		return scale;
+	}
+
+	public int compareTo(long otherUnscaled, int otherScale) {
+		if (scale == otherScale) {
+			return Long.compare(unscaled, otherUnscaled);
+		}
+		int common = Math.max(scale, otherScale);
+		long left = rescaleSaturated(unscaled, scale, common);
+		long right = rescaleSaturated(otherUnscaled, otherScale, common);
+		return Long.compare(left, right);
+	}
+
+	@Override
+	public int compareTo(Amount other) {
+		return compareTo(other.unscaled, other.scale);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof Amount && compareTo((Amount) o) == 0;
+	}
+
+	@Override
+	public int hashCode() {
+		long value = unscaled;
+		int stripped = scale;
+		while (stripped > 0 && value % 10 == 0) {
+			value /= 10;
+			stripped--;
+		}
+		return Long.hashCode(value) * 31 + stripped;
+	}
+
+	@Override
+	public String toString() {
+		return format(unscaled, scale);
+	}
+
+	public static int scaleOf(char[] text, int offset, int length) {
+		for (int i = offset, end = offset + length; i < end; i++) {
+			if (text[i] == '.') {
+				return Math.min(end - i - 1, MAX_SCALE);
+			}
+		}
+		return 0;
+	}
+
+	public static long parse(char[] text, int offset, int length, int scale) {
+		checkScale(scale);
+		int end = offset + length;
+		int i = offset;
+		boolean negative = i < end && text[i] == '-';
+		if (negative || i < end && text[i] == '+') {
+			i++;
+		}
+		long value = 0;
+		int digits = 0;
+		int fraction = -1;
+		for (; i < end; i++) {
+			char c = text[i];
+			if (c == '.' && fraction < 0) {
+				fraction = 0;
+				continue;
+			}
+			if (c < '0' || c > '9') {
+				throw new NumberFormatException("Invalid amount '" + new String(text, offset, length) + "'");
+			}
+			digits++;
+			if (fraction == scale) {
+				if (c != '0') {
+					throw new ArithmeticException("Amount '" + new String(text, offset, length) + "' has more than " + scale + " decimal places");
+				}
+				continue;
+			}
+			if (fraction >= 0) {
+				fraction++;
+			}
+			value = Math.addExact(Math.multiplyExact(value, 10), c - '0');
+		}
+		if (digits == 0) {
+			throw new NumberFormatException("Invalid amount '" + new String(text, offset, length) + "'");
+		}
+		value = Math.multiplyExact(value, POWERS_OF_TEN[scale - Math.max(fraction, 0)]);
+		return negative ? -value : value;
+	}
+
+	public static long rescale(long unscaled, int fromScale, int toScale) {
+		checkScale(fromScale);
+		checkScale(toScale);
+		if (toScale >= fromScale) {
+			return Math.multiplyExact(unscaled, POWERS_OF_TEN[toScale - fromScale]);
+		}
+		long divisor = POWERS_OF_TEN[fromScale - toScale];
+		if (unscaled % divisor != 0) {
+			throw new ArithmeticException("Amount " + format(unscaled, fromScale) + " has more than " + toScale + " decimal places");
+		}
+		return unscaled / divisor;
+	}
+
+	public static int format(long unscaled, int scale, char[] out) {
+		checkScale(scale);
+		int position = MAX_LENGTH;
+		boolean negative = unscaled < 0;
+		long remaining = unscaled;
+		for (int i = 0; i < scale; i++) {
+			out[--position] = (char) ('0' + Math.abs(remaining % 10));
+			remaining /= 10;
+		}
+		if (scale > 0) {
+			out[--position] = '.';
+		}
+		do {
+			out[--position] = (char) ('0' + Math.abs(remaining % 10));
+			remaining /= 10;
+		} while (remaining != 0);
+		if (negative) {
+			out[--position] = '-';
+		}
+		return position;
+	}
+
+	public static String format(long unscaled, int scale) {
+		char[] out = new char[MAX_LENGTH];
+		int start = format(unscaled, scale, out);
+		return new String(out, start, MAX_LENGTH - start);
+	}
+
+	private static long rescaleSaturated(long unscaled, int fromScale, int toScale) {
+		try {
+			return Math.multiplyExact(unscaled, POWERS_OF_TEN[toScale - fromScale]);
+		} catch (ArithmeticException e) {
+			return unscaled < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+		}
+	}
+
+	private static void checkScale(int scale) {
+		if (scale < 0 || scale > MAX_SCALE) {
+			throw new IllegalArgumentException("Scale must be between 0 and " + MAX_SCALE);
+		}
+	}
+
+}
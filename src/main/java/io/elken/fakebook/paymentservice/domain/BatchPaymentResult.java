@@ -0,0 +1,46 @@
+package io.elken.fakebook.paymentservice.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchPaymentResult {
+
+	private final int index;
+	private final int status;
+	private final Payment payment;
+	private final String error;
+
+	public BatchPaymentResult(int index, int status, Payment payment, String error) {
+		this.index = index;
+		this.status = status;
+		this.payment = payment;
+		this.error = error;
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	public Payment getPayment() {
+		return payment;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	@Override
+	public String toString() {
+		return "BatchPaymentResult{" +
+				"index=" + index +
+				", status=" + status +
+				", payment=" + payment +
+				", error='" + error + '\'' +
+				'}';
+	}
+
+}
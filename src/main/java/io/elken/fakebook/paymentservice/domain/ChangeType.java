@@ -0,0 +1,5 @@
+package io.elken.fakebook.paymentservice.domain;
+
+public enum ChangeType {
+	created, updated, removed
+}
@@ -1,5 +1,20 @@
 package io.elken.fakebook.paymentservice.domain;
 
 public enum Currency {
-	GBP, USD, EUR;
+	GBP(2), USD(2), EUR(2);
+
+	private final int scale;
+
+	Currency(int scale) {
+		this.scale = scale;
+	}
+
+	public int getScale() {
+		return scale;
+	}
+
+	public static int scaleOf(Currency currency) {
+		return currency == null ? Amount.DEFAULT_SCALE : currency.scale;
+	}
+
 }
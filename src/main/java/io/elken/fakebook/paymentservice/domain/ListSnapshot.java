@@ -0,0 +1,31 @@
+package io.elken.fakebook.paymentservice.domain;
+
+import java.util.List;
+
+public class ListSnapshot<T> {
+
+	private final List<T> items;
+	private final long contentHash;
+
+	public ListSnapshot(List<T> items, long contentHash) {
+		this.items = items;
+		this.contentHash = contentHash;
+	}
+
+	public List<T> getItems() {
+		return items;
+	}
+
+	public long getContentHash() {
+		return contentHash;
+	}
+
+	@Override
+	public String toString() {
+		return "ListSnapshot{" +
+				"items=" + items +
+				", contentHash=" + contentHash +
+				'}';
+	}
+
+}
@@ -1,20 +1,24 @@
 package io.elken.fakebook.paymentservice.domain;
 
-import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import io.elken.fakebook.paymentservice.json.PaymentDeserializer;
+import io.elken.fakebook.paymentservice.json.PaymentSerializer;
 
+@JsonSerialize(using = PaymentSerializer.class)
+@JsonDeserialize(using = PaymentDeserializer.class)
 public class Payment {
 
 	private String id;
 	private Status status;
-	@JsonProperty("recipient_id")
 	private String recipientId;
 	private Currency currency;
-	private double amount;
+	private long amount;
 
 	public Payment() {
 	}
 
-	public Payment(String id, Status status, String recipientId, Currency currency, double amount) {
+	public Payment(String id, Status status, String recipientId, Currency currency, long amount) {
 		this.id = id;
 		this.status = status;
 		this.recipientId = recipientId;
@@ -54,14 +58,18 @@ public class Payment {
 		this.currency = currency;
 	}
 
-	public double getAmount() {
+	public long getAmount() {
 		return amount;
 	}
 
-	public void setAmount(double amount) {
+	public void setAmount(long amount) {
 		this.amount = amount;
 	}
 
+	public int getScale() {
+		return Currency.scaleOf(currency);
+	}
+
 	@Override
 	public String toString() {
 		return "Payment{" +
@@ -69,7 +77,7 @@ public class Payment {
 				", status=" + status +
 				", recipientId='" + recipientId + '\'' +
 				", currency=" + currency +
-				", amount=" + amount +
+				", amount=" + Amount.format(amount, getScale()) +
 				'}';
 	}
 
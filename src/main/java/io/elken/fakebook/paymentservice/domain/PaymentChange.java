@@ -0,0 +1,40 @@
+package io.elken.fakebook.paymentservice.domain;
+
+public class PaymentChange {
+
+	private ChangeType type;
+	private Payment payment;
+
+	public PaymentChange() {
+	}
+
+	public PaymentChange(ChangeType type, Payment payment) {
+		this.type = type;
+		this.payment = payment;
+	}
+
+	public ChangeType getType() {
+		return type;
+	}
+
+	public void setType(ChangeType type) {
+		this.type = type;
+	}
+
+	public Payment getPayment() {
+		return payment;
+	}
+
+	public void setPayment(Payment payment) {
+		this.payment = payment;
+	}
+
+	@Override
+	public String toString() {
+		return "PaymentChange{" +
+				"type=" + type +
+				", payment=" + payment +
+				'}';
+	}
+
+}
@@ -0,0 +1,73 @@
+package io.elken.fakebook.paymentservice.domain;
+
+import java.util.Base64;
+import java.util.Objects;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public class PaymentCursor {
+
+	private static final String SEPARATOR = ":";
+
+	private final long generation;
+	private final int position;
+	private final String id;
+
+	public PaymentCursor(long generation, int position, String id) {
+		this.generation = generation;
+		this.position = position;
+		this.id = id == null ? "" : id;
+	}
+
+	public static PaymentCursor parse(String cursor) {
+		String[] parts = new String(Base64.getUrlDecoder().decode(cursor), UTF_8).split(SEPARATOR, 3);
+		if (parts.length != 3) {
+			throw new IllegalArgumentException("Malformed cursor");
+		}
+		int position = Integer.parseInt(parts[1]);
+		if (position < 0) {
+			throw new IllegalArgumentException("Negative cursor position");
+		}
+		return new PaymentCursor(Long.parseUnsignedLong(parts[0], 16), position, parts[2]);
+	}
+
+	public long getGeneration() {
+		return generation;
+	}
+
+	public int getPosition() {
+		return position;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public boolean isAt(Payment payment) {
+		return id.equals(Objects.toString(payment.getId(), ""));
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (o == null || getClass() != o.getClass()) {
+			return false;
+		}
+		PaymentCursor that = (PaymentCursor) o;
+		return generation == that.generation && position == that.position && id.equals(that.id);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(generation, position, id);
+	}
+
+	@Override
+	public String toString() {
+		String cursor = Long.toHexString(generation) + SEPARATOR + position + SEPARATOR + id;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(UTF_8));
+	}
+
+}
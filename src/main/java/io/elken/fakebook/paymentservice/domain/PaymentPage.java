@@ -0,0 +1,31 @@
+package io.elken.fakebook.paymentservice.domain;
+
+import java.util.List;
+
+public class PaymentPage {
+
+	private final List<Payment> payments;
+	private final String nextCursor;
+
+	public PaymentPage(List<Payment> payments, String nextCursor) {
+		this.payments = payments;
+		this.nextCursor = nextCursor;
+	}
+
+	public List<Payment> getPayments() {
+		return payments;
+	}
+
+	public String getNextCursor() {
+		return nextCursor;
+	}
+
+	@Override
+	public String toString() {
+		return "PaymentPage{" +
+				"payments=" + payments +
+				", nextCursor='" + nextCursor + '\'' +
+				'}';
+	}
+
+}
@@ -0,0 +1,77 @@
+package io.elken.fakebook.paymentservice.domain;
+
+public class PaymentQuery {
+
+	private final PaymentCursor cursor;
+	private final Integer limit;
+	private final String recipientId;
+	private final Currency currency;
+	private final Status status;
+	private final Amount minAmount;
+	private final Amount maxAmount;
+
+	public PaymentQuery(PaymentCursor cursor, Integer limit, String recipientId, Currency currency, Status status, Amount minAmount, Amount maxAmount) {
+		this.cursor = cursor;
+		this.limit = limit;
+		this.recipientId = recipientId;
+		this.currency = currency;
+		this.status = status;
+		this.minAmount = minAmount;
+		this.maxAmount = maxAmount;
+	}
+
+	public PaymentCursor getCursor() {
+		return cursor;
+	}
+
+	public Integer getLimit() {
+		return limit;
+	}
+
+	public String getRecipientId() {
+		return recipientId;
+	}
+
+	public Currency getCurrency() {
+		return currency;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public Amount getMinAmount() {
+		return minAmount;
+	}
+
+	public Amount getMaxAmount() {
+		return maxAmount;
+	}
+
+	public boolean isUnrestricted() {
+		return cursor == null && limit == null && recipientId == null && currency == null && status == null
+				&& minAmount == null && maxAmount == null;
+	}
+
+	public boolean matches(Payment payment) {
+		return (recipientId == null || recipientId.equals(payment.getRecipientId()))
+				&& (currency == null || currency == payment.getCurrency())
+				&& (status == null || status == payment.getStatus())
+				&& (minAmount == null || minAmount.compareTo(payment.getAmount(), payment.getScale()) <= 0)
+				&& (maxAmount == null || maxAmount.compareTo(payment.getAmount(), payment.getScale()) >= 0);
+	}
+
+	@Override
+	public String toString() {
+		return "PaymentQuery{" +
+				"cursor=" + cursor +
+				", limit=" + limit +
+				", recipientId='" + recipientId + '\'' +
+				", currency=" + currency +
+				", status=" + status +
+				", minAmount=" + minAmount +
+				", maxAmount=" + maxAmount +
+				'}';
+	}
+
+}
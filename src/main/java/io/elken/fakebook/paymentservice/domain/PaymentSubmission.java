@@ -0,0 +1,65 @@
+package io.elken.fakebook.paymentservice.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PaymentSubmission {
+
+	private String id;
+	private SubmissionState state;
+	private Payment payment;
+	private String error;
+
+	public PaymentSubmission() {
+	}
+
+	public PaymentSubmission(String id, SubmissionState state, Payment payment, String error) {
+		this.id = id;
+		this.state = state;
+		this.payment = payment;
+		this.error = error;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public SubmissionState getState() {
+		return state;
+	}
+
+	public void setState(SubmissionState state) {
+		this.state = state;
+	}
+
+	public Payment getPayment() {
+		return payment;
+	}
+
+	public void setPayment(Payment payment) {
+		this.payment = payment;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	public void setError(String error) {
+		this.error = error;
+	}
+
+	@Override
+	public String toString() {
+		return "PaymentSubmission{" +
+				"id='" + id + '\'' +
+				", state=" + state +
+				", payment=" + payment +
+				", error='" + error + '\'' +
+				'}';
+	}
+
+}
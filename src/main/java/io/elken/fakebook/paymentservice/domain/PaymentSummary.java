@@ -0,0 +1,67 @@
+package io.elken.fakebook.paymentservice.domain;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class PaymentSummary {
+
+	@JsonProperty("recipient_id")
+	private final String recipientId;
+	private final Currency currency;
+	private final Status status;
+	private final long count;
+	private final Amount total;
+	private final Amount min;
+	private final Amount max;
+
+	public PaymentSummary(String recipientId, Currency currency, Status status, long count, Amount total, Amount min, Amount max) {
+		this.recipientId = recipientId;
+		this.currency = currency;
+		this.status = status;
+		this.count = count;
+		this.total = total;
+		this.min = min;
+		this.max = max;
+	}
+
+	public String getRecipientId() {
+		return recipientId;
+	}
+
+	public Currency getCurrency() {
+		return currency;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public Amount getTotal() {
+		return total;
+	}
+
+	public Amount getMin() {
+		return min;
+	}
+
+	public Amount getMax() {
+		return max;
+	}
+
+	@Override
+	public String toString() {
+		return "PaymentSummary{" +
+				"recipientId='" + recipientId + '\'' +
+				", currency=" + currency +
+				", status=" + status +
+				", count=" + count +
+				", total=" + total +
+				", min=" + min +
+				", max=" + max +
+				'}';
+	}
+
+}
@@ -0,0 +1,5 @@
+package io.elken.fakebook.paymentservice.domain;
+
+public enum SubmissionState {
+	queued, sending, accepted, failed, unknown
+}
@@ -0,0 +1,30 @@
+package io.elken.fakebook.paymentservice.exception;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.client.HttpStatusCodeException;
+
+public final class ErrorStatus {
+
+	private static final Logger log = LoggerFactory.getLogger(ErrorStatus.class);
+
+	private ErrorStatus() {
+	}
+
+	public static HttpStatus of(RuntimeException e) {
+		if (e instanceof HttpStatusCodeException) {
+			HttpStatus status = HttpStatus.resolve(((HttpStatusCodeException) e).getStatusCode().value());
+			return status == null ? HttpStatus.BAD_GATEWAY : status;
+		}
+		ResponseStatus responseStatus = AnnotatedElementUtils.findMergedAnnotation(e.getClass(), ResponseStatus.class);
+		if (responseStatus == null) {
+			log.error("Unexpected payment failure.", e);
+			return HttpStatus.INTERNAL_SERVER_ERROR;
+		}
+		return responseStatus.code();
+	}
+
+}
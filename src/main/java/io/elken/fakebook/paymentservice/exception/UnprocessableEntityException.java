@@ -0,0 +1,13 @@
+package io.elken.fakebook.paymentservice.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.UNPROCESSABLE_ENTITY)
+public class UnprocessableEntityException extends RuntimeException {
+
+	public UnprocessableEntityException(String message) {
+		super(message);
+	}
+
+}
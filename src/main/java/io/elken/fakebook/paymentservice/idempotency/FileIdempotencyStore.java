@@ -0,0 +1,144 @@
+package io.elken.fakebook.paymentservice.idempotency;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public class FileIdempotencyStore implements IdempotencyStore, Closeable {
+
+	private static final Logger log = LoggerFactory.getLogger(FileIdempotencyStore.class);
+
+	private static final char FIELD_SEPARATOR = '\t';
+
+	private final Path path;
+	private final InMemoryIdempotencyStore entries;
+	private final int maximumEntries;
+	private final long ttlMillis;
+	private final Clock clock;
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private Writer writer;
+	private int appended;
+
+	public FileIdempotencyStore(Path path, int stripes, int maximumEntries, long ttlMillis, Clock clock) throws IOException {
+		this.path = path;
+		this.entries = new InMemoryIdempotencyStore(stripes, maximumEntries, ttlMillis, clock);
+		this.maximumEntries = maximumEntries;
+		this.ttlMillis = ttlMillis;
+		this.clock = clock;
+		load();
+		compact();
+	}
+
+	@Override
+	public String get(String key) {
+		return entries.get(key);
+	}
+
+	@Override
+	public void put(String key, String response) {
+		long expiresAtMillis = clock.millis() + ttlMillis;
+		entries.put(key, response, expiresAtMillis);
+		lock.lock();
+		try {
+			append(writer, key, response, expiresAtMillis);
+			writer.flush();
+			if (++appended > maximumEntries) {
+				compact();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		lock.lock();
+		try {
+			writer.close();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void load() throws IOException {
+		if (!Files.exists(path)) {
+			return;
+		}
+		long now = clock.millis();
+		try (BufferedReader reader = Files.newBufferedReader(path, UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				int keyStart = line.indexOf(FIELD_SEPARATOR);
+				int responseStart = keyStart < 0 ? -1 : line.indexOf(FIELD_SEPARATOR, keyStart + 1);
+				if (responseStart < 0) {
+					log.warn("Skipping malformed idempotency record in {}", path);
+					continue;
+				}
+				try {
+					long expiresAtMillis = Long.parseLong(line.substring(0, keyStart));
+					if (expiresAtMillis > now) {
+						entries.put(line.substring(keyStart + 1, responseStart), line.substring(responseStart + 1), expiresAtMillis);
+					}
+				} catch (NumberFormatException e) {
+					log.warn("Skipping malformed idempotency record in {}", path, e);
+				}
+			}
+		}
+	}
+
+	private void compact() throws IOException {
+		lock.lock();
+		try {
+			if (writer != null) {
+				writer.close();
+			}
+			Path compacted = path.resolveSibling(path.getFileName() + ".tmp");
+			try (Writer out = Files.newBufferedWriter(compacted, UTF_8)) {
+				IOException[] failure = new IOException[1];
+				entries.forEach((key, response, expiresAtMillis) -> {
+					try {
+						append(out, key, response, expiresAtMillis);
+					} catch (IOException e) {
+						failure[0] = e;
+					}
+				});
+				if (failure[0] != null) {
+					throw failure[0];
+				}
+			}
+			Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			writer = Files.newBufferedWriter(path, UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+			appended = 0;
+		} finally {
+			lock.unlock();
+		}
+		log.debug("Compacted idempotency store {} to {} entries", path, entries.size());
+	}
+
+	private static void append(Writer out, String key, String response, long expiresAtMillis) throws IOException {
+		out.write(Long.toString(expiresAtMillis));
+		out.write(FIELD_SEPARATOR);
+		out.write(key);
+		out.write(FIELD_SEPARATOR);
+		out.write(response);
+		out.write('\n');
+	}
+
+}
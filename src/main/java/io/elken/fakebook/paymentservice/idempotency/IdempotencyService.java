@@ -0,0 +1,153 @@
+package io.elken.fakebook.paymentservice.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.elken.fakebook.paymentservice.exception.BadRequestException;
+import io.elken.fakebook.paymentservice.exception.UnprocessableEntityException;
+import io.elken.fakebook.paymentservice.resilience.SharedFailure;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public class IdempotencyService {
+
+	private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+
+	private static final int MAX_KEY_LENGTH = 255;
+	private static final char HASH_SEPARATOR = ':';
+
+	private final IdempotencyStore store;
+	private final ObjectMapper objectMapper;
+	private final ConcurrentMap<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+	public IdempotencyService(IdempotencyStore store, ObjectMapper objectMapper) {
+		this.store = store;
+		this.objectMapper = objectMapper;
+	}
+
+	public <T> T execute(String token, String operation, String idempotencyKey, Object requestBody, Class<T> responseType,
+						 Supplier<T> request) {
+		validate(idempotencyKey);
+		String key = scope(token, operation, idempotencyKey);
+		String requestHash = hash(write(requestBody));
+
+		String stored = store.get(key);
+		if (stored != null) {
+			log.debug("Replaying stored response for idempotency key '{}'", idempotencyKey);
+			return replay(stored, requestHash, responseType);
+		}
+
+		CompletableFuture<String> pending = new CompletableFuture<>();
+		CompletableFuture<String> existing = inFlight.putIfAbsent(key, pending);
+		if (existing != null) {
+			log.debug("Joining in-flight request for idempotency key '{}'", idempotencyKey);
+			return replay(await(existing), requestHash, responseType);
+		}
+
+		try {
+			stored = store.get(key);
+			if (stored != null) {
+				pending.complete(stored);
+				return replay(stored, requestHash, responseType);
+			}
+			T response = request.get();
+			stored = requestHash + HASH_SEPARATOR + write(response);
+			pending.complete(stored);
+			try {
+				store.put(key, stored);
+			} catch (RuntimeException e) {
+				log.error("Failed to store response for idempotency key '{}'", idempotencyKey, e);
+			}
+			return response;
+		} catch (RuntimeException | Error e) {
+			pending.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(key, pending);
+		}
+	}
+
+	int inFlightCount() {
+		return inFlight.size();
+	}
+
+	private <T> T replay(String stored, String requestHash, Class<T> responseType) {
+		if (stored.indexOf(HASH_SEPARATOR) != requestHash.length() || !stored.startsWith(requestHash)) {
+			throw new UnprocessableEntityException("Idempotency-Key was already used with a different request");
+		}
+		return read(stored.substring(requestHash.length() + 1), responseType);
+	}
+
+	private <T> T read(String response, Class<T> responseType) {
+		try {
+			return objectMapper.readValue(response, responseType);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private String write(Object response) {
+		try {
+			return objectMapper.writeValueAsString(response);
+		} catch (JsonProcessingException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static String await(CompletableFuture<String> pending) {
+		try {
+			return pending.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			if (e.getCause() instanceof RuntimeException) {
+				throw SharedFailure.forWaiter((RuntimeException) e.getCause());
+			}
+			throw e;
+		}
+	}
+
+	private static void validate(String idempotencyKey) {
+		if (idempotencyKey.isEmpty() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+			throw new BadRequestException("Idempotency-Key must be between 1 and " + MAX_KEY_LENGTH + " characters");
+		}
+		for (int i = 0; i < idempotencyKey.length(); i++) {
+			char c = idempotencyKey.charAt(i);
+			if (c < 0x20 || c == 0x7f) {
+				throw new BadRequestException("Idempotency-Key must not contain control characters");
+			}
+		}
+	}
+
+	private static String hash(String requestBody) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(requestBody.getBytes(UTF_8));
+			return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String scope(String token, String operation, String idempotencyKey) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(String.valueOf(token).getBytes(UTF_8));
+			return Base64.getUrlEncoder().withoutPadding().encodeToString(digest) + ':' + operation + ':' + idempotencyKey;
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
@@ -0,0 +1,9 @@
+package io.elken.fakebook.paymentservice.idempotency;
+
+public interface IdempotencyStore {
+
+	String get(String key);
+
+	void put(String key, String response);
+
+}
@@ -0,0 +1,125 @@
+package io.elken.fakebook.paymentservice.idempotency;
+
+import java.time.Clock;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+	private final Stripe[] stripes;
+	private final long ttlMillis;
+	private final Clock clock;
+
+	public InMemoryIdempotencyStore(int stripes, int maximumEntries, long ttlMillis, Clock clock) {
+		int stripeCount = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+		int maximumPerStripe = Math.max(1, maximumEntries / stripeCount);
+		this.stripes = new Stripe[stripeCount];
+		for (int i = 0; i < stripeCount; i++) {
+			this.stripes[i] = new Stripe(maximumPerStripe);
+		}
+		this.ttlMillis = ttlMillis;
+		this.clock = clock;
+	}
+
+	@Override
+	public String get(String key) {
+		return stripe(key).get(key, clock.millis());
+	}
+
+	@Override
+	public void put(String key, String response) {
+		put(key, response, clock.millis() + ttlMillis);
+	}
+
+	void put(String key, String response, long expiresAtMillis) {
+		stripe(key).put(key, response, expiresAtMillis, clock.millis());
+	}
+
+	void forEach(EntryConsumer consumer) {
+		long now = clock.millis();
+		for (Stripe stripe : stripes) {
+			stripe.forEach(now, consumer);
+		}
+	}
+
+	int size() {
+		int size = 0;
+		for (Stripe stripe : stripes) {
+			size += stripe.size();
+		}
+		return size;
+	}
+
+	private Stripe stripe(String key) {
+		int hash = key.hashCode();
+		return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+	}
+
+	interface EntryConsumer {
+
+		void accept(String key, String response, long expiresAtMillis);
+
+	}
+
+	private static final class Entry {
+
+		private final String response;
+		private final long expiresAtMillis;
+
+		private Entry(String response, long expiresAtMillis) {
+			this.response = response;
+			this.expiresAtMillis = expiresAtMillis;
+		}
+
+	}
+
+	private static final class Stripe {
+
+		private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+		private final int maximumEntries;
+
+		private Stripe(int maximumEntries) {
+			this.maximumEntries = maximumEntries;
+		}
+
+		private synchronized String get(String key, long now) {
+			Entry entry = entries.get(key);
+			if (entry == null) {
+				return null;
+			}
+			if (entry.expiresAtMillis <= now) {
+				entries.remove(key);
+				return null;
+			}
+			return entry.response;
+		}
+
+		private synchronized void put(String key, String response, long expiresAtMillis, long now) {
+			entries.remove(key);
+			entries.put(key, new Entry(response, expiresAtMillis));
+			Iterator<Entry> eldest = entries.values().iterator();
+			while (eldest.hasNext()) {
+				Entry entry = eldest.next();
+				if (entries.size() <= maximumEntries && entry.expiresAtMillis > now) {
+					break;
+				}
+				eldest.remove();
+			}
+		}
+
+		private synchronized void forEach(long now, EntryConsumer consumer) {
+			for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+				if (entry.getValue().expiresAtMillis > now) {
+					consumer.accept(entry.getKey(), entry.getValue().response, entry.getValue().expiresAtMillis);
+				}
+			}
+		}
+
+		private synchronized int size() {
+			return entries.size();
+		}
+
+	}
+
+}
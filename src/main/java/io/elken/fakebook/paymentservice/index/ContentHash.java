@@ -0,0 +1,39 @@
+package io.elken.fakebook.paymentservice.index;
+
+import io.elken.fakebook.paymentservice.domain.Payment;
+import io.elken.fakebook.paymentservice.domain.Recipient;
+
+import java.util.Objects;
+
+final class ContentHash {
+
+	static final long EMPTY = 0x9E3779B97F4A7C15L;
+
+	private ContentHash() {
+	}
+
+	static long append(long hash, Payment payment) {
+		long item = Objects.hashCode(payment.getId());
+		item = item * 31 + Objects.hashCode(payment.getStatus());
+		item = item * 31 + Objects.hashCode(payment.getRecipientId());
+		item = item * 31 + Objects.hashCode(payment.getCurrency());
+		item = item * 31 + payment.getAmount();
+		return mix(hash * 31 + item);
+	}
+
+	static long append(long hash, Recipient recipient) {
+		long item = Objects.hashCode(recipient.getId());
+		item = item * 31 + Objects.hashCode(recipient.getName());
+		item = item * 31 + Objects.hashCode(recipient.getBio());
+		item = item * 31 + Objects.hashCode(recipient.getImageSrc());
+		item = item * 31 + recipient.getNumberOfFriends();
+		return mix(hash * 31 + item);
+	}
+
+	private static long mix(long value) {
+		value = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+		value = (value ^ (value >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		return value ^ (value >>> 33);
+	}
+
+}
@@ -0,0 +1,45 @@
+package io.elken.fakebook.paymentservice.index;
+
+import java.util.Arrays;
+
+class IntArrayList {
+
+	private int[] values = new int[4];
+	private int size;
+
+	void add(int value) {
+		if (size == values.length) {
+			values = Arrays.copyOf(values, size * 2);
+		}
+		values[size++] = value;
+	}
+
+	void insert(int value) {
+		int index = lowerBound(value);
+		add(value);
+		System.arraycopy(values, index, values, index + 1, size - 1 - index);
+		values[index] = value;
+	}
+
+	void remove(int value) {
+		int index = Arrays.binarySearch(values, 0, size, value);
+		if (index >= 0) {
+			System.arraycopy(values, index + 1, values, index, size - 1 - index);
+			size--;
+		}
+	}
+
+	int get(int index) {
+		return values[index];
+	}
+
+	int size() {
+		return size;
+	}
+
+	int lowerBound(int value) {
+		int index = Arrays.binarySearch(values, 0, size, value);
+		return index >= 0 ? index : -index - 1;
+	}
+
+}
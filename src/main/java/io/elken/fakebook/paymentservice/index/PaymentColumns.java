@@ -0,0 +1,247 @@
+package io.elken.fakebook.paymentservice.index;
+
+import io.elken.fakebook.paymentservice.domain.Currency;
+import io.elken.fakebook.paymentservice.domain.Payment;
+import io.elken.fakebook.paymentservice.domain.PaymentQuery;
+import io.elken.fakebook.paymentservice.domain.Status;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+class PaymentColumns {
+
+	private static final int MIN_CAPACITY = 16;
+	private static final int ROW_BYTES = Long.BYTES + Integer.BYTES + Integer.BYTES + 1 + 1;
+	private static final int UUID_LENGTH = 36;
+	private static final int UUID_BYTES = 1 + Long.BYTES + Long.BYTES;
+	private static final byte NONE = -1;
+	private static final int UNKNOWN_RECIPIENT = -2;
+	private static final byte NULL_ID = 0;
+	private static final byte UUID_ID = 1;
+	private static final byte STRING_ID = 2;
+	private static final Currency[] CURRENCIES = Currency.values();
+	private static final Status[] STATUSES = Status.values();
+
+	private final List<String> recipients = new ArrayList<>();
+	private final Map<String, Integer> recipientCodes = new HashMap<>();
+	private ByteBuffer rows;
+	private ByteBuffer ids;
+	private int capacity;
+	private int size;
+	private int idBytes;
+
+	PaymentColumns(int expectedRows, long expectedIdBytes) {
+		capacity = expectedRows;
+		rows = allocate((long) capacity * ROW_BYTES);
+		ids = allocate(expectedIdBytes);
+	}
+
+	static PaymentColumns sizedFor(Collection<Payment> payments) {
+		long idBytes = 0;
+		for (Payment payment : payments) {
+			idBytes += idBytes(payment.getId());
+		}
+		return new PaymentColumns(payments.size(), idBytes);
+	}
+
+	int size() {
+		return size;
+	}
+
+	long offHeapBytes() {
+		return (long) rows.capacity() + ids.capacity();
+	}
+
+	int append(Payment payment) {
+		if (size == capacity) {
+			grow();
+		}
+		int row = size;
+		set(row, payment);
+		rows.putInt(idAt(row), idBytes);
+		appendId(payment.getId());
+		size++;
+		return row;
+	}
+
+	void set(int row, Payment payment) {
+		rows.putLong(amountAt(row), payment.getAmount());
+		rows.putInt(recipientAt(row), encodeRecipient(payment.getRecipientId()));
+		rows.put(currencyAt(row), payment.getCurrency() == null ? NONE : (byte) payment.getCurrency().ordinal());
+		rows.put(statusAt(row), payment.getStatus() == null ? NONE : (byte) payment.getStatus().ordinal());
+	}
+
+	int recipientCode(String recipientId) {
+		Integer code = recipientId == null ? null : recipientCodes.get(recipientId);
+		return code == null ? UNKNOWN_RECIPIENT : code;
+	}
+
+	boolean matches(int row, PaymentQuery query, int recipientCode) {
+		if (query.getRecipientId() != null && rows.getInt(recipientAt(row)) != recipientCode) {
+			return false;
+		}
+		if (query.getCurrency() != null && rows.get(currencyAt(row)) != query.getCurrency().ordinal()) {
+			return false;
+		}
+		if (query.getStatus() != null && rows.get(statusAt(row)) != query.getStatus().ordinal()) {
+			return false;
+		}
+		if (query.getMinAmount() == null && query.getMaxAmount() == null) {
+			return true;
+		}
+		long amount = amount(row);
+		int scale = Currency.scaleOf(currency(row));
+		return (query.getMinAmount() == null || query.getMinAmount().compareTo(amount, scale) <= 0)
+				&& (query.getMaxAmount() == null || query.getMaxAmount().compareTo(amount, scale) >= 0);
+	}
+
+	Payment get(int row) {
+		return new Payment(id(row), status(row), recipientId(row), currency(row), amount(row));
+	}
+
+	long amount(int row) {
+		return rows.getLong(amountAt(row));
+	}
+
+	String recipientId(int row) {
+		int code = rows.getInt(recipientAt(row));
+		return code < 0 ? null : recipients.get(code);
+	}
+
+	Currency currency(int row) {
+		byte ordinal = rows.get(currencyAt(row));
+		return ordinal < 0 ? null : CURRENCIES[ordinal];
+	}
+
+	Status status(int row) {
+		byte ordinal = rows.get(statusAt(row));
+		return ordinal < 0 ? null : STATUSES[ordinal];
+	}
+
+	String id(int row) {
+		int offset = rows.getInt(idAt(row));
+		switch (ids.get(offset)) {
+			case UUID_ID:
+				return new UUID(ids.getLong(offset + 1), ids.getLong(offset + 1 + Long.BYTES)).toString();
+			case STRING_ID:
+				byte[] bytes = new byte[ids.getInt(offset + 1)];
+				ids.get(offset + 1 + Integer.BYTES, bytes);
+				return new String(bytes, UTF_8);
+			default:
+				return null;
+		}
+	}
+
+	private int encodeRecipient(String recipientId) {
+		if (recipientId == null) {
+			return -1;
+		}
+		Integer code = recipientCodes.get(recipientId);
+		if (code == null) {
+			code = recipients.size();
+			recipients.add(recipientId);
+			recipientCodes.put(recipientId, code);
+		}
+		return code;
+	}
+
+	private void appendId(String id) {
+		reserveIds(idBytes(id));
+		if (id == null) {
+			ids.put(idBytes++, NULL_ID);
+			return;
+		}
+		UUID uuid = canonicalUuid(id);
+		if (uuid != null) {
+			ids.put(idBytes, UUID_ID);
+			ids.putLong(idBytes + 1, uuid.getMostSignificantBits());
+			ids.putLong(idBytes + 1 + Long.BYTES, uuid.getLeastSignificantBits());
+			idBytes += UUID_BYTES;
+			return;
+		}
+		byte[] bytes = id.getBytes(UTF_8);
+		ids.put(idBytes, STRING_ID);
+		ids.putInt(idBytes + 1, bytes.length);
+		ids.put(idBytes + 1 + Integer.BYTES, bytes);
+		idBytes += 1 + Integer.BYTES + bytes.length;
+	}
+
+	private void reserveIds(int bytes) {
+		if (idBytes + bytes <= ids.capacity()) {
+			return;
+		}
+		ByteBuffer grown = allocate(Math.max(2L * ids.capacity(), (long) idBytes + bytes));
+		grown.put(0, ids, 0, idBytes);
+		ids = grown;
+	}
+
+	private void grow() {
+		int oldCapacity = capacity;
+		ByteBuffer old = rows;
+		capacity = Math.toIntExact(Math.min(Math.max(MIN_CAPACITY, 2L * capacity), Integer.MAX_VALUE / ROW_BYTES));
+		if (capacity == oldCapacity) {
+			throw new IllegalStateException("Payment columns are full");
+		}
+		rows = allocate((long) capacity * ROW_BYTES);
+		rows.put(amountAt(0), old, 0, oldCapacity * Long.BYTES);
+		rows.put(recipientAt(0), old, oldCapacity * Long.BYTES, oldCapacity * Integer.BYTES);
+		rows.put(idAt(0), old, oldCapacity * (Long.BYTES + Integer.BYTES), oldCapacity * Integer.BYTES);
+		rows.put(currencyAt(0), old, oldCapacity * (Long.BYTES + 2 * Integer.BYTES), oldCapacity);
+		rows.put(statusAt(0), old, oldCapacity * (Long.BYTES + 2 * Integer.BYTES + 1), oldCapacity);
+	}
+
+	private int amountAt(int row) {
+		return row * Long.BYTES;
+	}
+
+	private int recipientAt(int row) {
+		return capacity * Long.BYTES + row * Integer.BYTES;
+	}
+
+	private int idAt(int row) {
+		return capacity * (Long.BYTES + Integer.BYTES) + row * Integer.BYTES;
+	}
+
+	private int currencyAt(int row) {
+		return capacity * (Long.BYTES + 2 * Integer.BYTES) + row;
+	}
+
+	private int statusAt(int row) {
+		return capacity * (Long.BYTES + 2 * Integer.BYTES + 1) + row;
+	}
+
+	private static int idBytes(String id) {
+		if (id == null) {
+			return 1;
+		}
+		if (canonicalUuid(id) != null) {
+			return UUID_BYTES;
+		}
+		return 1 + Integer.BYTES + id.getBytes(UTF_8).length;
+	}
+
+	private static UUID canonicalUuid(String id) {
+		if (id.length() != UUID_LENGTH || id.charAt(8) != '-' || id.charAt(13) != '-' || id.charAt(18) != '-' || id.charAt(23) != '-') {
+			return null;
+		}
+		try {
+			UUID uuid = UUID.fromString(id);
+			return uuid.toString().equals(id) ? uuid : null;
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	private static ByteBuffer allocate(long bytes) {
+		return ByteBuffer.allocateDirect(Math.toIntExact(bytes)).order(ByteOrder.nativeOrder());
+	}
+
+}
@@ -0,0 +1,293 @@
+package io.elken.fakebook.paymentservice.index;
+
+import io.elken.fakebook.paymentservice.domain.Currency;
+import io.elken.fakebook.paymentservice.domain.ListSnapshot;
+import io.elken.fakebook.paymentservice.domain.Payment;
+import io.elken.fakebook.paymentservice.domain.PaymentCursor;
+import io.elken.fakebook.paymentservice.domain.PaymentPage;
+import io.elken.fakebook.paymentservice.domain.PaymentQuery;
+import io.elken.fakebook.paymentservice.domain.PaymentSummary;
+import io.elken.fakebook.paymentservice.exception.BadRequestException;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static java.util.Collections.unmodifiableList;
+
+public class PaymentIndex {
+
+	private static final IntArrayList NO_POSITIONS = new IntArrayList();
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final PaymentColumns payments;
+	private final Map<String, IntArrayList> byRecipient = new HashMap<>();
+	private final Map<Currency, IntArrayList> byCurrency = new EnumMap<>(Currency.class);
+	private final Map<String, PaymentTotals> totalsByRecipient = new LinkedHashMap<>();
+	private final long generation;
+	private long contentHash = ContentHash.EMPTY;
+
+	public PaymentIndex(Collection<Payment> payments) {
+		this.payments = PaymentColumns.sizedFor(payments);
+		payments.forEach(this::append);
+		this.generation = contentHash;
+	}
+
+	public PaymentIndex add(Payment payment) {
+		Lock writeLock = lock.writeLock();
+		writeLock.lock();
+		try {
+			append(payment);
+			return this;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	public boolean update(List<Payment> latest) {
+		Lock writeLock = lock.writeLock();
+		writeLock.lock();
+		try {
+			int size = payments.size();
+			if (latest.size() < size) {
+				return false;
+			}
+			IntArrayList changed = new IntArrayList();
+			for (int position = 0; position < size; position++) {
+				Payment payment = latest.get(position);
+				if (!Objects.equals(payments.id(position), payment.getId())) {
+					return false;
+				}
+				if (!isAt(position, payment)) {
+					changed.add(position);
+				}
+			}
+			if (changed.size() > 0) {
+				Map<String, PaymentTotals> totals = new LinkedHashMap<>();
+				long hash = ContentHash.EMPTY;
+				for (int position = 0; position < size; position++) {
+					Payment payment = latest.get(position);
+					PaymentTotals recipientTotals = totals.computeIfAbsent(payment.getRecipientId(), id -> new PaymentTotals());
+					recipientTotals.add(payment, recipientTotals.totalWith(payment));
+					hash = ContentHash.append(hash, payment);
+				}
+				for (int i = 0; i < changed.size(); i++) {
+					replace(changed.get(i), latest.get(changed.get(i)));
+				}
+				totalsByRecipient.clear();
+				totalsByRecipient.putAll(totals);
+				contentHash = hash;
+			}
+			for (int position = size; position < latest.size(); position++) {
+				append(latest.get(position));
+			}
+			return true;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	public List<Payment> asList() {
+		return new PaymentList(size());
+	}
+
+	public ListSnapshot<Payment> snapshot() {
+		Lock readLock = lock.readLock();
+		readLock.lock();
+		try {
+			List<Payment> items = new ArrayList<>(payments.size());
+			for (int position = 0; position < payments.size(); position++) {
+				items.add(payments.get(position));
+			}
+			return new ListSnapshot<>(unmodifiableList(items), contentHash);
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	public int size() {
+		Lock readLock = lock.readLock();
+		readLock.lock();
+		try {
+			return payments.size();
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	public long contentHash() {
+		Lock readLock = lock.readLock();
+		readLock.lock();
+		try {
+			return contentHash;
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	public long offHeapBytes() {
+		Lock readLock = lock.readLock();
+		readLock.lock();
+		try {
+			return payments.offHeapBytes();
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	public PaymentPage find(PaymentQuery query) {
+		Lock readLock = lock.readLock();
+		readLock.lock();
+		try {
+			int limit = query.getLimit() == null ? Integer.MAX_VALUE : query.getLimit();
+			int before = query.getCursor() == null ? payments.size() : position(query.getCursor());
+			IntArrayList positions = positions(query);
+			int recipientCode = payments.recipientCode(query.getRecipientId());
+
+			List<Payment> page = new ArrayList<>(Math.min(limit, 64));
+			int lastPosition = -1;
+			String lastId = null;
+			PaymentCursor nextCursor = null;
+			for (int i = (positions == null ? before : positions.lowerBound(before)) - 1; i >= 0; i--) {
+				int position = positions == null ? i : positions.get(i);
+				if (!payments.matches(position, query, recipientCode)) {
+					continue;
+				}
+				if (page.size() == limit) {
+					nextCursor = new PaymentCursor(generation, lastPosition, lastId);
+					break;
+				}
+				Payment payment = payments.get(position);
+				page.add(payment);
+				lastPosition = position;
+				lastId = payment.getId();
+			}
+			return new PaymentPage(page, nextCursor == null ? null : nextCursor.toString());
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	public List<PaymentSummary> summarize(Collection<String> recipientIds) {
+		Lock readLock = lock.readLock();
+		readLock.lock();
+		try {
+			List<PaymentSummary> summaries = new ArrayList<>();
+			if (recipientIds == null) {
+				totalsByRecipient.forEach((recipientId, totals) -> totals.collect(recipientId, summaries));
+			} else {
+				for (String recipientId : recipientIds) {
+					PaymentTotals totals = totalsByRecipient.get(recipientId);
+					if (totals != null) {
+						totals.collect(recipientId, summaries);
+					}
+				}
+			}
+			return summaries;
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	private int position(PaymentCursor cursor) {
+		if (cursor.getGeneration() != generation || cursor.getPosition() >= payments.size()
+				|| !cursor.isAt(payments.get(cursor.getPosition()))) {
+			throw new BadRequestException("Cursor is from an earlier payment list, start again from the first page");
+		}
+		return cursor.getPosition();
+	}
+
+	private IntArrayList positions(PaymentQuery query) {
+		IntArrayList recipientPositions = query.getRecipientId() == null ? null : byRecipient.getOrDefault(query.getRecipientId(), NO_POSITIONS);
+		IntArrayList currencyPositions = query.getCurrency() == null ? null : byCurrency.getOrDefault(query.getCurrency(), NO_POSITIONS);
+		if (recipientPositions == null || currencyPositions == null) {
+			return recipientPositions == null ? currencyPositions : recipientPositions;
+		}
+		return recipientPositions.size() <= currencyPositions.size() ? recipientPositions : currencyPositions;
+	}
+
+	private void append(Payment payment) {
+		PaymentTotals totals = totalsByRecipient.get(payment.getRecipientId());
+		PaymentTotals recipientTotals = totals == null ? new PaymentTotals() : totals;
+		long total = recipientTotals.totalWith(payment);
+		int position = payments.append(payment);
+		if (payment.getRecipientId() != null) {
+			byRecipient.computeIfAbsent(payment.getRecipientId(), id -> new IntArrayList()).add(position);
+		}
+		if (payment.getCurrency() != null) {
+			byCurrency.computeIfAbsent(payment.getCurrency(), currency -> new IntArrayList()).add(position);
+		}
+		if (totals == null) {
+			totalsByRecipient.put(payment.getRecipientId(), recipientTotals);
+		}
+		recipientTotals.add(payment, total);
+		contentHash = ContentHash.append(contentHash, payment);
+	}
+
+	private boolean isAt(int position, Payment payment) {
+		return payments.amount(position) == payment.getAmount()
+				&& payments.status(position) == payment.getStatus()
+				&& payments.currency(position) == payment.getCurrency()
+				&& Objects.equals(payments.recipientId(position), payment.getRecipientId());
+	}
+
+	private void replace(int position, Payment payment) {
+		String recipientId = payments.recipientId(position);
+		Currency currency = payments.currency(position);
+		payments.set(position, payment);
+		if (!Objects.equals(recipientId, payment.getRecipientId())) {
+			if (recipientId != null) {
+				byRecipient.get(recipientId).remove(position);
+			}
+			if (payment.getRecipientId() != null) {
+				byRecipient.computeIfAbsent(payment.getRecipientId(), id -> new IntArrayList()).insert(position);
+			}
+		}
+		if (currency != payment.getCurrency()) {
+			if (currency != null) {
+				byCurrency.get(currency).remove(position);
+			}
+			if (payment.getCurrency() != null) {
+				byCurrency.computeIfAbsent(payment.getCurrency(), key -> new IntArrayList()).insert(position);
+			}
+		}
+	}
+
+	private class PaymentList extends AbstractList<Payment> implements RandomAccess {
+
+		private final int size;
+
+		private PaymentList(int size) {
+			this.size = size;
+		}
+
+		@Override
+		public Payment get(int index) {
+			Objects.checkIndex(index, size);
+			Lock readLock = lock.readLock();
+			readLock.lock();
+			try {
+				return payments.get(index);
+			} finally {
+				readLock.unlock();
+			}
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+	}
+
+}
@@ -0,0 +1,66 @@
+package io.elken.fakebook.paymentservice.index;
+
+import io.elken.fakebook.paymentservice.domain.Amount;
+import io.elken.fakebook.paymentservice.domain.Currency;
+import io.elken.fakebook.paymentservice.domain.Payment;
+import io.elken.fakebook.paymentservice.domain.PaymentSummary;
+import io.elken.fakebook.paymentservice.domain.Status;
+
+import java.util.List;
+
+class PaymentTotals {
+
+	private static final Currency[] CURRENCIES = Currency.values();
+	private static final Status[] STATUSES = Status.values();
+	private static final int STATUS_SLOTS = STATUSES.length + 1;
+	private static final int CELLS = (CURRENCIES.length + 1) * STATUS_SLOTS;
+
+	private final long[] counts = new long[CELLS];
+	private final long[] totals = new long[CELLS];
+	private final long[] minimums = new long[CELLS];
+	private final long[] maximums = new long[CELLS];
+
+	long totalWith(Payment payment) {
+		return Math.addExact(totals[cell(payment.getCurrency(), payment.getStatus())], payment.getAmount());
+	}
+
+	void add(Payment payment, long total) {
+		int cell = cell(payment.getCurrency(), payment.getStatus());
+		long amount = payment.getAmount();
+		if (counts[cell]++ == 0) {
+			minimums[cell] = amount;
+			maximums[cell] = amount;
+		} else {
+			minimums[cell] = Math.min(minimums[cell], amount);
+			maximums[cell] = Math.max(maximums[cell], amount);
+		}
+		totals[cell] = total;
+	}
+
+	void collect(String recipientId, List<PaymentSummary> summaries) {
+		for (int cell = 0; cell < CELLS; cell++) {
+			if (counts[cell] == 0) {
+				continue;
+			}
+			Currency currency = currency(cell);
+			int scale = Currency.scaleOf(currency);
+			summaries.add(new PaymentSummary(recipientId, currency, status(cell), counts[cell],
+					new Amount(totals[cell], scale), new Amount(minimums[cell], scale), new Amount(maximums[cell], scale)));
+		}
+	}
+
+	private static int cell(Currency currency, Status status) {
+		return (currency == null ? 0 : currency.ordinal() + 1) * STATUS_SLOTS + (status == null ? 0 : status.ordinal() + 1);
+	}
+
+	private static Currency currency(int cell) {
+		int slot = cell / STATUS_SLOTS;
+		return slot == 0 ? null : CURRENCIES[slot - 1];
+	}
+
+	private static Status status(int cell) {
+		int slot = cell % STATUS_SLOTS;
+		return slot == 0 ? null : STATUSES[slot - 1];
+	}
+
+}
@@ -0,0 +1,76 @@
+package io.elken.fakebook.paymentservice.index;
+
+import io.elken.fakebook.paymentservice.domain.ListSnapshot;
+import io.elken.fakebook.paymentservice.domain.Recipient;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static java.util.Collections.unmodifiableList;
+
+public class RecipientIndex {
+
+	private static final char KEY_SEPARATOR = '\u0000';
+	private static final char KEY_MAX = '\uffff';
+
+	private final List<Recipient> recipients;
+	private final Map<String, Recipient> byId = new ConcurrentHashMap<>();
+	private final NavigableMap<String, Recipient> byName = new ConcurrentSkipListMap<>();
+	private volatile long contentHash = ContentHash.EMPTY;
+
+	public RecipientIndex(Collection<Recipient> recipients) {
+		this.recipients = new CopyOnWriteArrayList<>(recipients);
+		recipients.forEach(this::index);
+	}
+
+	public synchronized RecipientIndex add(Recipient recipient) {
+		recipients.add(recipient);
+		index(recipient);
+		return this;
+	}
+
+	public List<Recipient> asList() {
+		return unmodifiableList(recipients);
+	}
+
+	public synchronized ListSnapshot<Recipient> snapshot() {
+		return new ListSnapshot<>(unmodifiableList(new ArrayList<>(recipients)), contentHash);
+	}
+
+	public Recipient findById(String id) {
+		return id == null ? null : byId.get(id);
+	}
+
+	public List<Recipient> findByNamePrefix(String namePrefix) {
+		String from = normalize(namePrefix);
+		return new ArrayList<>(byName.subMap(from, true, from + KEY_MAX, false).values());
+	}
+
+	public int size() {
+		return recipients.size();
+	}
+
+	public long contentHash() {
+		return contentHash;
+	}
+
+	private void index(Recipient recipient) {
+		if (recipient.getId() != null) {
+			byId.put(recipient.getId(), recipient);
+		}
+		byName.put(normalize(recipient.getName()) + KEY_SEPARATOR + recipient.getId(), recipient);
+		contentHash = ContentHash.append(contentHash, recipient);
+	}
+
+	private static String normalize(String name) {
+		return name == null ? "" : name.toLowerCase(Locale.ROOT);
+	}
+
+}
@@ -0,0 +1,65 @@
+package io.elken.fakebook.paymentservice.journal;
+
+import io.elken.fakebook.paymentservice.domain.Payment;
+import io.elken.fakebook.paymentservice.domain.SubmissionState;
+
+class JournalRecord {
+
+	private String id;
+	private SubmissionState state;
+	private String token;
+	private Payment payment;
+	private String error;
+
+	JournalRecord() {
+	}
+
+	JournalRecord(String id, SubmissionState state, String token, Payment payment, String error) {
+		this.id = id;
+		this.state = state;
+		this.token = token;
+		this.payment = payment;
+		this.error = error;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public SubmissionState getState() {
+		return state;
+	}
+
+	public void setState(SubmissionState state) {
+		this.state = state;
+	}
+
+	public String getToken() {
+		return token;
+	}
+
+	public void setToken(String token) {
+		this.token = token;
+	}
+
+	public Payment getPayment() {
+		return payment;
+	}
+
+	public void setPayment(Payment payment) {
+		this.payment = payment;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	public void setError(String error) {
+		this.error = error;
+	}
+
+}
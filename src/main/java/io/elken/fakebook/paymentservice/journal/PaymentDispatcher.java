@@ -0,0 +1,283 @@
+package io.elken.fakebook.paymentservice.journal;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.elken.fakebook.paymentservice.domain.Payment;
+import io.elken.fakebook.paymentservice.domain.PaymentSubmission;
+import io.elken.fakebook.paymentservice.domain.SubmissionState;
+import io.elken.fakebook.paymentservice.exception.ErrorStatus;
+import io.elken.fakebook.paymentservice.exception.ServiceUnavailableException;
+import io.elken.fakebook.paymentservice.provider.PaymentProvider;
+import io.elken.fakebook.paymentservice.resilience.RetryPolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.apache.hc.client5.http.ConnectTimeoutException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.net.http.HttpConnectTimeoutException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+public class PaymentDispatcher implements Closeable {
+
+	private static final Logger log = LoggerFactory.getLogger(PaymentDispatcher.class);
+
+	private static final long SHUTDOWN_GRACE_SECONDS = 5;
+	private static final String INTERRUPTED = "Interrupted before Coolpay replied";
+
+	private final PaymentProvider paymentProvider;
+	private final RetryPolicy retryPolicy;
+	private final ExecutorService executor;
+	private final Semaphore permits;
+	private final ObjectReader reader;
+	private final ObjectWriter writer;
+	private final ConcurrentMap<String, JournalRecord> pending = new ConcurrentHashMap<>();
+	private final Cache<String, JournalRecord> completed;
+	private final PaymentJournal journal;
+	private final AtomicLong unknown = new AtomicLong();
+
+	public PaymentDispatcher(Path path, int capacity, PaymentProvider paymentProvider, RetryPolicy retryPolicy,
+							 ExecutorService executor, int concurrency, long retentionMillis, ObjectMapper objectMapper) throws IOException {
+		this.paymentProvider = paymentProvider;
+		this.retryPolicy = retryPolicy;
+		this.executor = executor;
+		this.permits = new Semaphore(concurrency);
+		this.reader = objectMapper.readerFor(JournalRecord.class);
+		this.writer = objectMapper.writerFor(JournalRecord.class);
+		this.completed = Caffeine.newBuilder().expireAfterWrite(retentionMillis, MILLISECONDS).build();
+
+		Map<String, JournalRecord> recovered = new LinkedHashMap<>();
+		this.journal = new PaymentJournal(path, capacity, bytes -> {
+			JournalRecord record = read(bytes);
+			if (record.getState() == SubmissionState.queued || record.getState() == SubmissionState.sending) {
+				if (completed.getIfPresent(record.getId()) == null) {
+					recovered.put(record.getId(), record);
+				}
+			} else {
+				recovered.remove(record.getId());
+				completed.put(record.getId(), record);
+			}
+		});
+		List<JournalRecord> replay = new ArrayList<>();
+		for (JournalRecord record : recovered.values()) {
+			if (record.getState() == SubmissionState.sending) {
+				log.warn("Payment submission {} may have reached Coolpay before the restart; reconcile it against GET /coolpay/payments",
+						record.getId());
+				unknown.incrementAndGet();
+				completed.put(record.getId(), new JournalRecord(record.getId(), SubmissionState.unknown, record.getToken(),
+						record.getPayment(), INTERRUPTED));
+			} else {
+				pending.put(record.getId(), record);
+				replay.add(record);
+			}
+		}
+		journal.compact(this::live);
+		if (!replay.isEmpty()) {
+			log.info("Replaying {} unsent payment submissions", replay.size());
+		}
+		replay.forEach(this::dispatch);
+	}
+
+	public PaymentSubmission submit(String token, Payment payment) {
+		JournalRecord record = new JournalRecord(UUID.randomUUID().toString(), SubmissionState.queued, token, payment, null);
+		pending.put(record.getId(), record);
+		try {
+			append(record);
+		} catch (RuntimeException e) {
+			pending.remove(record.getId());
+			throw e;
+		}
+		dispatch(record);
+		return submission(record);
+	}
+
+	public PaymentSubmission find(String token, String id) {
+		JournalRecord record = pending.get(id);
+		if (record == null) {
+			record = completed.getIfPresent(id);
+		}
+		if (record == null || !Objects.equals(record.getToken(), token)) {
+			return null;
+		}
+		return submission(record);
+	}
+
+	public int getPending() {
+		return pending.size();
+	}
+
+	public int getJournalBytes() {
+		return journal.size();
+	}
+
+	public long getUnknown() {
+		return unknown.get();
+	}
+
+	@Override
+	public void close() throws IOException {
+		executor.shutdownNow();
+		try {
+			executor.awaitTermination(SHUTDOWN_GRACE_SECONDS, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		journal.close();
+	}
+
+	private void dispatch(JournalRecord record) {
+		executor.execute(() -> {
+			try {
+				permits.acquire();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			try {
+				deliver(record);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				log.debug("Payment submission {} left queued for replay", record.getId());
+			} finally {
+				permits.release();
+			}
+		});
+	}
+
+	private void deliver(JournalRecord queued) throws InterruptedException {
+		JournalRecord record = new JournalRecord(queued.getId(), SubmissionState.sending, queued.getToken(), queued.getPayment(), null);
+		pending.put(record.getId(), record);
+		try {
+			append(record);
+		} catch (RuntimeException e) {
+			pending.put(queued.getId(), queued);
+			log.error("Failed to journal payment submission {} as sending; left queued for replay", queued.getId(), e);
+			return;
+		}
+		for (int attempt = 1; ; attempt++) {
+			try {
+				Payment created = paymentProvider.createPayment(record.getToken(), record.getPayment());
+				complete(new JournalRecord(record.getId(), SubmissionState.accepted, record.getToken(), created, null));
+				return;
+			} catch (RuntimeException e) {
+				boolean unsent = isUnsent(e);
+				if (!unsent || attempt >= retryPolicy.getMaxAttempts()) {
+					HttpStatus status = ErrorStatus.of(e);
+					SubmissionState state = unsent || status.is4xxClientError() ? SubmissionState.failed : SubmissionState.unknown;
+					log.debug("Payment submission {} {} with {}", record.getId(), state, status, e);
+					if (state == SubmissionState.unknown) {
+						unknown.incrementAndGet();
+					}
+					complete(new JournalRecord(record.getId(), state, record.getToken(), record.getPayment(),
+							status.getReasonPhrase()));
+					return;
+				}
+				Thread.sleep(retryPolicy.backoffMillis(attempt));
+			}
+		}
+	}
+
+	private void complete(JournalRecord record) {
+		completed.put(record.getId(), record);
+		try {
+			append(record);
+		} catch (RuntimeException e) {
+			completed.invalidate(record.getId());
+			log.error("Failed to journal outcome {} of payment submission {}; it stays sending and is reported unknown after a restart",
+					record.getState(), record.getId(), e);
+			return;
+		}
+		pending.remove(record.getId());
+	}
+
+	private void append(JournalRecord record) {
+		byte[] bytes = write(record);
+		try {
+			long position = journal.append(bytes);
+			if (position < 0) {
+				journal.compact(this::live);
+				if (pending.get(record.getId()) == record) {
+					return;
+				}
+				position = journal.append(bytes);
+			}
+			if (position < 0) {
+				throw new ServiceUnavailableException("Payment journal is full");
+			}
+			journal.sync(position);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private List<byte[]> live() {
+		List<byte[]> live = new ArrayList<>(pending.size());
+		for (JournalRecord record : pending.values()) {
+			if (completed.getIfPresent(record.getId()) == null) {
+				live.add(write(record));
+			}
+		}
+		return live;
+	}
+
+	private static boolean isUnsent(RuntimeException e) {
+		if (e instanceof ServiceUnavailableException) {
+			return true;
+		}
+		if (!(e instanceof ResourceAccessException)) {
+			return false;
+		}
+		for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+			if (cause instanceof ConnectException || cause instanceof NoRouteToHostException || cause instanceof UnknownHostException
+					|| cause instanceof ConnectTimeoutException || cause instanceof HttpConnectTimeoutException) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private JournalRecord read(byte[] bytes) {
+		try {
+			return reader.readValue(bytes);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private byte[] write(JournalRecord record) {
+		try {
+			return writer.writeValueAsBytes(record);
+		} catch (JsonProcessingException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static PaymentSubmission submission(JournalRecord record) {
+		return new PaymentSubmission(record.getId(), record.getState(), record.getPayment(), record.getError());
+	}
+
+}
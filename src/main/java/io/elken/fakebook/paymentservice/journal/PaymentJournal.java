@@ -0,0 +1,230 @@
+package io.elken.fakebook.paymentservice.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.OpenOption;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.CRC32C;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+public class PaymentJournal implements Closeable {
+
+	private static final Logger log = LoggerFactory.getLogger(PaymentJournal.class);
+
+	static final int HEADER_BYTES = 16;
+
+	private static final Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rw-------");
+
+	private final Path path;
+	private final int capacity;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition synced = lock.newCondition();
+
+	private FileChannel channel;
+	private MappedByteBuffer buffer;
+	private long sequence;
+	private int generation;
+	private int written;
+	private int durable;
+	private boolean syncing;
+
+	public PaymentJournal(Path path, int capacity, Consumer<byte[]> recovered) throws IOException {
+		this.path = path;
+		this.capacity = capacity;
+		open();
+		recover(recovered);
+	}
+
+	public long append(byte[] record) {
+		int frame = HEADER_BYTES + record.length;
+		if (frame > capacity) {
+			throw new IllegalArgumentException("Journal record of " + record.length + " bytes exceeds capacity " + capacity);
+		}
+		lock.lock();
+		try {
+			if (written + frame > buffer.capacity()) {
+				return -1;
+			}
+			int position = written;
+			long recordSequence = ++sequence;
+			buffer.putInt(position + 4, checksum(recordSequence, record));
+			buffer.putLong(position + 8, recordSequence);
+			buffer.put(position + HEADER_BYTES, record);
+			buffer.putInt(position, record.length);
+			written = position + frame;
+			return (long) generation << 32 | written;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public void sync(long position) throws InterruptedIOException {
+		lock.lock();
+		try {
+			while ((int) (position >>> 32) == generation && durable < (int) position) {
+				if (syncing) {
+					synced.await();
+					continue;
+				}
+				syncing = true;
+				int from = durable;
+				int to = written;
+				int syncGeneration = generation;
+				MappedByteBuffer target = buffer;
+				lock.unlock();
+				try {
+					target.force(from, to - from);
+				} finally {
+					lock.lock();
+					syncing = false;
+					if (syncGeneration == generation) {
+						durable = Math.max(durable, to);
+					}
+					synced.signalAll();
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted waiting for journal sync");
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public void compact(Supplier<? extends Collection<byte[]>> liveRecords) throws IOException {
+		Collection<byte[]> live;
+		lock.lock();
+		try {
+			while (syncing) {
+				synced.awaitUninterruptibly();
+			}
+			live = liveRecords.get();
+			Path compacted = path.resolveSibling(path.getFileName() + ".tmp");
+			int position = 0;
+			try (FileChannel out = open(compacted, CREATE, TRUNCATE_EXISTING, READ, WRITE)) {
+				MappedByteBuffer target = out.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+				for (byte[] record : live) {
+					if (position + HEADER_BYTES + record.length > capacity) {
+						throw new IOException("Live journal records exceed capacity " + capacity);
+					}
+					long recordSequence = ++sequence;
+					target.putInt(position, record.length);
+					target.putInt(position + 4, checksum(recordSequence, record));
+					target.putLong(position + 8, recordSequence);
+					target.put(position + HEADER_BYTES, record);
+					position += HEADER_BYTES + record.length;
+				}
+				target.force();
+			}
+			Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			syncDirectory();
+			channel.close();
+			open();
+			generation++;
+			written = position;
+			durable = position;
+		} finally {
+			lock.unlock();
+		}
+		log.debug("Compacted payment journal {} to {} records", path, live.size());
+	}
+
+	public int size() {
+		lock.lock();
+		try {
+			return written;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		lock.lock();
+		try {
+			buffer.force();
+			channel.close();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void open() throws IOException {
+		channel = open(path, CREATE, READ, WRITE);
+		buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(channel.size(), capacity));
+	}
+
+	private void syncDirectory() {
+		try (FileChannel directory = FileChannel.open(path.toAbsolutePath().getParent(), READ)) {
+			directory.force(true);
+		} catch (IOException e) {
+			log.debug("Could not sync directory of payment journal {}", path, e);
+		}
+	}
+
+	private static FileChannel open(Path file, OpenOption... options) throws IOException {
+		if (!file.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+			return FileChannel.open(file, options);
+		}
+		FileChannel channel = FileChannel.open(file, Set.of(options), PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+		Files.setPosixFilePermissions(file, OWNER_ONLY);
+		return channel;
+	}
+
+	private void recover(Consumer<byte[]> recovered) {
+		int position = 0;
+		int records = 0;
+		while (position + HEADER_BYTES <= buffer.capacity()) {
+			int length = buffer.getInt(position);
+			if (length <= 0 || length > buffer.capacity() - position - HEADER_BYTES) {
+				break;
+			}
+			long recordSequence = buffer.getLong(position + 8);
+			if (records > 0 && recordSequence != sequence + 1) {
+				break;
+			}
+			byte[] record = new byte[length];
+			buffer.get(position + HEADER_BYTES, record);
+			if (buffer.getInt(position + 4) != checksum(recordSequence, record)) {
+				log.warn("Discarding torn payment journal record at offset {} in {}", position, path);
+				break;
+			}
+			recovered.accept(record);
+			sequence = recordSequence;
+			position += HEADER_BYTES + length;
+			records++;
+		}
+		written = position;
+		durable = position;
+		log.info("Recovered {} payment journal records from {}", records, path);
+	}
+
+	private static int checksum(long recordSequence, byte[] record) {
+		CRC32C crc = new CRC32C();
+		crc.update(ByteBuffer.allocate(Long.BYTES).putLong(0, recordSequence));
+		crc.update(record);
+		return (int) crc.getValue();
+	}
+
+}
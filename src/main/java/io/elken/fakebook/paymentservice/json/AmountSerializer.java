@@ -0,0 +1,23 @@
+package io.elken.fakebook.paymentservice.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import io.elken.fakebook.paymentservice.domain.Amount;
+
+import java.io.IOException;
+
+public class AmountSerializer extends StdSerializer<Amount> {
+
+	public AmountSerializer() {
+		super(Amount.class);
+	}
+
+	@Override
+	public void serialize(Amount value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+		char[] amount = new char[Amount.MAX_LENGTH];
+		int start = Amount.format(value.getUnscaled(), value.getScale(), amount);
+		generator.writeNumber(amount, start, Amount.MAX_LENGTH - start);
+	}
+
+}
@@ -0,0 +1,127 @@
+package io.elken.fakebook.paymentservice.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import io.elken.fakebook.paymentservice.domain.Amount;
+import io.elken.fakebook.paymentservice.domain.Currency;
+import io.elken.fakebook.paymentservice.domain.Payment;
+import io.elken.fakebook.paymentservice.domain.Status;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+public class PaymentDeserializer extends StdDeserializer<Payment> {
+
+	private static final int MAX_INTEGER_DIGITS = 19;
+
+	public PaymentDeserializer() {
+		super(Payment.class);
+	}
+
+	@Override
+	public Payment deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+		JsonToken token = parser.currentToken();
+		if (token == JsonToken.START_OBJECT) {
+			token = parser.nextToken();
+		}
+		Payment payment = new Payment();
+		long amount = 0;
+		int amountScale = -1;
+		for (; token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+			String field = parser.currentName();
+			token = parser.nextToken();
+			if (token == JsonToken.VALUE_NULL) {
+				continue;
+			}
+			switch (field) {
+				case PaymentFields.ID:
+					payment.setId(parser.getValueAsString());
+					break;
+				case PaymentFields.STATUS:
+					payment.setStatus(readEnum(parser, context, Status.class));
+					break;
+				case PaymentFields.RECIPIENT_ID:
+					payment.setRecipientId(parser.getValueAsString());
+					break;
+				case PaymentFields.CURRENCY:
+					payment.setCurrency(readEnum(parser, context, Currency.class));
+					break;
+				case PaymentFields.AMOUNT:
+					amountScale = readAmountScale(parser, context);
+					amount = readAmount(parser, context, amountScale);
+					break;
+				default:
+					context.handleUnknownProperty(parser, this, payment, field);
+			}
+		}
+		if (token != JsonToken.END_OBJECT) {
+			return (Payment) context.handleUnexpectedToken(Payment.class, parser);
+		}
+		if (amountScale >= 0) {
+			try {
+				payment.setAmount(Amount.rescale(amount, amountScale, payment.getScale()));
+			} catch (ArithmeticException e) {
+				return (Payment) context.handleWeirdStringValue(Payment.class, Amount.format(amount, amountScale), e.getMessage());
+			}
+		}
+		return payment;
+	}
+
+	private static <E extends Enum<E>> E readEnum(JsonParser parser, DeserializationContext context, Class<E> type) throws IOException {
+		String text = parser.getValueAsString();
+		if (text != null) {
+			try {
+				return Enum.valueOf(type, text);
+			} catch (IllegalArgumentException e) {
+				// fall through to the context so it reports the value like any other enum
+			}
+		}
+		return type.cast(context.handleWeirdStringValue(type, text, "not one of the values accepted for Enum class"));
+	}
+
+	private static int readAmountScale(JsonParser parser, DeserializationContext context) throws IOException {
+		checkAmountToken(parser, context);
+		if (isExponent(parser)) {
+			return Math.min(Math.max(parser.getDecimalValue().stripTrailingZeros().scale(), 0), Amount.MAX_SCALE);
+		}
+		return Amount.scaleOf(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+	}
+
+	private static long readAmount(JsonParser parser, DeserializationContext context, int scale) throws IOException {
+		try {
+			if (isExponent(parser)) {
+				BigDecimal value = parser.getDecimalValue();
+				if (value.precision() - value.scale() > MAX_INTEGER_DIGITS) {
+					throw new ArithmeticException("Amount out of range");
+				}
+				return value.setScale(scale).unscaledValue().longValueExact();
+			}
+			return Amount.parse(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength(), scale);
+		} catch (NumberFormatException | ArithmeticException e) {
+			return (Long) context.handleWeirdStringValue(Long.class, parser.getText(), e.getMessage());
+		}
+	}
+
+	private static void checkAmountToken(JsonParser parser, DeserializationContext context) throws IOException {
+		JsonToken token = parser.currentToken();
+		if (token != JsonToken.VALUE_NUMBER_INT && token != JsonToken.VALUE_NUMBER_FLOAT && token != JsonToken.VALUE_STRING) {
+			context.handleUnexpectedToken(Long.class, parser);
+		}
+	}
+
+	private static boolean isExponent(JsonParser parser) throws IOException {
+		if (parser.currentToken() != JsonToken.VALUE_NUMBER_FLOAT) {
+			return false;
+		}
+		char[] text = parser.getTextCharacters();
+		for (int i = parser.getTextOffset(), end = i + parser.getTextLength(); i < end; i++) {
+			if (text[i] == 'e' || text[i] == 'E') {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
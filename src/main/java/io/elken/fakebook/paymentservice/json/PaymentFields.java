@@ -0,0 +1,14 @@
+package io.elken.fakebook.paymentservice.json;
+
+final class PaymentFields {
+
+	static final String ID = "id";
+	static final String STATUS = "status";
+	static final String RECIPIENT_ID = "recipient_id";
+	static final String CURRENCY = "currency";
+	static final String AMOUNT = "amount";
+
+	private PaymentFields() {
+	}
+
+}
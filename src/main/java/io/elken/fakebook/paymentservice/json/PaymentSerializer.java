@@ -0,0 +1,31 @@
+package io.elken.fakebook.paymentservice.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import io.elken.fakebook.paymentservice.domain.Amount;
+import io.elken.fakebook.paymentservice.domain.Payment;
+
+import java.io.IOException;
+
+public class PaymentSerializer extends StdSerializer<Payment> {
+
+	public PaymentSerializer() {
+		super(Payment.class);
+	}
+
+	@Override
+	public void serialize(Payment payment, JsonGenerator generator, SerializerProvider provider) throws IOException {
+		generator.writeStartObject(payment);
+		generator.writeStringField(PaymentFields.ID, payment.getId());
+		generator.writeStringField(PaymentFields.STATUS, payment.getStatus() == null ? null : payment.getStatus().name());
+		generator.writeStringField(PaymentFields.RECIPIENT_ID, payment.getRecipientId());
+		generator.writeStringField(PaymentFields.CURRENCY, payment.getCurrency() == null ? null : payment.getCurrency().name());
+		generator.writeFieldName(PaymentFields.AMOUNT);
+		char[] amount = new char[Amount.MAX_LENGTH];
+		int start = Amount.format(payment.getAmount(), payment.getScale(), amount);
+		generator.writeNumber(amount, start, Amount.MAX_LENGTH - start);
+		generator.writeEndObject();
+	}
+
+}
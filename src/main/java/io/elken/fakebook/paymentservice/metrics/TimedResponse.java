@@ -0,0 +1,95 @@
+package io.elken.fakebook.paymentservice.metrics;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+class TimedResponse implements ClientHttpResponse {
+
+	private final ClientHttpResponse delegate;
+	private final TimerTable timers;
+	private final int index;
+	private final int failedIndex;
+	private final long startNanos;
+	private boolean failed;
+	private boolean finished;
+
+	TimedResponse(ClientHttpResponse delegate, TimerTable timers, int index, int failedIndex, long startNanos) {
+		this.delegate = delegate;
+		this.timers = timers;
+		this.index = index;
+		this.failedIndex = failedIndex;
+		this.startNanos = startNanos;
+	}
+
+	@Override
+	public HttpStatusCode getStatusCode() throws IOException {
+		return delegate.getStatusCode();
+	}
+
+	@Override
+	public String getStatusText() throws IOException {
+		return delegate.getStatusText();
+	}
+
+	@Override
+	public HttpHeaders getHeaders() {
+		return delegate.getHeaders();
+	}
+
+	@Override
+	public InputStream getBody() throws IOException {
+		return new FilterInputStream(delegate.getBody()) {
+
+			@Override
+			public int read() throws IOException {
+				try {
+					return finishAtEnd(super.read());
+				} catch (IOException e) {
+					failed = true;
+					throw e;
+				}
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				try {
+					return finishAtEnd(super.read(b, off, len));
+				} catch (IOException e) {
+					failed = true;
+					throw e;
+				}
+			}
+
+		};
+	}
+
+	@Override
+	public void close() {
+		try {
+			finish();
+		} finally {
+			delegate.close();
+		}
+	}
+
+	private int finishAtEnd(int read) {
+		if (read < 0) {
+			finish();
+		}
+		return read;
+	}
+
+	private void finish() {
+		if (finished) {
+			return;
+		}
+		finished = true;
+		timers.record(failed ? failedIndex : index, System.nanoTime() - startNanos);
+	}
+
+}
@@ -0,0 +1,32 @@
+package io.elken.fakebook.paymentservice.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntFunction;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+public class TimerTable {
+
+	private final MeterRegistry registry;
+	private final IntFunction<Timer.Builder> builders;
+	private final AtomicReferenceArray<Timer> timers;
+
+	public TimerTable(MeterRegistry registry, int size, IntFunction<Timer.Builder> builders) {
+		this.registry = registry;
+		this.builders = builders;
+		this.timers = new AtomicReferenceArray<>(size);
+	}
+
+	public void record(int index, long nanos) {
+		Timer timer = timers.get(index);
+		if (timer == null) {
+			timer = builders.apply(index).register(registry);
+			timers.lazySet(index, timer);
+		}
+		timer.record(nanos, NANOSECONDS);
+	}
+
+}
@@ -0,0 +1,113 @@
+package io.elken.fakebook.paymentservice.metrics;
+
+import io.elken.fakebook.paymentservice.resilience.ResilienceInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class UpstreamMetricsInterceptor implements ClientHttpRequestInterceptor {
+
+	private static final String OTHER = "other";
+	private static final String[] METHODS = {HttpMethod.GET.name(), HttpMethod.POST.name(), OTHER};
+	private static final Outcome[] OUTCOMES = Outcome.values();
+
+	private final List<String> endpoints;
+	private final TimerTable timers;
+
+	public UpstreamMetricsInterceptor(MeterRegistry registry, String name, List<String> endpoints, boolean percentileHistogram) {
+		this.endpoints = new ArrayList<>(endpoints);
+		this.endpoints.add(OTHER);
+		int outcomes = OUTCOMES.length;
+		this.timers = new TimerTable(registry, this.endpoints.size() * METHODS.length * outcomes, index -> {
+			Outcome outcome = OUTCOMES[index % outcomes];
+			return Timer.builder(name)
+					.tags("path", this.endpoints.get(index / outcomes / METHODS.length),
+							"method", METHODS[index / outcomes % METHODS.length],
+							"status", outcome.statusClass,
+							"exception", outcome.exception)
+					.publishPercentileHistogram(percentileHistogram);
+		});
+	}
+
+	@Override
+	public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+		int index = (endpoint(request.getURI().getPath()) * METHODS.length + method(request.getMethod())) * OUTCOMES.length;
+		long start = System.nanoTime();
+		ClientHttpResponse response;
+		try {
+			response = execution.execute(request, body);
+		} catch (IOException e) {
+			timers.record(index + Outcome.IO_ERROR.ordinal(), System.nanoTime() - start);
+			throw e;
+		} catch (RuntimeException e) {
+			timers.record(index + Outcome.UNKNOWN.ordinal(), System.nanoTime() - start);
+			throw e;
+		}
+		return new TimedResponse(response, timers, index + Outcome.of(response.getStatusCode().value()).ordinal(),
+				index + Outcome.IO_ERROR.ordinal(), start);
+	}
+
+	private int endpoint(String path) {
+		int last = endpoints.size() - 1;
+		for (int i = 0; i < last; i++) {
+			if (ResilienceInterceptor.matches(path, endpoints.get(i))) {
+				return i;
+			}
+		}
+		return last;
+	}
+
+	private static int method(HttpMethod method) {
+		if (HttpMethod.GET.equals(method)) {
+			return 0;
+		}
+		return HttpMethod.POST.equals(method) ? 1 : 2;
+	}
+
+	private enum Outcome {
+
+		INFORMATIONAL("1xx", "none"),
+		SUCCESS("2xx", "none"),
+		REDIRECTION("3xx", "none"),
+		UNAUTHORIZED("4xx", "UnauthorizedException"),
+		CLIENT_ERROR("4xx", "HttpClientErrorException"),
+		SERVER_ERROR("5xx", "ServiceException"),
+		IO_ERROR("none", "ResourceAccessException"),
+		UNKNOWN("unknown", "none");
+
+		private final String statusClass;
+		private final String exception;
+
+		Outcome(String statusClass, String exception) {
+			this.statusClass = statusClass;
+			this.exception = exception;
+		}
+
+		private static Outcome of(int status) {
+			switch (status / 100) {
+				case 1:
+					return INFORMATIONAL;
+				case 2:
+					return SUCCESS;
+				case 3:
+					return REDIRECTION;
+				case 4:
+					return status == 401 ? UNAUTHORIZED : CLIENT_ERROR;
+				case 5:
+					return SERVER_ERROR;
+				default:
+					return UNKNOWN;
+			}
+		}
+
+	}
+
+}
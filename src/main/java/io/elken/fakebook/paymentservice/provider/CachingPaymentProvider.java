@@ -0,0 +1,214 @@
+package io.elken.fakebook.paymentservice.provider;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Policy;
+import io.elken.fakebook.paymentservice.domain.ListSnapshot;
+import io.elken.fakebook.paymentservice.domain.LoginRequest;
+import io.elken.fakebook.paymentservice.domain.LoginResponse;
+import io.elken.fakebook.paymentservice.domain.Payment;
+import io.elken.fakebook.paymentservice.domain.PaymentPage;
+import io.elken.fakebook.paymentservice.domain.PaymentQuery;
+import io.elken.fakebook.paymentservice.domain.PaymentSummary;
+import io.elken.fakebook.paymentservice.domain.Recipient;
+import io.elken.fakebook.paymentservice.exception.ServiceException;
+import io.elken.fakebook.paymentservice.exception.UnauthorizedException;
+import io.elken.fakebook.paymentservice.index.PaymentIndex;
+import io.elken.fakebook.paymentservice.index.RecipientIndex;
+import io.elken.fakebook.paymentservice.resilience.SharedFailure;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public class CachingPaymentProvider implements PaymentProvider, RecipientDirectory, PaymentDirectory {
+
+	private static final int SALT_LENGTH = 32;
+
+	private final PaymentProvider delegate;
+	private final AsyncCache<String, LoginResponse> loginCache;
+	private final AsyncCache<String, RecipientIndex> recipientsCache;
+	private final AsyncCache<String, PaymentIndex> paymentsCache;
+	private final Cache<String, String> loginKeys;
+	private final byte[] credentialSalt = new byte[SALT_LENGTH];
+
+	public CachingPaymentProvider(PaymentProvider delegate, AsyncCache<String, LoginResponse> loginCache,
+								  AsyncCache<String, RecipientIndex> recipientsCache, AsyncCache<String, PaymentIndex> paymentsCache) {
+		this.delegate = delegate;
+		this.loginCache = loginCache;
+		this.recipientsCache = recipientsCache;
+		this.paymentsCache = paymentsCache;
+		this.loginKeys = sameBounds(loginCache);
+		new SecureRandom().nextBytes(credentialSalt);
+	}
+
+	@Override
+	public LoginResponse login(LoginRequest loginRequest) {
+		if (loginRequest == null) {
+			return delegate.login(null);
+		}
+		String key = credentialKey(loginRequest);
+		LoginResponse login = load(loginCache, key, () -> delegate.login(loginRequest));
+		if (login != null && login.getToken() != null) {
+			loginKeys.put(login.getToken(), key);
+		}
+		return login;
+	}
+
+	@Override
+	public List<Recipient> listRecipients(String token) {
+		return recipientIndex(token).asList();
+	}
+
+	@Override
+	public Recipient createRecipient(String token, Recipient recipient) {
+		Recipient created = authorized(token, () -> delegate.createRecipient(token, recipient));
+		if (token != null && created != null) {
+			recipientsCache.asMap().computeIfPresent(token, (key, index) -> index.thenApply(cached -> cached.add(created)));
+		}
+		return created;
+	}
+
+	@Override
+	public List<Payment> listPayments(String token) {
+		return paymentIndex(token).asList();
+	}
+
+	@Override
+	public void streamPayments(String token, Consumer<Payment> consumer) {
+		PaymentIndex index = token == null ? null : paymentsCache.synchronous().getIfPresent(token);
+		if (index == null) {
+			authorized(token, () -> {
+				delegate.streamPayments(token, consumer);
+				return null;
+			});
+		} else {
+			index.asList().forEach(consumer);
+		}
+	}
+
+	@Override
+	public Payment createPayment(String token, Payment payment) {
+		Payment created = authorized(token, () -> delegate.createPayment(token, payment));
+		if (token != null && created != null) {
+			paymentsCache.asMap().computeIfPresent(token, (key, index) -> index.thenApply(cached -> cached.add(created)));
+		}
+		return created;
+	}
+
+	@Override
+	public Recipient findRecipient(String token, String id) {
+		return recipientIndex(token).findById(id);
+	}
+
+	@Override
+	public List<Recipient> findRecipientsByName(String token, String namePrefix) {
+		return recipientIndex(token).findByNamePrefix(namePrefix);
+	}
+
+	@Override
+	public ListSnapshot<Recipient> recipientsSnapshot(String token) {
+		return recipientIndex(token).snapshot();
+	}
+
+	@Override
+	public PaymentPage findPayments(String token, PaymentQuery query) {
+		return paymentIndex(token).find(query);
+	}
+
+	@Override
+	public List<PaymentSummary> summarizePayments(String token, Collection<String> recipientIds) {
+		return paymentIndex(token).summarize(recipientIds);
+	}
+
+	@Override
+	public ListSnapshot<Payment> paymentsSnapshot(String token) {
+		return paymentIndex(token).snapshot();
+	}
+
+	private RecipientIndex recipientIndex(String token) {
+		if (token == null) {
+			return new RecipientIndex(delegate.listRecipients(null));
+		}
+		return load(recipientsCache, token, () -> new RecipientIndex(authorized(token, () -> delegate.listRecipients(token))));
+	}
+
+	private PaymentIndex paymentIndex(String token) {
+		if (token == null) {
+			return new PaymentIndex(delegate.listPayments(null));
+		}
+		return load(paymentsCache, token, () -> new PaymentIndex(authorized(token, () -> delegate.listPayments(token))));
+	}
+
+	private static <V> V load(AsyncCache<String, V> cache, String key, Supplier<V> loader) {
+		CompletableFuture<V> load = new CompletableFuture<>();
+		CompletableFuture<V> cached = cache.get(key, (k, executor) -> load);
+		if (cached != load) {
+			return await(cache, key, cached);
+		}
+		try {
+			V value = loader.get();
+			load.complete(value);
+			return value;
+		} catch (RuntimeException | Error e) {
+			load.completeExceptionally(e);
+			throw e;
+		}
+	}
+
+	private static <V> V await(AsyncCache<String, V> cache, String key, CompletableFuture<V> cached) {
+		try {
+			return cached.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ServiceException(e);
+		} catch (ExecutionException e) {
+			cache.asMap().remove(key, cached);
+			throw SharedFailure.forWaiter(e);
+		}
+	}
+
+	private <T> T authorized(String token, Supplier<T> request) {
+		try {
+			return request.get();
+		} catch (UnauthorizedException e) {
+			String key = token == null ? null : loginKeys.asMap().remove(token);
+			if (key != null) {
+				loginCache.synchronous().asMap().computeIfPresent(key, (k, login) -> token.equals(login.getToken()) ? null : login);
+			}
+			throw e;
+		}
+	}
+
+	private static Cache<String, String> sameBounds(AsyncCache<String, ?> cache) {
+		Policy<String, ?> policy = cache.synchronous().policy();
+		Caffeine<Object, Object> builder = Caffeine.newBuilder();
+		policy.expireAfterWrite().ifPresent(expiry -> builder.expireAfterWrite(expiry.getExpiresAfter()));
+		policy.eviction().ifPresent(eviction -> builder.maximumSize(eviction.getMaximum()));
+		return builder.build();
+	}
+
+	private String credentialKey(LoginRequest loginRequest) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(credentialSalt);
+			digest.update(String.valueOf(loginRequest.getUsername()).getBytes(UTF_8));
+			digest.update((byte) 0);
+			digest.update(String.valueOf(loginRequest.getApikey()).getBytes(UTF_8));
+			return Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest());
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
@@ -0,0 +1,121 @@
+package io.elken.fakebook.paymentservice.provider;
+
+import io.elken.fakebook.paymentservice.domain.Currency;
+import io.elken.fakebook.paymentservice.domain.LoginRequest;
+import io.elken.fakebook.paymentservice.domain.LoginResponse;
+import io.elken.fakebook.paymentservice.domain.Payment;
+import io.elken.fakebook.paymentservice.domain.Recipient;
+import io.elken.fakebook.paymentservice.exception.ServiceException;
+import io.elken.fakebook.paymentservice.exception.ServiceUnavailableException;
+import io.elken.fakebook.paymentservice.exception.UnauthorizedException;
+import io.elken.fakebook.paymentservice.metrics.TimerTable;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+public class MeteredPaymentProvider implements PaymentProvider {
+
+	private static final String[] METHODS = {"login", "listRecipients", "createRecipient", "listPayments", "streamPayments", "createPayment"};
+	private static final int LOGIN = 0;
+	private static final int LIST_RECIPIENTS = 1;
+	private static final int CREATE_RECIPIENT = 2;
+	private static final int LIST_PAYMENTS = 3;
+	private static final int STREAM_PAYMENTS = 4;
+	private static final int CREATE_PAYMENT = 5;
+
+	private static final List<Class<? extends RuntimeException>> EXCEPTIONS = Arrays.asList(
+			UnauthorizedException.class, ServiceUnavailableException.class, ServiceException.class);
+	private static final int OUTCOMES = EXCEPTIONS.size() + 2;
+	private static final int SUCCESS = EXCEPTIONS.size();
+	private static final int OTHER = EXCEPTIONS.size() + 1;
+
+	private final PaymentProvider delegate;
+	private final TimerTable timers;
+	private final Map<Currency, Counter> paymentsCreated = new EnumMap<>(Currency.class);
+
+	public MeteredPaymentProvider(PaymentProvider delegate, MeterRegistry registry, boolean percentileHistogram) {
+		this.delegate = delegate;
+		this.timers = new TimerTable(registry, METHODS.length * OUTCOMES, index -> Timer.builder("coolpay.provider")
+				.tags("method", METHODS[index / OUTCOMES], "exception", exception(index % OUTCOMES))
+				.publishPercentileHistogram(percentileHistogram));
+		for (Currency currency : Currency.values()) {
+			paymentsCreated.put(currency, Counter.builder("coolpay.payments.created")
+					.tag("currency", currency.name())
+					.register(registry));
+		}
+	}
+
+	@Override
+	public LoginResponse login(LoginRequest loginRequest) {
+		return timed(LOGIN, () -> delegate.login(loginRequest));
+	}
+
+	@Override
+	public List<Recipient> listRecipients(String token) {
+		return timed(LIST_RECIPIENTS, () -> delegate.listRecipients(token));
+	}
+
+	@Override
+	public Recipient createRecipient(String token, Recipient recipient) {
+		return timed(CREATE_RECIPIENT, () -> delegate.createRecipient(token, recipient));
+	}
+
+	@Override
+	public List<Payment> listPayments(String token) {
+		return timed(LIST_PAYMENTS, () -> delegate.listPayments(token));
+	}
+
+	@Override
+	public void streamPayments(String token, Consumer<Payment> consumer) {
+		timed(STREAM_PAYMENTS, () -> {
+			delegate.streamPayments(token, consumer);
+			return null;
+		});
+	}
+
+	@Override
+	public Payment createPayment(String token, Payment payment) {
+		Payment created = timed(CREATE_PAYMENT, () -> delegate.createPayment(token, payment));
+		if (created != null && created.getCurrency() != null) {
+			paymentsCreated.get(created.getCurrency()).increment();
+		}
+		return created;
+	}
+
+	private <T> T timed(int method, Supplier<T> call) {
+		long start = System.nanoTime();
+		int outcome = SUCCESS;
+		try {
+			return call.get();
+		} catch (RuntimeException e) {
+			outcome = outcome(e);
+			throw e;
+		} finally {
+			timers.record(method * OUTCOMES + outcome, System.nanoTime() - start);
+		}
+	}
+
+	private static int outcome(RuntimeException e) {
+		for (int i = 0; i < EXCEPTIONS.size(); i++) {
+			if (EXCEPTIONS.get(i).isInstance(e)) {
+				return i;
+			}
+		}
+		return OTHER;
+	}
+
+	private static String exception(int outcome) {
+		if (outcome == SUCCESS) {
+			return "none";
+		}
+		return outcome == OTHER ? "other" : EXCEPTIONS.get(outcome).getSimpleName();
+	}
+
+}
@@ -0,0 +1,20 @@
+package io.elken.fakebook.paymentservice.provider;
+
+import io.elken.fakebook.paymentservice.domain.ListSnapshot;
+import io.elken.fakebook.paymentservice.domain.Payment;
+import io.elken.fakebook.paymentservice.domain.PaymentPage;
+import io.elken.fakebook.paymentservice.domain.PaymentQuery;
+import io.elken.fakebook.paymentservice.domain.PaymentSummary;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface PaymentDirectory {
+
+	PaymentPage findPayments(String token, PaymentQuery query);
+
+	List<PaymentSummary> summarizePayments(String token, Collection<String> recipientIds);
+
+	ListSnapshot<Payment> paymentsSnapshot(String token);
+
+}
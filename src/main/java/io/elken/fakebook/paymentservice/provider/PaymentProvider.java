@@ -6,6 +6,7 @@ import io.elken.fakebook.paymentservice.domain.Payment;
 import io.elken.fakebook.paymentservice.domain.Recipient;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface PaymentProvider {
 
@@ -15,4 +16,8 @@ public interface PaymentProvider {
 	List<Payment> listPayments(String token);
 	Payment createPayment(String token, Payment payment);
 
+	default void streamPayments(String token, Consumer<Payment> consumer) {
+		listPayments(token).forEach(consumer);
+	}
+
 }
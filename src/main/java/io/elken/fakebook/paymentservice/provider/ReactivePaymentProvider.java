@@ -0,0 +1,18 @@
+package io.elken.fakebook.paymentservice.provider;
+
+import io.elken.fakebook.paymentservice.domain.LoginRequest;
+import io.elken.fakebook.paymentservice.domain.LoginResponse;
+import io.elken.fakebook.paymentservice.domain.Payment;
+import io.elken.fakebook.paymentservice.domain.Recipient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactivePaymentProvider {
+
+	Mono<LoginResponse> login(LoginRequest loginRequest);
+	Flux<Recipient> listRecipients(String token);
+	Mono<Recipient> createRecipient(String token, Recipient recipient);
+	Flux<Payment> listPayments(String token);
+	Mono<Payment> createPayment(String token, Payment payment);
+
+}
@@ -0,0 +1,14 @@
+package io.elken.fakebook.paymentservice.provider;
+
+import io.elken.fakebook.paymentservice.domain.ListSnapshot;
+import io.elken.fakebook.paymentservice.domain.Recipient;
+
+import java.util.List;
+
+public interface RecipientDirectory {
+
+	Recipient findRecipient(String token, String id);
+	List<Recipient> findRecipientsByName(String token, String namePrefix);
+	ListSnapshot<Recipient> recipientsSnapshot(String token);
+
+}
@@ -1,5 +1,12 @@
 package io.elken.fakebook.paymentservice.provider;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import io.elken.fakebook.paymentservice.domain.LoginRequest;
 import io.elken.fakebook.paymentservice.domain.LoginResponse;
 import io.elken.fakebook.paymentservice.domain.Payment;
@@ -10,53 +17,80 @@ import io.elken.fakebook.paymentservice.provider.api.coolpay.PaymentWrapper;
 import io.elken.fakebook.paymentservice.provider.api.coolpay.PaymentsResponse;
 import io.elken.fakebook.paymentservice.provider.api.coolpay.RecipientWrapper;
 import io.elken.fakebook.paymentservice.provider.api.coolpay.RecipientsResponse;
+import io.elken.fakebook.paymentservice.resilience.SingleFlight;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
-import org.springframework.stereotype.Component;
-import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
-import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
-import static java.lang.String.format;
 import static java.util.Collections.singletonList;
-import static java.util.Collections.singletonMap;
 import static org.springframework.http.HttpMethod.GET;
 import static org.springframework.http.HttpMethod.POST;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
 
-@Component
 public class RestCoolpayPaymentProvider implements PaymentProvider {
 
 	private static final Logger log = LoggerFactory.getLogger(RestCoolpayPaymentProvider.class);
 
-	private static final String TOKEN_FORMAT = "Bearer %s";
+	private static final String TOKEN_PREFIX = "Bearer ";
+	private static final List<MediaType> ACCEPT = singletonList(MediaType.APPLICATION_JSON);
 
 	private final RestTemplate restTemplate;
 	private final String coolpayBaseUri;
+	private final SingleFlight<String, Object> reads;
+	private final RestCoolpayPaymentProvider uncoalesced;
+	private final ObjectMapper objectMapper;
+	private final ObjectReader paymentReader;
+	private final ObjectReader loginResponseReader;
+	private final ObjectReader recipientsReader;
+	private final ObjectReader recipientWrapperReader;
+	private final ObjectReader paymentsReader;
+	private final ObjectReader paymentWrapperReader;
+	private final ObjectWriter loginRequestWriter;
+	private final ObjectWriter recipientWrapperWriter;
+	private final ObjectWriter paymentWrapperWriter;
+
+	public RestCoolpayPaymentProvider(RestTemplate restTemplate, String coolpayBaseUri) {
+		this(restTemplate, coolpayBaseUri, new SingleFlight<>());
+	}
 
-	public RestCoolpayPaymentProvider(RestTemplate restTemplate, @Value("${coolpay.base.uri}") String coolpayBaseUri) {
+	public RestCoolpayPaymentProvider(RestTemplate restTemplate, String coolpayBaseUri, SingleFlight<String, Object> reads) {
 		this.restTemplate = restTemplate;
 		this.coolpayBaseUri = coolpayBaseUri;
+		this.reads = reads;
+		this.objectMapper = objectMapper(restTemplate);
+		this.paymentReader = objectMapper.readerFor(Payment.class);
+		this.loginResponseReader = objectMapper.readerFor(LoginResponse.class);
+		this.recipientsReader = objectMapper.readerFor(RecipientsResponse.class);
+		this.recipientWrapperReader = objectMapper.readerFor(RecipientWrapper.class);
+		this.paymentsReader = objectMapper.readerFor(PaymentsResponse.class);
+		this.paymentWrapperReader = objectMapper.readerFor(PaymentWrapper.class);
+		this.loginRequestWriter = writerFor(objectMapper, LoginRequest.class);
+		this.recipientWrapperWriter = writerFor(objectMapper, RecipientWrapper.class);
+		this.paymentWrapperWriter = writerFor(objectMapper, PaymentWrapper.class);
+		this.uncoalesced = reads == null ? this : new RestCoolpayPaymentProvider(restTemplate, coolpayBaseUri, null);
 	}
 
 	@Override
 	public LoginResponse login(LoginRequest loginRequest) {
-		LinkedMultiValueMap<String, String> headers = getHeaders();
-		HttpEntity<LoginRequest> request = new HttpEntity<>(loginRequest, headers);
 		try {
-			return request("/login", POST, request, LoginResponse.class);
+			return request("/login", POST, null, loginRequestWriter, loginRequest, loginResponseReader);
 		} catch (HttpClientErrorException e) {
 			if (NOT_FOUND.equals(e.getStatusCode())) {
 				throw new UnauthorizedException();
@@ -67,53 +101,93 @@ public class RestCoolpayPaymentProvider implements PaymentProvider {
 
 	@Override
 	public List<Recipient> listRecipients(String token) throws UnauthorizedException {
-		HttpEntity<Object> request = authorizedRequest(token);
-		RecipientsResponse response = request("/recipients", GET, request, RecipientsResponse.class);
+		RecipientsResponse response = request("/recipients", GET, authorization(token), null, null, recipientsReader);
 		return response.getRecipients();
 	}
 
 	@Override
 	public Recipient createRecipient(String token, Recipient recipient) throws UnauthorizedException {
-		HttpEntity<Object> request = authorizedRequest(token, new RecipientWrapper(recipient));
-		RecipientWrapper response = request("/recipients", POST, request, RecipientWrapper.class);
+		RecipientWrapper response = request("/recipients", POST, authorization(token), recipientWrapperWriter,
+				new RecipientWrapper(recipient), recipientWrapperReader);
 		return response.getRecipient();
 	}
 
 	@Override
 	public List<Payment> listPayments(String token) {
-		HttpEntity<Object> request = authorizedRequest(token);
-		PaymentsResponse response = request("/payments", GET, request, PaymentsResponse.class);
+		PaymentsResponse response = request("/payments", GET, authorization(token), null, null, paymentsReader);
 		return response.getPayments();
 	}
 
+	@Override
+	public void streamPayments(String token, Consumer<Payment> consumer) {
+		RequestCallback requestCallback = requestCallback(authorization(token), null, null);
+		byte[] body = exchange(() -> restTemplate.execute(coolpayBaseUri + "/payments", GET, requestCallback,
+				response -> response.getBody().readAllBytes()));
+		try {
+			readPayments(body, consumer);
+		} catch (JsonProcessingException e) {
+			throw new RestClientException("Could not read Coolpay response", e);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
 	@Override
 	public Payment createPayment(String token, Payment payment) {
-		HttpEntity<Object> request = authorizedRequest(token, new PaymentWrapper(payment));
-		PaymentWrapper response = request("/payments", POST, request, PaymentWrapper.class);
+		PaymentWrapper response = request("/payments", POST, authorization(token), paymentWrapperWriter,
+				new PaymentWrapper(payment), paymentWrapperReader);
 		return response.getPayment();
 	}
 
-	private HttpEntity<Object> authorizedRequest(String token, Object body) {
+	public RestCoolpayPaymentProvider uncoalesced() {
+		return uncoalesced;
+	}
+
+	private String authorization(String token) {
 		if (token == null || token.trim().isEmpty()) {
 			throw new UnauthorizedException();
 		}
-		Map<String, List<String>> headers = getHeaders();
-		headers.put(HttpHeaders.AUTHORIZATION, singletonList(format(TOKEN_FORMAT, token)));
-		return new HttpEntity<>(body, new LinkedMultiValueMap<>(headers));
+		return TOKEN_PREFIX + token;
 	}
 
-	private HttpEntity<Object> authorizedRequest(String token) {
-		return authorizedRequest(token, null);
+	@SuppressWarnings("unchecked")
+	private <T> T request(String urlPath, HttpMethod httpMethod, String authorization, ObjectWriter writer, Object body,
+						  ObjectReader reader) {
+		String url = coolpayBaseUri + urlPath;
+		RequestCallback requestCallback = requestCallback(authorization, writer, body);
+		ResponseExtractor<T> responseExtractor = response -> read(reader, response);
+		Supplier<Object> call = () -> exchange(() -> restTemplate.execute(url, httpMethod, requestCallback, responseExtractor));
+		if (reads == null || httpMethod != GET) {
+			return (T) call.get();
+		}
+		return (T) reads.execute(httpMethod + " " + url + " " + authorization, call);
 	}
 
-	private LinkedMultiValueMap<String, String> getHeaders() {
-		return new LinkedMultiValueMap<>(singletonMap(HttpHeaders.CONTENT_TYPE, singletonList(MediaType.APPLICATION_JSON_VALUE)));
+	private static RequestCallback requestCallback(String authorization, ObjectWriter writer, Object body) {
+		return clientRequest -> {
+			HttpHeaders headers = clientRequest.getHeaders();
+			headers.setContentType(MediaType.APPLICATION_JSON);
+			headers.setAccept(ACCEPT);
+			if (authorization != null) {
+				headers.set(HttpHeaders.AUTHORIZATION, authorization);
+			}
+			if (writer != null) {
+				writer.writeValue(clientRequest.getBody(), body);
+			}
+		};
 	}
 
-	private <T> T request(String urlPath, HttpMethod httpMethod, HttpEntity<?> request, Class<T> responseType) {
+	private static <T> T read(ObjectReader reader, ClientHttpResponse response) throws IOException {
+		try (JsonParser parser = reader.createParser(response.getBody())) {
+			return parser.nextToken() == null ? null : reader.readValue(parser);
+		} catch (JsonProcessingException e) {
+			throw new RestClientException("Could not read Coolpay response", e);
+		}
+	}
+
+	private <T> T exchange(Supplier<T> call) {
 		try {
-			ResponseEntity<T> response = restTemplate.exchange(coolpayBaseUri + urlPath, httpMethod, request, responseType);
-			return response.getBody();
+			return call.get();
 		} catch (HttpServerErrorException e) {
 			log.error("Coolpay api returned server error status code.", e);
 			throw new ServiceException(e);
@@ -127,4 +201,34 @@ public class RestCoolpayPaymentProvider implements PaymentProvider {
 		}
 	}
 
+	private void readPayments(byte[] body, Consumer<Payment> consumer) throws IOException {
+		try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new ServiceException();
+			}
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String field = parser.currentName();
+				if (parser.nextToken() == JsonToken.START_ARRAY && "payments".equals(field)) {
+					while (parser.nextToken() == JsonToken.START_OBJECT) {
+						consumer.accept(paymentReader.readValue(parser));
+					}
+				} else {
+					parser.skipChildren();
+				}
+			}
+		}
+	}
+
+	private static ObjectWriter writerFor(ObjectMapper objectMapper, Class<?> type) {
+		return objectMapper.writerFor(type).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+	}
+
+	private static ObjectMapper objectMapper(RestTemplate restTemplate) {
+		return restTemplate.getMessageConverters().stream()
+				.filter(MappingJackson2HttpMessageConverter.class::isInstance)
+				.map(converter -> ((MappingJackson2HttpMessageConverter) converter).getObjectMapper())
+				.findFirst()
+				.orElseGet(ObjectMapper::new);
+	}
+
 }
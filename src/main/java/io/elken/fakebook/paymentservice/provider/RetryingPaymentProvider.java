@@ -0,0 +1,178 @@
+package io.elken.fakebook.paymentservice.provider;
+
+import io.elken.fakebook.paymentservice.domain.LoginRequest;
+import io.elken.fakebook.paymentservice.domain.LoginResponse;
+import io.elken.fakebook.paymentservice.domain.Payment;
+import io.elken.fakebook.paymentservice.domain.Recipient;
+import io.elken.fakebook.paymentservice.exception.ServiceException;
+import io.elken.fakebook.paymentservice.resilience.LatencyTracker;
+import io.elken.fakebook.paymentservice.resilience.RetryPolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+public class RetryingPaymentProvider implements PaymentProvider {
+
+	private static final Logger log = LoggerFactory.getLogger(RetryingPaymentProvider.class);
+
+	private final PaymentProvider delegate;
+	private final PaymentProvider uncoalesced;
+	private final RetryPolicy retryPolicy;
+	private final LatencyTracker latencyTracker;
+	private final ExecutorService hedgeExecutor;
+	private final long minHedgeDelayNanos;
+	private final AtomicLong retries = new AtomicLong();
+	private final AtomicLong hedges = new AtomicLong();
+	private final AtomicLong hedgeWins = new AtomicLong();
+
+	public RetryingPaymentProvider(PaymentProvider delegate, RetryPolicy retryPolicy, LatencyTracker latencyTracker,
+								   ExecutorService hedgeExecutor, long minHedgeDelayNanos) {
+		this(delegate, delegate, retryPolicy, latencyTracker, hedgeExecutor, minHedgeDelayNanos);
+	}
+
+	public RetryingPaymentProvider(PaymentProvider delegate, PaymentProvider uncoalesced, RetryPolicy retryPolicy,
+								   LatencyTracker latencyTracker, ExecutorService hedgeExecutor, long minHedgeDelayNanos) {
+		this.delegate = delegate;
+		this.uncoalesced = uncoalesced;
+		this.retryPolicy = retryPolicy;
+		this.latencyTracker = latencyTracker;
+		this.hedgeExecutor = hedgeExecutor;
+		this.minHedgeDelayNanos = minHedgeDelayNanos;
+	}
+
+	@Override
+	public LoginResponse login(LoginRequest loginRequest) {
+		return delegate.login(loginRequest);
+	}
+
+	@Override
+	public List<Recipient> listRecipients(String token) {
+		return read(provider -> provider.listRecipients(token));
+	}
+
+	@Override
+	public Recipient createRecipient(String token, Recipient recipient) {
+		return delegate.createRecipient(token, recipient);
+	}
+
+	@Override
+	public List<Payment> listPayments(String token) {
+		return read(provider -> provider.listPayments(token));
+	}
+
+	@Override
+	public void streamPayments(String token, Consumer<Payment> consumer) {
+		delegate.streamPayments(token, consumer);
+	}
+
+	@Override
+	public Payment createPayment(String token, Payment payment) {
+		return delegate.createPayment(token, payment);
+	}
+
+	public long getRetries() {
+		return retries.get();
+	}
+
+	public long getHedges() {
+		return hedges.get();
+	}
+
+	public long getHedgeWins() {
+		return hedgeWins.get();
+	}
+
+	private <T> T read(Function<PaymentProvider, T> call) {
+		retryPolicy.getBudget().deposit();
+		for (int attempt = 1; ; attempt++) {
+			PaymentProvider provider = attempt == 1 ? delegate : uncoalesced;
+			Supplier<T> primary = () -> call.apply(provider);
+			try {
+				return hedgeExecutor == null ? timed(primary) : hedged(primary, () -> call.apply(uncoalesced));
+			} catch (RuntimeException e) {
+				if (attempt >= retryPolicy.getMaxAttempts() || !retryPolicy.isRetryable(e) || !retryPolicy.getBudget().tryWithdraw()) {
+					throw e;
+				}
+				long backoffMillis = retryPolicy.backoffMillis(attempt);
+				log.debug("Retrying Coolpay read in {}ms after attempt {} failed", backoffMillis, attempt, e);
+				retries.incrementAndGet();
+				backoff(backoffMillis, e);
+			}
+		}
+	}
+
+	private <T> T hedged(Supplier<T> call, Supplier<T> hedge) {
+		CompletionService<T> completions = new ExecutorCompletionService<>(hedgeExecutor);
+		List<Future<T>> attempts = new ArrayList<>(2);
+		attempts.add(completions.submit(() -> timed(call)));
+		try {
+			long hedgeDelayNanos = Math.max(minHedgeDelayNanos, latencyTracker.getPercentileNanos());
+			Future<T> completed = completions.poll(hedgeDelayNanos, NANOSECONDS);
+			if (completed == null && retryPolicy.getBudget().tryWithdraw()) {
+				log.debug("Hedging Coolpay read after {}ns", hedgeDelayNanos);
+				hedges.incrementAndGet();
+				attempts.add(completions.submit(() -> timed(hedge)));
+			}
+			RuntimeException failure = null;
+			for (int pending = attempts.size(); pending > 0; pending--) {
+				Future<T> attempt = completed != null ? completed : completions.take();
+				completed = null;
+				try {
+					T result = attempt.get();
+					if (attempt != attempts.get(0)) {
+						hedgeWins.incrementAndGet();
+					}
+					return result;
+				} catch (ExecutionException e) {
+					failure = unwrap(e);
+				}
+			}
+			throw failure;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ServiceException(e);
+		} finally {
+			attempts.forEach(attempt -> attempt.cancel(true));
+		}
+	}
+
+	private <T> T timed(Supplier<T> call) {
+		long start = System.nanoTime();
+		T result = call.get();
+		latencyTracker.record(System.nanoTime() - start);
+		return result;
+	}
+
+	private static RuntimeException unwrap(ExecutionException e) {
+		if (e.getCause() instanceof RuntimeException) {
+			return (RuntimeException) e.getCause();
+		}
+		if (e.getCause() instanceof Error) {
+			throw (Error) e.getCause();
+		}
+		return new ServiceException(e.getCause());
+	}
+
+	private static void backoff(long backoffMillis, RuntimeException cause) {
+		try {
+			Thread.sleep(backoffMillis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw cause;
+		}
+	}
+
+}
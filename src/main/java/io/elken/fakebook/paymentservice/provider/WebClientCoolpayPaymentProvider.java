@@ -0,0 +1,115 @@
+package io.elken.fakebook.paymentservice.provider;
+
+import io.elken.fakebook.paymentservice.domain.LoginRequest;
+import io.elken.fakebook.paymentservice.domain.LoginResponse;
+import io.elken.fakebook.paymentservice.domain.Payment;
+import io.elken.fakebook.paymentservice.domain.Recipient;
+import io.elken.fakebook.paymentservice.exception.ServiceException;
+import io.elken.fakebook.paymentservice.exception.UnauthorizedException;
+import io.elken.fakebook.paymentservice.provider.api.coolpay.PaymentWrapper;
+import io.elken.fakebook.paymentservice.provider.api.coolpay.PaymentsResponse;
+import io.elken.fakebook.paymentservice.provider.api.coolpay.RecipientWrapper;
+import io.elken.fakebook.paymentservice.provider.api.coolpay.RecipientsResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+import static java.lang.String.format;
+import static org.springframework.http.HttpMethod.GET;
+import static org.springframework.http.HttpMethod.POST;
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+
+@Component
+public class WebClientCoolpayPaymentProvider implements ReactivePaymentProvider {
+
+	private static final Logger log = LoggerFactory.getLogger(WebClientCoolpayPaymentProvider.class);
+
+	private static final String TOKEN_FORMAT = "Bearer %s";
+
+	private final WebClient webClient;
+	private final String coolpayBaseUri;
+	private final Duration timeout;
+
+	public WebClientCoolpayPaymentProvider(WebClient webClient,
+										   @Value("${coolpay.base.uri}") String coolpayBaseUri,
+										   @Value("${coolpay.http-client.read-timeout-millis:10000}") long timeoutMillis) {
+		this.webClient = webClient;
+		this.coolpayBaseUri = coolpayBaseUri;
+		this.timeout = Duration.ofMillis(timeoutMillis);
+	}
+
+	@Override
+	public Mono<LoginResponse> login(LoginRequest loginRequest) {
+		return request("/login", POST, null, loginRequest, LoginResponse.class)
+				.onErrorMap(WebClientResponseException.class, e -> NOT_FOUND.equals(e.getStatusCode()) ? new UnauthorizedException() : e);
+	}
+
+	@Override
+	public Flux<Recipient> listRecipients(String token) {
+		return authorizedRequest("/recipients", GET, token, null, RecipientsResponse.class)
+				.flatMapIterable(RecipientsResponse::getRecipients);
+	}
+
+	@Override
+	public Mono<Recipient> createRecipient(String token, Recipient recipient) {
+		return authorizedRequest("/recipients", POST, token, new RecipientWrapper(recipient), RecipientWrapper.class)
+				.map(RecipientWrapper::getRecipient);
+	}
+
+	@Override
+	public Flux<Payment> listPayments(String token) {
+		return authorizedRequest("/payments", GET, token, null, PaymentsResponse.class)
+				.flatMapIterable(PaymentsResponse::getPayments);
+	}
+
+	@Override
+	public Mono<Payment> createPayment(String token, Payment payment) {
+		return authorizedRequest("/payments", POST, token, new PaymentWrapper(payment), PaymentWrapper.class)
+				.map(PaymentWrapper::getPayment);
+	}
+
+	private <T> Mono<T> authorizedRequest(String urlPath, HttpMethod httpMethod, String token, Object body, Class<T> responseType) {
+		if (token == null || token.trim().isEmpty()) {
+			return Mono.error(new UnauthorizedException());
+		}
+		return request(urlPath, httpMethod, format(TOKEN_FORMAT, token), body, responseType);
+	}
+
+	private <T> Mono<T> request(String urlPath, HttpMethod httpMethod, String authorization, Object body, Class<T> responseType) {
+		WebClient.RequestBodySpec request = webClient.method(httpMethod)
+				.uri(coolpayBaseUri + urlPath)
+				.contentType(MediaType.APPLICATION_JSON);
+		if (authorization != null) {
+			request.header(HttpHeaders.AUTHORIZATION, authorization);
+		}
+		WebClient.RequestHeadersSpec<?> exchange = body == null ? request : request.bodyValue(body);
+		return exchange.retrieve()
+				.bodyToMono(responseType)
+				.timeout(timeout)
+				.onErrorMap(TimeoutException.class, e -> {
+					log.error("Coolpay api timed out.", e);
+					return new ServiceException(e);
+				})
+				.onErrorMap(WebClientResponseException.class, e -> {
+					if (e.getStatusCode().is5xxServerError()) {
+						log.error("Coolpay api returned server error status code.", e);
+						return new ServiceException(e);
+					}
+					log.debug("Coolpay api returned client error status code.", e);
+					return HttpStatus.UNAUTHORIZED == e.getStatusCode() ? new UnauthorizedException() : e;
+				});
+	}
+
+}
@@ -0,0 +1,34 @@
+package io.elken.fakebook.paymentservice.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class RateLimit {
+
+	private final long intervalNanos;
+	private final long burstNanos;
+	private final AtomicLong theoreticalArrival = new AtomicLong(Long.MIN_VALUE);
+
+	public RateLimit(long intervalNanos, int burst) {
+		this.intervalNanos = intervalNanos;
+		this.burstNanos = intervalNanos * burst;
+	}
+
+	public long tryAcquire(long nowNanos) {
+		while (true) {
+			long arrival = theoreticalArrival.get();
+			long next = (arrival == Long.MIN_VALUE || arrival - nowNanos < 0 ? nowNanos : arrival) + intervalNanos;
+			long allowedAt = next - burstNanos;
+			if (allowedAt - nowNanos > 0) {
+				return allowedAt - nowNanos;
+			}
+			if (theoreticalArrival.compareAndSet(arrival, next)) {
+				return 0;
+			}
+		}
+	}
+
+	public void refund() {
+		theoreticalArrival.addAndGet(-intervalNanos);
+	}
+
+}
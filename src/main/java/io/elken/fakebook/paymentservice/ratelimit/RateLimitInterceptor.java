@@ -0,0 +1,63 @@
+package io.elken.fakebook.paymentservice.ratelimit;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.List;
+import java.util.function.LongSupplier;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+	private static final Logger log = LoggerFactory.getLogger(RateLimitInterceptor.class);
+
+	private static final String ANONYMOUS = "";
+
+	private final List<RateLimitRule> rules;
+	private final LongSupplier nanoTime;
+	private final PathMatcher pathMatcher = new AntPathMatcher();
+
+	public RateLimitInterceptor(List<RateLimitRule> rules, LongSupplier nanoTime) {
+		this.rules = rules;
+		this.nanoTime = nanoTime;
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		RateLimitRule rule = rule(request.getMethod(), request.getRequestURI().substring(request.getContextPath().length()));
+		if (rule == null) {
+			return true;
+		}
+		String token = request.getHeader(HttpHeaders.AUTHORIZATION);
+		long waitNanos = rule.tryAcquire(token == null ? ANONYMOUS : token, nanoTime.getAsLong());
+		if (waitNanos == 0) {
+			return true;
+		}
+		log.debug("Rate limited {} {} for {} ns", request.getMethod(), rule.getPath(), waitNanos);
+		response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+		response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString((waitNanos + SECONDS.toNanos(1) - 1) / SECONDS.toNanos(1)));
+		return false;
+	}
+
+	public List<RateLimitRule> getRules() {
+		return rules;
+	}
+
+	private RateLimitRule rule(String method, String path) {
+		for (RateLimitRule rule : rules) {
+			if ((rule.getMethod() == null || rule.getMethod().equalsIgnoreCase(method)) && pathMatcher.match(rule.getPath(), path)) {
+				return rule;
+			}
+		}
+		return null;
+	}
+
+}
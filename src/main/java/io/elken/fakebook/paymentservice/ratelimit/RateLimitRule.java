@@ -0,0 +1,76 @@
+package io.elken.fakebook.paymentservice.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+public class RateLimitRule {
+
+	private final String path;
+	private final String method;
+	private final long tokenIntervalNanos;
+	private final int tokenBurst;
+	private final Cache<String, RateLimit> byToken;
+	private final RateLimit global;
+	private final LongAdder tokenRejections = new LongAdder();
+	private final LongAdder globalRejections = new LongAdder();
+
+	public RateLimitRule(String path, String method, long tokenIntervalNanos, int tokenBurst, RateLimit global, long maximumTokens) {
+		this.path = path;
+		this.method = method;
+		this.tokenIntervalNanos = tokenIntervalNanos;
+		this.tokenBurst = tokenBurst;
+		this.global = global;
+		this.byToken = tokenIntervalNanos <= 0 ? null : Caffeine.newBuilder()
+				.expireAfterAccess(tokenIntervalNanos * tokenBurst, NANOSECONDS)
+				.maximumSize(maximumTokens)
+				.build();
+	}
+
+	public long tryAcquire(String token, long nowNanos) {
+		RateLimit tokenLimit = null;
+		if (byToken != null) {
+			tokenLimit = byToken.get(token, key -> new RateLimit(tokenIntervalNanos, tokenBurst));
+			long waitNanos = tokenLimit.tryAcquire(nowNanos);
+			if (waitNanos > 0) {
+				tokenRejections.increment();
+				return waitNanos;
+			}
+		}
+		if (global != null) {
+			long waitNanos = global.tryAcquire(nowNanos);
+			if (waitNanos > 0) {
+				if (tokenLimit != null) {
+					tokenLimit.refund();
+				}
+				globalRejections.increment();
+				return waitNanos;
+			}
+		}
+		return 0;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public String getMethod() {
+		return method;
+	}
+
+	public long getTokenRejections() {
+		return tokenRejections.sum();
+	}
+
+	public long getGlobalRejections() {
+		return globalRejections.sum();
+	}
+
+	public long getTrackedTokens() {
+		return byToken == null ? 0 : byToken.estimatedSize();
+	}
+
+}
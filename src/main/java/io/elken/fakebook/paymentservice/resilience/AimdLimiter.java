@@ -0,0 +1,68 @@
+package io.elken.fakebook.paymentservice.resilience;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AimdLimiter {
+
+	private final int minLimit;
+	private final int maxLimit;
+	private final long latencyThresholdNanos;
+	private final double backoffRatio;
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	private volatile double limit;
+
+	public AimdLimiter(int initialLimit, int minLimit, int maxLimit, long latencyThresholdNanos, double backoffRatio) {
+		this.limit = initialLimit;
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.latencyThresholdNanos = latencyThresholdNanos;
+		this.backoffRatio = backoffRatio;
+	}
+
+	public boolean tryAcquire() {
+		int current;
+		do {
+			current = inFlight.get();
+			if (current >= (int) limit) {
+				return false;
+			}
+		} while (!inFlight.compareAndSet(current, current + 1));
+		return true;
+	}
+
+	public void release() {
+		inFlight.decrementAndGet();
+	}
+
+	public void onSuccess(long latencyNanos) {
+		int active = inFlight.getAndDecrement();
+		if (latencyNanos > latencyThresholdNanos) {
+			decrease();
+		} else if (active * 2 >= limit) {
+			increase();
+		}
+	}
+
+	public void onFailure() {
+		inFlight.decrementAndGet();
+		decrease();
+	}
+
+	public int getLimit() {
+		return (int) limit;
+	}
+
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	private synchronized void increase() {
+		limit = Math.min(maxLimit, limit + 1 / limit);
+	}
+
+	private synchronized void decrease() {
+		limit = Math.max(minLimit, limit * backoffRatio);
+	}
+
+}
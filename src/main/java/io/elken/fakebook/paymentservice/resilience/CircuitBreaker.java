@@ -0,0 +1,130 @@
+package io.elken.fakebook.paymentservice.resilience;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+public class CircuitBreaker {
+
+	private static final Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+
+	public enum State {
+		CLOSED, HALF_OPEN, OPEN
+	}
+
+	private final String name;
+	private final int failureRateThreshold;
+	private final int minimumCalls;
+	private final int halfOpenProbes;
+	private final long openNanos;
+	private final LongSupplier nanoClock;
+	private final boolean[] window;
+	private final AtomicLongArray transitions = new AtomicLongArray(State.values().length);
+
+	private volatile State state = State.CLOSED;
+	private int position;
+	private int recorded;
+	private int failures;
+	private long openedAt;
+	private int probesInFlight;
+	private int probeSuccesses;
+
+	public CircuitBreaker(String name, int failureRateThreshold, int windowSize, int minimumCalls, int halfOpenProbes,
+						  long openNanos, LongSupplier nanoClock) {
+		this.name = name;
+		this.failureRateThreshold = failureRateThreshold;
+		this.minimumCalls = Math.min(minimumCalls, windowSize);
+		this.halfOpenProbes = halfOpenProbes;
+		this.openNanos = openNanos;
+		this.nanoClock = nanoClock;
+		this.window = new boolean[windowSize];
+	}
+
+	public synchronized boolean tryAcquire() {
+		if (state == State.OPEN) {
+			if (nanoClock.getAsLong() - openedAt < openNanos) {
+				return false;
+			}
+			transition(State.HALF_OPEN);
+		}
+		if (state == State.HALF_OPEN) {
+			if (probesInFlight >= halfOpenProbes) {
+				return false;
+			}
+			probesInFlight++;
+		}
+		return true;
+	}
+
+	public synchronized void release() {
+		if (state == State.HALF_OPEN && probesInFlight > 0) {
+			probesInFlight--;
+		}
+	}
+
+	public synchronized void onSuccess() {
+		if (state == State.HALF_OPEN) {
+			release();
+			if (++probeSuccesses >= halfOpenProbes) {
+				transition(State.CLOSED);
+			}
+		} else if (state == State.CLOSED) {
+			record(false);
+		}
+	}
+
+	public synchronized void onFailure() {
+		if (state == State.HALF_OPEN) {
+			transition(State.OPEN);
+		} else if (state == State.CLOSED) {
+			record(true);
+			if (recorded >= minimumCalls && failures * 100 >= failureRateThreshold * recorded) {
+				transition(State.OPEN);
+			}
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public State getState() {
+		return state;
+	}
+
+	public long getTransitions(State to) {
+		return transitions.get(to.ordinal());
+	}
+
+	private void record(boolean failure) {
+		if (recorded == window.length) {
+			if (window[position]) {
+				failures--;
+			}
+		} else {
+			recorded++;
+		}
+		window[position] = failure;
+		if (failure) {
+			failures++;
+		}
+		position = (position + 1) % window.length;
+	}
+
+	private void transition(State to) {
+		log.warn("Circuit breaker '{}' transitioning from {} to {}", name, state, to);
+		state = to;
+		position = 0;
+		recorded = 0;
+		failures = 0;
+		probesInFlight = 0;
+		probeSuccesses = 0;
+		if (to == State.OPEN) {
+			openedAt = nanoClock.getAsLong();
+		}
+		transitions.incrementAndGet(to.ordinal());
+	}
+
+}
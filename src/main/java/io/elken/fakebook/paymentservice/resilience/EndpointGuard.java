@@ -0,0 +1,62 @@
+package io.elken.fakebook.paymentservice.resilience;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class EndpointGuard {
+
+	private final String endpoint;
+	private final CircuitBreaker circuitBreaker;
+	private final AimdLimiter limiter;
+	private final AtomicLong circuitRejections = new AtomicLong();
+	private final AtomicLong limitRejections = new AtomicLong();
+
+	public EndpointGuard(String endpoint, CircuitBreaker circuitBreaker, AimdLimiter limiter) {
+		this.endpoint = endpoint;
+		this.circuitBreaker = circuitBreaker;
+		this.limiter = limiter;
+	}
+
+	public String getEndpoint() {
+		return endpoint;
+	}
+
+	public CircuitBreaker getCircuitBreaker() {
+		return circuitBreaker;
+	}
+
+	public AimdLimiter getLimiter() {
+		return limiter;
+	}
+
+	public long getCircuitRejections() {
+		return circuitRejections.get();
+	}
+
+	public long getLimitRejections() {
+		return limitRejections.get();
+	}
+
+	boolean tryAcquire() {
+		if (!limiter.tryAcquire()) {
+			limitRejections.incrementAndGet();
+			return false;
+		}
+		if (!circuitBreaker.tryAcquire()) {
+			limiter.release();
+			circuitRejections.incrementAndGet();
+			return false;
+		}
+		return true;
+	}
+
+	void onSuccess(long latencyNanos) {
+		limiter.onSuccess(latencyNanos);
+		circuitBreaker.onSuccess();
+	}
+
+	void onFailure() {
+		limiter.onFailure();
+		circuitBreaker.onFailure();
+	}
+
+}
@@ -0,0 +1,80 @@
+package io.elken.fakebook.paymentservice.resilience;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class LatencyTracker {
+
+	private static final int RECALCULATE_EVERY = 32;
+	private static final int SUB_BUCKET_BITS = 7;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+	private static final long MAX_NANOS = (1L << 40) - 1;
+	private static final int BUCKETS = bucket(MAX_NANOS) + 1;
+
+	private final AtomicIntegerArray window;
+	private final AtomicIntegerArray counts = new AtomicIntegerArray(BUCKETS);
+	private final AtomicLong recorded = new AtomicLong();
+	private final double percentile;
+	private final long defaultNanos;
+
+	private volatile long percentileNanos;
+
+	public LatencyTracker(int sampleSize, double percentile, long defaultNanos) {
+		this.window = new AtomicIntegerArray(sampleSize);
+		this.percentile = percentile;
+		this.defaultNanos = defaultNanos;
+		this.percentileNanos = defaultNanos;
+	}
+
+	public void record(long latencyNanos) {
+		int bucket = bucket(latencyNanos);
+		long sequence = recorded.getAndIncrement();
+		int evicted = window.getAndSet((int) (sequence % window.length()), bucket + 1);
+		counts.incrementAndGet(bucket);
+		if (evicted != 0) {
+			counts.decrementAndGet(evicted - 1);
+		}
+		if ((sequence + 1) % RECALCULATE_EVERY == 0) {
+			percentileNanos = calculate();
+		}
+	}
+
+	public long getPercentileNanos() {
+		return recorded.get() < RECALCULATE_EVERY ? defaultNanos : percentileNanos;
+	}
+
+	private long calculate() {
+		long total = 0;
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			total += counts.get(bucket);
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile * total));
+		long seen = 0;
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			seen += counts.get(bucket);
+			if (seen >= rank) {
+				return lowestNanos(bucket);
+			}
+		}
+		return percentileNanos;
+	}
+
+	private static int bucket(long latencyNanos) {
+		long nanos = Math.max(0, Math.min(latencyNanos, MAX_NANOS));
+		if (nanos < SUB_BUCKETS) {
+			return (int) nanos;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(nanos) - (SUB_BUCKET_BITS - 1);
+		return HALF_SUB_BUCKETS * shift + (int) (nanos >>> shift);
+	}
+
+	private static long lowestNanos(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = bucket / HALF_SUB_BUCKETS - 1;
+		return (long) (bucket - HALF_SUB_BUCKETS * shift) << shift;
+	}
+
+}
@@ -0,0 +1,67 @@
+package io.elken.fakebook.paymentservice.resilience;
+
+import io.elken.fakebook.paymentservice.exception.ServiceUnavailableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ResilienceInterceptor implements ClientHttpRequestInterceptor {
+
+	private static final Logger log = LoggerFactory.getLogger(ResilienceInterceptor.class);
+
+	private final List<EndpointGuard> guards;
+	private final EndpointGuard fallback;
+
+	public ResilienceInterceptor(List<EndpointGuard> guards, EndpointGuard fallback) {
+		this.guards = guards;
+		this.fallback = fallback;
+	}
+
+	@Override
+	public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+		EndpointGuard guard = guard(request.getURI().getPath());
+		if (!guard.tryAcquire()) {
+			log.debug("Shedding Coolpay call to '{}'", guard.getEndpoint());
+			throw new ServiceUnavailableException("Coolpay endpoint '" + guard.getEndpoint() + "' is unavailable");
+		}
+		long start = System.nanoTime();
+		ClientHttpResponse response;
+		try {
+			response = execution.execute(request, body);
+		} catch (IOException | RuntimeException e) {
+			guard.onFailure();
+			throw e;
+		}
+		return new GuardedResponse(response, guard, start);
+	}
+
+	public List<EndpointGuard> getGuards() {
+		List<EndpointGuard> all = new ArrayList<>(guards);
+		all.add(fallback);
+		return all;
+	}
+
+	private EndpointGuard guard(String path) {
+		for (EndpointGuard guard : guards) {
+			if (matches(path, guard.getEndpoint())) {
+				return guard;
+			}
+		}
+		return fallback;
+	}
+
+	public static boolean matches(String path, String endpoint) {
+		String segments = endpoint.startsWith("/") ? endpoint : "/" + endpoint;
+		int end = path.endsWith("/") ? path.length() - 1 : path.length();
+		int start = end - segments.length();
+		return start >= 0 && path.startsWith(segments, start);
+	}
+
+}
@@ -0,0 +1,44 @@
+package io.elken.fakebook.paymentservice.resilience;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class RetryBudget {
+
+	private static final long SCALE = 1000;
+
+	private final long depositPerRequest;
+	private final long maximumBalance;
+	private final AtomicLong balance;
+	private final AtomicLong exhausted = new AtomicLong();
+
+	public RetryBudget(double retryRatio, int initialRetries, int maximumRetries) {
+		this.depositPerRequest = Math.round(retryRatio * SCALE);
+		this.maximumBalance = maximumRetries * SCALE;
+		this.balance = new AtomicLong(Math.min(initialRetries, maximumRetries) * SCALE);
+	}
+
+	public void deposit() {
+		balance.accumulateAndGet(depositPerRequest, (current, deposit) -> Math.min(maximumBalance, current + deposit));
+	}
+
+	public boolean tryWithdraw() {
+		long current;
+		do {
+			current = balance.get();
+			if (current < SCALE) {
+				exhausted.incrementAndGet();
+				return false;
+			}
+		} while (!balance.compareAndSet(current, current - SCALE));
+		return true;
+	}
+
+	public double getBalance() {
+		return (double) balance.get() / SCALE;
+	}
+
+	public long getExhausted() {
+		return exhausted.get();
+	}
+
+}
@@ -0,0 +1,39 @@
+package io.elken.fakebook.paymentservice.resilience;
+
+import io.elken.fakebook.paymentservice.exception.ServiceException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+public class RetryPolicy {
+
+	private final int maxAttempts;
+	private final long initialBackoffMillis;
+	private final long maxBackoffMillis;
+	private final RetryBudget budget;
+
+	public RetryPolicy(int maxAttempts, long initialBackoffMillis, long maxBackoffMillis, RetryBudget budget) {
+		this.maxAttempts = maxAttempts;
+		this.initialBackoffMillis = initialBackoffMillis;
+		this.maxBackoffMillis = maxBackoffMillis;
+		this.budget = budget;
+	}
+
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	public RetryBudget getBudget() {
+		return budget;
+	}
+
+	public boolean isRetryable(RuntimeException e) {
+		return e instanceof ServiceException || e instanceof ResourceAccessException;
+	}
+
+	public long backoffMillis(int attempt) {
+		long ceiling = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt - 1, 30));
+		return ceiling <= 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+	}
+
+}
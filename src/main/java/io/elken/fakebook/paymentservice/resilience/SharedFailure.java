@@ -0,0 +1,61 @@
+package io.elken.fakebook.paymentservice.resilience;
+
+import io.elken.fakebook.paymentservice.exception.ServiceException;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.HttpStatusCodeException;
+
+import java.util.concurrent.ExecutionException;
+
+public final class SharedFailure {
+
+	private SharedFailure() {
+	}
+
+	public static RuntimeException forWaiter(ExecutionException e) {
+		if (e.getCause() instanceof Error) {
+			throw (Error) e.getCause();
+		}
+		if (!(e.getCause() instanceof RuntimeException)) {
+			return new ServiceException(e.getCause());
+		}
+		return forWaiter((RuntimeException) e.getCause());
+	}
+
+	public static RuntimeException forWaiter(RuntimeException failure) {
+		try {
+			RuntimeException copy = failure instanceof HttpStatusCodeException
+					? statusCopy((HttpStatusCodeException) failure)
+					: sameType(failure);
+			if (copy.getCause() == null) {
+				copy.initCause(failure);
+			}
+			return copy;
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return failure;
+		}
+	}
+
+	private static RuntimeException statusCopy(HttpStatusCodeException failure) {
+		if (failure.getStatusCode().is4xxClientError()) {
+			return HttpClientErrorException.create(failure.getMessage(), failure.getStatusCode(), failure.getStatusText(),
+					failure.getResponseHeaders(), failure.getResponseBodyAsByteArray(), null);
+		}
+		return HttpServerErrorException.create(failure.getMessage(), failure.getStatusCode(), failure.getStatusText(),
+				failure.getResponseHeaders(), failure.getResponseBodyAsByteArray(), null);
+	}
+
+	private static RuntimeException sameType(RuntimeException failure) throws ReflectiveOperationException {
+		Class<? extends RuntimeException> type = failure.getClass();
+		try {
+			return type.getConstructor(String.class, Throwable.class).newInstance(failure.getMessage(), failure);
+		} catch (NoSuchMethodException e) {
+			try {
+				return type.getConstructor(String.class).newInstance(failure.getMessage());
+			} catch (NoSuchMethodException noMessage) {
+				return type.getConstructor().newInstance();
+			}
+		}
+	}
+
+}
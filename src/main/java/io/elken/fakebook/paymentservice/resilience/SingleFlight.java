@@ -0,0 +1,61 @@
+package io.elken.fakebook.paymentservice.resilience;
+
+import io.elken.fakebook.paymentservice.exception.ServiceException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+public class SingleFlight<K, V> {
+
+	private final ConcurrentMap<K, CompletableFuture<V>> flights = new ConcurrentHashMap<>();
+	private final AtomicLong calls = new AtomicLong();
+	private final AtomicLong joins = new AtomicLong();
+
+	public V execute(K key, Supplier<V> call) {
+		CompletableFuture<V> flight = new CompletableFuture<>();
+		CompletableFuture<V> existing = flights.putIfAbsent(key, flight);
+		if (existing != null) {
+			joins.incrementAndGet();
+			return await(existing);
+		}
+		calls.incrementAndGet();
+		try {
+			V result = call.get();
+			flights.remove(key, flight);
+			flight.complete(result);
+			return result;
+		} catch (RuntimeException | Error e) {
+			flights.remove(key, flight);
+			flight.completeExceptionally(e);
+			throw e;
+		}
+	}
+
+	public int getInFlight() {
+		return flights.size();
+	}
+
+	public long getCalls() {
+		return calls.get();
+	}
+
+	public long getJoins() {
+		return joins.get();
+	}
+
+	private static <V> V await(CompletableFuture<V> flight) {
+		try {
+			return flight.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ServiceException(e);
+		} catch (ExecutionException e) {
+			throw SharedFailure.forWaiter(e);
+		}
+	}
+
+}
@@ -0,0 +1,122 @@
+package io.elken.fakebook.paymentservice.routing;
+
+import io.elken.fakebook.paymentservice.provider.PaymentProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+public class ProviderRoute {
+
+	private static final Logger log = LoggerFactory.getLogger(ProviderRoute.class);
+
+	private static final double ERROR_PENALTY = 10;
+
+	private final String name;
+	private final PaymentProvider provider;
+	private final PaymentProvider uncoalescedProvider;
+	private final long decayNanos;
+	private final int ejectionThreshold;
+	private final long ejectionNanos;
+	private final LongSupplier nanoClock;
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicLong ejections = new AtomicLong();
+
+	private volatile double latencyNanos;
+	private volatile double errorRate;
+	private volatile long ejectedUntil;
+	private volatile boolean ejected;
+	private long updatedAt;
+	private boolean sampled;
+	private int consecutiveFailures;
+
+	public ProviderRoute(String name, PaymentProvider provider, long initialLatencyNanos, long decayNanos,
+						 int ejectionThreshold, long ejectionNanos, LongSupplier nanoClock) {
+		this(name, provider, provider, initialLatencyNanos, decayNanos, ejectionThreshold, ejectionNanos, nanoClock);
+	}
+
+	public ProviderRoute(String name, PaymentProvider provider, PaymentProvider uncoalescedProvider, long initialLatencyNanos,
+						 long decayNanos, int ejectionThreshold, long ejectionNanos, LongSupplier nanoClock) {
+		this.name = name;
+		this.provider = provider;
+		this.uncoalescedProvider = uncoalescedProvider;
+		this.latencyNanos = initialLatencyNanos;
+		this.decayNanos = decayNanos;
+		this.ejectionThreshold = ejectionThreshold;
+		this.ejectionNanos = ejectionNanos;
+		this.nanoClock = nanoClock;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public PaymentProvider getProvider() {
+		return provider;
+	}
+
+	public PaymentProvider getUncoalescedProvider() {
+		return uncoalescedProvider;
+	}
+
+	public double getLatencyNanos() {
+		return latencyNanos;
+	}
+
+	public double getErrorRate() {
+		return errorRate;
+	}
+
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	public long getEjections() {
+		return ejections.get();
+	}
+
+	public boolean isAvailable() {
+		return !ejected || nanoClock.getAsLong() - ejectedUntil >= 0;
+	}
+
+	double cost() {
+		return latencyNanos * (inFlight.get() + 1) * (1 + errorRate * ERROR_PENALTY);
+	}
+
+	void start() {
+		inFlight.incrementAndGet();
+	}
+
+	void complete(long latencyNanos, boolean failed) {
+		inFlight.decrementAndGet();
+		record(nanoClock.getAsLong(), latencyNanos, failed);
+	}
+
+	private synchronized void record(long now, long latency, boolean failed) {
+		double weight = sampled ? Math.exp(-Math.max(0, now - updatedAt) / (double) decayNanos) : 0;
+		updatedAt = now;
+		sampled = true;
+		errorRate = errorRate * weight + (failed ? 1 - weight : 0);
+		if (failed) {
+			if (++consecutiveFailures >= ejectionThreshold && isAvailable()) {
+				eject(now);
+			}
+			return;
+		}
+		consecutiveFailures = 0;
+		ejected = false;
+		latencyNanos = latency > latencyNanos ? latency : latencyNanos * weight + latency * (1 - weight);
+	}
+
+	private void eject(long now) {
+		log.warn("Ejecting Coolpay route '{}' for {}ms after {} consecutive failures", name, ejectionNanos / 1_000_000,
+				consecutiveFailures);
+		ejectedUntil = now + ejectionNanos;
+		ejected = true;
+		consecutiveFailures = ejectionThreshold - 1;
+		ejections.incrementAndGet();
+	}
+
+}
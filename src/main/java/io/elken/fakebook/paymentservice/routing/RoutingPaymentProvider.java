@@ -0,0 +1,186 @@
+package io.elken.fakebook.paymentservice.routing;
+
+import io.elken.fakebook.paymentservice.domain.LoginRequest;
+import io.elken.fakebook.paymentservice.domain.LoginResponse;
+import io.elken.fakebook.paymentservice.domain.Payment;
+import io.elken.fakebook.paymentservice.domain.Recipient;
+import io.elken.fakebook.paymentservice.exception.ServiceException;
+import io.elken.fakebook.paymentservice.provider.PaymentProvider;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+public class RoutingPaymentProvider implements PaymentProvider {
+
+	private final List<ProviderRoute> routes;
+	private final int[] seeds;
+	private final LongSupplier nanoClock;
+	private final Function<ProviderRoute, PaymentProvider> providers;
+	private final RoutingPaymentProvider uncoalesced;
+
+	public RoutingPaymentProvider(List<ProviderRoute> routes, LongSupplier nanoClock) {
+		if (routes.isEmpty()) {
+			throw new IllegalArgumentException("At least one Coolpay route is required");
+		}
+		this.routes = routes;
+		this.seeds = routes.stream().mapToInt(route -> route.getName().hashCode()).toArray();
+		this.nanoClock = nanoClock;
+		this.providers = ProviderRoute::getProvider;
+		this.uncoalesced = new RoutingPaymentProvider(this);
+	}
+
+	private RoutingPaymentProvider(RoutingPaymentProvider coalesced) {
+		this.routes = coalesced.routes;
+		this.seeds = coalesced.seeds;
+		this.nanoClock = coalesced.nanoClock;
+		this.providers = ProviderRoute::getUncoalescedProvider;
+		this.uncoalesced = this;
+	}
+
+	@Override
+	public LoginResponse login(LoginRequest loginRequest) {
+		String username = loginRequest == null ? null : loginRequest.getUsername();
+		return call(pinned(username), provider -> provider.login(loginRequest));
+	}
+
+	@Override
+	public List<Recipient> listRecipients(String token) {
+		return call(balanced(), provider -> provider.listRecipients(token));
+	}
+
+	@Override
+	public Recipient createRecipient(String token, Recipient recipient) {
+		return call(pinned(token), provider -> provider.createRecipient(token, recipient));
+	}
+
+	@Override
+	public List<Payment> listPayments(String token) {
+		return call(balanced(), provider -> provider.listPayments(token));
+	}
+
+	@Override
+	public void streamPayments(String token, Consumer<Payment> consumer) {
+		TimedConsumer downstream = new TimedConsumer(consumer, nanoClock);
+		call(balanced(), provider -> {
+			provider.streamPayments(token, downstream);
+			return null;
+		}, downstream);
+	}
+
+	@Override
+	public Payment createPayment(String token, Payment payment) {
+		return call(pinned(token), provider -> provider.createPayment(token, payment));
+	}
+
+	public List<ProviderRoute> getRoutes() {
+		return routes;
+	}
+
+	public RoutingPaymentProvider uncoalesced() {
+		return uncoalesced;
+	}
+
+	ProviderRoute balanced() {
+		int size = routes.size();
+		if (size == 1) {
+			return routes.get(0);
+		}
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int first = random.nextInt(size);
+		ProviderRoute a = routes.get(first);
+		ProviderRoute b = routes.get((first + 1 + random.nextInt(size - 1)) % size);
+		boolean aAvailable = a.isAvailable();
+		boolean bAvailable = b.isAvailable();
+		if (aAvailable && bAvailable) {
+			return a.cost() <= b.cost() ? a : b;
+		}
+		if (aAvailable != bAvailable) {
+			return aAvailable ? a : b;
+		}
+		ProviderRoute cheapest = null;
+		for (ProviderRoute route : routes) {
+			if (route.isAvailable() && (cheapest == null || route.cost() < cheapest.cost())) {
+				cheapest = route;
+			}
+		}
+		return cheapest == null ? (a.cost() <= b.cost() ? a : b) : cheapest;
+	}
+
+	ProviderRoute pinned(String key) {
+		int size = routes.size();
+		if (size == 1) {
+			return routes.get(0);
+		}
+		int hash = key == null ? 0 : key.hashCode();
+		ProviderRoute pinned = null;
+		long highest = Long.MIN_VALUE;
+		for (int i = 0; i < size; i++) {
+			long weight = mix((long) hash << 32 | (seeds[i] & 0xffffffffL));
+			if (routes.get(i).isAvailable() && (pinned == null || weight > highest)) {
+				pinned = routes.get(i);
+				highest = weight;
+			}
+		}
+		return pinned == null ? routes.get(Math.floorMod(mix(hash), size)) : pinned;
+	}
+
+	private <T> T call(ProviderRoute route, Function<PaymentProvider, T> call) {
+		return call(route, call, null);
+	}
+
+	private <T> T call(ProviderRoute route, Function<PaymentProvider, T> call, TimedConsumer downstream) {
+		route.start();
+		long start = nanoClock.getAsLong();
+		boolean failed = false;
+		try {
+			return call.apply(providers.apply(route));
+		} catch (RuntimeException e) {
+			failed = isFailure(e);
+			throw e;
+		} finally {
+			long downstreamNanos = downstream == null ? 0 : downstream.nanos;
+			route.complete(nanoClock.getAsLong() - start - downstreamNanos, failed);
+		}
+	}
+
+	private static boolean isFailure(RuntimeException e) {
+		return e instanceof ServiceException || e instanceof ResourceAccessException || e instanceof HttpServerErrorException;
+	}
+
+	private static long mix(long value) {
+		value ^= value >>> 33;
+		value *= 0xff51afd7ed558ccdL;
+		value ^= value >>> 33;
+		value *= 0xc4ceb9fe1a85ec53L;
+		return value ^ value >>> 33;
+	}
+
+	private static final class TimedConsumer implements Consumer<Payment> {
+
+		private final Consumer<Payment> delegate;
+		private final LongSupplier nanoClock;
+		private long nanos;
+
+		private TimedConsumer(Consumer<Payment> delegate, LongSupplier nanoClock) {
+			this.delegate = delegate;
+			this.nanoClock = nanoClock;
+		}
+
+		@Override
+		public void accept(Payment payment) {
+			long start = nanoClock.getAsLong();
+			try {
+				delegate.accept(payment);
+			} finally {
+				nanos += nanoClock.getAsLong() - start;
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,13 @@
+package io.elken.fakebook.paymentservice.sync;
+
+import io.elken.fakebook.paymentservice.domain.PaymentChange;
+
+import java.util.List;
+
+public interface ChangeListener {
+
+	void onChanges(String eventId, List<PaymentChange> changes);
+
+	void onError(RuntimeException e);
+
+}
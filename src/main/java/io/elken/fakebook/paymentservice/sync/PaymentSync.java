@@ -0,0 +1,202 @@
+package io.elken.fakebook.paymentservice.sync;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import io.elken.fakebook.paymentservice.domain.Payment;
+import io.elken.fakebook.paymentservice.domain.PaymentChange;
+import io.elken.fakebook.paymentservice.exception.ServiceUnavailableException;
+import io.elken.fakebook.paymentservice.exception.UnauthorizedException;
+import io.elken.fakebook.paymentservice.index.PaymentIndex;
+import io.elken.fakebook.paymentservice.provider.PaymentProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+public class PaymentSync {
+
+	private static final Logger log = LoggerFactory.getLogger(PaymentSync.class);
+
+	private static final int MAX_QUEUED_EVENTS = 16;
+
+	private final PaymentProvider paymentProvider;
+	private final AsyncCache<String, PaymentIndex> paymentsCache;
+	private final ScheduledExecutorService scheduler;
+	private final Executor executor;
+	private final long minIntervalNanos;
+	private final long maxIntervalNanos;
+	private final double backoffMultiplier;
+	private final long retentionNanos;
+	private final int maximumTokens;
+	private final LongSupplier nanoClock;
+	private final ConcurrentMap<String, SyncedAccount> accounts = new ConcurrentHashMap<>();
+	private final LongAdder polls = new LongAdder();
+	private final LongAdder changes = new LongAdder();
+
+	public PaymentSync(PaymentProvider paymentProvider, AsyncCache<String, PaymentIndex> paymentsCache, ScheduledExecutorService scheduler,
+					   Executor executor, long minIntervalNanos, long maxIntervalNanos, double backoffMultiplier, long retentionNanos,
+					   int maximumTokens, LongSupplier nanoClock) {
+		this.paymentProvider = paymentProvider;
+		this.paymentsCache = paymentsCache;
+		this.scheduler = scheduler;
+		this.executor = executor;
+		this.minIntervalNanos = minIntervalNanos;
+		this.maxIntervalNanos = maxIntervalNanos;
+		this.backoffMultiplier = backoffMultiplier;
+		this.retentionNanos = retentionNanos;
+		this.maximumTokens = maximumTokens;
+		this.nanoClock = nanoClock;
+	}
+
+	public void subscribe(String token, String lastEventId, ChangeListener listener) {
+		for (;;) {
+			SyncedAccount account = accounts.get(token);
+			if (account == null) {
+				if (accounts.size() >= maximumTokens) {
+					throw new ServiceUnavailableException("Too many synced tokens");
+				}
+				account = accounts.computeIfAbsent(token, SyncedAccount::new);
+			}
+			Subscription subscription;
+			synchronized (account) {
+				if (account.isClosed()) {
+					continue;
+				}
+				subscription = account.addListener(listener, MAX_QUEUED_EVENTS);
+				if (!account.isStarted()) {
+					account.start(minIntervalNanos);
+					schedule(account, 0);
+				} else if (account.getVersion() > 0 && !account.getEventId().equals(lastEventId)) {
+					subscription.offer(account.getEventId(), account.snapshot());
+				}
+			}
+			deliver(account, subscription);
+			return;
+		}
+	}
+
+	public void unsubscribe(String token, ChangeListener listener) {
+		SyncedAccount account = accounts.get(token);
+		if (account != null) {
+			synchronized (account) {
+				account.removeListener(listener, nanoClock.getAsLong());
+			}
+		}
+	}
+
+	public int getTokens() {
+		return accounts.size();
+	}
+
+	public int getPayments() {
+		int payments = 0;
+		for (SyncedAccount account : accounts.values()) {
+			synchronized (account) {
+				payments += account.size();
+			}
+		}
+		return payments;
+	}
+
+	public long getPolls() {
+		return polls.sum();
+	}
+
+	public long getChanges() {
+		return changes.sum();
+	}
+
+	private void poll(SyncedAccount account) {
+		polls.increment();
+		List<Payment> latest;
+		try {
+			latest = paymentProvider.listPayments(account.getToken());
+		} catch (UnauthorizedException e) {
+			log.debug("Stopping payment sync for rejected token", e);
+			List<Subscription> subscriptions;
+			synchronized (account) {
+				close(account);
+				subscriptions = account.getSubscriptions();
+			}
+			subscriptions.forEach(subscription -> subscription.getListener().onError(e));
+			return;
+		} catch (RuntimeException e) {
+			log.debug("Payment sync poll failed", e);
+			synchronized (account) {
+				reschedule(account, false);
+			}
+			return;
+		}
+		List<Subscription> notified = new ArrayList<>();
+		List<Subscription> overflowed = new ArrayList<>();
+		synchronized (account) {
+			CompletableFuture<PaymentIndex> cached = paymentsCache.asMap().get(account.getToken());
+			PaymentIndex cachedIndex = cached == null || !cached.isDone() || cached.isCompletedExceptionally() ? null : cached.join();
+			List<PaymentChange> applied = account.apply(latest, cachedIndex);
+			if (cachedIndex != null && account.getIndex() != cachedIndex) {
+				paymentsCache.asMap().replace(account.getToken(), cached, CompletableFuture.completedFuture(account.getIndex()));
+			}
+			if (!applied.isEmpty()) {
+				changes.add(applied.size());
+				for (Subscription subscription : account.getSubscriptions()) {
+					if (subscription.offer(account.getEventId(), applied)) {
+						notified.add(subscription);
+					} else {
+						account.removeListener(subscription.getListener(), nanoClock.getAsLong());
+						overflowed.add(subscription);
+					}
+				}
+			}
+			reschedule(account, !applied.isEmpty());
+		}
+		overflowed.forEach(subscription -> subscription.getListener().onError(
+				new ServiceUnavailableException("Payment changes are not being read fast enough")));
+		notified.forEach(subscription -> deliver(account, subscription));
+	}
+
+	private void reschedule(SyncedAccount account, boolean active) {
+		if (account.isIdle() && nanoClock.getAsLong() - account.getIdleSinceNanos() >= retentionNanos) {
+			close(account);
+			return;
+		}
+		long interval = active ? minIntervalNanos : Math.min(maxIntervalNanos, (long) (account.getIntervalNanos() * backoffMultiplier));
+		account.setIntervalNanos(interval);
+		schedule(account, interval);
+	}
+
+	private void schedule(SyncedAccount account, long delayNanos) {
+		try {
+			scheduler.schedule(() -> executor.execute(() -> poll(account)), delayNanos, NANOSECONDS);
+		} catch (RejectedExecutionException e) {
+			log.debug("Payment sync stopped", e);
+			close(account);
+		}
+	}
+
+	private void close(SyncedAccount account) {
+		account.close();
+		accounts.remove(account.getToken(), account);
+	}
+
+	private void deliver(SyncedAccount account, Subscription subscription) {
+		try {
+			subscription.flush();
+		} catch (RuntimeException e) {
+			log.debug("Dropping payment change listener", e);
+			synchronized (account) {
+				account.removeListener(subscription.getListener(), nanoClock.getAsLong());
+			}
+		}
+	}
+
+}
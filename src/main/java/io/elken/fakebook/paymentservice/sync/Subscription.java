@@ -0,0 +1,65 @@
+package io.elken.fakebook.paymentservice.sync;
+
+import io.elken.fakebook.paymentservice.domain.PaymentChange;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+class Subscription {
+
+	private final ChangeListener listener;
+	private final int capacity;
+	private final Deque<Event> events = new ArrayDeque<>();
+	private boolean sending;
+
+	Subscription(ChangeListener listener, int capacity) {
+		this.listener = listener;
+		this.capacity = capacity;
+	}
+
+	ChangeListener getListener() {
+		return listener;
+	}
+
+	synchronized boolean offer(String eventId, List<PaymentChange> changes) {
+		if (events.size() >= capacity) {
+			return false;
+		}
+		events.add(new Event(eventId, changes));
+		return true;
+	}
+
+	void flush() {
+		for (;;) {
+			Event event;
+			synchronized (this) {
+				if (sending || events.isEmpty()) {
+					return;
+				}
+				sending = true;
+				event = events.poll();
+			}
+			try {
+				listener.onChanges(event.id, event.changes);
+			} finally {
+				synchronized (this) {
+					sending = false;
+				}
+			}
+		}
+	}
+
+	private static final class Event {
+
+		private final String id;
+		private final List<PaymentChange> changes;
+
+		private Event(String id, List<PaymentChange> changes) {
+			this.id = id;
+			this.changes = changes;
+		}
+
+	}
+
+}
@@ -0,0 +1,182 @@
+package io.elken.fakebook.paymentservice.sync;
+
+import io.elken.fakebook.paymentservice.domain.ChangeType;
+import io.elken.fakebook.paymentservice.domain.Payment;
+import io.elken.fakebook.paymentservice.domain.PaymentChange;
+import io.elken.fakebook.paymentservice.index.PaymentIndex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+
+class SyncedAccount {
+
+	private final String token;
+	private final String epoch = Long.toHexString(ThreadLocalRandom.current().nextLong());
+	private final Map<ChangeListener, Subscription> subscriptions = new LinkedHashMap<>();
+	private PaymentIndex index;
+	private int announced;
+	private long version;
+	private long intervalNanos;
+	private long idleSinceNanos;
+	private boolean started;
+	private boolean closed;
+
+	SyncedAccount(String token) {
+		this.token = token;
+	}
+
+	String getToken() {
+		return token;
+	}
+
+	long getVersion() {
+		return version;
+	}
+
+	String getEventId() {
+		return epoch + '-' + version;
+	}
+
+	long getIntervalNanos() {
+		return intervalNanos;
+	}
+
+	void setIntervalNanos(long intervalNanos) {
+		this.intervalNanos = intervalNanos;
+	}
+
+	long getIdleSinceNanos() {
+		return idleSinceNanos;
+	}
+
+	boolean isIdle() {
+		return subscriptions.isEmpty();
+	}
+
+	boolean isStarted() {
+		return started;
+	}
+
+	void start(long intervalNanos) {
+		this.intervalNanos = intervalNanos;
+		started = true;
+	}
+
+	boolean isClosed() {
+		return closed;
+	}
+
+	void close() {
+		closed = true;
+	}
+
+	List<Subscription> getSubscriptions() {
+		return new ArrayList<>(subscriptions.values());
+	}
+
+	Subscription addListener(ChangeListener listener, int capacity) {
+		return subscriptions.computeIfAbsent(listener, key -> new Subscription(key, capacity));
+	}
+
+	void removeListener(ChangeListener listener, long nowNanos) {
+		if (subscriptions.remove(listener) != null && subscriptions.isEmpty()) {
+			idleSinceNanos = nowNanos;
+		}
+	}
+
+	int size() {
+		return announced;
+	}
+
+	PaymentIndex getIndex() {
+		return index;
+	}
+
+	List<PaymentChange> snapshot() {
+		List<PaymentChange> changes = new ArrayList<>(announced);
+		for (Payment payment : announced()) {
+			if (payment.getId() != null) {
+				changes.add(new PaymentChange(ChangeType.created, payment));
+			}
+		}
+		return changes;
+	}
+
+	List<PaymentChange> apply(List<Payment> latest, PaymentIndex cached) {
+		List<PaymentChange> changes = diff(latest);
+		PaymentIndex target = cached == null ? index : cached;
+		if (target == null || !target.update(latest)) {
+			target = new PaymentIndex(latest);
+		}
+		index = target;
+		announced = latest.size();
+		if (!changes.isEmpty()) {
+			version++;
+		}
+		return changes;
+	}
+
+	private List<Payment> announced() {
+		return index == null ? Collections.emptyList() : index.asList().subList(0, announced);
+	}
+
+	private List<PaymentChange> diff(List<Payment> latest) {
+		List<Payment> previous = announced();
+		List<PaymentChange> changes = new ArrayList<>();
+		if (latest.size() >= previous.size()) {
+			int position = 0;
+			for (; position < previous.size(); position++) {
+				Payment prior = previous.get(position);
+				Payment payment = latest.get(position);
+				if (!Objects.equals(prior.getId(), payment.getId())) {
+					break;
+				}
+				if (payment.getId() != null && isChanged(prior, payment)) {
+					changes.add(new PaymentChange(ChangeType.updated, payment));
+				}
+			}
+			if (position == previous.size()) {
+				for (; position < latest.size(); position++) {
+					Payment payment = latest.get(position);
+					if (payment.getId() != null) {
+						changes.add(new PaymentChange(ChangeType.created, payment));
+					}
+				}
+				return changes;
+			}
+			changes.clear();
+		}
+		Map<String, Payment> remaining = new LinkedHashMap<>();
+		for (Payment payment : previous) {
+			if (payment.getId() != null) {
+				remaining.put(payment.getId(), payment);
+			}
+		}
+		for (Payment payment : latest) {
+			if (payment.getId() == null) {
+				continue;
+			}
+			Payment prior = remaining.remove(payment.getId());
+			if (prior == null) {
+				changes.add(new PaymentChange(ChangeType.created, payment));
+			} else if (isChanged(prior, payment)) {
+				changes.add(new PaymentChange(ChangeType.updated, payment));
+			}
+		}
+		remaining.values().forEach(payment -> changes.add(new PaymentChange(ChangeType.removed, payment)));
+		return changes;
+	}
+
+	private static boolean isChanged(Payment previous, Payment payment) {
+		return previous.getStatus() != payment.getStatus()
+				|| previous.getCurrency() != payment.getCurrency()
+				|| previous.getAmount() != payment.getAmount()
+				|| !Objects.equals(previous.getRecipientId(), payment.getRecipientId());
+	}
+
+}
@@ -0,0 +1,139 @@
+package io.elken.fakebook.paymentservice.batch;
+
+import io.elken.fakebook.paymentservice.domain.BatchPaymentResult;
+import io.elken.fakebook.paymentservice.domain.Currency;
+import io.elken.fakebook.paymentservice.domain.Payment;
+import io.elken.fakebook.paymentservice.domain.Status;
+import io.elken.fakebook.paymentservice.exception.BadRequestException;
+import io.elken.fakebook.paymentservice.exception.ServiceException;
+import io.elken.fakebook.paymentservice.exception.UnauthorizedException;
+import io.elken.fakebook.paymentservice.provider.PaymentProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BatchPaymentServiceTest {
+
+	private static final String TOKEN = "token";
+
+	private PaymentProvider paymentProvider;
+	private ExecutorService executor;
+
+	private BatchPaymentService onTest;
+
+	@Before
+	public void setup() throws Exception {
+		paymentProvider = mock(PaymentProvider.class);
+		executor = Executors.newFixedThreadPool(8);
+
+		onTest = new BatchPaymentService(paymentProvider, executor, 3, 100);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testCreatePayments_resultsInRequestOrder() throws Exception {
+		when(paymentProvider.createPayment(eq(TOKEN), any(Payment.class)))
+				.thenAnswer(invocation -> withId(invocation.getArgument(1)));
+
+		List<BatchPaymentResult> results = onTest.createPayments(TOKEN, payments(10));
+
+		assertThat(results).extracting(BatchPaymentResult::getIndex).containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+		assertThat(results).extracting(BatchPaymentResult::getStatus).containsOnly(200);
+		assertThat(results).extracting(result -> result.getPayment().getRecipientId())
+				.containsExactly("r0", "r1", "r2", "r3", "r4", "r5", "r6", "r7", "r8", "r9");
+		verify(paymentProvider, times(10)).createPayment(eq(TOKEN), any(Payment.class));
+	}
+
+	@Test
+	public void testCreatePayments_boundedByConcurrency() throws Exception {
+		AtomicInteger active = new AtomicInteger();
+		AtomicInteger peak = new AtomicInteger();
+		when(paymentProvider.createPayment(eq(TOKEN), any(Payment.class))).thenAnswer(invocation -> {
+			peak.accumulateAndGet(active.incrementAndGet(), Math::max);
+			Thread.sleep(20);
+			active.decrementAndGet();
+			return withId(invocation.getArgument(1));
+		});
+
+		onTest.createPayments(TOKEN, payments(12));
+
+		assertThat(peak.get()).isBetween(2, 3);
+	}
+
+	@Test
+	public void testCreatePayments_partialFailures() throws Exception {
+		when(paymentProvider.createPayment(eq(TOKEN), any(Payment.class)))
+				.thenAnswer(invocation -> withId(invocation.getArgument(1)));
+		when(paymentProvider.createPayment(eq(TOKEN), argThat(payment -> payment != null && "r1".equals(payment.getRecipientId()))))
+				.thenThrow(new ServiceException());
+		when(paymentProvider.createPayment(eq(TOKEN), argThat(payment -> payment != null && "r2".equals(payment.getRecipientId()))))
+				.thenThrow(new UnauthorizedException());
+		when(paymentProvider.createPayment(eq(TOKEN), argThat(payment -> payment != null && "r3".equals(payment.getRecipientId()))))
+				.thenThrow(new IllegalStateException());
+		when(paymentProvider.createPayment(eq(TOKEN), argThat(payment -> payment != null && "r4".equals(payment.getRecipientId()))))
+				.thenThrow(new HttpClientErrorException(HttpStatus.UNPROCESSABLE_ENTITY));
+
+		List<BatchPaymentResult> results = onTest.createPayments(TOKEN, payments(5));
+
+		assertThat(results).extracting(BatchPaymentResult::getStatus).containsExactly(200, 502, 401, 500, 422);
+		assertThat(results).extracting(BatchPaymentResult::getError)
+				.containsExactly(null, "Bad Gateway", "Unauthorized", "Internal Server Error", "Unprocessable Entity");
+		assertThat(results.get(1).getPayment()).isNull();
+	}
+
+	@Test
+	public void testCreatePayments_streamsAsCompleted() throws Exception {
+		when(paymentProvider.createPayment(eq(TOKEN), any(Payment.class)))
+				.thenAnswer(invocation -> withId(invocation.getArgument(1)));
+
+		List<BatchPaymentResult> streamed = Collections.synchronizedList(new ArrayList<>());
+		onTest.createPayments(TOKEN, payments(7), streamed::add);
+
+		assertThat(streamed).extracting(BatchPaymentResult::getIndex).containsExactlyInAnyOrder(0, 1, 2, 3, 4, 5, 6);
+	}
+
+	@Test
+	public void testCreatePayments_emptyBatch() throws Exception {
+		assertThat(onTest.createPayments(TOKEN, Collections.emptyList())).isEmpty();
+	}
+
+	@Test(expected = BadRequestException.class)
+	public void testCreatePayments_rejectsOversizedBatch() throws Exception {
+		onTest.createPayments(TOKEN, payments(101));
+	}
+
+	private static List<Payment> payments(int count) {
+		List<Payment> payments = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			payments.add(new Payment(null, Status.paid, "r" + i, Currency.GBP, 1099));
+		}
+		return payments;
+	}
+
+	private static Payment withId(Payment payment) {
+		return new Payment("id-" + payment.getRecipientId(), payment.getStatus(), payment.getRecipientId(), payment.getCurrency(), payment.getAmount());
+	}
+
+}
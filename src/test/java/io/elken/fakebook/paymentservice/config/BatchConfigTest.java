@@ -0,0 +1,44 @@
+package io.elken.fakebook.paymentservice.config;
+
+import io.elken.fakebook.paymentservice.provider.PaymentProvider;
+import org.junit.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class BatchConfigTest {
+
+	private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+			.withUserConfiguration(BatchConfig.class)
+			.withBean(PaymentProvider.class, () -> mock(PaymentProvider.class));
+
+	@Test
+	public void testPlatformThreadExecutorByDefault() throws Exception {
+		contextRunner.run(context -> {
+			ExecutorService executor = context.getBean("batchPaymentExecutor", ExecutorService.class);
+			assertThat(executor).isInstanceOf(ThreadPoolExecutor.class);
+			assertThat(executor.submit(() -> Thread.currentThread().isVirtual()).get()).isFalse();
+		});
+	}
+
+	@Test
+	public void testVirtualThreadExecutor() throws Exception {
+		contextRunner.withPropertyValues("spring.threads.virtual.enabled=true")
+				.run(context -> {
+					ExecutorService executor = context.getBean("batchPaymentExecutor", ExecutorService.class);
+					assertThat(executor.submit(() -> Thread.currentThread().isVirtual()).get()).isTrue();
+					assertThat(executor.submit(() -> Thread.currentThread().getName()).get()).startsWith("coolpay-batch-");
+				});
+	}
+
+	@Test
+	public void testRejectsNonPositiveConcurrency() throws Exception {
+		contextRunner.withPropertyValues("coolpay.batch.concurrency=0")
+				.run(context -> assertThat(context).hasFailed());
+	}
+
+}
@@ -0,0 +1,78 @@
+package io.elken.fakebook.paymentservice.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HttpClientConfigTest {
+
+	private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+			.withUserConfiguration(HttpClientConfig.class);
+
+	@Test
+	public void testDefaultsToApacheEngine() throws Exception {
+		contextRunner.run(context -> {
+			RestTemplate restTemplate = context.getBean(RestTemplate.class);
+			assertThat(restTemplate.getRequestFactory()).isInstanceOf(HttpComponentsClientHttpRequestFactory.class);
+		});
+	}
+
+	@Test
+	public void testApacheEnginePoolMetrics() throws Exception {
+		contextRunner.withPropertyValues("coolpay.http-client.engine=apache", "coolpay.http-client.max-connections-total=42")
+				.run(context -> {
+					MeterRegistry registry = new SimpleMeterRegistry();
+					context.getBean(MeterBinder.class).bindTo(registry);
+
+					assertThat(registry.get("coolpay.http.pool.max").tag("engine", "apache").gauge().value()).isEqualTo(42);
+					assertThat(registry.get("coolpay.http.pool.leased").gauge().value()).isEqualTo(0);
+				});
+	}
+
+	@Test
+	public void testJdkEngine() throws Exception {
+		contextRunner.withPropertyValues("coolpay.http-client.engine=jdk", "coolpay.http-client.http2=false")
+				.run(context -> {
+					RestTemplate restTemplate = context.getBean(RestTemplate.class);
+					assertThat(restTemplate.getRequestFactory()).isInstanceOf(JdkClientHttpRequestFactory.class);
+					assertThat(context.getBean(HttpClient.class).version()).isEqualTo(HttpClient.Version.HTTP_1_1);
+					assertThat(context.getBeansOfType(MeterBinder.class)).isEmpty();
+				});
+	}
+
+	@Test
+	public void testSimpleEngine() throws Exception {
+		contextRunner.withPropertyValues("coolpay.http-client.engine=simple")
+				.run(context -> {
+					RestTemplate restTemplate = context.getBean(RestTemplate.class);
+					assertThat(restTemplate.getRequestFactory()).isInstanceOf(SimpleClientHttpRequestFactory.class);
+					assertThat(context.getBeansOfType(MeterBinder.class)).isEmpty();
+				});
+	}
+
+	@Test
+	public void testUsesApplicationObjectMapper() throws Exception {
+		ObjectMapper objectMapper = new ObjectMapper();
+		contextRunner.withBean(ObjectMapper.class, () -> objectMapper)
+				.run(context -> {
+					RestTemplate restTemplate = context.getBean(RestTemplate.class);
+					assertThat(restTemplate.getMessageConverters())
+							.filteredOn(MappingJackson2HttpMessageConverter.class::isInstance)
+							.extracting(converter -> ((MappingJackson2HttpMessageConverter) converter).getObjectMapper())
+							.containsExactly(objectMapper);
+				});
+	}
+
+}
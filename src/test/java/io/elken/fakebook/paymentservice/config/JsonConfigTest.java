@@ -0,0 +1,46 @@
+package io.elken.fakebook.paymentservice.config;
+
+import com.fasterxml.jackson.core.util.JsonRecyclerPools;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import io.elken.fakebook.paymentservice.domain.Recipient;
+import org.junit.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JsonConfigTest {
+
+	private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+			.withConfiguration(AutoConfigurations.of(JacksonAutoConfiguration.class))
+			.withUserConfiguration(JsonConfig.class);
+
+	@Test
+	public void testRegistersBlackbird() throws Exception {
+		contextRunner.run(context -> {
+			ObjectMapper objectMapper = context.getBean(ObjectMapper.class);
+			assertThat(objectMapper.getRegisteredModuleIds()).contains(new BlackbirdModule().getTypeId());
+
+			String json = "{\"id\":\"1\",\"name\":\"Joe Cool\",\"bio\":null,\"imageSrc\":null,\"numberOfFriends\":3}";
+			Recipient recipient = objectMapper.readValue(json, Recipient.class);
+			assertThat(recipient.getNumberOfFriends()).isEqualTo(3);
+			assertThat(objectMapper.writeValueAsString(recipient)).isEqualTo(json);
+		});
+	}
+
+	@Test
+	public void testThreadLocalBuffersByDefault() throws Exception {
+		contextRunner.run(context -> assertThat(context.getBean(ObjectMapper.class).getFactory()._getRecyclerPool())
+				.isSameAs(JsonRecyclerPools.defaultPool()));
+	}
+
+	@Test
+	public void testSharedBuffersOnVirtualThreads() throws Exception {
+		contextRunner.withPropertyValues("spring.threads.virtual.enabled=true")
+				.run(context -> assertThat(context.getBean(ObjectMapper.class).getFactory()._getRecyclerPool())
+						.isSameAs(JsonRecyclerPools.sharedConcurrentDequePool()));
+	}
+
+}
@@ -1,34 +1,66 @@
 package io.elken.fakebook.paymentservice.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.elken.fakebook.paymentservice.batch.BatchPaymentService;
+import io.elken.fakebook.paymentservice.domain.Amount;
+import io.elken.fakebook.paymentservice.domain.BatchPaymentResult;
+import io.elken.fakebook.paymentservice.domain.ChangeType;
 import io.elken.fakebook.paymentservice.domain.Currency;
+import io.elken.fakebook.paymentservice.domain.ListSnapshot;
 import io.elken.fakebook.paymentservice.domain.LoginRequest;
 import io.elken.fakebook.paymentservice.domain.LoginResponse;
 import io.elken.fakebook.paymentservice.domain.Payment;
+import io.elken.fakebook.paymentservice.domain.PaymentChange;
+import io.elken.fakebook.paymentservice.domain.PaymentCursor;
+import io.elken.fakebook.paymentservice.domain.PaymentPage;
+import io.elken.fakebook.paymentservice.domain.PaymentQuery;
+import io.elken.fakebook.paymentservice.domain.PaymentSubmission;
+import io.elken.fakebook.paymentservice.domain.PaymentSummary;
 import io.elken.fakebook.paymentservice.domain.Recipient;
 import io.elken.fakebook.paymentservice.domain.Status;
+import io.elken.fakebook.paymentservice.domain.SubmissionState;
 import io.elken.fakebook.paymentservice.exception.ServiceException;
 import io.elken.fakebook.paymentservice.exception.UnauthorizedException;
+import io.elken.fakebook.paymentservice.idempotency.IdempotencyService;
+import io.elken.fakebook.paymentservice.idempotency.InMemoryIdempotencyStore;
+import io.elken.fakebook.paymentservice.journal.PaymentDispatcher;
+import io.elken.fakebook.paymentservice.provider.PaymentDirectory;
 import io.elken.fakebook.paymentservice.provider.PaymentProvider;
+import io.elken.fakebook.paymentservice.provider.RecipientDirectory;
+import io.elken.fakebook.paymentservice.sync.ChangeListener;
+import io.elken.fakebook.paymentservice.sync.PaymentSync;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.time.Clock;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.setup.MockMvcBuilders.standaloneSetup;
 
@@ -40,13 +72,23 @@ public class CoolpayControllerTest {
 	private ObjectMapper objectMapper;
 
 	private PaymentProvider paymentProvider;
+	private RecipientDirectory recipientDirectory;
+	private PaymentDirectory paymentDirectory;
+	private BatchPaymentService batchPaymentService;
+	private PaymentDispatcher paymentDispatcher;
+	private IdempotencyService idempotencyService;
 
 	@Before
 	public void setup() throws Exception {
 		paymentProvider = mock(PaymentProvider.class);
-		mockMvc = standaloneSetup(new CoolpayController(paymentProvider)).build();
-
+		recipientDirectory = mock(RecipientDirectory.class);
+		paymentDirectory = mock(PaymentDirectory.class);
+		batchPaymentService = mock(BatchPaymentService.class);
+		paymentDispatcher = mock(PaymentDispatcher.class);
 		objectMapper = new ObjectMapper();
+		idempotencyService = new IdempotencyService(new InMemoryIdempotencyStore(4, 100, 60000, Clock.systemUTC()), objectMapper);
+		mockMvc = standaloneSetup(new CoolpayController(paymentProvider, recipientDirectory, paymentDirectory, idempotencyService,
+				batchPaymentService, Optional.empty(), Optional.empty(), objectMapper)).build();
 	}
 
 	@Test
@@ -86,7 +128,7 @@ public class CoolpayControllerTest {
 	@Test
 	public void testListRecipients() throws Exception {
 		List<Recipient> recipients = Collections.singletonList(new Recipient("1", "Fred"));
-		when(paymentProvider.listRecipients(eq(AUTH_TOKEN))).thenReturn(recipients);
+		when(recipientDirectory.recipientsSnapshot(eq(AUTH_TOKEN))).thenReturn(new ListSnapshot<>(recipients, 0));
 
 		mockMvc.perform(get("/coolpay/recipients")
 				.header("Authorization", AUTH_TOKEN))
@@ -94,6 +136,25 @@ public class CoolpayControllerTest {
 				.andExpect(content().json(objectMapper.writeValueAsString(recipients)));
 	}
 
+	@Test
+	public void testListRecipients_notModified() throws Exception {
+		when(recipientDirectory.recipientsSnapshot(AUTH_TOKEN))
+				.thenReturn(new ListSnapshot<>(Collections.singletonList(new Recipient("1", "Fred")), 0xabcL));
+
+		mockMvc.perform(get("/coolpay/recipients")
+				.header("Authorization", AUTH_TOKEN))
+				.andExpect(status().isOk())
+				.andExpect(header().string("ETag", "W/\"abc\""));
+		mockMvc.perform(get("/coolpay/recipients")
+				.header("Authorization", AUTH_TOKEN)
+				.header("If-None-Match", "W/\"abc\""))
+				.andExpect(status().isNotModified())
+				.andExpect(content().string(""));
+
+		verify(recipientDirectory, times(2)).recipientsSnapshot(AUTH_TOKEN);
+		verify(paymentProvider, never()).listRecipients(anyString());
+	}
+
 	@Test
 	public void testListRecipients_requiresAuthHeader() throws Exception {
 		mockMvc.perform(get("/coolpay/recipients"))
@@ -102,7 +163,7 @@ public class CoolpayControllerTest {
 
 	@Test
 	public void testListRecipients_unauthorizedWhenInvalidToken() throws Exception {
-		when(paymentProvider.listRecipients(anyString())).thenThrow(new UnauthorizedException());
+		when(recipientDirectory.recipientsSnapshot(anyString())).thenThrow(new UnauthorizedException());
 
 		mockMvc.perform(get("/coolpay/recipients")
 				.header("Authorization", AUTH_TOKEN))
@@ -111,13 +172,61 @@ public class CoolpayControllerTest {
 
 	@Test
 	public void testListRecipients_badGatewayServiceError() throws Exception {
-		when(paymentProvider.listRecipients(anyString())).thenThrow(new ServiceException());
+		when(recipientDirectory.recipientsSnapshot(anyString())).thenThrow(new ServiceException());
 
 		mockMvc.perform(get("/coolpay/recipients")
 				.header("Authorization", AUTH_TOKEN))
 				.andExpect(status().isBadGateway());
 	}
 
+	@Test
+	public void testSearchRecipients() throws Exception {
+		List<Recipient> recipients = Arrays.asList(new Recipient("1", "Fred"), new Recipient("2", "Freda"));
+		when(recipientDirectory.findRecipientsByName(eq(AUTH_TOKEN), eq("fre"))).thenReturn(recipients);
+
+		mockMvc.perform(get("/coolpay/recipients")
+				.param("name", "fre")
+				.header("Authorization", AUTH_TOKEN))
+				.andExpect(status().isOk())
+				.andExpect(content().json(objectMapper.writeValueAsString(recipients)));
+
+		verify(paymentProvider, never()).listRecipients(anyString());
+	}
+
+	@Test
+	public void testSearchRecipients_unauthorizedWhenInvalidToken() throws Exception {
+		when(recipientDirectory.findRecipientsByName(anyString(), anyString())).thenThrow(new UnauthorizedException());
+
+		mockMvc.perform(get("/coolpay/recipients")
+				.param("name", "fre")
+				.header("Authorization", AUTH_TOKEN))
+				.andExpect(status().isUnauthorized());
+	}
+
+	@Test
+	public void testGetRecipient() throws Exception {
+		Recipient recipient = new Recipient("1", "Fred");
+		when(recipientDirectory.findRecipient(eq(AUTH_TOKEN), eq("1"))).thenReturn(recipient);
+
+		mockMvc.perform(get("/coolpay/recipients/1")
+				.header("Authorization", AUTH_TOKEN))
+				.andExpect(status().isOk())
+				.andExpect(content().json(objectMapper.writeValueAsString(recipient)));
+	}
+
+	@Test
+	public void testGetRecipient_notFound() throws Exception {
+		mockMvc.perform(get("/coolpay/recipients/1")
+				.header("Authorization", AUTH_TOKEN))
+				.andExpect(status().isNotFound());
+	}
+
+	@Test
+	public void testGetRecipient_requiresAuthHeader() throws Exception {
+		mockMvc.perform(get("/coolpay/recipients/1"))
+				.andExpect(status().isBadRequest());
+	}
+
 	@Test
 	public void testCreateRecipient() throws Exception {
 		ArgumentCaptor<Recipient> captor = ArgumentCaptor.forClass(Recipient.class);
@@ -171,14 +280,173 @@ public class CoolpayControllerTest {
 
 	@Test
 	public void testListPayments() throws Exception {
-		Payment payment = new Payment("1", Status.paid, "recipient", Currency.GBP, 10.99);
+		Payment payment = new Payment("1", Status.paid, "recipient", Currency.GBP, 1099);
 		List<Payment> payments = Collections.singletonList(payment);
-		when(paymentProvider.listPayments(eq(AUTH_TOKEN))).thenReturn(payments);
+		when(paymentDirectory.paymentsSnapshot(eq(AUTH_TOKEN))).thenReturn(new ListSnapshot<>(payments, 0));
+
+		mockMvc.perform(get("/coolpay/payments")
+				.header("Authorization", AUTH_TOKEN))
+				.andExpect(status().isOk())
+				.andExpect(content().json(objectMapper.writeValueAsString(payments)));
+	}
+
+	@Test
+	public void testListPayments_notModified() throws Exception {
+		List<Payment> payments = Collections.singletonList(new Payment("1", Status.paid, "recipient", Currency.GBP, 1099));
+		when(paymentDirectory.paymentsSnapshot(AUTH_TOKEN))
+				.thenReturn(new ListSnapshot<>(payments, 0x1234L))
+				.thenReturn(new ListSnapshot<>(payments, 0x1234L))
+				.thenReturn(new ListSnapshot<>(payments, 0x5678L));
+
+		mockMvc.perform(get("/coolpay/payments")
+				.header("Authorization", AUTH_TOKEN))
+				.andExpect(status().isOk())
+				.andExpect(header().string("ETag", "W/\"1234\""));
+		mockMvc.perform(get("/coolpay/payments")
+				.header("Authorization", AUTH_TOKEN)
+				.header("If-None-Match", "\"1234\""))
+				.andExpect(status().isNotModified())
+				.andExpect(content().string(""));
+		mockMvc.perform(get("/coolpay/payments")
+				.header("Authorization", AUTH_TOKEN)
+				.header("If-None-Match", "W/\"1234\""))
+				.andExpect(status().isOk())
+				.andExpect(header().string("ETag", "W/\"5678\""));
+
+		verify(paymentDirectory, times(3)).paymentsSnapshot(AUTH_TOKEN);
+		verify(paymentProvider, never()).listPayments(anyString());
+	}
+
+	@Test
+	public void testListPayments_page() throws Exception {
+		ArgumentCaptor<PaymentQuery> captor = ArgumentCaptor.forClass(PaymentQuery.class);
+		List<Payment> payments = Collections.singletonList(new Payment("9", Status.paid, "recipient", Currency.GBP, 1099));
+		PaymentCursor cursor = new PaymentCursor(42, 10, "10");
+		when(paymentDirectory.findPayments(eq(AUTH_TOKEN), any(PaymentQuery.class))).thenReturn(new PaymentPage(payments, "next"));
 
 		mockMvc.perform(get("/coolpay/payments")
+				.param("limit", "1")
+				.param("cursor", cursor.toString())
+				.param("recipient_id", "recipient")
+				.param("currency", "GBP")
+				.param("status", "paid")
+				.param("min_amount", "1.5")
+				.param("max_amount", "20")
 				.header("Authorization", AUTH_TOKEN))
 				.andExpect(status().isOk())
+				.andExpect(header().string("X-Next-Cursor", "next"))
 				.andExpect(content().json(objectMapper.writeValueAsString(payments)));
+
+		verify(paymentDirectory).findPayments(eq(AUTH_TOKEN), captor.capture());
+		PaymentQuery query = captor.getValue();
+		assertThat(query.getLimit()).isEqualTo(1);
+		assertThat(query.getCursor()).isEqualTo(cursor);
+		assertThat(query.getRecipientId()).isEqualTo("recipient");
+		assertThat(query.getCurrency()).isEqualTo(Currency.GBP);
+		assertThat(query.getStatus()).isEqualTo(Status.paid);
+		assertThat(query.getMinAmount()).isEqualTo(Amount.parse("1.5"));
+		assertThat(query.getMaxAmount()).isEqualTo(Amount.parse("20"));
+		verify(paymentProvider, never()).listPayments(anyString());
+	}
+
+	@Test
+	public void testListPayments_lastPageHasNoCursor() throws Exception {
+		when(paymentDirectory.findPayments(eq(AUTH_TOKEN), any(PaymentQuery.class))).thenReturn(new PaymentPage(Collections.emptyList(), null));
+
+		mockMvc.perform(get("/coolpay/payments")
+				.param("limit", "50")
+				.header("Authorization", AUTH_TOKEN))
+				.andExpect(status().isOk())
+				.andExpect(header().doesNotExist("X-Next-Cursor"))
+				.andExpect(content().json("[]"));
+	}
+
+	@Test
+	public void testListPayments_badRequestWhenInvalidCursor() throws Exception {
+		mockMvc.perform(get("/coolpay/payments")
+				.param("cursor", "abc")
+				.header("Authorization", AUTH_TOKEN))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void testListPayments_badRequestWhenLimitOutOfRange() throws Exception {
+		mockMvc.perform(get("/coolpay/payments")
+				.param("limit", "0")
+				.header("Authorization", AUTH_TOKEN))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void testListPayments_badRequestWhenInvalidAmount() throws Exception {
+		mockMvc.perform(get("/coolpay/payments")
+				.param("min_amount", "1e3")
+				.header("Authorization", AUTH_TOKEN))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void testListPayments_badRequestWhenUnknownCurrency() throws Exception {
+		mockMvc.perform(get("/coolpay/payments")
+				.param("currency", "XYZ")
+				.header("Authorization", AUTH_TOKEN))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void testSummarizePayments() throws Exception {
+		List<PaymentSummary> summaries = Collections.singletonList(
+				new PaymentSummary("a", Currency.GBP, Status.paid, 2, Amount.parse("21.98"), Amount.parse("10.99"), Amount.parse("10.99")));
+		when(paymentDirectory.summarizePayments(eq(AUTH_TOKEN), any())).thenReturn(summaries);
+
+		mockMvc.perform(get("/coolpay/payments/summary")
+				.param("recipient_id", "a", "b")
+				.header("Authorization", AUTH_TOKEN))
+				.andExpect(status().isOk())
+				.andExpect(content().json("[{\"recipient_id\":\"a\",\"currency\":\"GBP\",\"status\":\"paid\",\"count\":2,\"total\":21.98,\"min\":10.99,\"max\":10.99}]"));
+
+		verify(paymentDirectory).summarizePayments(AUTH_TOKEN, new HashSet<>(Arrays.asList("a", "b")));
+	}
+
+	@Test
+	public void testSummarizePayments_allRecipients() throws Exception {
+		when(paymentDirectory.summarizePayments(AUTH_TOKEN, null)).thenReturn(Collections.emptyList());
+
+		mockMvc.perform(get("/coolpay/payments/summary")
+				.header("Authorization", AUTH_TOKEN))
+				.andExpect(status().isOk())
+				.andExpect(content().json("[]"));
+	}
+
+	@Test
+	public void testStreamPayments() throws Exception {
+		Payment first = new Payment("1", Status.paid, "recipient", Currency.GBP, 1099);
+		Payment second = new Payment("2", Status.paid, "recipient", Currency.USD, 500);
+		doAnswer(invocation -> {
+			Consumer<Payment> consumer = invocation.getArgument(1);
+			consumer.accept(first);
+			consumer.accept(second);
+			return null;
+		}).when(paymentProvider).streamPayments(eq(AUTH_TOKEN), any());
+
+		mockMvc.perform(get("/coolpay/payments")
+				.accept("application/x-ndjson")
+				.header("Authorization", AUTH_TOKEN))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType("application/x-ndjson"))
+				.andExpect(content().string(objectMapper.writeValueAsString(first) + "\n" + objectMapper.writeValueAsString(second) + "\n"));
+
+		verify(paymentProvider, never()).listPayments(anyString());
+	}
+
+	@Test
+	public void testStreamPayments_unauthorizedWhenInvalidToken() throws Exception {
+		doThrow(new UnauthorizedException()).when(paymentProvider).streamPayments(anyString(), any());
+
+		mockMvc.perform(get("/coolpay/payments")
+				.accept("application/x-ndjson")
+				.header("Authorization", AUTH_TOKEN))
+				.andExpect(status().isUnauthorized());
 	}
 
 	@Test
@@ -189,7 +457,7 @@ public class CoolpayControllerTest {
 
 	@Test
 	public void testListPayments_unauthorizedWhenInvalidToken() throws Exception {
-		when(paymentProvider.listPayments(anyString())).thenThrow(new UnauthorizedException());
+		when(paymentDirectory.paymentsSnapshot(anyString())).thenThrow(new UnauthorizedException());
 
 		mockMvc.perform(get("/coolpay/payments")
 				.header("Authorization", AUTH_TOKEN))
@@ -198,7 +466,7 @@ public class CoolpayControllerTest {
 
 	@Test
 	public void testListPayments_badGatewayServiceError() throws Exception {
-		when(paymentProvider.listPayments(anyString())).thenThrow(new ServiceException());
+		when(paymentDirectory.paymentsSnapshot(anyString())).thenThrow(new ServiceException());
 
 		mockMvc.perform(get("/coolpay/payments")
 				.header("Authorization", AUTH_TOKEN))
@@ -209,13 +477,13 @@ public class CoolpayControllerTest {
 	@Test
 	public void testCreatePayment() throws Exception {
 		ArgumentCaptor<Payment> captor = ArgumentCaptor.forClass(Payment.class);
-		Payment response = new Payment("1", Status.paid, "recipient", Currency.GBP, 10.99);
+		Payment response = new Payment("1", Status.paid, "recipient", Currency.GBP, 1099);
 		when(paymentProvider.createPayment(eq(AUTH_TOKEN), any(Payment.class))).thenReturn(response);
 
 		mockMvc.perform(post("/coolpay/payments")
 				.contentType(MediaType.APPLICATION_JSON)
 				.header("Authorization", AUTH_TOKEN)
-				.content(objectMapper.writeValueAsString(new Payment(null, Status.paid, "recipient", Currency.GBP, 10.99))))
+				.content(objectMapper.writeValueAsString(new Payment(null, Status.paid, "recipient", Currency.GBP, 1099))))
 				.andExpect(status().isOk())
 				.andExpect(content().json(objectMapper.writeValueAsString(response)));
 
@@ -226,14 +494,14 @@ public class CoolpayControllerTest {
 		assertThat(payment.getStatus()).isEqualTo(Status.paid);
 		assertThat(payment.getRecipientId()).isEqualTo("recipient");
 		assertThat(payment.getCurrency()).isEqualTo(Currency.GBP);
-		assertThat(payment.getAmount()).isEqualTo(10.99);
+		assertThat(payment.getAmount()).isEqualTo(1099);
 	}
 
 	@Test
 	public void testCreatePayment_requiresAuthHeader() throws Exception {
 		mockMvc.perform(post("/coolpay/payments")
 				.contentType(MediaType.APPLICATION_JSON)
-				.content(objectMapper.writeValueAsString(new Payment(null, Status.paid, "recipient", Currency.GBP, 10.99))))
+				.content(objectMapper.writeValueAsString(new Payment(null, Status.paid, "recipient", Currency.GBP, 1099))))
 				.andExpect(status().isBadRequest());
 	}
 
@@ -244,7 +512,7 @@ public class CoolpayControllerTest {
 		mockMvc.perform(post("/coolpay/payments")
 				.contentType(MediaType.APPLICATION_JSON)
 				.header("Authorization", AUTH_TOKEN)
-				.content(objectMapper.writeValueAsString(new Payment(null, Status.paid, "recipient", Currency.GBP, 10.99))))
+				.content(objectMapper.writeValueAsString(new Payment(null, Status.paid, "recipient", Currency.GBP, 1099))))
 				.andExpect(status().isUnauthorized());
 	}
 
@@ -255,8 +523,264 @@ public class CoolpayControllerTest {
 		mockMvc.perform(post("/coolpay/payments")
 				.contentType(MediaType.APPLICATION_JSON)
 				.header("Authorization", AUTH_TOKEN)
-				.content(objectMapper.writeValueAsString(new Payment(null, Status.paid, "recipient", Currency.GBP, 10.99))))
+				.content(objectMapper.writeValueAsString(new Payment(null, Status.paid, "recipient", Currency.GBP, 1099))))
+				.andExpect(status().isBadGateway());
+	}
+
+	@Test
+	public void testCreatePayment_replaysResponseForIdempotencyKey() throws Exception {
+		Payment response = new Payment("1", Status.paid, "recipient", Currency.GBP, 1099);
+		when(paymentProvider.createPayment(eq(AUTH_TOKEN), any(Payment.class))).thenReturn(response);
+
+		for (int i = 0; i < 2; i++) {
+			mockMvc.perform(post("/coolpay/payments")
+					.contentType(MediaType.APPLICATION_JSON)
+					.header("Authorization", AUTH_TOKEN)
+					.header("Idempotency-Key", "abc")
+					.content(objectMapper.writeValueAsString(new Payment(null, Status.paid, "recipient", Currency.GBP, 1099))))
+					.andExpect(status().isOk())
+					.andExpect(content().json(objectMapper.writeValueAsString(response)));
+		}
+
+		verify(paymentProvider, times(1)).createPayment(eq(AUTH_TOKEN), any(Payment.class));
+	}
+
+	@Test
+	public void testCreatePayment_idempotencyKeyScopedPerToken() throws Exception {
+		when(paymentProvider.createPayment(anyString(), any(Payment.class))).thenReturn(new Payment("1", Status.paid, "recipient", Currency.GBP, 1099));
+
+		for (String token : Arrays.asList("a", "b")) {
+			mockMvc.perform(post("/coolpay/payments")
+					.contentType(MediaType.APPLICATION_JSON)
+					.header("Authorization", token)
+					.header("Idempotency-Key", "abc")
+					.content(objectMapper.writeValueAsString(new Payment(null, Status.paid, "recipient", Currency.GBP, 1099))))
+					.andExpect(status().isOk());
+		}
+
+		verify(paymentProvider).createPayment(eq("a"), any(Payment.class));
+		verify(paymentProvider).createPayment(eq("b"), any(Payment.class));
+	}
+
+	@Test
+	public void testCreatePayment_failureNotStoredForIdempotencyKey() throws Exception {
+		when(paymentProvider.createPayment(anyString(), any(Payment.class)))
+				.thenThrow(new ServiceException())
+				.thenReturn(new Payment("1", Status.paid, "recipient", Currency.GBP, 1099));
+
+		mockMvc.perform(post("/coolpay/payments")
+				.contentType(MediaType.APPLICATION_JSON)
+				.header("Authorization", AUTH_TOKEN)
+				.header("Idempotency-Key", "abc")
+				.content(objectMapper.writeValueAsString(new Payment(null, Status.paid, "recipient", Currency.GBP, 1099))))
 				.andExpect(status().isBadGateway());
+		mockMvc.perform(post("/coolpay/payments")
+				.contentType(MediaType.APPLICATION_JSON)
+				.header("Authorization", AUTH_TOKEN)
+				.header("Idempotency-Key", "abc")
+				.content(objectMapper.writeValueAsString(new Payment(null, Status.paid, "recipient", Currency.GBP, 1099))))
+				.andExpect(status().isOk());
+	}
+
+	@Test
+	public void testCreatePayment_unprocessableWhenIdempotencyKeyReusedForDifferentPayment() throws Exception {
+		when(paymentProvider.createPayment(eq(AUTH_TOKEN), any(Payment.class))).thenReturn(new Payment("1", Status.paid, "recipient", Currency.GBP, 1099));
+
+		mockMvc.perform(post("/coolpay/payments")
+				.contentType(MediaType.APPLICATION_JSON)
+				.header("Authorization", AUTH_TOKEN)
+				.header("Idempotency-Key", "abc")
+				.content(objectMapper.writeValueAsString(new Payment(null, Status.paid, "recipient", Currency.GBP, 1099))))
+				.andExpect(status().isOk());
+		mockMvc.perform(post("/coolpay/payments")
+				.contentType(MediaType.APPLICATION_JSON)
+				.header("Authorization", AUTH_TOKEN)
+				.header("Idempotency-Key", "abc")
+				.content(objectMapper.writeValueAsString(new Payment(null, Status.paid, "recipient", Currency.GBP, 2099))))
+				.andExpect(status().isUnprocessableEntity());
+
+		verify(paymentProvider, times(1)).createPayment(eq(AUTH_TOKEN), any(Payment.class));
+	}
+
+	@Test
+	public void testCreatePayment_badRequestWhenIdempotencyKeyEmpty() throws Exception {
+		mockMvc.perform(post("/coolpay/payments")
+				.contentType(MediaType.APPLICATION_JSON)
+				.header("Authorization", AUTH_TOKEN)
+				.header("Idempotency-Key", "")
+				.content(objectMapper.writeValueAsString(new Payment(null, Status.paid, "recipient", Currency.GBP, 1099))))
+				.andExpect(status().isBadRequest());
+
+		verify(paymentProvider, never()).createPayment(anyString(), any(Payment.class));
+	}
+
+	@Test
+	public void testCreateRecipient_replaysResponseForIdempotencyKey() throws Exception {
+		Recipient response = new Recipient("1", "James");
+		when(paymentProvider.createRecipient(eq(AUTH_TOKEN), any(Recipient.class))).thenReturn(response);
+
+		for (int i = 0; i < 2; i++) {
+			mockMvc.perform(post("/coolpay/recipients")
+					.contentType(MediaType.APPLICATION_JSON)
+					.header("Authorization", AUTH_TOKEN)
+					.header("Idempotency-Key", "abc")
+					.content(objectMapper.writeValueAsString(new Recipient(null, "James"))))
+					.andExpect(status().isOk())
+					.andExpect(content().json(objectMapper.writeValueAsString(response)));
+		}
+
+		verify(paymentProvider, times(1)).createRecipient(eq(AUTH_TOKEN), any(Recipient.class));
+	}
+
+	@Test
+	public void testCreatePayment_journaled() throws Exception {
+		Payment payment = new Payment(null, Status.paid, "recipient", Currency.GBP, 1099);
+		PaymentSubmission submission = new PaymentSubmission("local-1", SubmissionState.queued, payment, null);
+		when(paymentDispatcher.submit(eq(AUTH_TOKEN), any(Payment.class))).thenReturn(submission);
+
+		journaledMockMvc().perform(post("/coolpay/payments")
+				.contentType(MediaType.APPLICATION_JSON)
+				.header("Authorization", AUTH_TOKEN)
+				.content(objectMapper.writeValueAsString(payment)))
+				.andExpect(status().isAccepted())
+				.andExpect(header().string("Location", "/coolpay/payments/submissions/local-1"))
+				.andExpect(content().json(objectMapper.writeValueAsString(submission)));
+
+		verify(paymentProvider, never()).createPayment(anyString(), any(Payment.class));
+	}
+
+	@Test
+	public void testCreatePayment_journaledWithIdempotencyKey() throws Exception {
+		Payment payment = new Payment(null, Status.paid, "recipient", Currency.GBP, 1099);
+		when(paymentDispatcher.submit(eq(AUTH_TOKEN), any(Payment.class)))
+				.thenReturn(new PaymentSubmission("local-1", SubmissionState.queued, payment, null));
+		MockMvc journaled = journaledMockMvc();
+
+		for (int i = 0; i < 2; i++) {
+			journaled.perform(post("/coolpay/payments")
+					.contentType(MediaType.APPLICATION_JSON)
+					.header("Authorization", AUTH_TOKEN)
+					.header("Idempotency-Key", "key-1")
+					.content(objectMapper.writeValueAsString(payment)))
+					.andExpect(status().isAccepted())
+					.andExpect(jsonPath("$.id").value("local-1"));
+		}
+
+		verify(paymentDispatcher, times(1)).submit(eq(AUTH_TOKEN), any(Payment.class));
+	}
+
+	@Test
+	public void testGetPaymentSubmission() throws Exception {
+		PaymentSubmission submission = new PaymentSubmission("local-1", SubmissionState.accepted,
+				new Payment("1", Status.paid, "recipient", Currency.GBP, 1099), null);
+		when(paymentDispatcher.find(AUTH_TOKEN, "local-1")).thenReturn(submission);
+
+		journaledMockMvc().perform(get("/coolpay/payments/submissions/local-1")
+				.header("Authorization", AUTH_TOKEN))
+				.andExpect(status().isOk())
+				.andExpect(content().json(objectMapper.writeValueAsString(submission)));
+	}
+
+	@Test
+	public void testGetPaymentSubmission_notFound() throws Exception {
+		journaledMockMvc().perform(get("/coolpay/payments/submissions/local-1")
+				.header("Authorization", AUTH_TOKEN))
+				.andExpect(status().isNotFound());
+
+		mockMvc.perform(get("/coolpay/payments/submissions/local-1")
+				.header("Authorization", AUTH_TOKEN))
+				.andExpect(status().isNotFound());
+	}
+
+	@Test
+	public void testStreamPaymentChanges() throws Exception {
+		PaymentSync paymentSync = mock(PaymentSync.class);
+		List<PaymentChange> changes = Collections.singletonList(
+				new PaymentChange(ChangeType.created, new Payment("1", Status.paid, "recipient", Currency.GBP, 1099)));
+		doAnswer(invocation -> {
+			ChangeListener listener = invocation.getArgument(2);
+			listener.onChanges("5f-3", changes);
+			return null;
+		}).when(paymentSync).subscribe(eq(AUTH_TOKEN), eq("5f-2"), any());
+
+		MvcResult result = syncedMockMvc(paymentSync).perform(get("/coolpay/payments/changes")
+				.accept(MediaType.TEXT_EVENT_STREAM)
+				.header("Authorization", AUTH_TOKEN)
+				.header("Last-Event-ID", "5f-2"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		assertThat(result.getResponse().getContentAsString())
+				.isEqualTo("id:5f-3\nevent:payments\ndata:" + objectMapper.writeValueAsString(changes) + "\n\n");
+	}
+
+	@Test
+	public void testStreamPaymentChanges_whenSyncDisabled() throws Exception {
+		mockMvc.perform(get("/coolpay/payments/changes")
+				.accept(MediaType.TEXT_EVENT_STREAM)
+				.header("Authorization", AUTH_TOKEN))
+				.andExpect(status().isNotFound());
+	}
+
+	@Test
+	public void testCreatePayments() throws Exception {
+		List<Payment> payments = Arrays.asList(
+				new Payment(null, Status.paid, "a", Currency.GBP, 1099),
+				new Payment(null, Status.paid, "b", Currency.GBP, 500));
+		List<BatchPaymentResult> results = Arrays.asList(
+				new BatchPaymentResult(0, 200, new Payment("1", Status.paid, "a", Currency.GBP, 1099), null),
+				new BatchPaymentResult(1, 502, null, "Bad Gateway"));
+		ArgumentCaptor<List<Payment>> captor = ArgumentCaptor.captor();
+		when(batchPaymentService.createPayments(eq(AUTH_TOKEN), any())).thenReturn(results);
+
+		mockMvc.perform(post("/coolpay/payments/batch")
+				.contentType(MediaType.APPLICATION_JSON)
+				.header("Authorization", AUTH_TOKEN)
+				.content(objectMapper.writeValueAsString(payments)))
+				.andExpect(status().isOk())
+				.andExpect(content().json(objectMapper.writeValueAsString(results)));
+
+		verify(batchPaymentService).createPayments(eq(AUTH_TOKEN), captor.capture());
+		assertThat(captor.getValue()).extracting(Payment::getRecipientId).containsExactly("a", "b");
+	}
+
+	@Test
+	public void testCreatePayments_streamed() throws Exception {
+		BatchPaymentResult first = new BatchPaymentResult(1, 401, null, "Unauthorized");
+		BatchPaymentResult second = new BatchPaymentResult(0, 200, new Payment("1", Status.paid, "a", Currency.GBP, 1099), null);
+		doAnswer(invocation -> {
+			Consumer<BatchPaymentResult> consumer = invocation.getArgument(2);
+			consumer.accept(first);
+			consumer.accept(second);
+			return null;
+		}).when(batchPaymentService).createPayments(eq(AUTH_TOKEN), any(), any());
+
+		mockMvc.perform(post("/coolpay/payments/batch")
+				.contentType(MediaType.APPLICATION_JSON)
+				.accept("application/x-ndjson")
+				.header("Authorization", AUTH_TOKEN)
+				.content(objectMapper.writeValueAsString(Arrays.asList(new Payment(), new Payment()))))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType("application/x-ndjson"))
+				.andExpect(content().string(objectMapper.writeValueAsString(first) + "\n" + objectMapper.writeValueAsString(second) + "\n"));
+	}
+
+	@Test
+	public void testCreatePayments_requiresAuthHeader() throws Exception {
+		mockMvc.perform(post("/coolpay/payments/batch")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("[]"))
+				.andExpect(status().isBadRequest());
+	}
+
+	private MockMvc syncedMockMvc(PaymentSync paymentSync) {
+		return standaloneSetup(new CoolpayController(paymentProvider, recipientDirectory, paymentDirectory, idempotencyService,
+				batchPaymentService, Optional.empty(), Optional.of(paymentSync), objectMapper)).build();
+	}
+
+	private MockMvc journaledMockMvc() {
+		return standaloneSetup(new CoolpayController(paymentProvider, recipientDirectory, paymentDirectory, idempotencyService,
+				batchPaymentService, Optional.of(paymentDispatcher), Optional.empty(), objectMapper)).build();
 	}
 
 }
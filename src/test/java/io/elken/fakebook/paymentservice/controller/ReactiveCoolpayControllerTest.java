@@ -0,0 +1,163 @@
+package io.elken.fakebook.paymentservice.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.elken.fakebook.paymentservice.domain.Currency;
+import io.elken.fakebook.paymentservice.domain.LoginRequest;
+import io.elken.fakebook.paymentservice.domain.LoginResponse;
+import io.elken.fakebook.paymentservice.domain.Payment;
+import io.elken.fakebook.paymentservice.domain.Recipient;
+import io.elken.fakebook.paymentservice.domain.Status;
+import io.elken.fakebook.paymentservice.exception.ServiceException;
+import io.elken.fakebook.paymentservice.exception.UnauthorizedException;
+import io.elken.fakebook.paymentservice.provider.ReactivePaymentProvider;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.standaloneSetup;
+
+public class ReactiveCoolpayControllerTest {
+
+	private static final String AUTH_TOKEN = "token";
+
+	private MockMvc mockMvc;
+	private ObjectMapper objectMapper;
+
+	private ReactivePaymentProvider paymentProvider;
+
+	@Before
+	public void setup() throws Exception {
+		paymentProvider = mock(ReactivePaymentProvider.class);
+		mockMvc = standaloneSetup(new ReactiveCoolpayController(paymentProvider)).build();
+
+		objectMapper = new ObjectMapper();
+	}
+
+	@Test
+	public void testLogin() throws Exception {
+		LoginRequest loginRequest = new LoginRequest("username", "password");
+		LoginResponse expectedResponse = new LoginResponse("token");
+		when(paymentProvider.login(eq(loginRequest))).thenReturn(Mono.just(expectedResponse));
+
+		MvcResult result = mockMvc.perform(post("/coolpay/reactive/login")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(objectMapper.writeValueAsString(loginRequest)))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andExpect(content().string(objectMapper.writeValueAsString(expectedResponse)));
+	}
+
+	@Test
+	public void testLogin_unauthorizedWhenLoginFailed() throws Exception {
+		when(paymentProvider.login(any(LoginRequest.class))).thenReturn(Mono.error(new UnauthorizedException()));
+
+		MvcResult result = mockMvc.perform(post("/coolpay/reactive/login")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(objectMapper.writeValueAsString(new LoginRequest("username", "pass"))))
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isUnauthorized());
+	}
+
+	@Test
+	public void testListRecipients() throws Exception {
+		List<Recipient> recipients = Arrays.asList(new Recipient("1", "Fred"), new Recipient("2", "Wilma"));
+		when(paymentProvider.listRecipients(eq(AUTH_TOKEN))).thenReturn(Flux.fromIterable(recipients));
+
+		MvcResult result = mockMvc.perform(get("/coolpay/reactive/recipients")
+				.header("Authorization", AUTH_TOKEN))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andExpect(content().json(objectMapper.writeValueAsString(recipients)));
+	}
+
+	@Test
+	public void testListRecipients_requiresAuthHeader() throws Exception {
+		mockMvc.perform(get("/coolpay/reactive/recipients"))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void testCreateRecipient() throws Exception {
+		Recipient response = new Recipient("1", "James");
+		when(paymentProvider.createRecipient(eq(AUTH_TOKEN), any(Recipient.class))).thenReturn(Mono.just(response));
+
+		MvcResult result = mockMvc.perform(post("/coolpay/reactive/recipients")
+				.contentType(MediaType.APPLICATION_JSON)
+				.header("Authorization", AUTH_TOKEN)
+				.content(objectMapper.writeValueAsString(new Recipient(null, "James"))))
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andExpect(content().json(objectMapper.writeValueAsString(response)));
+	}
+
+	@Test
+	public void testListPayments() throws Exception {
+		List<Payment> payments = Arrays.asList(new Payment("1", Status.paid, "recipient", Currency.GBP, 1099));
+		when(paymentProvider.listPayments(eq(AUTH_TOKEN))).thenReturn(Flux.fromIterable(payments));
+
+		MvcResult result = mockMvc.perform(get("/coolpay/reactive/payments")
+				.header("Authorization", AUTH_TOKEN))
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andExpect(content().json(objectMapper.writeValueAsString(payments)));
+	}
+
+	@Test
+	public void testListPayments_badGatewayServiceError() throws Exception {
+		when(paymentProvider.listPayments(anyString())).thenReturn(Flux.error(new ServiceException()));
+
+		MvcResult result = mockMvc.perform(get("/coolpay/reactive/payments")
+				.header("Authorization", AUTH_TOKEN))
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isBadGateway());
+	}
+
+	@Test
+	public void testCreatePayment() throws Exception {
+		Payment response = new Payment("1", Status.paid, "recipient", Currency.GBP, 1099);
+		when(paymentProvider.createPayment(eq(AUTH_TOKEN), any(Payment.class))).thenReturn(Mono.just(response));
+
+		MvcResult result = mockMvc.perform(post("/coolpay/reactive/payments")
+				.contentType(MediaType.APPLICATION_JSON)
+				.header("Authorization", AUTH_TOKEN)
+				.content(objectMapper.writeValueAsString(new Payment(null, Status.paid, "recipient", Currency.GBP, 1099))))
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andExpect(content().json(objectMapper.writeValueAsString(response)));
+	}
+
+}
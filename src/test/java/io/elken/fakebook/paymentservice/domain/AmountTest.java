@@ -0,0 +1,79 @@
+package io.elken.fakebook.paymentservice.domain;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AmountTest {
+
+	@Test
+	public void testParse() throws Exception {
+		Amount amount = Amount.parse("10.99");
+
+		assertThat(amount.getUnscaled()).isEqualTo(1099);
+		assertThat(amount.getScale()).isEqualTo(2);
+		assertThat(Amount.parse("-0.5").getUnscaled()).isEqualTo(-5);
+		assertThat(Amount.parse("20").getScale()).isEqualTo(0);
+	}
+
+	@Test
+	public void testParse_atScale() throws Exception {
+		char[] text = "x10.1y".toCharArray();
+
+		assertThat(Amount.parse(text, 1, 4, 2)).isEqualTo(1010);
+		assertThat(Amount.parse("10.100".toCharArray(), 0, 6, 2)).isEqualTo(1010);
+		assertThat(Amount.parse("7".toCharArray(), 0, 1, 2)).isEqualTo(700);
+	}
+
+	@Test(expected = ArithmeticException.class)
+	public void testParse_whenMoreDecimalsThanScale() throws Exception {
+		Amount.parse("10.999".toCharArray(), 0, 6, 2);
+	}
+
+	@Test(expected = ArithmeticException.class)
+	public void testParse_whenOverflow() throws Exception {
+		Amount.parse("99999999999999999999");
+	}
+
+	@Test(expected = NumberFormatException.class)
+	public void testParse_whenInvalid() throws Exception {
+		Amount.parse("1.2.3");
+	}
+
+	@Test(expected = NumberFormatException.class)
+	public void testParse_whenNoDigits() throws Exception {
+		Amount.parse("-.");
+	}
+
+	@Test
+	public void testRescale() throws Exception {
+		assertThat(Amount.rescale(15, 1, 2)).isEqualTo(150);
+		assertThat(Amount.rescale(1500, 3, 2)).isEqualTo(150);
+	}
+
+	@Test(expected = ArithmeticException.class)
+	public void testRescale_whenPrecisionLost() throws Exception {
+		Amount.rescale(1501, 3, 2);
+	}
+
+	@Test
+	public void testFormat() throws Exception {
+		assertThat(Amount.format(1099, 2)).isEqualTo("10.99");
+		assertThat(Amount.format(5, 2)).isEqualTo("0.05");
+		assertThat(Amount.format(-5, 2)).isEqualTo("-0.05");
+		assertThat(Amount.format(42, 0)).isEqualTo("42");
+		assertThat(Amount.format(Long.MIN_VALUE, Amount.MAX_SCALE)).isEqualTo("-9.223372036854775808");
+	}
+
+	@Test
+	public void testCompareTo() throws Exception {
+		Amount amount = Amount.parse("1.5");
+
+		assertThat(amount.compareTo(150, 2)).isZero();
+		assertThat(amount.compareTo(149, 2)).isPositive();
+		assertThat(amount.compareTo(2, 0)).isNegative();
+		assertThat(amount.compareTo(Long.MAX_VALUE, 0)).isNegative();
+		assertThat(amount).isEqualTo(Amount.parse("1.50")).hasSameHashCodeAs(Amount.parse("1.50"));
+	}
+
+}
@@ -0,0 +1,79 @@
+package io.elken.fakebook.paymentservice.idempotency;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FileIdempotencyStoreTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Path path;
+	private Clock clock;
+
+	@Before
+	public void setup() throws Exception {
+		path = folder.getRoot().toPath().resolve("keys.log");
+		clock = mock(Clock.class);
+		when(clock.millis()).thenReturn(1000L);
+	}
+
+	@Test
+	public void testEntriesSurviveRestart() throws Exception {
+		try (FileIdempotencyStore store = new FileIdempotencyStore(path, 4, 100, 500, clock)) {
+			store.put("a", "{\"id\":\"1\"}");
+			store.put("b", "{\"id\":\"2\"}");
+		}
+
+		try (FileIdempotencyStore store = new FileIdempotencyStore(path, 4, 100, 500, clock)) {
+			assertThat(store.get("a")).isEqualTo("{\"id\":\"1\"}");
+			assertThat(store.get("b")).isEqualTo("{\"id\":\"2\"}");
+		}
+	}
+
+	@Test
+	public void testExpiredEntriesDroppedOnRestart() throws Exception {
+		try (FileIdempotencyStore store = new FileIdempotencyStore(path, 4, 100, 500, clock)) {
+			store.put("a", "1");
+		}
+
+		when(clock.millis()).thenReturn(1500L);
+		try (FileIdempotencyStore store = new FileIdempotencyStore(path, 4, 100, 500, clock)) {
+			assertThat(store.get("a")).isNull();
+		}
+		assertThat(Files.readAllLines(path, UTF_8)).isEmpty();
+	}
+
+	@Test
+	public void testMalformedRecordsSkipped() throws Exception {
+		Files.write(path, "garbage\nnot-a-number\ta\t1\n5000\tb\t2\n".getBytes(UTF_8));
+
+		try (FileIdempotencyStore store = new FileIdempotencyStore(path, 4, 100, 500, clock)) {
+			assertThat(store.get("a")).isNull();
+			assertThat(store.get("b")).isEqualTo("2");
+		}
+	}
+
+	@Test
+	public void testCompactsWhenLogGrows() throws Exception {
+		try (FileIdempotencyStore store = new FileIdempotencyStore(path, 1, 2, 500, clock)) {
+			for (int i = 0; i < 10; i++) {
+				store.put("key" + i, "value");
+			}
+		}
+
+		assertThat(Files.readAllLines(path, UTF_8).size()).isLessThanOrEqualTo(4);
+	}
+
+}
@@ -0,0 +1,182 @@
+package io.elken.fakebook.paymentservice.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.elken.fakebook.paymentservice.domain.Currency;
+import io.elken.fakebook.paymentservice.domain.Payment;
+import io.elken.fakebook.paymentservice.domain.Status;
+import io.elken.fakebook.paymentservice.exception.BadRequestException;
+import io.elken.fakebook.paymentservice.exception.ServiceException;
+import io.elken.fakebook.paymentservice.exception.UnprocessableEntityException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Clock;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+public class IdempotencyServiceTest {
+
+	private static final String TOKEN = "token";
+	private static final Payment REQUEST = new Payment(null, null, "recipient", Currency.GBP, 1099);
+
+	private ExecutorService executor;
+
+	private IdempotencyService onTest;
+
+	@Before
+	public void setup() throws Exception {
+		executor = Executors.newFixedThreadPool(4);
+		onTest = new IdempotencyService(new InMemoryIdempotencyStore(4, 100, 60000, Clock.systemUTC()), new ObjectMapper());
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testExecute_replaysCompletedRequest() throws Exception {
+		AtomicInteger calls = new AtomicInteger();
+
+		Payment first = onTest.execute(TOKEN, "payments", "key", REQUEST, Payment.class, () -> payment(calls.incrementAndGet()));
+		Payment second = onTest.execute(TOKEN, "payments", "key", REQUEST, Payment.class, () -> payment(calls.incrementAndGet()));
+
+		assertThat(calls.get()).isEqualTo(1);
+		assertThat(second.getId()).isEqualTo(first.getId());
+		assertThat(second.getAmount()).isEqualTo(first.getAmount());
+	}
+
+	@Test
+	public void testExecute_scopedByOperationAndToken() throws Exception {
+		AtomicInteger calls = new AtomicInteger();
+
+		onTest.execute(TOKEN, "payments", "key", REQUEST, Payment.class, () -> payment(calls.incrementAndGet()));
+		onTest.execute(TOKEN, "recipients", "key", REQUEST, Payment.class, () -> payment(calls.incrementAndGet()));
+		onTest.execute("other", "payments", "key", REQUEST, Payment.class, () -> payment(calls.incrementAndGet()));
+
+		assertThat(calls.get()).isEqualTo(3);
+	}
+
+	@Test
+	public void testExecute_coalescesConcurrentDuplicates() throws Exception {
+		AtomicInteger calls = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		Future<Payment> leader = executor.submit(() -> onTest.execute(TOKEN, "payments", "key", REQUEST, Payment.class, () -> {
+			started.countDown();
+			await(release);
+			return payment(calls.incrementAndGet());
+		}));
+		started.await(5, TimeUnit.SECONDS);
+		Future<Payment> follower = executor.submit(() -> onTest.execute(TOKEN, "payments", "key", REQUEST, Payment.class,
+				() -> payment(calls.incrementAndGet())));
+		Thread.sleep(100);
+		assertThat(follower.isDone()).isFalse();
+		release.countDown();
+
+		assertThat(leader.get(5, TimeUnit.SECONDS).getId()).isEqualTo("1");
+		assertThat(follower.get(5, TimeUnit.SECONDS).getId()).isEqualTo("1");
+		assertThat(calls.get()).isEqualTo(1);
+		assertThat(onTest.inFlightCount()).isZero();
+	}
+
+	@Test
+	public void testExecute_followerGetsItsOwnCopyOfLeaderFailure() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ServiceException failure = new ServiceException();
+
+		Future<Payment> leader = executor.submit(() -> onTest.execute(TOKEN, "payments", "key", REQUEST, Payment.class, () -> {
+			started.countDown();
+			await(release);
+			throw failure;
+		}));
+		started.await(5, TimeUnit.SECONDS);
+		Future<Payment> follower = executor.submit(() -> onTest.execute(TOKEN, "payments", "key", REQUEST, Payment.class,
+				() -> payment(1)));
+		Thread.sleep(100);
+		release.countDown();
+
+		assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).cause().isSameAs(failure);
+		assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS)).cause()
+				.isInstanceOf(ServiceException.class)
+				.isNotSameAs(failure)
+				.cause().isSameAs(failure);
+	}
+
+	@Test
+	public void testExecute_failureNotStored() throws Exception {
+		try {
+			onTest.execute(TOKEN, "payments", "key", REQUEST, Payment.class, () -> {
+				throw new ServiceException();
+			});
+			fail("Expected ServiceException");
+		} catch (ServiceException expected) {
+		}
+
+		assertThat(onTest.execute(TOKEN, "payments", "key", REQUEST, Payment.class, () -> payment(2)).getId()).isEqualTo("2");
+		assertThat(onTest.inFlightCount()).isZero();
+	}
+
+	@Test
+	public void testExecute_rejectsKeyReusedWithDifferentRequest() throws Exception {
+		onTest.execute(TOKEN, "payments", "key", REQUEST, Payment.class, () -> payment(1));
+
+		assertThatThrownBy(() -> onTest.execute(TOKEN, "payments", "key", new Payment(null, null, "recipient", Currency.GBP, 1100),
+				Payment.class, () -> payment(2))).isInstanceOf(UnprocessableEntityException.class);
+		assertThatThrownBy(() -> onTest.execute(TOKEN, "payments", "key", new Payment(null, null, "other", Currency.GBP, 1099),
+				Payment.class, () -> payment(2))).isInstanceOf(UnprocessableEntityException.class);
+	}
+
+	@Test
+	public void testExecute_returnsResponseWhenStoreFails() throws Exception {
+		IdempotencyStore store = mock(IdempotencyStore.class);
+		doThrow(new UncheckedIOException(new IOException("disk full"))).when(store).put(anyString(), anyString());
+		onTest = new IdempotencyService(store, new ObjectMapper());
+
+		assertThat(onTest.execute(TOKEN, "payments", "key", REQUEST, Payment.class, () -> payment(1)).getId()).isEqualTo("1");
+		assertThat(onTest.inFlightCount()).isZero();
+	}
+
+	@Test(expected = BadRequestException.class)
+	public void testExecute_rejectsOversizedKey() throws Exception {
+		StringBuilder key = new StringBuilder();
+		for (int i = 0; i < 256; i++) {
+			key.append('k');
+		}
+		onTest.execute(TOKEN, "payments", key.toString(), REQUEST, Payment.class, () -> payment(1));
+	}
+
+	@Test(expected = BadRequestException.class)
+	public void testExecute_rejectsControlCharacters() throws Exception {
+		onTest.execute(TOKEN, "payments", "a\tb", REQUEST, Payment.class, () -> payment(1));
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static Payment payment(int id) {
+		return new Payment(String.valueOf(id), Status.paid, "recipient", Currency.GBP, 1099);
+	}
+
+}
@@ -0,0 +1,78 @@
+package io.elken.fakebook.paymentservice.idempotency;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Clock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class InMemoryIdempotencyStoreTest {
+
+	private Clock clock;
+
+	private InMemoryIdempotencyStore onTest;
+
+	@Before
+	public void setup() throws Exception {
+		clock = mock(Clock.class);
+		when(clock.millis()).thenReturn(1000L);
+
+		onTest = new InMemoryIdempotencyStore(1, 3, 100, clock);
+	}
+
+	@Test
+	public void testPutAndGet() throws Exception {
+		onTest.put("a", "{\"id\":\"1\"}");
+
+		assertThat(onTest.get("a")).isEqualTo("{\"id\":\"1\"}");
+		assertThat(onTest.get("b")).isNull();
+	}
+
+	@Test
+	public void testGet_expiresAfterTtl() throws Exception {
+		onTest.put("a", "1");
+
+		when(clock.millis()).thenReturn(1099L);
+		assertThat(onTest.get("a")).isEqualTo("1");
+
+		when(clock.millis()).thenReturn(1100L);
+		assertThat(onTest.get("a")).isNull();
+		assertThat(onTest.size()).isZero();
+	}
+
+	@Test
+	public void testPut_evictsEldestWhenFull() throws Exception {
+		onTest.put("a", "1");
+		onTest.put("b", "2");
+		onTest.put("c", "3");
+		onTest.put("d", "4");
+
+		assertThat(onTest.get("a")).isNull();
+		assertThat(onTest.get("d")).isEqualTo("4");
+		assertThat(onTest.size()).isEqualTo(3);
+	}
+
+	@Test
+	public void testPut_evictsExpiredEntries() throws Exception {
+		onTest.put("a", "1");
+		when(clock.millis()).thenReturn(2000L);
+		onTest.put("b", "2");
+
+		assertThat(onTest.size()).isEqualTo(1);
+	}
+
+	@Test
+	public void testStripes_boundTotalEntries() throws Exception {
+		InMemoryIdempotencyStore striped = new InMemoryIdempotencyStore(5, 800, 100, clock);
+		for (int i = 0; i < 10000; i++) {
+			striped.put("key" + i, "value");
+		}
+
+		assertThat(striped.size()).isLessThanOrEqualTo(800);
+		assertThat(striped.get("key9999")).isEqualTo("value");
+	}
+
+}
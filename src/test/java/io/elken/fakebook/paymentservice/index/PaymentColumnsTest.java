@@ -0,0 +1,101 @@
+package io.elken.fakebook.paymentservice.index;
+
+import io.elken.fakebook.paymentservice.domain.Currency;
+import io.elken.fakebook.paymentservice.domain.Payment;
+import io.elken.fakebook.paymentservice.domain.Status;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PaymentColumnsTest {
+
+	private static final String UUID_ID = "31db334f-9ac0-42cb-804b-09b2f899d4d2";
+
+	private final PaymentColumns onTest = new PaymentColumns(0, 0);
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		Payment payment = new Payment(UUID_ID, Status.paid, "recipient", Currency.EUR, -1099);
+
+		int row = onTest.append(payment);
+
+		assertThat(row).isZero();
+		assertThat(onTest.get(row).toString()).isEqualTo(payment.toString());
+		assertThat(onTest.get(row).getId()).isEqualTo(UUID_ID);
+	}
+
+	@Test
+	public void testRoundTrip_idsThatAreNotCanonicalUuids() throws Exception {
+		String[] ids = {"1", "31DB334F-9AC0-42CB-804B-09B2F899D4D2", "31db334f-9ac0-42cb-804b-09b2f899d4dz", "paiement-é", "", null};
+		for (String id : ids) {
+			onTest.append(new Payment(id, Status.paid, "recipient", Currency.GBP, 1));
+		}
+
+		for (int row = 0; row < ids.length; row++) {
+			assertThat(onTest.id(row)).isEqualTo(ids[row]);
+		}
+	}
+
+	@Test
+	public void testRoundTrip_nulls() throws Exception {
+		onTest.append(new Payment());
+
+		assertThat(onTest.get(0).toString()).isEqualTo(new Payment().toString());
+	}
+
+	@Test
+	public void testGrowsPastInitialCapacity() throws Exception {
+		for (int i = 0; i < 1000; i++) {
+			onTest.append(new Payment(i % 2 == 0 ? String.format("31db334f-9ac0-42cb-804b-%012d", i) : "payment-" + i,
+					Status.paid, "recipient-" + i % 7, Currency.values()[i % 3], i));
+		}
+
+		assertThat(onTest.size()).isEqualTo(1000);
+		for (int i = 0; i < 1000; i++) {
+			assertThat(onTest.amount(i)).isEqualTo(i);
+			assertThat(onTest.recipientId(i)).isEqualTo("recipient-" + i % 7);
+			assertThat(onTest.currency(i)).isEqualTo(Currency.values()[i % 3]);
+			assertThat(onTest.status(i)).isEqualTo(Status.paid);
+			assertThat(onTest.id(i)).isEqualTo(i % 2 == 0 ? String.format("31db334f-9ac0-42cb-804b-%012d", i) : "payment-" + i);
+		}
+	}
+
+	@Test
+	public void testInternsRecipientIds() throws Exception {
+		onTest.append(new Payment("1", Status.paid, new String("recipient"), Currency.GBP, 1));
+		onTest.append(new Payment("2", Status.paid, new String("recipient"), Currency.GBP, 2));
+
+		assertThat(onTest.recipientId(1)).isSameAs(onTest.recipientId(0));
+	}
+
+	@Test
+	public void testStoresRowsOffHeap() throws Exception {
+		for (int i = 0; i < 100; i++) {
+			onTest.append(new Payment(String.format("31db334f-9ac0-42cb-804b-%012d", i), Status.paid, "recipient", Currency.GBP, i));
+		}
+
+		assertThat(onTest.offHeapBytes()).isBetween(100L * (18 + 17), 4L * 100 * (18 + 17));
+	}
+
+	@Test
+	public void testSizedForKnownPaymentsAllocatesOnce() throws Exception {
+		List<Payment> payments = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			payments.add(new Payment(i % 2 == 0 ? String.format("31db334f-9ac0-42cb-804b-%012d", i) : "payment-é", Status.paid, "recipient", Currency.GBP, i));
+		}
+		payments.add(new Payment());
+
+		PaymentColumns sized = PaymentColumns.sizedFor(payments);
+		long allocated = sized.offHeapBytes();
+		for (Payment payment : payments) {
+			sized.append(payment);
+		}
+
+		assertThat(allocated).isEqualTo(101L * 18 + 50L * 17 + 50L * (1 + 4 + 10) + 1);
+		assertThat(sized.offHeapBytes()).isEqualTo(allocated);
+	}
+
+}
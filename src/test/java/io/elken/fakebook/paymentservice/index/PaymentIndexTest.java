@@ -0,0 +1,264 @@
+package io.elken.fakebook.paymentservice.index;
+
+import io.elken.fakebook.paymentservice.domain.Amount;
+import io.elken.fakebook.paymentservice.domain.Currency;
+import io.elken.fakebook.paymentservice.domain.ListSnapshot;
+import io.elken.fakebook.paymentservice.domain.Payment;
+import io.elken.fakebook.paymentservice.domain.PaymentCursor;
+import io.elken.fakebook.paymentservice.domain.PaymentPage;
+import io.elken.fakebook.paymentservice.domain.PaymentQuery;
+import io.elken.fakebook.paymentservice.domain.PaymentSummary;
+import io.elken.fakebook.paymentservice.domain.Status;
+import io.elken.fakebook.paymentservice.exception.BadRequestException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class PaymentIndexTest {
+
+	private PaymentIndex onTest;
+
+	@Before
+	public void setup() throws Exception {
+		onTest = new PaymentIndex(Arrays.asList(
+				new Payment("p0", Status.paid, "a", Currency.GBP, 1000),
+				new Payment("p1", Status.paid, "b", Currency.USD, 2000),
+				new Payment("p2", Status.paid, "a", Currency.USD, 3000),
+				new Payment("p3", Status.paid, "c", Currency.GBP, 4000),
+				new Payment("p4", Status.paid, "a", Currency.GBP, 5000)));
+	}
+
+	@Test
+	public void testAsList_keepsInsertionOrder() throws Exception {
+		assertThat(onTest.asList()).extracting(Payment::getId).containsExactly("p0", "p1", "p2", "p3", "p4");
+	}
+
+	@Test
+	public void testAsList_isUnaffectedByLaterAdds() throws Exception {
+		List<Payment> payments = onTest.asList();
+
+		onTest.add(new Payment("p5", Status.paid, "a", Currency.GBP, 6000));
+
+		assertThat(payments).hasSize(5);
+		assertThat(onTest.asList()).extracting(Payment::getId).endsWith("p4", "p5");
+	}
+
+	@Test
+	public void testSnapshot_hashMatchesItsItems() throws Exception {
+		ListSnapshot<Payment> snapshot = onTest.snapshot();
+
+		onTest.add(new Payment("p5", Status.paid, "a", Currency.GBP, 6000));
+
+		assertThat(snapshot.getItems()).hasSize(5);
+		assertThat(snapshot.getContentHash()).isEqualTo(new PaymentIndex(snapshot.getItems()).contentHash())
+				.isNotEqualTo(onTest.contentHash());
+	}
+
+	@Test
+	public void testUpdate_changesRowsInPlaceAndAppends() throws Exception {
+		PaymentPage first = onTest.find(query(null, 2, null, null, null, null));
+		List<Payment> latest = new ArrayList<>(onTest.asList());
+		latest.set(2, new Payment("p2", Status.paid, "c", Currency.GBP, 3500));
+		latest.add(new Payment("p5", Status.paid, "b", Currency.EUR, 6000));
+
+		assertThat(onTest.update(latest)).isTrue();
+
+		assertThat(onTest.asList()).extracting(Payment::getId, Payment::getRecipientId, Payment::getAmount)
+				.containsExactly(tuple("p0", "a", 1000L), tuple("p1", "b", 2000L), tuple("p2", "c", 3500L),
+						tuple("p3", "c", 4000L), tuple("p4", "a", 5000L), tuple("p5", "b", 6000L));
+		assertThat(onTest.contentHash()).isEqualTo(new PaymentIndex(latest).contentHash());
+		assertThat(onTest.find(query(cursor(first), 2, null, null, null, null)).getPayments())
+				.extracting(Payment::getId).containsExactly("p2", "p1");
+		assertThat(onTest.find(query(null, 10, "a", null, null, null)).getPayments()).extracting(Payment::getId).containsExactly("p4", "p0");
+		assertThat(onTest.find(query(null, 10, "c", null, null, null)).getPayments()).extracting(Payment::getId).containsExactly("p3", "p2");
+		assertThat(onTest.find(query(null, 10, null, Currency.USD, null, null)).getPayments()).extracting(Payment::getId).containsExactly("p1");
+		assertThat(onTest.summarize(null)).extracting(PaymentSummary::getRecipientId, PaymentSummary::getCurrency, PaymentSummary::getTotal)
+				.containsExactlyInAnyOrder(tuple("a", Currency.GBP, Amount.parse("60")), tuple("b", Currency.USD, Amount.parse("20")),
+						tuple("b", Currency.EUR, Amount.parse("60")), tuple("c", Currency.GBP, Amount.parse("75")));
+	}
+
+	@Test
+	public void testUpdate_rejectsListThatDoesNotExtendRows() throws Exception {
+		List<Payment> payments = onTest.asList();
+		long hash = onTest.contentHash();
+
+		assertThat(onTest.update(payments.subList(0, 4))).isFalse();
+		assertThat(onTest.update(Arrays.asList(payments.get(1), payments.get(0), payments.get(2), payments.get(3), payments.get(4))))
+				.isFalse();
+
+		assertThat(onTest.size()).isEqualTo(5);
+		assertThat(onTest.contentHash()).isEqualTo(hash);
+	}
+
+	@Test
+	public void testContentHash_tracksContents() throws Exception {
+		List<Payment> payments = onTest.asList();
+		PaymentIndex rebuilt = new PaymentIndex(Collections.emptyList());
+		payments.forEach(rebuilt::add);
+
+		assertThat(new PaymentIndex(payments).contentHash()).isEqualTo(onTest.contentHash());
+		assertThat(rebuilt.contentHash()).isEqualTo(onTest.contentHash());
+		assertThat(new PaymentIndex(Arrays.asList(payments.get(1), payments.get(0))).contentHash())
+				.isNotEqualTo(new PaymentIndex(Arrays.asList(payments.get(0), payments.get(1))).contentHash());
+
+		long before = onTest.contentHash();
+		onTest.add(new Payment("p5", Status.paid, "a", Currency.GBP, 6000));
+		assertThat(onTest.contentHash()).isNotEqualTo(before);
+		assertThat(new PaymentIndex(Collections.singletonList(new Payment("p0", Status.paid, "a", Currency.GBP, 1001))).contentHash())
+				.isNotEqualTo(new PaymentIndex(Collections.singletonList(payments.get(0))).contentHash());
+	}
+
+	@Test
+	public void testFind_newestFirstWithCursor() throws Exception {
+		PaymentPage first = onTest.find(query(null, 2, null, null, null, null));
+		assertThat(first.getPayments()).extracting(Payment::getId).containsExactly("p4", "p3");
+		assertThat(PaymentCursor.parse(first.getNextCursor()).getPosition()).isEqualTo(3);
+
+		PaymentPage second = onTest.find(query(cursor(first), 2, null, null, null, null));
+		assertThat(second.getPayments()).extracting(Payment::getId).containsExactly("p2", "p1");
+		assertThat(PaymentCursor.parse(second.getNextCursor()).getPosition()).isEqualTo(1);
+
+		PaymentPage last = onTest.find(query(cursor(second), 2, null, null, null, null));
+		assertThat(last.getPayments()).extracting(Payment::getId).containsExactly("p0");
+		assertThat(last.getNextCursor()).isNull();
+	}
+
+	@Test
+	public void testFind_exactPageHasNoCursor() throws Exception {
+		PaymentPage page = onTest.find(query(null, 5, null, null, null, null));
+
+		assertThat(page.getPayments()).hasSize(5);
+		assertThat(page.getNextCursor()).isNull();
+	}
+
+	@Test
+	public void testFind_byRecipient() throws Exception {
+		PaymentPage page = onTest.find(query(null, 2, "a", null, null, null));
+		assertThat(page.getPayments()).extracting(Payment::getId).containsExactly("p4", "p2");
+		assertThat(PaymentCursor.parse(page.getNextCursor()).getId()).isEqualTo("p2");
+
+		PaymentPage next = onTest.find(query(cursor(page), 2, "a", null, null, null));
+		assertThat(next.getPayments()).extracting(Payment::getId).containsExactly("p0");
+		assertThat(next.getNextCursor()).isNull();
+	}
+
+	@Test
+	public void testFind_cursorSurvivesAddsAndIdenticalReload() throws Exception {
+		PaymentPage first = onTest.find(query(null, 2, null, null, null, null));
+		PaymentIndex reloaded = new PaymentIndex(onTest.asList());
+		onTest.add(new Payment("p5", Status.paid, "a", Currency.GBP, 6000));
+
+		assertThat(onTest.find(query(cursor(first), 2, null, null, null, null)).getPayments())
+				.extracting(Payment::getId).containsExactly("p2", "p1");
+		assertThat(reloaded.find(query(cursor(first), 2, null, null, null, null)).getPayments())
+				.extracting(Payment::getId).containsExactly("p2", "p1");
+	}
+
+	@Test
+	public void testFind_cursorRejectedByDifferentIndex() throws Exception {
+		PaymentPage first = onTest.find(query(null, 2, null, null, null, null));
+		List<Payment> shifted = new ArrayList<>(onTest.asList());
+		shifted.add(0, new Payment("p00", Status.paid, "a", Currency.GBP, 500));
+		PaymentIndex reloaded = new PaymentIndex(shifted);
+
+		assertThatThrownBy(() -> reloaded.find(query(cursor(first), 2, null, null, null, null)))
+				.isInstanceOf(BadRequestException.class);
+		assertThatThrownBy(() -> onTest.find(query(new PaymentCursor(reloaded.contentHash(), 3, "p3"), 2, null, null, null, null)))
+				.isInstanceOf(BadRequestException.class);
+	}
+
+	@Test
+	public void testFind_byRecipientAndCurrency() throws Exception {
+		PaymentPage page = onTest.find(query(null, 10, "a", Currency.GBP, null, null));
+
+		assertThat(page.getPayments()).extracting(Payment::getId).containsExactly("p4", "p0");
+	}
+
+	@Test
+	public void testFind_byAmountRange() throws Exception {
+		PaymentPage page = onTest.find(query(null, 10, null, null, Amount.parse("20"), Amount.parse("40.00")));
+
+		assertThat(page.getPayments()).extracting(Payment::getId).containsExactly("p3", "p2", "p1");
+	}
+
+	@Test
+	public void testFind_unknownRecipient() throws Exception {
+		PaymentPage page = onTest.find(query(null, 10, "z", null, null, null));
+
+		assertThat(page.getPayments()).isEmpty();
+		assertThat(page.getNextCursor()).isNull();
+	}
+
+	@Test
+	public void testFind_includesAddedPayments() throws Exception {
+		onTest.add(new Payment("p5", Status.paid, "c", Currency.EUR, 6000));
+
+		assertThat(onTest.find(query(null, 1, "c", null, null, null)).getPayments()).extracting(Payment::getId).containsExactly("p5");
+		assertThat(onTest.find(query(null, 10, null, Currency.EUR, null, null)).getPayments()).extracting(Payment::getId).containsExactly("p5");
+		assertThat(onTest.size()).isEqualTo(6);
+	}
+
+	@Test
+	public void testSummarize() throws Exception {
+		onTest.add(new Payment("p5", Status.paid, "a", Currency.GBP, 1099));
+
+		List<PaymentSummary> summaries = onTest.summarize(null);
+
+		assertThat(summaries).extracting(PaymentSummary::getRecipientId, PaymentSummary::getCurrency, PaymentSummary::getCount)
+				.containsExactly(tuple("a", Currency.GBP, 3L), tuple("a", Currency.USD, 1L), tuple("b", Currency.USD, 1L), tuple("c", Currency.GBP, 1L));
+		PaymentSummary gbp = summaries.get(0);
+		assertThat(gbp.getStatus()).isEqualTo(Status.paid);
+		assertThat(gbp.getTotal()).isEqualTo(Amount.parse("70.99"));
+		assertThat(gbp.getMin()).isEqualTo(Amount.parse("10"));
+		assertThat(gbp.getMax()).isEqualTo(Amount.parse("50"));
+	}
+
+	@Test
+	public void testSummarize_byRecipients() throws Exception {
+		List<PaymentSummary> summaries = onTest.summarize(Arrays.asList("c", "z", "b"));
+
+		assertThat(summaries).extracting(PaymentSummary::getRecipientId).containsExactly("c", "b");
+	}
+
+	@Test
+	public void testSummarize_missingCurrencyAndStatus() throws Exception {
+		onTest.add(new Payment("p5", null, null, null, 5));
+
+		PaymentSummary summary = onTest.summarize(Collections.singleton(null)).get(0);
+
+		assertThat(summary.getCurrency()).isNull();
+		assertThat(summary.getStatus()).isNull();
+		assertThat(summary.getTotal()).isEqualTo(Amount.parse("0.05"));
+	}
+
+	@Test
+	public void testAdd_overflowingTotalLeavesIndexUnchanged() throws Exception {
+		onTest.add(new Payment("p5", Status.paid, "d", Currency.GBP, Long.MAX_VALUE));
+		long hash = onTest.contentHash();
+
+		assertThatThrownBy(() -> onTest.add(new Payment("p6", Status.paid, "d", Currency.GBP, 1)))
+				.isInstanceOf(ArithmeticException.class);
+
+		assertThat(onTest.size()).isEqualTo(6);
+		assertThat(onTest.contentHash()).isEqualTo(hash);
+		assertThat(onTest.find(query(null, 10, "d", null, null, null)).getPayments()).extracting(Payment::getId).containsExactly("p5");
+		assertThat(onTest.summarize(Collections.singleton("d"))).extracting(PaymentSummary::getCount).containsExactly(1L);
+	}
+
+	private static PaymentCursor cursor(PaymentPage page) {
+		return PaymentCursor.parse(page.getNextCursor());
+	}
+
+	private PaymentQuery query(PaymentCursor cursor, Integer limit, String recipientId, Currency currency, Amount minAmount, Amount maxAmount) {
+		return new PaymentQuery(cursor, limit, recipientId, currency, null, minAmount, maxAmount);
+	}
+
+}
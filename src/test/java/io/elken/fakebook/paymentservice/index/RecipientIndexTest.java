@@ -0,0 +1,83 @@
+package io.elken.fakebook.paymentservice.index;
+
+import io.elken.fakebook.paymentservice.domain.ListSnapshot;
+import io.elken.fakebook.paymentservice.domain.Recipient;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RecipientIndexTest {
+
+	private RecipientIndex onTest;
+
+	@Before
+	public void setup() throws Exception {
+		onTest = new RecipientIndex(Arrays.asList(
+				new Recipient("1", "Joe Cool"),
+				new Recipient("2", "Jim Beam"),
+				new Recipient("3", "joe bloggs"),
+				new Recipient("4", null)));
+	}
+
+	@Test
+	public void testAsList_keepsInsertionOrder() throws Exception {
+		onTest.add(new Recipient("5", "Aaron"));
+
+		assertThat(onTest.asList()).extracting(Recipient::getId).containsExactly("1", "2", "3", "4", "5");
+		assertThat(onTest.size()).isEqualTo(5);
+	}
+
+	@Test
+	public void testSnapshot_hashMatchesItsItems() throws Exception {
+		ListSnapshot<Recipient> snapshot = onTest.snapshot();
+
+		onTest.add(new Recipient("5", "Aaron"));
+
+		assertThat(snapshot.getItems()).hasSize(4);
+		assertThat(snapshot.getContentHash()).isEqualTo(new RecipientIndex(snapshot.getItems()).contentHash())
+				.isNotEqualTo(onTest.contentHash());
+	}
+
+	@Test
+	public void testContentHash_tracksContents() throws Exception {
+		long before = onTest.contentHash();
+		assertThat(new RecipientIndex(onTest.asList()).contentHash()).isEqualTo(before);
+
+		onTest.add(new Recipient("5", "Aaron"));
+
+		assertThat(onTest.contentHash()).isNotEqualTo(before);
+		assertThat(new RecipientIndex(Collections.singletonList(new Recipient("1", "Joe Cool", "bio", null, 0))).contentHash())
+				.isNotEqualTo(new RecipientIndex(Collections.singletonList(new Recipient("1", "Joe Cool"))).contentHash());
+	}
+
+	@Test
+	public void testFindById() throws Exception {
+		assertThat(onTest.findById("2").getName()).isEqualTo("Jim Beam");
+		assertThat(onTest.findById("9")).isNull();
+		assertThat(onTest.findById(null)).isNull();
+	}
+
+	@Test
+	public void testFindByNamePrefix_caseInsensitiveAndSorted() throws Exception {
+		assertThat(onTest.findByNamePrefix("JOE")).extracting(Recipient::getId).containsExactly("3", "1");
+		assertThat(onTest.findByNamePrefix("ji")).extracting(Recipient::getId).containsExactly("2");
+		assertThat(onTest.findByNamePrefix("x")).isEmpty();
+	}
+
+	@Test
+	public void testFindByNamePrefix_emptyPrefixMatchesAll() throws Exception {
+		assertThat(onTest.findByNamePrefix("")).hasSize(4);
+	}
+
+	@Test
+	public void testFindByNamePrefix_sameNameDifferentIds() throws Exception {
+		onTest.add(new Recipient("5", "Jim Beam"));
+
+		assertThat(onTest.findByNamePrefix("jim beam")).extracting(Recipient::getId).containsExactly("2", "5");
+	}
+
+}
@@ -0,0 +1,320 @@
+package io.elken.fakebook.paymentservice.journal;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.elken.fakebook.paymentservice.domain.Currency;
+import io.elken.fakebook.paymentservice.domain.Payment;
+import io.elken.fakebook.paymentservice.domain.PaymentSubmission;
+import io.elken.fakebook.paymentservice.domain.Status;
+import io.elken.fakebook.paymentservice.domain.SubmissionState;
+import io.elken.fakebook.paymentservice.exception.ServiceException;
+import io.elken.fakebook.paymentservice.exception.ServiceUnavailableException;
+import io.elken.fakebook.paymentservice.exception.UnauthorizedException;
+import io.elken.fakebook.paymentservice.provider.PaymentProvider;
+import io.elken.fakebook.paymentservice.resilience.RetryPolicy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PaymentDispatcherTest {
+
+	private static final String TOKEN = "token";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Path path;
+	private PaymentProvider paymentProvider;
+	private PaymentDispatcher onTest;
+
+	@Before
+	public void setup() throws Exception {
+		path = folder.getRoot().toPath().resolve("payments.journal");
+		paymentProvider = mock(PaymentProvider.class);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		if (onTest != null) {
+			onTest.close();
+		}
+	}
+
+	@Test
+	public void testSubmit_deliversAndRecordsUpstreamPayment() throws Exception {
+		when(paymentProvider.createPayment(eq(TOKEN), any(Payment.class))).thenReturn(payment("upstream-1"));
+		onTest = dispatcher();
+
+		PaymentSubmission submission = onTest.submit(TOKEN, payment(null));
+
+		assertThat(submission.getState()).isEqualTo(SubmissionState.queued);
+		PaymentSubmission accepted = awaitCompletion(submission.getId());
+		assertThat(accepted.getState()).isEqualTo(SubmissionState.accepted);
+		assertThat(accepted.getPayment().getId()).isEqualTo("upstream-1");
+		assertThat(onTest.getPending()).isZero();
+	}
+
+	@Test
+	public void testSubmit_retriesFailuresThatNeverReachedCoolpay() throws Exception {
+		when(paymentProvider.createPayment(eq(TOKEN), any(Payment.class)))
+				.thenThrow(new ServiceUnavailableException("Coolpay endpoint 'payments' is unavailable"))
+				.thenThrow(new ResourceAccessException("I/O error", new ConnectException("Connection refused")))
+				.thenReturn(payment("upstream-1"));
+		onTest = dispatcher();
+
+		PaymentSubmission submission = onTest.submit(TOKEN, payment(null));
+
+		assertThat(awaitCompletion(submission.getId()).getState()).isEqualTo(SubmissionState.accepted);
+		verify(paymentProvider, times(3)).createPayment(eq(TOKEN), any(Payment.class));
+	}
+
+	@Test
+	public void testSubmit_failsWhenCoolpayStaysUnreachable() throws Exception {
+		when(paymentProvider.createPayment(eq(TOKEN), any(Payment.class)))
+				.thenThrow(new ServiceUnavailableException("Coolpay endpoint 'payments' is unavailable"));
+		onTest = dispatcher();
+
+		PaymentSubmission submission = onTest.submit(TOKEN, payment(null));
+
+		PaymentSubmission failed = awaitCompletion(submission.getId());
+		assertThat(failed.getState()).isEqualTo(SubmissionState.failed);
+		assertThat(failed.getError()).isEqualTo("Service Unavailable");
+		verify(paymentProvider, times(3)).createPayment(eq(TOKEN), any(Payment.class));
+	}
+
+	@Test
+	public void testSubmit_doesNotResubmitAmbiguousFailures() throws Exception {
+		when(paymentProvider.createPayment(eq(TOKEN), any(Payment.class)))
+				.thenThrow(new ServiceException())
+				.thenThrow(new ResourceAccessException("I/O error", new SocketTimeoutException("Read timed out")));
+		onTest = dispatcher();
+
+		PaymentSubmission serverError = awaitCompletion(onTest.submit(TOKEN, payment(null)).getId());
+		PaymentSubmission readTimeout = awaitCompletion(onTest.submit(TOKEN, payment(null)).getId());
+
+		assertThat(serverError.getState()).isEqualTo(SubmissionState.unknown);
+		assertThat(serverError.getError()).isEqualTo("Bad Gateway");
+		assertThat(readTimeout.getState()).isEqualTo(SubmissionState.unknown);
+		verify(paymentProvider, times(2)).createPayment(eq(TOKEN), any(Payment.class));
+	}
+
+	@Test
+	public void testSubmit_failsPermanently() throws Exception {
+		when(paymentProvider.createPayment(eq(TOKEN), any(Payment.class))).thenThrow(new UnauthorizedException());
+		onTest = dispatcher();
+
+		PaymentSubmission submission = onTest.submit(TOKEN, payment(null));
+
+		PaymentSubmission failed = awaitCompletion(submission.getId());
+		assertThat(failed.getState()).isEqualTo(SubmissionState.failed);
+		assertThat(failed.getError()).isEqualTo("Unauthorized");
+		verify(paymentProvider, times(1)).createPayment(eq(TOKEN), any(Payment.class));
+	}
+
+	@Test
+	public void testSubmit_keepsCoolpayClientErrorStatus() throws Exception {
+		when(paymentProvider.createPayment(eq(TOKEN), any(Payment.class)))
+				.thenThrow(HttpClientErrorException.create(HttpStatus.UNPROCESSABLE_ENTITY, "Unprocessable Entity", null, null, null));
+		onTest = dispatcher();
+
+		PaymentSubmission failed = awaitCompletion(onTest.submit(TOKEN, payment(null)).getId());
+
+		assertThat(failed.getState()).isEqualTo(SubmissionState.failed);
+		assertThat(failed.getError()).isEqualTo("Unprocessable Entity");
+	}
+
+	@Test
+	public void testFind_scopedToToken() throws Exception {
+		when(paymentProvider.createPayment(eq(TOKEN), any(Payment.class))).thenReturn(payment("upstream-1"));
+		onTest = dispatcher();
+
+		PaymentSubmission submission = onTest.submit(TOKEN, payment(null));
+
+		assertThat(onTest.find("other", submission.getId())).isNull();
+		assertThat(onTest.find(TOKEN, "unknown")).isNull();
+	}
+
+	@Test
+	public void testRestart_replaysOnlySubmissionsThatWereNeverSent() throws Exception {
+		CountDownLatch sending = new CountDownLatch(2);
+		CountDownLatch blocked = new CountDownLatch(1);
+		when(paymentProvider.createPayment(eq(TOKEN), any(Payment.class))).thenAnswer(invocation -> {
+			sending.countDown();
+			blocked.await();
+			return payment("never");
+		});
+		onTest = dispatcher();
+		PaymentSubmission first = onTest.submit(TOKEN, payment(null));
+		PaymentSubmission second = onTest.submit(TOKEN, payment(null));
+		assertThat(sending.await(5, TimeUnit.SECONDS)).isTrue();
+		PaymentSubmission queued = onTest.submit(TOKEN, payment(null));
+		onTest.close();
+		blocked.countDown();
+
+		PaymentProvider restarted = mock(PaymentProvider.class);
+		when(restarted.createPayment(eq(TOKEN), any(Payment.class))).thenReturn(payment("upstream-1"));
+		paymentProvider = restarted;
+		onTest = dispatcher();
+
+		assertThat(awaitCompletion(queued.getId()).getState()).isEqualTo(SubmissionState.accepted);
+		for (PaymentSubmission inDoubt : Arrays.asList(first, second)) {
+			PaymentSubmission recovered = onTest.find(TOKEN, inDoubt.getId());
+			assertThat(recovered.getState()).isEqualTo(SubmissionState.unknown);
+			assertThat(recovered.getError()).isEqualTo("Interrupted before Coolpay replied");
+		}
+		assertThat(onTest.getUnknown()).isEqualTo(2);
+		verify(restarted, timeout(1000).times(1)).createPayment(eq(TOKEN), any(Payment.class));
+	}
+
+	@Test
+	public void testOutcomeThatCannotBeJournaledStaysInDoubt() throws Exception {
+		when(paymentProvider.createPayment(eq(TOKEN), any(Payment.class))).thenReturn(payment("upstream-1"));
+		String id = UUID.randomUUID().toString();
+		int accepted = frame(new JournalRecord(id, SubmissionState.accepted, TOKEN, payment("upstream-1"), null));
+		onTest = dispatcher(accepted - 1);
+
+		PaymentSubmission submission = onTest.submit(TOKEN, payment(null));
+
+		verify(paymentProvider, timeout(1000)).createPayment(eq(TOKEN), any(Payment.class));
+		Thread.sleep(50);
+		assertThat(onTest.find(TOKEN, submission.getId()).getState()).isEqualTo(SubmissionState.sending);
+		assertThat(onTest.getPending()).isEqualTo(1);
+		onTest.close();
+
+		PaymentProvider restarted = mock(PaymentProvider.class);
+		paymentProvider = restarted;
+		onTest = dispatcher(accepted - 1);
+
+		assertThat(onTest.find(TOKEN, submission.getId()).getState()).isEqualTo(SubmissionState.unknown);
+		assertThat(onTest.getPending()).isZero();
+		verify(restarted, times(0)).createPayment(any(), any());
+	}
+
+	@Test
+	public void testRestart_keepsOutcomesOfAcknowledgedSubmissions() throws Exception {
+		when(paymentProvider.createPayment(eq(TOKEN), any(Payment.class))).thenReturn(payment("upstream-1"));
+		onTest = dispatcher();
+		PaymentSubmission submission = onTest.submit(TOKEN, payment(null));
+		awaitCompletion(submission.getId());
+		onTest.close();
+
+		PaymentProvider restarted = mock(PaymentProvider.class);
+		paymentProvider = restarted;
+		onTest = dispatcher();
+
+		assertThat(onTest.find(TOKEN, submission.getId()).getState()).isEqualTo(SubmissionState.accepted);
+		assertThat(onTest.getPending()).isZero();
+		verify(restarted, times(0)).createPayment(any(), any());
+	}
+
+	@Test
+	public void testCompactsWhenFull() throws Exception {
+		when(paymentProvider.createPayment(eq(TOKEN), any(Payment.class))).thenReturn(payment("upstream-1"));
+		onTest = dispatcher(2048);
+
+		for (int i = 0; i < 50; i++) {
+			awaitCompletion(onTest.submit(TOKEN, payment(null)).getId());
+		}
+
+		assertThat(onTest.getJournalBytes()).isLessThan(2048);
+	}
+
+	@Test
+	public void testConcurrentSubmitsDuringCompactionAreNotReplayed() throws Exception {
+		when(paymentProvider.createPayment(eq(TOKEN), any(Payment.class))).thenReturn(payment("upstream-1"));
+		onTest = dispatcher(4096);
+
+		ExecutorService submitters = Executors.newFixedThreadPool(4);
+		List<Future<SubmissionState>> submissions = new ArrayList<>();
+		try {
+			for (int i = 0; i < 200; i++) {
+				submissions.add(submitters.submit(() -> awaitCompletion(onTest.submit(TOKEN, payment(null)).getId()).getState()));
+			}
+			for (Future<SubmissionState> submission : submissions) {
+				assertThat(submission.get(5, TimeUnit.SECONDS)).isEqualTo(SubmissionState.accepted);
+			}
+		} finally {
+			submitters.shutdownNow();
+		}
+		onTest.close();
+
+		PaymentProvider restarted = mock(PaymentProvider.class);
+		paymentProvider = restarted;
+		onTest = dispatcher(4096);
+
+		assertThat(onTest.getPending()).isZero();
+		verify(restarted, times(0)).createPayment(any(), any());
+	}
+
+	@Test
+	public void testJournalReadableOnlyByOwner() throws Exception {
+		assumeTrue(path.getFileSystem().supportedFileAttributeViews().contains("posix"));
+		when(paymentProvider.createPayment(eq(TOKEN), any(Payment.class))).thenReturn(payment("upstream-1"));
+		onTest = dispatcher(2048);
+
+		for (int i = 0; i < 20; i++) {
+			awaitCompletion(onTest.submit(TOKEN, payment(null)).getId());
+		}
+
+		assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(path))).isEqualTo("rw-------");
+	}
+
+	private PaymentDispatcher dispatcher() throws Exception {
+		return dispatcher(64 * 1024);
+	}
+
+	private PaymentDispatcher dispatcher(int capacity) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		return new PaymentDispatcher(path, capacity, paymentProvider, new RetryPolicy(3, 1, 5, null), executor, 2, 60000,
+				new ObjectMapper());
+	}
+
+	private PaymentSubmission awaitCompletion(String id) throws Exception {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		PaymentSubmission submission = onTest.find(TOKEN, id);
+		while ((submission.getState() == SubmissionState.queued || submission.getState() == SubmissionState.sending)
+				&& System.nanoTime() < deadline) {
+			Thread.sleep(5);
+			submission = onTest.find(TOKEN, id);
+		}
+		return submission;
+	}
+
+	private static int frame(JournalRecord record) throws Exception {
+		return PaymentJournal.HEADER_BYTES + new ObjectMapper().writeValueAsBytes(record).length;
+	}
+
+	private static Payment payment(String id) {
+		return new Payment(id, Status.paid, "recipient", Currency.GBP, 1099);
+	}
+
+}
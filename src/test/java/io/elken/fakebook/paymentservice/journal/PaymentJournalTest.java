@@ -0,0 +1,169 @@
+package io.elken.fakebook.paymentservice.journal;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PaymentJournalTest {
+
+	private static final int CAPACITY = 4096;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Path path;
+
+	@Before
+	public void setup() throws Exception {
+		path = folder.getRoot().toPath().resolve("payments.journal");
+	}
+
+	@Test
+	public void testRecordsSurviveRestart() throws Exception {
+		try (PaymentJournal journal = new PaymentJournal(path, CAPACITY, record -> {})) {
+			journal.sync(journal.append(bytes("a")));
+			journal.sync(journal.append(bytes("b")));
+		}
+
+		assertThat(recover()).containsExactly("a", "b");
+	}
+
+	@Test
+	public void testTornRecordDiscarded() throws Exception {
+		try (PaymentJournal journal = new PaymentJournal(path, CAPACITY, record -> {})) {
+			journal.append(bytes("a"));
+			journal.sync(journal.append(bytes("b")));
+		}
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap(new byte[]{'X'}), PaymentJournal.HEADER_BYTES * 2 + 1);
+		}
+
+		assertThat(recover()).containsExactly("a");
+	}
+
+	@Test
+	public void testAppendAfterRecoveryContinuesSequence() throws Exception {
+		try (PaymentJournal journal = new PaymentJournal(path, CAPACITY, record -> {})) {
+			journal.sync(journal.append(bytes("a")));
+		}
+		try (PaymentJournal journal = new PaymentJournal(path, CAPACITY, record -> {})) {
+			journal.sync(journal.append(bytes("b")));
+		}
+
+		assertThat(recover()).containsExactly("a", "b");
+	}
+
+	@Test
+	public void testAppendReturnsNegativeWhenFull() throws Exception {
+		try (PaymentJournal journal = new PaymentJournal(path, 64, record -> {})) {
+			assertThat(journal.append(new byte[32])).isPositive();
+			assertThat(journal.append(new byte[32])).isNegative();
+		}
+	}
+
+	@Test
+	public void testCompactKeepsOnlyLiveRecords() throws Exception {
+		try (PaymentJournal journal = new PaymentJournal(path, CAPACITY, record -> {})) {
+			long stale = journal.append(bytes("a"));
+			journal.append(bytes("b"));
+			journal.compact(() -> Collections.singletonList(bytes("b")));
+			journal.sync(stale);
+			journal.sync(journal.append(bytes("c")));
+			assertThat(journal.size()).isEqualTo(2 * (PaymentJournal.HEADER_BYTES + 1));
+		}
+
+		assertThat(recover()).containsExactly("b", "c");
+	}
+
+	@Test
+	public void testConcurrentAppendsAreAllDurable() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try (PaymentJournal journal = new PaymentJournal(path, CAPACITY * 4, record -> {})) {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < 100; i++) {
+				String value = Integer.toString(i);
+				futures.add(executor.submit(() -> {
+					journal.sync(journal.append(bytes(value)));
+					return null;
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertThat(recover()).hasSize(100).containsAll(Arrays.asList("0", "50", "99"));
+	}
+
+	@Test
+	public void testAppendWaitsWhileCompactionCollectsLiveRecords() throws Exception {
+		CountDownLatch collecting = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try (PaymentJournal journal = new PaymentJournal(path, CAPACITY, record -> {})) {
+			journal.sync(journal.append(bytes("a")));
+			Future<?> compaction = executor.submit(() -> {
+				journal.compact(() -> {
+					collecting.countDown();
+					await(release);
+					return Collections.singletonList(bytes("a"));
+				});
+				return null;
+			});
+			assertThat(collecting.await(5, TimeUnit.SECONDS)).isTrue();
+			Future<?> append = executor.submit(() -> {
+				journal.sync(journal.append(bytes("b")));
+				return null;
+			});
+			Thread.sleep(50);
+			assertThat(append.isDone()).isFalse();
+			release.countDown();
+
+			compaction.get(5, TimeUnit.SECONDS);
+			append.get(5, TimeUnit.SECONDS);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertThat(recover()).containsExactly("a", "b");
+	}
+
+	private List<String> recover() throws Exception {
+		List<String> records = new ArrayList<>();
+		new PaymentJournal(path, CAPACITY, record -> records.add(new String(record, UTF_8))).close();
+		return records;
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static byte[] bytes(String value) {
+		return value.getBytes(UTF_8);
+	}
+
+}
@@ -0,0 +1,87 @@
+package io.elken.fakebook.paymentservice.json;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import io.elken.fakebook.paymentservice.domain.Currency;
+import io.elken.fakebook.paymentservice.domain.Payment;
+import io.elken.fakebook.paymentservice.domain.Status;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PaymentJsonTest {
+
+	private final ObjectMapper objectMapper = new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+	@Test
+	public void testSerialize() throws Exception {
+		Payment payment = new Payment("1", Status.paid, "recipient", Currency.GBP, 1099);
+
+		assertThat(objectMapper.writeValueAsString(payment))
+				.isEqualTo("{\"id\":\"1\",\"status\":\"paid\",\"recipient_id\":\"recipient\",\"currency\":\"GBP\",\"amount\":10.99}");
+	}
+
+	@Test
+	public void testSerialize_nulls() throws Exception {
+		assertThat(objectMapper.writeValueAsString(new Payment()))
+				.isEqualTo("{\"id\":null,\"status\":null,\"recipient_id\":null,\"currency\":null,\"amount\":0.00}");
+	}
+
+	@Test
+	public void testDeserialize() throws Exception {
+		Payment payment = objectMapper.readValue(
+				"{\"id\":\"1\",\"status\":\"paid\",\"recipient_id\":\"recipient\",\"currency\":\"GBP\",\"amount\":10.99}", Payment.class);
+
+		assertThat(payment.getId()).isEqualTo("1");
+		assertThat(payment.getStatus()).isEqualTo(Status.paid);
+		assertThat(payment.getRecipientId()).isEqualTo("recipient");
+		assertThat(payment.getCurrency()).isEqualTo(Currency.GBP);
+		assertThat(payment.getAmount()).isEqualTo(1099);
+	}
+
+	@Test
+	public void testDeserialize_amountForms() throws Exception {
+		assertThat(amountOf("\"1.5\"")).isEqualTo(150);
+		assertThat(amountOf("7")).isEqualTo(700);
+		assertThat(amountOf("0.10")).isEqualTo(10);
+		assertThat(amountOf("1.2500")).isEqualTo(125);
+		assertThat(amountOf("1.5e1")).isEqualTo(1500);
+		assertThat(amountOf("null")).isEqualTo(0);
+	}
+
+	@Test
+	public void testDeserialize_currencyAfterAmount() throws Exception {
+		Payment payment = objectMapper.readValue("{\"amount\":\"3.1\",\"extra\":{\"a\":[1]},\"currency\":\"USD\"}", Payment.class);
+
+		assertThat(payment.getAmount()).isEqualTo(310);
+		assertThat(payment.getCurrency()).isEqualTo(Currency.USD);
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		Payment payment = new Payment("1", Status.paid, "recipient", Currency.EUR, -5);
+
+		assertThat(objectMapper.readValue(objectMapper.writeValueAsString(payment), Payment.class).toString()).isEqualTo(payment.toString());
+	}
+
+	@Test(expected = InvalidFormatException.class)
+	public void testDeserialize_whenTooPrecise() throws Exception {
+		amountOf("10.999");
+	}
+
+	@Test(expected = InvalidFormatException.class)
+	public void testDeserialize_whenNotANumber() throws Exception {
+		amountOf("\"ten\"");
+	}
+
+	@Test(expected = InvalidFormatException.class)
+	public void testDeserialize_whenOutOfRange() throws Exception {
+		amountOf("1e30");
+	}
+
+	private long amountOf(String amount) throws Exception {
+		return objectMapper.readValue("{\"currency\":\"GBP\",\"amount\":" + amount + "}", Payment.class).getAmount();
+	}
+
+}
@@ -0,0 +1,129 @@
+package io.elken.fakebook.paymentservice.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.http.HttpMethod.GET;
+import static org.springframework.http.HttpMethod.POST;
+import static org.springframework.test.web.client.ExpectedCount.manyTimes;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+public class UpstreamMetricsInterceptorTest {
+
+	private static final String BASE_URI = "http://coolpay.local/api";
+
+	private MeterRegistry registry;
+	private RestTemplate restTemplate;
+	private MockRestServiceServer server;
+
+	@Before
+	public void setup() throws Exception {
+		registry = new SimpleMeterRegistry();
+		UpstreamMetricsInterceptor onTest = new UpstreamMetricsInterceptor(registry, "coolpay.upstream",
+				Arrays.asList("/recipients", "/payments"), true);
+
+		restTemplate = new RestTemplate();
+		server = MockRestServiceServer.bindTo(restTemplate).ignoreExpectOrder(true).build();
+		restTemplate.setInterceptors(Collections.singletonList(onTest));
+	}
+
+	@Test
+	public void testTimesByPathMethodAndStatus() throws Exception {
+		server.expect(manyTimes(), requestTo(BASE_URI + "/payments")).andExpect(method(GET)).andRespond(withSuccess());
+		server.expect(requestTo(BASE_URI + "/payments")).andExpect(method(POST)).andRespond(withSuccess());
+
+		restTemplate.getForObject(BASE_URI + "/payments", String.class);
+		restTemplate.getForObject(BASE_URI + "/payments", String.class);
+		restTemplate.postForObject(BASE_URI + "/payments", "{}", String.class);
+
+		assertThat(timer("/payments", "GET", "2xx", "none").count()).isEqualTo(2);
+		assertThat(timer("/payments", "POST", "2xx", "none").count()).isEqualTo(1);
+		assertThat(registry.find("coolpay.upstream").tags("path", "/recipients").timer()).isNull();
+	}
+
+	@Test
+	public void testTagsErrorsWithProviderException() throws Exception {
+		server.expect(requestTo(BASE_URI + "/recipients")).andRespond(withStatus(HttpStatus.UNAUTHORIZED));
+		server.expect(requestTo(BASE_URI + "/payments")).andRespond(withStatus(HttpStatus.BAD_GATEWAY));
+
+		try {
+			restTemplate.getForObject(BASE_URI + "/recipients", String.class);
+		} catch (HttpClientErrorException expected) {
+		}
+		try {
+			restTemplate.getForObject(BASE_URI + "/payments", String.class);
+		} catch (HttpServerErrorException expected) {
+		}
+
+		assertThat(timer("/recipients", "GET", "4xx", "UnauthorizedException").count()).isEqualTo(1);
+		assertThat(timer("/payments", "GET", "5xx", "ServiceException").count()).isEqualTo(1);
+	}
+
+	@Test
+	public void testUnknownPathsUseOther() throws Exception {
+		server.expect(requestTo(BASE_URI + "/login")).andRespond(withStatus(HttpStatus.NOT_FOUND));
+
+		try {
+			restTemplate.postForObject(BASE_URI + "/login", "{}", String.class);
+		} catch (HttpClientErrorException expected) {
+		}
+
+		assertThat(timer("other", "POST", "4xx", "HttpClientErrorException").count()).isEqualTo(1);
+	}
+
+	@Test
+	public void testPathsMatchWholeSegments() throws Exception {
+		server.expect(requestTo(BASE_URI + "/xpayments")).andRespond(withSuccess());
+
+		restTemplate.getForObject(BASE_URI + "/xpayments", String.class);
+
+		assertThat(timer("other", "GET", "2xx", "none").count()).isEqualTo(1);
+		assertThat(registry.find("coolpay.upstream").tags("path", "/payments").timer()).isNull();
+	}
+
+	@Test
+	public void testTimesUntilBodyIsRead() throws Exception {
+		server.expect(requestTo(BASE_URI + "/payments")).andRespond(withSuccess("[]", MediaType.APPLICATION_JSON));
+
+		restTemplate.execute(BASE_URI + "/payments", GET, null, response -> {
+			assertThat(registry.find("coolpay.upstream").timer()).isNull();
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return StreamUtils.copyToByteArray(response.getBody());
+		});
+
+		Timer timer = timer("/payments", "GET", "2xx", "none");
+		assertThat(timer.count()).isEqualTo(1);
+		assertThat(timer.totalTime(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(50);
+	}
+
+	private Timer timer(String path, String method, String status, String exception) {
+		Timer timer = registry.find("coolpay.upstream")
+				.tags("path", path, "method", method, "status", status, "exception", exception)
+				.timer();
+		assertThat(timer).isNotNull();
+		return timer;
+	}
+
+}
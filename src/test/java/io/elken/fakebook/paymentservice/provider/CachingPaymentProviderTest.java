@@ -0,0 +1,374 @@
+package io.elken.fakebook.paymentservice.provider;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.elken.fakebook.paymentservice.config.PaymentProviderConfig;
+import io.elken.fakebook.paymentservice.config.ProviderCacheProperties;
+import io.elken.fakebook.paymentservice.domain.Amount;
+import io.elken.fakebook.paymentservice.domain.Currency;
+import io.elken.fakebook.paymentservice.domain.LoginRequest;
+import io.elken.fakebook.paymentservice.domain.LoginResponse;
+import io.elken.fakebook.paymentservice.domain.Payment;
+import io.elken.fakebook.paymentservice.domain.PaymentPage;
+import io.elken.fakebook.paymentservice.domain.PaymentQuery;
+import io.elken.fakebook.paymentservice.domain.PaymentSummary;
+import io.elken.fakebook.paymentservice.domain.Recipient;
+import io.elken.fakebook.paymentservice.domain.Status;
+import io.elken.fakebook.paymentservice.exception.UnauthorizedException;
+import io.elken.fakebook.paymentservice.index.PaymentIndex;
+import io.elken.fakebook.paymentservice.index.RecipientIndex;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CachingPaymentProviderTest {
+
+	private static final String TOKEN = "token";
+
+	private PaymentProvider delegate;
+	private AsyncCache<String, LoginResponse> loginCache;
+	private AsyncCache<String, RecipientIndex> recipientsCache;
+	private AsyncCache<String, PaymentIndex> paymentsCache;
+
+	private CachingPaymentProvider onTest;
+
+	@Before
+	public void setup() throws Exception {
+		delegate = mock(PaymentProvider.class);
+		loginCache = Caffeine.newBuilder().recordStats().buildAsync();
+		recipientsCache = Caffeine.newBuilder().recordStats().buildAsync();
+		paymentsCache = Caffeine.newBuilder().recordStats().buildAsync();
+
+		onTest = new CachingPaymentProvider(delegate, loginCache, recipientsCache, paymentsCache);
+	}
+
+	@Test
+	public void testLogin_cachedPerCredentials() throws Exception {
+		when(delegate.login(any(LoginRequest.class))).thenReturn(new LoginResponse("a"), new LoginResponse("b"));
+
+		assertThat(onTest.login(new LoginRequest("user", "key")).getToken()).isEqualTo("a");
+		assertThat(onTest.login(new LoginRequest("user", "key")).getToken()).isEqualTo("a");
+		assertThat(onTest.login(new LoginRequest("user", "other")).getToken()).isEqualTo("b");
+		verify(delegate, times(2)).login(any(LoginRequest.class));
+	}
+
+	@Test
+	public void testLogin_credentialsNotStoredInPlaintext() throws Exception {
+		when(delegate.login(any(LoginRequest.class))).thenReturn(new LoginResponse("a"));
+
+		onTest.login(new LoginRequest("user", "secret-key"));
+
+		assertThat(loginCache.synchronous().asMap().keySet()).hasSize(1)
+				.allSatisfy(key -> assertThat(key).doesNotContain("user").doesNotContain("secret-key"));
+	}
+
+	@Test
+	public void testLogin_failuresNotCached() throws Exception {
+		when(delegate.login(any(LoginRequest.class)))
+				.thenThrow(new UnauthorizedException())
+				.thenReturn(new LoginResponse("a"));
+
+		try {
+			onTest.login(new LoginRequest("user", "key"));
+		} catch (UnauthorizedException expected) {
+		}
+
+		assertThat(onTest.login(new LoginRequest("user", "key")).getToken()).isEqualTo("a");
+	}
+
+	@Test
+	public void testLogin_concurrentLoginsCoalesce() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		when(delegate.login(any(LoginRequest.class))).thenAnswer(invocation -> {
+			release.await(5, TimeUnit.SECONDS);
+			return new LoginResponse("a");
+		});
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<LoginResponse>> logins = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				logins.add(executor.submit(() -> onTest.login(new LoginRequest("user", "key"))));
+			}
+			Thread.sleep(100);
+			release.countDown();
+
+			for (Future<LoginResponse> login : logins) {
+				assertThat(login.get(5, TimeUnit.SECONDS).getToken()).isEqualTo("a");
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		verify(delegate, times(1)).login(any(LoginRequest.class));
+	}
+
+	@Test
+	public void testLogin_invalidatedWhenTokenRejected() throws Exception {
+		when(delegate.login(any(LoginRequest.class))).thenReturn(new LoginResponse("a"), new LoginResponse("b"));
+		when(delegate.listRecipients("a")).thenThrow(new UnauthorizedException());
+
+		onTest.login(new LoginRequest("user", "key"));
+		try {
+			onTest.listRecipients("a");
+		} catch (UnauthorizedException expected) {
+		}
+
+		assertThat(onTest.login(new LoginRequest("user", "key")).getToken()).isEqualTo("b");
+	}
+
+	@Test
+	public void testLogin_rejectedTokenInvalidatesOnlyItsOwnLogin() throws Exception {
+		when(delegate.login(any(LoginRequest.class))).thenReturn(new LoginResponse("a"), new LoginResponse("other"),
+				new LoginResponse("b"));
+		when(delegate.listRecipients("a")).thenThrow(new UnauthorizedException());
+
+		onTest.login(new LoginRequest("user", "key"));
+		onTest.login(new LoginRequest("other", "key"));
+		for (int i = 0; i < 2; i++) {
+			try {
+				onTest.listRecipients("a");
+			} catch (UnauthorizedException expected) {
+			}
+			assertThat(onTest.login(new LoginRequest("user", "key")).getToken()).isEqualTo("b");
+		}
+
+		assertThat(onTest.login(new LoginRequest("other", "key")).getToken()).isEqualTo("other");
+		verify(delegate, times(3)).login(any(LoginRequest.class));
+	}
+
+	@Test
+	public void testListRecipients_readsThrough() throws Exception {
+		when(delegate.listRecipients(TOKEN)).thenReturn(Collections.singletonList(new Recipient("1", "Fred")));
+
+		List<Recipient> first = onTest.listRecipients(TOKEN);
+		List<Recipient> second = onTest.listRecipients(TOKEN);
+
+		assertThat(first).extracting(Recipient::getId).containsExactly("1");
+		assertThat(second).isEqualTo(first);
+		verify(delegate, times(1)).listRecipients(TOKEN);
+		assertThat(recipientsCache.synchronous().stats().hitCount()).isEqualTo(1);
+		assertThat(recipientsCache.synchronous().stats().missCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void testListRecipients_cachedPerToken() throws Exception {
+		when(delegate.listRecipients("a")).thenReturn(Collections.singletonList(new Recipient("1", "Fred")));
+		when(delegate.listRecipients("b")).thenReturn(Collections.singletonList(new Recipient("2", "Wilma")));
+
+		assertThat(onTest.listRecipients("a")).extracting(Recipient::getId).containsExactly("1");
+		assertThat(onTest.listRecipients("b")).extracting(Recipient::getId).containsExactly("2");
+	}
+
+	@Test(expected = UnauthorizedException.class)
+	public void testListRecipients_whenTokenNull() throws Exception {
+		when(delegate.listRecipients(null)).thenThrow(new UnauthorizedException());
+
+		onTest.listRecipients(null);
+	}
+
+	@Test
+	public void testListRecipients_failuresNotCached() throws Exception {
+		when(delegate.listRecipients(TOKEN))
+				.thenThrow(new UnauthorizedException())
+				.thenReturn(Collections.singletonList(new Recipient("1", "Fred")));
+
+		try {
+			onTest.listRecipients(TOKEN);
+		} catch (UnauthorizedException expected) {
+		}
+
+		assertThat(onTest.listRecipients(TOKEN)).hasSize(1);
+	}
+
+	@Test
+	public void testCreateRecipient_appendsToCachedList() throws Exception {
+		when(delegate.listRecipients(TOKEN)).thenReturn(Arrays.asList(new Recipient("1", "Fred")));
+		when(delegate.createRecipient(eq(TOKEN), any(Recipient.class))).thenReturn(new Recipient("2", "Wilma"));
+
+		onTest.listRecipients(TOKEN);
+		Recipient created = onTest.createRecipient(TOKEN, new Recipient(null, "Wilma"));
+
+		assertThat(created.getId()).isEqualTo("2");
+		assertThat(onTest.listRecipients(TOKEN)).extracting(Recipient::getId).containsExactly("1", "2");
+		verify(delegate, times(1)).listRecipients(TOKEN);
+	}
+
+	@Test
+	public void testCreateRecipient_doesNotPopulateMissingEntry() throws Exception {
+		when(delegate.createRecipient(eq(TOKEN), any(Recipient.class))).thenReturn(new Recipient("2", "Wilma"));
+
+		onTest.createRecipient(TOKEN, new Recipient(null, "Wilma"));
+
+		assertThat(recipientsCache.synchronous().getIfPresent(TOKEN)).isNull();
+	}
+
+	@Test
+	public void testFindRecipient_usesCachedIndex() throws Exception {
+		when(delegate.listRecipients(TOKEN)).thenReturn(Arrays.asList(new Recipient("1", "Fred"), new Recipient("2", "Wilma")));
+
+		assertThat(onTest.findRecipient(TOKEN, "2").getName()).isEqualTo("Wilma");
+		assertThat(onTest.findRecipient(TOKEN, "3")).isNull();
+		assertThat(onTest.listRecipients(TOKEN)).hasSize(2);
+		verify(delegate, times(1)).listRecipients(TOKEN);
+	}
+
+	@Test
+	public void testFindRecipientsByName_includesCreatedRecipients() throws Exception {
+		when(delegate.listRecipients(TOKEN)).thenReturn(Arrays.asList(new Recipient("1", "Fred"), new Recipient("2", "Wilma")));
+		when(delegate.createRecipient(eq(TOKEN), any(Recipient.class))).thenReturn(new Recipient("3", "Freda"));
+
+		onTest.listRecipients(TOKEN);
+		onTest.createRecipient(TOKEN, new Recipient(null, "Freda"));
+
+		assertThat(onTest.findRecipientsByName(TOKEN, "FRE")).extracting(Recipient::getId).containsExactly("1", "3");
+		assertThat(onTest.findRecipient(TOKEN, "3").getName()).isEqualTo("Freda");
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testListRecipients_cachedListIsImmutable() throws Exception {
+		when(delegate.listRecipients(TOKEN)).thenReturn(Collections.singletonList(new Recipient("1", "Fred")));
+
+		onTest.listRecipients(TOKEN).add(new Recipient("2", "Wilma"));
+	}
+
+	@Test
+	public void testListPayments_readsThrough() throws Exception {
+		when(delegate.listPayments(TOKEN)).thenReturn(Arrays.asList(payment("1", "a"), payment("2", "b")));
+
+		assertThat(onTest.listPayments(TOKEN)).extracting(Payment::getId).containsExactly("1", "2");
+		assertThat(onTest.listPayments(TOKEN)).extracting(Payment::getId).containsExactly("1", "2");
+		verify(delegate, times(1)).listPayments(TOKEN);
+	}
+
+	@Test
+	public void testCreatePayment_appendsToCachedIndex() throws Exception {
+		when(delegate.listPayments(TOKEN)).thenReturn(Arrays.asList(payment("1", "a")));
+		when(delegate.createPayment(eq(TOKEN), any(Payment.class))).thenReturn(payment("2", "a"));
+
+		onTest.listPayments(TOKEN);
+		onTest.createPayment(TOKEN, payment(null, "a"));
+
+		PaymentPage page = onTest.findPayments(TOKEN, new PaymentQuery(null, 10, "a", null, null, null, null));
+		assertThat(page.getPayments()).extracting(Payment::getId).containsExactly("2", "1");
+		verify(delegate, times(1)).listPayments(TOKEN);
+	}
+
+	@Test
+	public void testCreatePayment_duringLoadDoesNotBlockAndReachesLoadedIndex() throws Exception {
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		when(delegate.listPayments(TOKEN)).thenAnswer(invocation -> {
+			loading.countDown();
+			release.await(5, TimeUnit.SECONDS);
+			return Arrays.asList(payment("1", "a"));
+		});
+		when(delegate.createPayment(eq(TOKEN), any(Payment.class))).thenReturn(payment("2", "a"));
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<List<Payment>> load = executor.submit(() -> onTest.listPayments(TOKEN));
+			assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+			Future<Payment> create = executor.submit(() -> onTest.createPayment(TOKEN, payment(null, "a")));
+
+			assertThat(create.get(5, TimeUnit.SECONDS).getId()).isEqualTo("2");
+			release.countDown();
+			assertThat(load.get(5, TimeUnit.SECONDS)).extracting(Payment::getId).contains("1");
+		} finally {
+			executor.shutdownNow();
+		}
+		assertThat(onTest.listPayments(TOKEN)).extracting(Payment::getId).containsExactlyInAnyOrder("1", "2");
+		verify(delegate, times(1)).listPayments(TOKEN);
+	}
+
+	@Test
+	public void testCreatePayment_doesNotExtendCachedIndexTtl() throws Exception {
+		paymentsCache = new PaymentProviderConfig().paymentsCache(new ProviderCacheProperties());
+		onTest = new CachingPaymentProvider(delegate, loginCache, recipientsCache, paymentsCache);
+		when(delegate.listPayments(TOKEN)).thenReturn(Arrays.asList(payment("1", "a")));
+		when(delegate.createPayment(eq(TOKEN), any(Payment.class))).thenReturn(payment("2", "a"));
+
+		onTest.listPayments(TOKEN);
+		Duration loaded = expiresAfter(paymentsCache);
+		Thread.sleep(20);
+		onTest.createPayment(TOKEN, payment(null, "a"));
+
+		assertThat(onTest.listPayments(TOKEN)).hasSize(2);
+		assertThat(expiresAfter(paymentsCache)).isLessThanOrEqualTo(loaded.minusMillis(20));
+	}
+
+	@Test
+	public void testSummarizePayments_includesCreatedPayments() throws Exception {
+		when(delegate.listPayments(TOKEN)).thenReturn(Arrays.asList(payment("1", "a"), payment("2", "b")));
+		when(delegate.createPayment(eq(TOKEN), any(Payment.class))).thenReturn(payment("3", "a"));
+
+		onTest.summarizePayments(TOKEN, null);
+		onTest.createPayment(TOKEN, payment(null, "a"));
+
+		List<PaymentSummary> summaries = onTest.summarizePayments(TOKEN, Collections.singleton("a"));
+		assertThat(summaries).extracting(PaymentSummary::getCount).containsExactly(2L);
+		assertThat(summaries.get(0).getTotal()).isEqualTo(Amount.parse("21.98"));
+		verify(delegate, times(1)).listPayments(TOKEN);
+	}
+
+	@Test
+	public void testPaymentsSnapshot_hashChangesWithCreatedPayments() throws Exception {
+		when(delegate.listPayments(TOKEN)).thenReturn(Collections.singletonList(new Payment("1", Status.paid, "a", Currency.GBP, 1099)));
+		when(delegate.createPayment(eq(TOKEN), any(Payment.class))).thenReturn(new Payment("2", Status.paid, "a", Currency.GBP, 500));
+		long before = onTest.paymentsSnapshot(TOKEN).getContentHash();
+
+		assertThat(onTest.paymentsSnapshot(TOKEN).getContentHash()).isEqualTo(before);
+		onTest.createPayment(TOKEN, new Payment());
+
+		assertThat(onTest.paymentsSnapshot(TOKEN).getContentHash()).isNotEqualTo(before);
+		verify(delegate, times(1)).listPayments(TOKEN);
+	}
+
+	@Test
+	public void testStreamPayments_usesCachedIndexWhenPresent() throws Exception {
+		when(delegate.listPayments(TOKEN)).thenReturn(Arrays.asList(payment("1", "a")));
+		onTest.listPayments(TOKEN);
+
+		List<Payment> streamed = new ArrayList<>();
+		onTest.streamPayments(TOKEN, streamed::add);
+
+		assertThat(streamed).extracting(Payment::getId).containsExactly("1");
+		verify(delegate, never()).streamPayments(anyString(), any());
+	}
+
+	@Test
+	public void testStreamPayments_delegatesWithoutPopulating() throws Exception {
+		onTest.streamPayments(TOKEN, payment -> {});
+
+		verify(delegate).streamPayments(eq(TOKEN), any());
+		assertThat(paymentsCache.synchronous().getIfPresent(TOKEN)).isNull();
+	}
+
+	private Payment payment(String id, String recipientId) {
+		return new Payment(id, Status.paid, recipientId, Currency.GBP, 1099);
+	}
+
+	private static Duration expiresAfter(AsyncCache<String, ?> cache) {
+		return cache.synchronous().policy().expireVariably().orElseThrow().getExpiresAfter(TOKEN).orElseThrow();
+	}
+
+}
@@ -0,0 +1,103 @@
+package io.elken.fakebook.paymentservice.provider;
+
+import io.elken.fakebook.paymentservice.domain.Currency;
+import io.elken.fakebook.paymentservice.domain.Payment;
+import io.elken.fakebook.paymentservice.domain.Status;
+import io.elken.fakebook.paymentservice.exception.ServiceException;
+import io.elken.fakebook.paymentservice.exception.UnauthorizedException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class MeteredPaymentProviderTest {
+
+	private static final String TOKEN = "token";
+
+	private PaymentProvider delegate;
+	private MeterRegistry registry;
+
+	private MeteredPaymentProvider onTest;
+
+	@Before
+	public void setup() throws Exception {
+		delegate = mock(PaymentProvider.class);
+		registry = new SimpleMeterRegistry();
+
+		onTest = new MeteredPaymentProvider(delegate, registry, true);
+	}
+
+	@Test
+	public void testListPayments_timed() throws Exception {
+		List<Payment> payments = Collections.singletonList(new Payment("1", Status.paid, "recipient", Currency.GBP, 1099));
+		when(delegate.listPayments(TOKEN)).thenReturn(payments);
+
+		assertThat(onTest.listPayments(TOKEN)).isEqualTo(payments);
+		assertThat(onTest.listPayments(TOKEN)).isEqualTo(payments);
+
+		assertThat(timer("listPayments", "none").count()).isEqualTo(2);
+	}
+
+	@Test
+	public void testListRecipients_timedByException() throws Exception {
+		when(delegate.listRecipients(TOKEN))
+				.thenThrow(new UnauthorizedException())
+				.thenThrow(new ServiceException())
+				.thenThrow(new IllegalStateException());
+
+		for (int i = 0; i < 3; i++) {
+			try {
+				onTest.listRecipients(TOKEN);
+			} catch (RuntimeException expected) {
+			}
+		}
+
+		assertThat(timer("listRecipients", "UnauthorizedException").count()).isEqualTo(1);
+		assertThat(timer("listRecipients", "ServiceException").count()).isEqualTo(1);
+		assertThat(timer("listRecipients", "other").count()).isEqualTo(1);
+	}
+
+	@Test
+	public void testCreatePayment_countedByCurrency() throws Exception {
+		when(delegate.createPayment(eq(TOKEN), any(Payment.class))).thenAnswer(invocation -> invocation.getArgument(1));
+
+		onTest.createPayment(TOKEN, new Payment(null, Status.paid, "recipient", Currency.USD, 1));
+		onTest.createPayment(TOKEN, new Payment(null, Status.paid, "recipient", Currency.USD, 2));
+		onTest.createPayment(TOKEN, new Payment(null, Status.paid, "recipient", Currency.EUR, 3));
+
+		assertThat(registry.find("coolpay.payments.created").tags("currency", "USD").counter().count()).isEqualTo(2);
+		assertThat(registry.find("coolpay.payments.created").tags("currency", "EUR").counter().count()).isEqualTo(1);
+		assertThat(registry.find("coolpay.payments.created").tags("currency", "GBP").counter().count()).isZero();
+		assertThat(timer("createPayment", "none").count()).isEqualTo(3);
+	}
+
+	@Test
+	public void testCreatePayment_failureNotCounted() throws Exception {
+		when(delegate.createPayment(eq(TOKEN), any(Payment.class))).thenThrow(new ServiceException());
+
+		try {
+			onTest.createPayment(TOKEN, new Payment(null, Status.paid, "recipient", Currency.GBP, 1));
+		} catch (ServiceException expected) {
+		}
+
+		assertThat(registry.find("coolpay.payments.created").tags("currency", "GBP").counter().count()).isZero();
+		assertThat(timer("createPayment", "ServiceException").count()).isEqualTo(1);
+	}
+
+	private Timer timer(String method, String exception) {
+		Timer timer = registry.find("coolpay.provider").tags("method", method, "exception", exception).timer();
+		assertThat(timer).isNotNull();
+		return timer;
+	}
+
+}
@@ -13,18 +13,29 @@ import io.elken.fakebook.paymentservice.provider.api.coolpay.PaymentWrapper;
 import io.elken.fakebook.paymentservice.provider.api.coolpay.PaymentsResponse;
 import io.elken.fakebook.paymentservice.provider.api.coolpay.RecipientWrapper;
 import io.elken.fakebook.paymentservice.provider.api.coolpay.RecipientsResponse;
+import io.elken.fakebook.paymentservice.resilience.SingleFlight;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.test.web.client.DefaultRequestExpectation;
+import org.springframework.test.web.client.ExpectedCount;
 import org.springframework.test.web.client.MockRestServiceServer;
 import org.springframework.test.web.client.response.MockRestResponseCreators;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
 import static org.springframework.http.HttpHeaders.CONTENT_TYPE;
 import static org.springframework.http.HttpMethod.GET;
 import static org.springframework.http.HttpMethod.POST;
@@ -47,6 +58,7 @@ public class RestCoolpayPaymentProviderTest {
 
 	private MockRestServiceServer mockCoolpayServer;
 	private ObjectMapper objectMapper;
+	private SingleFlight<String, Object> reads;
 
 	private RestCoolpayPaymentProvider onTest;
 
@@ -56,7 +68,8 @@ public class RestCoolpayPaymentProviderTest {
 		RestTemplate restTemplate = new RestTemplate();
 		mockCoolpayServer = MockRestServiceServer.createServer(restTemplate);
 
-		onTest = new RestCoolpayPaymentProvider(restTemplate, COOLPAY_BASE_URI);
+		reads = new SingleFlight<>();
+		onTest = new RestCoolpayPaymentProvider(restTemplate, COOLPAY_BASE_URI, reads);
 	}
 
 	@Test
@@ -176,7 +189,7 @@ public class RestCoolpayPaymentProviderTest {
 
 	@Test
 	public void testListPayments() throws Exception {
-		Payment payment = new Payment("1", Status.paid, "recipient", Currency.EUR, 10.09);
+		Payment payment = new Payment("1", Status.paid, "recipient", Currency.EUR, 1009);
 		PaymentsResponse paymentsResponse = new PaymentsResponse(Collections.singletonList(payment));
 
 		mockCoolpayServer.expect(requestTo(COOLPAY_BASE_URI + "/payments"))
@@ -191,6 +204,28 @@ public class RestCoolpayPaymentProviderTest {
 		assertThat(payments.get(0).getId()).isEqualTo("1");
 	}
 
+	@Test
+	public void testListPayments_uncoalescedBypassesSingleFlight() throws Exception {
+		String response = objectMapper.writeValueAsString(new PaymentsResponse(Collections.singletonList(payment("1"))));
+		mockCoolpayServer.expect(ExpectedCount.times(2), requestTo(COOLPAY_BASE_URI + "/payments"))
+				.andRespond(withSuccess(response, APPLICATION_JSON));
+
+		assertThat(onTest.uncoalesced().listPayments(COOLPAY_TOKEN)).hasSize(1);
+		assertThat(reads.getCalls()).isZero();
+		assertThat(onTest.listPayments(COOLPAY_TOKEN)).hasSize(1);
+		assertThat(reads.getCalls()).isEqualTo(1);
+	}
+
+	@Test
+	public void testListPayments_whenResponseMalformed() throws Exception {
+		mockCoolpayServer.expect(requestTo(COOLPAY_BASE_URI + "/payments"))
+				.andRespond(withSuccess("{\"payments\":[{\"id\":", APPLICATION_JSON));
+
+		assertThatThrownBy(() -> onTest.listPayments(COOLPAY_TOKEN))
+				.isInstanceOf(RestClientException.class)
+				.isNotInstanceOf(ResourceAccessException.class);
+	}
+
 	@Test(expected = UnauthorizedException.class)
 	public void testListPayments_whenTokenNull() throws Exception {
 		onTest.listPayments(null);
@@ -217,6 +252,80 @@ public class RestCoolpayPaymentProviderTest {
 		onTest.listPayments(COOLPAY_TOKEN);
 	}
 
+	@Test
+	public void testStreamPayments() throws Exception {
+		PaymentsResponse paymentsResponse = new PaymentsResponse(Arrays.asList(payment("1"), payment("2"), payment("3")));
+
+		mockCoolpayServer.expect(requestTo(COOLPAY_BASE_URI + "/payments"))
+				.andExpect(method(GET))
+				.andExpect(header("Authorization", COOLPAY_TOKEN_HEADER))
+				.andRespond(withSuccess(objectMapper.writeValueAsString(paymentsResponse), APPLICATION_JSON));
+
+		List<Payment> payments = new ArrayList<>();
+		onTest.streamPayments(COOLPAY_TOKEN, payments::add);
+
+		assertThat(payments).extracting(Payment::getId).containsExactly("1", "2", "3");
+		assertThat(payments.get(0).getCurrency()).isEqualTo(Currency.EUR);
+		assertThat(payments.get(0).getRecipientId()).isEqualTo("recipient");
+	}
+
+	@Test
+	public void testStreamPayments_closesUpstreamBeforeConsuming() throws Exception {
+		RestTemplate restTemplate = new RestTemplate();
+		MockRestServiceServer server = MockRestServiceServer.createServer(restTemplate);
+		AtomicBoolean closed = new AtomicBoolean();
+		restTemplate.setInterceptors(Collections.singletonList((request, body, execution) -> {
+			ClientHttpResponse response = spy(execution.execute(request, body));
+			doAnswer(invocation -> {
+				closed.set(true);
+				return invocation.callRealMethod();
+			}).when(response).close();
+			return response;
+		}));
+		server.expect(requestTo(COOLPAY_BASE_URI + "/payments"))
+				.andRespond(withSuccess(objectMapper.writeValueAsString(new PaymentsResponse(Arrays.asList(payment("1"), payment("2")))),
+						APPLICATION_JSON));
+
+		List<Boolean> closedWhenConsumed = new ArrayList<>();
+		new RestCoolpayPaymentProvider(restTemplate, COOLPAY_BASE_URI).streamPayments(COOLPAY_TOKEN,
+				payment -> closedWhenConsumed.add(closed.get()));
+
+		assertThat(closedWhenConsumed).containsExactly(true, true);
+	}
+
+	@Test
+	public void testStreamPayments_skipsUnknownFields() throws Exception {
+		mockCoolpayServer.expect(requestTo(COOLPAY_BASE_URI + "/payments"))
+				.andRespond(withSuccess("{\"meta\":{\"page\":[1,2]},\"payments\":[{\"id\":\"1\",\"amount\":\"1.5\",\"currency\":\"GBP\"}],\"count\":1}", APPLICATION_JSON));
+
+		List<Payment> payments = new ArrayList<>();
+		onTest.streamPayments(COOLPAY_TOKEN, payments::add);
+
+		assertThat(payments).extracting(Payment::getId).containsExactly("1");
+		assertThat(payments).extracting(Payment::getAmount).containsExactly(150L);
+	}
+
+	@Test(expected = UnauthorizedException.class)
+	public void testStreamPayments_whenTokenNull() throws Exception {
+		onTest.streamPayments(null, payment -> {});
+	}
+
+	@Test(expected = UnauthorizedException.class)
+	public void testStreamPayments_whenUnauthorized() throws Exception {
+		mockCoolpayServer.expect(requestTo(COOLPAY_BASE_URI + "/payments"))
+				.andRespond(withUnauthorizedRequest());
+
+		onTest.streamPayments(COOLPAY_TOKEN, payment -> {});
+	}
+
+	@Test(expected = ServiceException.class)
+	public void testStreamPayments_whenServerError() throws Exception {
+		mockCoolpayServer.expect(requestTo(COOLPAY_BASE_URI + "/payments"))
+				.andRespond(withServerError());
+
+		onTest.streamPayments(COOLPAY_TOKEN, payment -> {});
+	}
+
 	@Test
 	public void testCreatePayment() throws Exception {
 		Payment paymentResponse = payment("1");
@@ -260,7 +369,7 @@ public class RestCoolpayPaymentProviderTest {
 	}
 
 	private Payment payment(String id) {
-		return new Payment(id, Status.paid, "recipient", Currency.EUR, 10.99);
+		return new Payment(id, Status.paid, "recipient", Currency.EUR, 1099);
 	}
 
 }
@@ -0,0 +1,224 @@
+package io.elken.fakebook.paymentservice.provider;
+
+import io.elken.fakebook.paymentservice.domain.Currency;
+import io.elken.fakebook.paymentservice.domain.Payment;
+import io.elken.fakebook.paymentservice.domain.Recipient;
+import io.elken.fakebook.paymentservice.domain.Status;
+import io.elken.fakebook.paymentservice.exception.ServiceException;
+import io.elken.fakebook.paymentservice.exception.UnauthorizedException;
+import io.elken.fakebook.paymentservice.resilience.LatencyTracker;
+import io.elken.fakebook.paymentservice.resilience.RetryBudget;
+import io.elken.fakebook.paymentservice.resilience.RetryPolicy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RetryingPaymentProviderTest {
+
+	private static final String TOKEN = "token";
+	private static final List<Payment> PAYMENTS = Collections.singletonList(new Payment("1", Status.paid, "recipient", Currency.GBP, 1099));
+
+	private PaymentProvider delegate;
+	private RetryBudget budget;
+	private ExecutorService hedgeExecutor;
+
+	private RetryingPaymentProvider onTest;
+
+	@Before
+	public void setup() throws Exception {
+		delegate = mock(PaymentProvider.class);
+		budget = new RetryBudget(0.1, 10, 10);
+		hedgeExecutor = Executors.newFixedThreadPool(4);
+
+		onTest = retrying(null);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		hedgeExecutor.shutdownNow();
+	}
+
+	@Test
+	public void testListPayments_retriesServiceErrors() throws Exception {
+		when(delegate.listPayments(TOKEN))
+				.thenThrow(new ServiceException())
+				.thenThrow(new ResourceAccessException("reset"))
+				.thenReturn(PAYMENTS);
+
+		assertThat(onTest.listPayments(TOKEN)).isEqualTo(PAYMENTS);
+		assertThat(onTest.getRetries()).isEqualTo(2);
+	}
+
+	@Test(expected = ServiceException.class)
+	public void testListPayments_boundedAttempts() throws Exception {
+		when(delegate.listPayments(TOKEN)).thenThrow(new ServiceException());
+
+		try {
+			onTest.listPayments(TOKEN);
+		} finally {
+			verify(delegate, times(3)).listPayments(TOKEN);
+		}
+	}
+
+	@Test(expected = UnauthorizedException.class)
+	public void testListRecipients_doesNotRetryClientErrors() throws Exception {
+		when(delegate.listRecipients(TOKEN)).thenThrow(new UnauthorizedException());
+
+		try {
+			onTest.listRecipients(TOKEN);
+		} finally {
+			verify(delegate, times(1)).listRecipients(TOKEN);
+		}
+	}
+
+	@Test
+	public void testListPayments_stopsWhenBudgetExhausted() throws Exception {
+		budget = new RetryBudget(0.1, 1, 10);
+		onTest = retrying(null);
+		when(delegate.listPayments(TOKEN)).thenThrow(new ServiceException());
+
+		for (int i = 0; i < 2; i++) {
+			try {
+				onTest.listPayments(TOKEN);
+			} catch (ServiceException expected) {
+			}
+		}
+
+		verify(delegate, times(3)).listPayments(TOKEN);
+		assertThat(budget.getExhausted()).isEqualTo(2);
+	}
+
+	@Test(expected = ServiceException.class)
+	public void testCreatePayment_neverRetried() throws Exception {
+		when(delegate.createPayment(any(), any(Payment.class))).thenThrow(new ServiceException());
+
+		try {
+			onTest.createPayment(TOKEN, PAYMENTS.get(0));
+		} finally {
+			verify(delegate, times(1)).createPayment(any(), any(Payment.class));
+		}
+	}
+
+	@Test(expected = ServiceException.class)
+	public void testCreateRecipient_neverRetried() throws Exception {
+		when(delegate.createRecipient(any(), any(Recipient.class))).thenThrow(new ServiceException());
+
+		try {
+			onTest.createRecipient(TOKEN, new Recipient(null, "Fred"));
+		} finally {
+			verify(delegate, times(1)).createRecipient(any(), any(Recipient.class));
+		}
+	}
+
+	@Test
+	public void testListPayments_hedgesSlowRead() throws Exception {
+		onTest = retrying(hedgeExecutor);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger calls = new AtomicInteger();
+		when(delegate.listPayments(TOKEN)).thenAnswer(invocation -> {
+			if (calls.incrementAndGet() == 1) {
+				release.await(5, TimeUnit.SECONDS);
+			}
+			return PAYMENTS;
+		});
+
+		try {
+			assertThat(onTest.listPayments(TOKEN)).isEqualTo(PAYMENTS);
+		} finally {
+			release.countDown();
+		}
+
+		assertThat(calls.get()).isEqualTo(2);
+		assertThat(onTest.getHedges()).isEqualTo(1);
+		assertThat(onTest.getHedgeWins()).isEqualTo(1);
+	}
+
+	@Test
+	public void testListPayments_noHedgeForFastRead() throws Exception {
+		onTest = retrying(hedgeExecutor);
+		when(delegate.listPayments(TOKEN)).thenReturn(PAYMENTS);
+
+		assertThat(onTest.listPayments(TOKEN)).isEqualTo(PAYMENTS);
+
+		verify(delegate, times(1)).listPayments(TOKEN);
+		assertThat(onTest.getHedges()).isZero();
+	}
+
+	@Test
+	public void testListPayments_hedgeFailureFallsBackToPrimary() throws Exception {
+		onTest = retrying(hedgeExecutor);
+		AtomicInteger calls = new AtomicInteger();
+		when(delegate.listPayments(TOKEN)).thenAnswer(invocation -> {
+			if (calls.incrementAndGet() == 1) {
+				Thread.sleep(200);
+				return PAYMENTS;
+			}
+			throw new UnauthorizedException();
+		});
+
+		assertThat(onTest.listPayments(TOKEN)).isEqualTo(PAYMENTS);
+		assertThat(onTest.getHedgeWins()).isZero();
+	}
+
+	@Test
+	public void testListPayments_retriesBypassCoalescing() throws Exception {
+		PaymentProvider uncoalesced = mock(PaymentProvider.class);
+		onTest = retrying(uncoalesced, null);
+		when(delegate.listPayments(TOKEN)).thenThrow(new ServiceException());
+		when(uncoalesced.listPayments(TOKEN)).thenThrow(new ServiceException()).thenReturn(PAYMENTS);
+
+		assertThat(onTest.listPayments(TOKEN)).isEqualTo(PAYMENTS);
+
+		verify(delegate, times(1)).listPayments(TOKEN);
+		verify(uncoalesced, times(2)).listPayments(TOKEN);
+	}
+
+	@Test
+	public void testListPayments_hedgeBypassesCoalescing() throws Exception {
+		PaymentProvider uncoalesced = mock(PaymentProvider.class);
+		onTest = retrying(uncoalesced, hedgeExecutor);
+		CountDownLatch release = new CountDownLatch(1);
+		when(delegate.listPayments(TOKEN)).thenAnswer(invocation -> {
+			release.await(5, TimeUnit.SECONDS);
+			return PAYMENTS;
+		});
+		when(uncoalesced.listPayments(TOKEN)).thenReturn(PAYMENTS);
+
+		try {
+			assertThat(onTest.listPayments(TOKEN)).isEqualTo(PAYMENTS);
+		} finally {
+			release.countDown();
+		}
+
+		verify(uncoalesced, times(1)).listPayments(TOKEN);
+		assertThat(onTest.getHedgeWins()).isEqualTo(1);
+	}
+
+	private RetryingPaymentProvider retrying(ExecutorService executor) {
+		return retrying(delegate, executor);
+	}
+
+	private RetryingPaymentProvider retrying(PaymentProvider uncoalesced, ExecutorService executor) {
+		RetryPolicy retryPolicy = new RetryPolicy(3, 0, 0, budget);
+		LatencyTracker latencyTracker = new LatencyTracker(64, 0.95, TimeUnit.MILLISECONDS.toNanos(50));
+		return new RetryingPaymentProvider(delegate, uncoalesced, retryPolicy, latencyTracker, executor,
+				TimeUnit.MILLISECONDS.toNanos(10));
+	}
+
+}
@@ -0,0 +1,205 @@
+package io.elken.fakebook.paymentservice.provider;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.elken.fakebook.paymentservice.domain.Currency;
+import io.elken.fakebook.paymentservice.domain.LoginRequest;
+import io.elken.fakebook.paymentservice.domain.LoginResponse;
+import io.elken.fakebook.paymentservice.domain.Payment;
+import io.elken.fakebook.paymentservice.domain.Recipient;
+import io.elken.fakebook.paymentservice.domain.Status;
+import io.elken.fakebook.paymentservice.exception.ServiceException;
+import io.elken.fakebook.paymentservice.exception.UnauthorizedException;
+import io.elken.fakebook.paymentservice.provider.api.coolpay.PaymentWrapper;
+import io.elken.fakebook.paymentservice.provider.api.coolpay.PaymentsResponse;
+import io.elken.fakebook.paymentservice.provider.api.coolpay.RecipientWrapper;
+import io.elken.fakebook.paymentservice.provider.api.coolpay.RecipientsResponse;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.test.StepVerifier;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.http.HttpHeaders.AUTHORIZATION;
+import static org.springframework.http.HttpHeaders.CONTENT_TYPE;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+public class WebClientCoolpayPaymentProviderTest {
+
+	private static final String COOLPAY_TOKEN = "someToken";
+	private static final String COOLPAY_TOKEN_HEADER = "Bearer " + COOLPAY_TOKEN;
+
+	private MockWebServer mockCoolpayServer;
+	private ObjectMapper objectMapper;
+
+	private WebClientCoolpayPaymentProvider onTest;
+
+	@Before
+	public void setup() throws Exception {
+		objectMapper = new ObjectMapper();
+		mockCoolpayServer = new MockWebServer();
+		mockCoolpayServer.start();
+
+		String coolpayBaseUri = mockCoolpayServer.url("/api").toString();
+		onTest = new WebClientCoolpayPaymentProvider(WebClient.builder().build(), coolpayBaseUri, 2000);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		mockCoolpayServer.shutdown();
+	}
+
+	@Test
+	public void testLogin() throws Exception {
+		LoginRequest loginRequest = new LoginRequest("user", "apikey");
+		respondWith(200, new LoginResponse(COOLPAY_TOKEN));
+
+		StepVerifier.create(onTest.login(loginRequest))
+				.assertNext(response -> assertThat(response.getToken()).isEqualTo(COOLPAY_TOKEN))
+				.verifyComplete();
+
+		RecordedRequest request = mockCoolpayServer.takeRequest();
+		assertThat(request.getMethod()).isEqualTo("POST");
+		assertThat(request.getPath()).isEqualTo("/api/login");
+		assertThat(request.getHeader(CONTENT_TYPE)).startsWith(APPLICATION_JSON_VALUE);
+		assertThat(request.getBody().readUtf8()).isEqualTo(objectMapper.writeValueAsString(loginRequest));
+	}
+
+	@Test
+	public void testLogin_whenLoginFails() throws Exception {
+		mockCoolpayServer.enqueue(new MockResponse().setResponseCode(404));
+
+		StepVerifier.create(onTest.login(new LoginRequest("user", "apikey")))
+				.verifyError(UnauthorizedException.class);
+	}
+
+	@Test
+	public void testLogin_whenCoolpayFails() throws Exception {
+		mockCoolpayServer.enqueue(new MockResponse().setResponseCode(500));
+
+		StepVerifier.create(onTest.login(new LoginRequest("user", "apikey")))
+				.verifyError(ServiceException.class);
+	}
+
+	@Test
+	public void testLogin_whenCoolpayTimesOut() throws Exception {
+		mockCoolpayServer.enqueue(new MockResponse().setResponseCode(200).setHeadersDelay(5, TimeUnit.SECONDS));
+
+		StepVerifier.create(onTest.login(new LoginRequest("user", "apikey")))
+				.verifyError(ServiceException.class);
+	}
+
+	@Test
+	public void testListRecipients() throws Exception {
+		respondWith(200, new RecipientsResponse(Arrays.asList(new Recipient("1", "Joe Cool"), new Recipient("2", "Jim Beam"))));
+
+		StepVerifier.create(onTest.listRecipients(COOLPAY_TOKEN))
+				.assertNext(recipient -> assertThat(recipient.getId()).isEqualTo("1"))
+				.assertNext(recipient -> assertThat(recipient.getId()).isEqualTo("2"))
+				.verifyComplete();
+
+		RecordedRequest request = mockCoolpayServer.takeRequest();
+		assertThat(request.getMethod()).isEqualTo("GET");
+		assertThat(request.getPath()).isEqualTo("/api/recipients");
+		assertThat(request.getHeader(AUTHORIZATION)).isEqualTo(COOLPAY_TOKEN_HEADER);
+	}
+
+	@Test
+	public void testListRecipients_whenTokenEmpty() throws Exception {
+		StepVerifier.create(onTest.listRecipients("   "))
+				.verifyError(UnauthorizedException.class);
+
+		assertThat(mockCoolpayServer.getRequestCount()).isZero();
+	}
+
+	@Test
+	public void testListRecipients_whenUnauthorized() throws Exception {
+		mockCoolpayServer.enqueue(new MockResponse().setResponseCode(401));
+
+		StepVerifier.create(onTest.listRecipients(COOLPAY_TOKEN))
+				.verifyError(UnauthorizedException.class);
+	}
+
+	@Test
+	public void testCreateRecipient() throws Exception {
+		respondWith(200, new RecipientWrapper(new Recipient("1", "Jim Beam")));
+
+		StepVerifier.create(onTest.createRecipient(COOLPAY_TOKEN, new Recipient(null, "Jim Beam")))
+				.assertNext(recipient -> assertThat(recipient.getId()).isEqualTo("1"))
+				.verifyComplete();
+
+		RecordedRequest request = mockCoolpayServer.takeRequest();
+		assertThat(request.getMethod()).isEqualTo("POST");
+		assertThat(request.getPath()).isEqualTo("/api/recipients");
+		assertThat(request.getHeader(AUTHORIZATION)).isEqualTo(COOLPAY_TOKEN_HEADER);
+	}
+
+	@Test
+	public void testCreateRecipient_whenServerError() throws Exception {
+		mockCoolpayServer.enqueue(new MockResponse().setResponseCode(503));
+
+		StepVerifier.create(onTest.createRecipient(COOLPAY_TOKEN, new Recipient(null, "Jim Beam")))
+				.verifyError(ServiceException.class);
+	}
+
+	@Test
+	public void testListPayments() throws Exception {
+		respondWith(200, new PaymentsResponse(Collections.singletonList(new Payment("1", Status.paid, "recipient", Currency.EUR, 1009))));
+
+		StepVerifier.create(onTest.listPayments(COOLPAY_TOKEN))
+				.assertNext(payment -> assertThat(payment.getId()).isEqualTo("1"))
+				.verifyComplete();
+
+		RecordedRequest request = mockCoolpayServer.takeRequest();
+		assertThat(request.getMethod()).isEqualTo("GET");
+		assertThat(request.getPath()).isEqualTo("/api/payments");
+	}
+
+	@Test
+	public void testListPayments_whenTokenNull() throws Exception {
+		StepVerifier.create(onTest.listPayments(null))
+				.verifyError(UnauthorizedException.class);
+	}
+
+	@Test
+	public void testCreatePayment() throws Exception {
+		respondWith(200, new PaymentWrapper(payment("1")));
+
+		StepVerifier.create(onTest.createPayment(COOLPAY_TOKEN, payment(null)))
+				.assertNext(payment -> assertThat(payment.getId()).isEqualTo("1"))
+				.verifyComplete();
+
+		RecordedRequest request = mockCoolpayServer.takeRequest();
+		assertThat(request.getMethod()).isEqualTo("POST");
+		assertThat(request.getPath()).isEqualTo("/api/payments");
+		assertThat(request.getHeader(AUTHORIZATION)).isEqualTo(COOLPAY_TOKEN_HEADER);
+		assertThat(request.getBody().readUtf8()).isEqualTo(objectMapper.writeValueAsString(new PaymentWrapper(payment(null))));
+	}
+
+	@Test
+	public void testCreatePayment_whenUnauthorized() throws Exception {
+		mockCoolpayServer.enqueue(new MockResponse().setResponseCode(401));
+
+		StepVerifier.create(onTest.createPayment(COOLPAY_TOKEN, payment(null)))
+				.verifyError(UnauthorizedException.class);
+	}
+
+	private void respondWith(int status, Object body) throws Exception {
+		mockCoolpayServer.enqueue(new MockResponse()
+				.setResponseCode(status)
+				.setHeader(CONTENT_TYPE, APPLICATION_JSON_VALUE)
+				.setBody(objectMapper.writeValueAsString(body)));
+	}
+
+	private Payment payment(String id) {
+		return new Payment(id, Status.paid, "recipient", Currency.EUR, 1099);
+	}
+
+}
@@ -0,0 +1,104 @@
+package io.elken.fakebook.paymentservice.ratelimit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RateLimitInterceptorTest {
+
+	private AtomicLong now;
+	private RateLimitRule payments;
+	private RateLimitRule other;
+	private RateLimitInterceptor onTest;
+
+	@Before
+	public void setup() throws Exception {
+		now = new AtomicLong(SECONDS.toNanos(100));
+		payments = new RateLimitRule("/coolpay/**/payments/**", "POST", SECONDS.toNanos(1), 2,
+				new RateLimit(MILLISECONDS.toNanos(100), 3), 100);
+		other = new RateLimitRule("/coolpay/**", null, 0, 0, new RateLimit(MILLISECONDS.toNanos(100), 1), 100);
+		onTest = new RateLimitInterceptor(Arrays.asList(payments, other), now::get);
+	}
+
+	@Test
+	public void testPerTokenLimit() throws Exception {
+		assertThat(allowed("POST", "/coolpay/payments", "a")).isTrue();
+		assertThat(allowed("POST", "/coolpay/payments", "a")).isTrue();
+
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		assertThat(onTest.preHandle(request("POST", "/coolpay/payments", "a"), response, null)).isFalse();
+		assertThat(response.getStatus()).isEqualTo(429);
+		assertThat(response.getHeader("Retry-After")).isEqualTo("1");
+		assertThat(payments.getTokenRejections()).isEqualTo(1);
+
+		assertThat(allowed("POST", "/coolpay/payments", "b")).isTrue();
+		assertThat(payments.getTrackedTokens()).isEqualTo(2);
+	}
+
+	@Test
+	public void testGlobalLimit() throws Exception {
+		assertThat(allowed("POST", "/coolpay/payments", "a")).isTrue();
+		assertThat(allowed("POST", "/coolpay/payments", "b")).isTrue();
+		assertThat(allowed("POST", "/coolpay/payments/batch", "c")).isTrue();
+		assertThat(allowed("POST", "/coolpay/reactive/payments", "d")).isFalse();
+		assertThat(payments.getGlobalRejections()).isEqualTo(1);
+
+		now.addAndGet(MILLISECONDS.toNanos(100));
+		assertThat(allowed("POST", "/coolpay/payments", "d")).isTrue();
+	}
+
+	@Test
+	public void testGlobalRejectionDoesNotChargeToken() throws Exception {
+		assertThat(allowed("POST", "/coolpay/payments", "a")).isTrue();
+		assertThat(allowed("POST", "/coolpay/payments", "b")).isTrue();
+		assertThat(allowed("POST", "/coolpay/payments", "b")).isTrue();
+		assertThat(allowed("POST", "/coolpay/payments", "a")).isFalse();
+		assertThat(payments.getGlobalRejections()).isEqualTo(1);
+
+		now.addAndGet(MILLISECONDS.toNanos(100));
+		assertThat(allowed("POST", "/coolpay/payments", "a")).isTrue();
+		assertThat(payments.getTokenRejections()).isZero();
+	}
+
+	@Test
+	public void testFallsThroughToNextRule() throws Exception {
+		assertThat(allowed("GET", "/coolpay/payments", "a")).isTrue();
+		assertThat(allowed("GET", "/coolpay/recipients", "a")).isFalse();
+		assertThat(other.getGlobalRejections()).isEqualTo(1);
+	}
+
+	@Test
+	public void testUnmatchedPathsAreNotLimited() throws Exception {
+		for (int i = 0; i < 10; i++) {
+			assertThat(allowed("GET", "/actuator/health", null)).isTrue();
+		}
+	}
+
+	@Test
+	public void testRequestsWithoutTokenShareABucket() throws Exception {
+		assertThat(allowed("POST", "/coolpay/payments", null)).isTrue();
+		assertThat(allowed("POST", "/coolpay/payments", null)).isTrue();
+		assertThat(allowed("POST", "/coolpay/payments", null)).isFalse();
+	}
+
+	private boolean allowed(String method, String path, String token) throws Exception {
+		return onTest.preHandle(request(method, path, token), new MockHttpServletResponse(), null);
+	}
+
+	private static MockHttpServletRequest request(String method, String path, String token) {
+		MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+		if (token != null) {
+			request.addHeader("Authorization", token);
+		}
+		return request;
+	}
+
+}
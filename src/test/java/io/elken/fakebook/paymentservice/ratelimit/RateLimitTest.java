@@ -0,0 +1,90 @@
+package io.elken.fakebook.paymentservice.ratelimit;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RateLimitTest {
+
+	private static final long INTERVAL = 100;
+
+	@Test
+	public void testAllowsBurstThenPaces() throws Exception {
+		RateLimit onTest = new RateLimit(INTERVAL, 3);
+
+		assertThat(onTest.tryAcquire(1000)).isZero();
+		assertThat(onTest.tryAcquire(1000)).isZero();
+		assertThat(onTest.tryAcquire(1000)).isZero();
+		assertThat(onTest.tryAcquire(1000)).isEqualTo(INTERVAL);
+		assertThat(onTest.tryAcquire(1050)).isEqualTo(50);
+		assertThat(onTest.tryAcquire(1100)).isZero();
+		assertThat(onTest.tryAcquire(1100)).isEqualTo(INTERVAL);
+	}
+
+	@Test
+	public void testRefillsWhileIdle() throws Exception {
+		RateLimit onTest = new RateLimit(INTERVAL, 2);
+		onTest.tryAcquire(0);
+		onTest.tryAcquire(0);
+
+		assertThat(onTest.tryAcquire(10_000)).isZero();
+		assertThat(onTest.tryAcquire(10_000)).isZero();
+		assertThat(onTest.tryAcquire(10_000)).isPositive();
+	}
+
+	@Test
+	public void testRejectionDoesNotConsume() throws Exception {
+		RateLimit onTest = new RateLimit(INTERVAL, 1);
+		onTest.tryAcquire(0);
+
+		for (int i = 0; i < 10; i++) {
+			assertThat(onTest.tryAcquire(50)).isEqualTo(50);
+		}
+		assertThat(onTest.tryAcquire(100)).isZero();
+	}
+
+	@Test
+	public void testRefundReturnsAcquiredPermit() throws Exception {
+		RateLimit onTest = new RateLimit(INTERVAL, 1);
+
+		assertThat(onTest.tryAcquire(1000)).isZero();
+		onTest.refund();
+
+		assertThat(onTest.tryAcquire(1000)).isZero();
+		assertThat(onTest.tryAcquire(1000)).isEqualTo(INTERVAL);
+	}
+
+	@Test
+	public void testConcurrentAcquiresNeverExceedBurst() throws Exception {
+		RateLimit onTest = new RateLimit(INTERVAL, 50);
+		AtomicInteger allowed = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				futures.add(executor.submit(() -> {
+					for (int j = 0; j < 1000; j++) {
+						if (onTest.tryAcquire(0) == 0) {
+							allowed.incrementAndGet();
+						}
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertThat(allowed.get()).isEqualTo(50);
+	}
+
+}
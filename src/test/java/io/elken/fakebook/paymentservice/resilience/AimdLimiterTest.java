@@ -0,0 +1,76 @@
+package io.elken.fakebook.paymentservice.resilience;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AimdLimiterTest {
+
+	private AimdLimiter onTest;
+
+	@Before
+	public void setup() throws Exception {
+		onTest = new AimdLimiter(4, 2, 6, 100, 0.5);
+	}
+
+	@Test
+	public void testShedsAboveLimit() throws Exception {
+		for (int i = 0; i < 4; i++) {
+			assertThat(onTest.tryAcquire()).isTrue();
+		}
+
+		assertThat(onTest.tryAcquire()).isFalse();
+		assertThat(onTest.getInFlight()).isEqualTo(4);
+
+		onTest.release();
+		assertThat(onTest.tryAcquire()).isTrue();
+	}
+
+	@Test
+	public void testIncreasesAdditivelyWhenSaturated() throws Exception {
+		for (int round = 0; round < 20; round++) {
+			int acquired = 0;
+			while (onTest.tryAcquire()) {
+				acquired++;
+			}
+			for (int i = 0; i < acquired; i++) {
+				onTest.onSuccess(10);
+			}
+		}
+
+		assertThat(onTest.getLimit()).isEqualTo(6);
+		assertThat(onTest.getInFlight()).isZero();
+	}
+
+	@Test
+	public void testDoesNotGrowWhenUnderused() throws Exception {
+		for (int i = 0; i < 100; i++) {
+			onTest.tryAcquire();
+			onTest.onSuccess(10);
+		}
+
+		assertThat(onTest.getLimit()).isEqualTo(4);
+	}
+
+	@Test
+	public void testDecreasesMultiplicativelyOnFailure() throws Exception {
+		onTest.tryAcquire();
+		onTest.onFailure();
+
+		assertThat(onTest.getLimit()).isEqualTo(2);
+
+		onTest.tryAcquire();
+		onTest.onFailure();
+		assertThat(onTest.getLimit()).isEqualTo(2);
+	}
+
+	@Test
+	public void testDecreasesOnSlowCalls() throws Exception {
+		onTest.tryAcquire();
+		onTest.onSuccess(101);
+
+		assertThat(onTest.getLimit()).isEqualTo(2);
+	}
+
+}
@@ -0,0 +1,109 @@
+package io.elken.fakebook.paymentservice.resilience;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CircuitBreakerTest {
+
+	private AtomicLong clock;
+
+	private CircuitBreaker onTest;
+
+	@Before
+	public void setup() throws Exception {
+		clock = new AtomicLong();
+		onTest = new CircuitBreaker("/payments", 50, 10, 4, 2, 1000, clock::get);
+	}
+
+	@Test
+	public void testStaysClosedBelowMinimumCalls() throws Exception {
+		for (int i = 0; i < 3; i++) {
+			assertThat(onTest.tryAcquire()).isTrue();
+			onTest.onFailure();
+		}
+
+		assertThat(onTest.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+	}
+
+	@Test
+	public void testOpensAtFailureRate() throws Exception {
+		onTest.onSuccess();
+		onTest.onSuccess();
+		onTest.onFailure();
+		assertThat(onTest.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+		onTest.onFailure();
+
+		assertThat(onTest.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+		assertThat(onTest.tryAcquire()).isFalse();
+		assertThat(onTest.getTransitions(CircuitBreaker.State.OPEN)).isEqualTo(1);
+	}
+
+	@Test
+	public void testSlidingWindowForgetsOldFailures() throws Exception {
+		onTest = new CircuitBreaker("/payments", 50, 4, 4, 2, 1000, clock::get);
+		onTest.onFailure();
+		for (int i = 0; i < 4; i++) {
+			onTest.onSuccess();
+		}
+		onTest.onFailure();
+
+		assertThat(onTest.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+	}
+
+	@Test
+	public void testHalfOpenProbesCloseCircuit() throws Exception {
+		open();
+		clock.set(1000);
+
+		assertThat(onTest.tryAcquire()).isTrue();
+		assertThat(onTest.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+		assertThat(onTest.tryAcquire()).isTrue();
+		assertThat(onTest.tryAcquire()).isFalse();
+
+		onTest.onSuccess();
+		onTest.onSuccess();
+
+		assertThat(onTest.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+		assertThat(onTest.tryAcquire()).isTrue();
+	}
+
+	@Test
+	public void testHalfOpenFailureReopens() throws Exception {
+		open();
+		clock.set(1000);
+
+		assertThat(onTest.tryAcquire()).isTrue();
+		onTest.onFailure();
+
+		assertThat(onTest.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+		clock.set(1999);
+		assertThat(onTest.tryAcquire()).isFalse();
+		clock.set(2000);
+		assertThat(onTest.tryAcquire()).isTrue();
+	}
+
+	@Test
+	public void testReleaseReturnsProbe() throws Exception {
+		open();
+		clock.set(1000);
+
+		assertThat(onTest.tryAcquire()).isTrue();
+		assertThat(onTest.tryAcquire()).isTrue();
+		onTest.release();
+
+		assertThat(onTest.tryAcquire()).isTrue();
+	}
+
+	private void open() {
+		for (int i = 0; i < 4; i++) {
+			onTest.onFailure();
+		}
+		assertThat(onTest.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+	}
+
+}
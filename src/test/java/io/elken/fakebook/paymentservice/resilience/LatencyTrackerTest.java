@@ -0,0 +1,90 @@
+package io.elken.fakebook.paymentservice.resilience;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LatencyTrackerTest {
+
+	@Test
+	public void testDefaultUntilWarm() throws Exception {
+		LatencyTracker onTest = new LatencyTracker(100, 0.95, 500);
+
+		for (int i = 0; i < 31; i++) {
+			onTest.record(10);
+		}
+
+		assertThat(onTest.getPercentileNanos()).isEqualTo(500);
+	}
+
+	@Test
+	public void testPercentile() throws Exception {
+		LatencyTracker onTest = new LatencyTracker(100, 0.95, 500);
+
+		for (int i = 1; i <= 128; i++) {
+			onTest.record(i % 100 + 1);
+		}
+
+		assertThat(onTest.getPercentileNanos()).isEqualTo(95);
+	}
+
+	@Test
+	public void testTracksRecentSamples() throws Exception {
+		LatencyTracker onTest = new LatencyTracker(64, 0.5, 500);
+
+		for (int i = 0; i < 64; i++) {
+			onTest.record(1000);
+		}
+		for (int i = 0; i < 64; i++) {
+			onTest.record(10);
+		}
+
+		assertThat(onTest.getPercentileNanos()).isEqualTo(10);
+	}
+
+	@Test
+	public void testLargeLatenciesWithinOnePercent() throws Exception {
+		LatencyTracker onTest = new LatencyTracker(64, 0.95, 500);
+		long latency = TimeUnit.MILLISECONDS.toNanos(50) + 12345;
+
+		for (int i = 0; i < 64; i++) {
+			onTest.record(latency);
+		}
+
+		assertThat(onTest.getPercentileNanos()).isBetween((long) (latency * 0.99), latency);
+	}
+
+	@Test
+	public void testConcurrentRecordsKeepWindowCounts() throws Exception {
+		LatencyTracker onTest = new LatencyTracker(64, 1.0, 500);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<?>> writers = new ArrayList<>();
+			for (int t = 0; t < 4; t++) {
+				writers.add(executor.submit(() -> {
+					for (int i = 0; i < 10000; i++) {
+						onTest.record(1000);
+					}
+				}));
+			}
+			for (Future<?> writer : writers) {
+				writer.get(10, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		for (int i = 0; i < 64; i++) {
+			onTest.record(10);
+		}
+
+		assertThat(onTest.getPercentileNanos()).isEqualTo(10);
+	}
+
+}
@@ -0,0 +1,190 @@
+package io.elken.fakebook.paymentservice.resilience;
+
+import io.elken.fakebook.paymentservice.exception.ServiceUnavailableException;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.springframework.test.web.client.ExpectedCount.manyTimes;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+public class ResilienceInterceptorTest {
+
+	private static final String BASE_URI = "http://coolpay.local/api";
+
+	private RestTemplate restTemplate;
+	private MockRestServiceServer server;
+	private EndpointGuard payments;
+	private EndpointGuard recipients;
+	private EndpointGuard fallback;
+
+	private ResilienceInterceptor onTest;
+
+	@Before
+	public void setup() throws Exception {
+		payments = guard("/payments");
+		recipients = guard("/recipients");
+		fallback = guard("other");
+		onTest = new ResilienceInterceptor(Arrays.asList(payments, recipients), fallback);
+
+		restTemplate = new RestTemplate();
+		server = MockRestServiceServer.bindTo(restTemplate).ignoreExpectOrder(true).build();
+		restTemplate.setInterceptors(Collections.singletonList(onTest));
+	}
+
+	@Test
+	public void testOpensCircuitPerEndpoint() throws Exception {
+		server.expect(manyTimes(), requestTo(BASE_URI + "/payments")).andRespond(withStatus(HttpStatus.INTERNAL_SERVER_ERROR));
+		server.expect(manyTimes(), requestTo(BASE_URI + "/recipients")).andRespond(withSuccess());
+
+		for (int i = 0; i < 2; i++) {
+			try {
+				restTemplate.getForObject(BASE_URI + "/payments", String.class);
+				fail("Expected server error");
+			} catch (HttpServerErrorException expected) {
+			}
+		}
+
+		assertThat(payments.getCircuitBreaker().getState()).isEqualTo(CircuitBreaker.State.OPEN);
+		try {
+			restTemplate.getForObject(BASE_URI + "/payments", String.class);
+			fail("Expected circuit to be open");
+		} catch (ServiceUnavailableException expected) {
+		}
+		assertThat(payments.getCircuitRejections()).isEqualTo(1);
+
+		restTemplate.getForObject(BASE_URI + "/recipients", String.class);
+		assertThat(recipients.getCircuitBreaker().getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+	}
+
+	@Test
+	public void testClientErrorsAreNotFailures() throws Exception {
+		server.expect(manyTimes(), requestTo(BASE_URI + "/payments")).andRespond(withStatus(HttpStatus.UNAUTHORIZED));
+
+		for (int i = 0; i < 3; i++) {
+			try {
+				restTemplate.getForObject(BASE_URI + "/payments", String.class);
+			} catch (RuntimeException expected) {
+			}
+		}
+
+		assertThat(payments.getCircuitBreaker().getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+		assertThat(payments.getLimiter().getInFlight()).isZero();
+	}
+
+	@Test
+	public void testShedsWhenLimitReached() throws Exception {
+		server.expect(manyTimes(), requestTo(BASE_URI + "/payments")).andRespond(withSuccess());
+		assertThat(payments.getLimiter().tryAcquire()).isTrue();
+
+		try {
+			restTemplate.getForObject(BASE_URI + "/payments", String.class);
+			fail("Expected limit to shed call");
+		} catch (ServiceUnavailableException expected) {
+		}
+		assertThat(payments.getLimitRejections()).isEqualTo(1);
+
+		payments.getLimiter().release();
+		restTemplate.getForObject(BASE_URI + "/payments", String.class);
+	}
+
+	@Test
+	public void testUnknownPathsUseFallback() throws Exception {
+		server.expect(manyTimes(), requestTo(BASE_URI + "/login")).andRespond(withStatus(HttpStatus.BAD_GATEWAY));
+
+		for (int i = 0; i < 2; i++) {
+			try {
+				restTemplate.getForObject(BASE_URI + "/login", String.class);
+			} catch (HttpServerErrorException expected) {
+			}
+		}
+
+		assertThat(fallback.getCircuitBreaker().getState()).isEqualTo(CircuitBreaker.State.OPEN);
+		assertThat(payments.getCircuitBreaker().getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+	}
+
+	@Test
+	public void testPermitHeldUntilBodyFullyRead() throws Exception {
+		MockClientHttpRequest request = new MockClientHttpRequest(HttpMethod.GET, URI.create(BASE_URI + "/payments"));
+		MockClientHttpResponse upstream = new MockClientHttpResponse("{}".getBytes(), HttpStatus.OK);
+
+		ClientHttpResponse response = onTest.intercept(request, new byte[0], (req, body) -> upstream);
+		assertThat(payments.getLimiter().getInFlight()).isEqualTo(1);
+		InputStream body = response.getBody();
+		body.read();
+		assertThat(payments.getLimiter().getInFlight()).isEqualTo(1);
+		body.readAllBytes();
+		assertThat(payments.getLimiter().getInFlight()).isZero();
+
+		response.close();
+		response.close();
+		assertThat(payments.getLimiter().getInFlight()).isZero();
+		assertThat(payments.getCircuitBreaker().getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+	}
+
+	@Test
+	public void testPermitReleasedWhenClosedUnread() throws Exception {
+		MockClientHttpRequest request = new MockClientHttpRequest(HttpMethod.GET, URI.create(BASE_URI + "/payments"));
+		MockClientHttpResponse upstream = new MockClientHttpResponse("{}".getBytes(), HttpStatus.OK);
+
+		onTest.intercept(request, new byte[0], (req, body) -> upstream).close();
+
+		assertThat(payments.getLimiter().getInFlight()).isZero();
+	}
+
+	@Test
+	public void testBodyReadFailureIsFailure() throws Exception {
+		MockClientHttpRequest request = new MockClientHttpRequest(HttpMethod.GET, URI.create(BASE_URI + "/payments"));
+		ClientHttpResponse upstream = new MockClientHttpResponse(new InputStream() {
+			@Override
+			public int read() throws IOException {
+				throw new IOException("reset");
+			}
+		}, HttpStatus.OK);
+
+		for (int i = 0; i < 2; i++) {
+			try (ClientHttpResponse response = onTest.intercept(request, new byte[0], (req, body) -> upstream)) {
+				response.getBody().read();
+				fail("Expected body read to fail");
+			} catch (IOException expected) {
+			}
+		}
+
+		assertThat(payments.getCircuitBreaker().getState()).isEqualTo(CircuitBreaker.State.OPEN);
+		assertThat(payments.getLimiter().getInFlight()).isZero();
+	}
+
+	@Test
+	public void testMatchesWholeSegments() throws Exception {
+		assertThat(ResilienceInterceptor.matches("/api/payments", "/payments")).isTrue();
+		assertThat(ResilienceInterceptor.matches("/api/payments/", "/payments")).isTrue();
+		assertThat(ResilienceInterceptor.matches("/payments", "payments")).isTrue();
+		assertThat(ResilienceInterceptor.matches("/api/xpayments", "payments")).isFalse();
+		assertThat(ResilienceInterceptor.matches("/api/payments/batch", "/payments")).isFalse();
+		assertThat(ResilienceInterceptor.matches("/s", "/payments")).isFalse();
+	}
+
+	private static EndpointGuard guard(String endpoint) {
+		return new EndpointGuard(endpoint,
+				new CircuitBreaker(endpoint, 50, 10, 2, 1, 60_000_000_000L, System::nanoTime),
+				new AimdLimiter(1, 1, 1, Long.MAX_VALUE, 0.5));
+	}
+
+}
@@ -0,0 +1,44 @@
+package io.elken.fakebook.paymentservice.resilience;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RetryBudgetTest {
+
+	@Test
+	public void testInitialRetriesThenExhausted() throws Exception {
+		RetryBudget onTest = new RetryBudget(0.1, 2, 10);
+
+		assertThat(onTest.tryWithdraw()).isTrue();
+		assertThat(onTest.tryWithdraw()).isTrue();
+		assertThat(onTest.tryWithdraw()).isFalse();
+		assertThat(onTest.getExhausted()).isEqualTo(1);
+	}
+
+	@Test
+	public void testDepositsEarnRetriesAtRatio() throws Exception {
+		RetryBudget onTest = new RetryBudget(0.1, 0, 10);
+
+		for (int i = 0; i < 9; i++) {
+			onTest.deposit();
+		}
+		assertThat(onTest.tryWithdraw()).isFalse();
+
+		onTest.deposit();
+		assertThat(onTest.tryWithdraw()).isTrue();
+		assertThat(onTest.getBalance()).isZero();
+	}
+
+	@Test
+	public void testBalanceCapped() throws Exception {
+		RetryBudget onTest = new RetryBudget(1, 0, 3);
+
+		for (int i = 0; i < 10; i++) {
+			onTest.deposit();
+		}
+
+		assertThat(onTest.getBalance()).isEqualTo(3);
+	}
+
+}
@@ -0,0 +1,181 @@
+package io.elken.fakebook.paymentservice.resilience;
+
+import io.elken.fakebook.paymentservice.exception.UnauthorizedException;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class SingleFlightTest {
+
+	private static final int WAITERS = 4;
+
+	private final SingleFlight<String, Object> onTest = new SingleFlight<>();
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testConcurrentCallsShareOneResult() throws Exception {
+		Object result = new Object();
+		AtomicInteger upstream = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+
+		List<Future<Object>> waiters = concurrently("key", () -> {
+			upstream.incrementAndGet();
+			await(release);
+			return result;
+		});
+		release.countDown();
+
+		for (Future<Object> waiter : waiters) {
+			assertThat(waiter.get(5, SECONDS)).isSameAs(result);
+		}
+		assertThat(upstream).hasValue(1);
+		assertThat(onTest.getCalls()).isEqualTo(1);
+		assertThat(onTest.getJoins()).isEqualTo(WAITERS - 1);
+		assertThat(onTest.getInFlight()).isZero();
+	}
+
+	@Test
+	public void testFailureReachesEveryWaiter() throws Exception {
+		UnauthorizedException failure = new UnauthorizedException();
+		CountDownLatch release = new CountDownLatch(1);
+
+		List<Future<Object>> waiters = concurrently("key", () -> {
+			await(release);
+			throw failure;
+		});
+		release.countDown();
+
+		Set<Throwable> thrown = Collections.newSetFromMap(new IdentityHashMap<>());
+		for (Future<Object> waiter : waiters) {
+			Throwable thrownByWaiter = catchThrowable(() -> waiter.get(5, SECONDS));
+			assertThat(thrownByWaiter).isInstanceOf(ExecutionException.class);
+			Throwable cause = thrownByWaiter.getCause();
+			assertThat(cause).isInstanceOf(UnauthorizedException.class);
+			assertThat(cause == failure ? cause : cause.getCause()).isSameAs(failure);
+			thrown.add(cause);
+		}
+		assertThat(thrown).hasSize(WAITERS);
+		assertThat(onTest.getInFlight()).isZero();
+	}
+
+	@Test
+	public void testWaitersKeepClientErrorStatus() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+
+		List<Future<Object>> waiters = concurrently("key", () -> {
+			await(release);
+			throw HttpClientErrorException.create(HttpStatus.NOT_FOUND, "Not Found", null, null, null);
+		});
+		release.countDown();
+
+		for (Future<Object> waiter : waiters) {
+			assertThatThrownBy(() -> waiter.get(5, SECONDS))
+					.isInstanceOf(ExecutionException.class)
+					.cause()
+					.isInstanceOf(HttpClientErrorException.NotFound.class);
+		}
+	}
+
+	@Test
+	public void testWaitersKeepFailureType() throws Exception {
+		RestClientException failure = new RestClientException("Could not read Coolpay response");
+		CountDownLatch release = new CountDownLatch(1);
+
+		List<Future<Object>> waiters = concurrently("key", () -> {
+			await(release);
+			throw failure;
+		});
+		release.countDown();
+
+		for (Future<Object> waiter : waiters) {
+			Throwable cause = catchThrowable(() -> waiter.get(5, SECONDS)).getCause();
+			assertThat(cause).isExactlyInstanceOf(RestClientException.class).hasMessage(failure.getMessage());
+		}
+	}
+
+	@Test
+	public void testCompletedCallIsNotReused() throws Exception {
+		AtomicInteger upstream = new AtomicInteger();
+
+		assertThat(onTest.execute("key", upstream::incrementAndGet)).isEqualTo(1);
+		assertThat(onTest.execute("key", upstream::incrementAndGet)).isEqualTo(2);
+		assertThatThrownBy(() -> onTest.execute("key", () -> {
+			throw new IllegalStateException();
+		})).isInstanceOf(IllegalStateException.class);
+		assertThat(onTest.execute("key", upstream::incrementAndGet)).isEqualTo(3);
+
+		assertThat(onTest.getJoins()).isZero();
+		assertThat(onTest.getInFlight()).isZero();
+	}
+
+	@Test
+	public void testDifferentKeysDoNotShare() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		Future<Object> first = executor.submit(() -> onTest.execute("first", () -> {
+			await(release);
+			return "first";
+		}));
+		waitForFlights(1);
+
+		assertThat(onTest.execute("second", () -> "second")).isEqualTo("second");
+		release.countDown();
+
+		assertThat(first.get(5, SECONDS)).isEqualTo("first");
+		assertThat(onTest.getCalls()).isEqualTo(2);
+		assertThat(onTest.getJoins()).isZero();
+	}
+
+	private List<Future<Object>> concurrently(String key, Supplier<Object> call) throws InterruptedException {
+		List<Future<Object>> waiters = new ArrayList<>();
+		waiters.add(executor.submit(() -> onTest.execute(key, call)));
+		waitForFlights(1);
+		for (int i = 1; i < WAITERS; i++) {
+			waiters.add(executor.submit(() -> onTest.execute(key, call)));
+		}
+		while (onTest.getJoins() < WAITERS - 1) {
+			Thread.sleep(1);
+		}
+		return waiters;
+	}
+
+	private void waitForFlights(int flights) throws InterruptedException {
+		while (onTest.getInFlight() < flights) {
+			Thread.sleep(1);
+		}
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
@@ -0,0 +1,123 @@
+package io.elken.fakebook.paymentservice.routing;
+
+import io.elken.fakebook.paymentservice.provider.PaymentProvider;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+import static org.mockito.Mockito.mock;
+
+public class ProviderRouteTest {
+
+	private AtomicLong clock;
+
+	private ProviderRoute onTest;
+
+	@Before
+	public void setup() throws Exception {
+		clock = new AtomicLong();
+		onTest = new ProviderRoute("primary", mock(PaymentProvider.class), 100, 1000, 3, 5000, clock::get);
+	}
+
+	@Test
+	public void testFirstSampleReplacesInitialLatency() throws Exception {
+		complete(20, false);
+
+		assertThat(onTest.getLatencyNanos()).isEqualTo(20);
+	}
+
+	@Test
+	public void testLatencyJumpsToPeaksAndDecays() throws Exception {
+		complete(20, false);
+		complete(500, false);
+		assertThat(onTest.getLatencyNanos()).isEqualTo(500);
+
+		clock.addAndGet(1000);
+		complete(20, false);
+
+		assertThat(onTest.getLatencyNanos()).isCloseTo(20 + 480 / Math.E, offset(0.01));
+	}
+
+	@Test
+	public void testErrorRateTracksFailures() throws Exception {
+		complete(10, false);
+		clock.addAndGet(1000);
+		complete(10, true);
+
+		assertThat(onTest.getErrorRate()).isCloseTo(1 - 1 / Math.E, offset(0.001));
+	}
+
+	@Test
+	public void testCostGrowsWithInFlight() throws Exception {
+		double idle = onTest.cost();
+		onTest.start();
+
+		assertThat(onTest.getInFlight()).isEqualTo(1);
+		assertThat(onTest.cost()).isEqualTo(idle * 2);
+	}
+
+	@Test
+	public void testEjectsAfterConsecutiveFailures() throws Exception {
+		complete(10, true);
+		complete(10, true);
+		complete(10, false);
+		complete(10, true);
+		complete(10, true);
+		assertThat(onTest.isAvailable()).isTrue();
+
+		complete(10, true);
+
+		assertThat(onTest.isAvailable()).isFalse();
+		assertThat(onTest.getEjections()).isEqualTo(1);
+	}
+
+	@Test
+	public void testReinstatedRouteIsEjectedAgainOnFirstFailure() throws Exception {
+		eject();
+		clock.addAndGet(5000);
+		assertThat(onTest.isAvailable()).isTrue();
+
+		complete(10, true);
+
+		assertThat(onTest.isAvailable()).isFalse();
+		assertThat(onTest.getEjections()).isEqualTo(2);
+	}
+
+	@Test
+	public void testSuccessAfterReinstatementClearsProbation() throws Exception {
+		eject();
+		clock.addAndGet(5000);
+		complete(10, false);
+
+		complete(10, true);
+
+		assertThat(onTest.isAvailable()).isTrue();
+	}
+
+	@Test
+	public void testFailuresWhileEjectedDoNotExtendEjection() throws Exception {
+		eject();
+		clock.addAndGet(4000);
+		complete(10, true);
+		clock.addAndGet(1000);
+
+		assertThat(onTest.isAvailable()).isTrue();
+		assertThat(onTest.getEjections()).isEqualTo(1);
+	}
+
+	private void eject() {
+		for (int i = 0; i < 3; i++) {
+			complete(10, true);
+		}
+		assertThat(onTest.isAvailable()).isFalse();
+	}
+
+	private void complete(long latencyNanos, boolean failed) {
+		onTest.start();
+		onTest.complete(latencyNanos, failed);
+	}
+
+}
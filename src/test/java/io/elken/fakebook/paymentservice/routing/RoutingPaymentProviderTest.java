@@ -0,0 +1,229 @@
+package io.elken.fakebook.paymentservice.routing;
+
+import io.elken.fakebook.paymentservice.domain.LoginRequest;
+import io.elken.fakebook.paymentservice.domain.Payment;
+import io.elken.fakebook.paymentservice.exception.ServiceException;
+import io.elken.fakebook.paymentservice.exception.ServiceUnavailableException;
+import io.elken.fakebook.paymentservice.exception.UnauthorizedException;
+import io.elken.fakebook.paymentservice.provider.PaymentProvider;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RoutingPaymentProviderTest {
+
+	private static final String TOKEN = "token";
+
+	private AtomicLong clock;
+	private PaymentProvider primary;
+	private PaymentProvider secondary;
+	private ProviderRoute primaryRoute;
+	private ProviderRoute secondaryRoute;
+
+	private RoutingPaymentProvider onTest;
+
+	@Before
+	public void setup() throws Exception {
+		clock = new AtomicLong();
+		primary = mock(PaymentProvider.class);
+		secondary = mock(PaymentProvider.class);
+		primaryRoute = route("primary", primary);
+		secondaryRoute = route("secondary", secondary);
+		onTest = new RoutingPaymentProvider(Arrays.asList(primaryRoute, secondaryRoute), clock::get);
+	}
+
+	@Test
+	public void testReadsPreferFasterRoute() throws Exception {
+		record(primaryRoute, 50);
+		record(secondaryRoute, 10);
+
+		for (int i = 0; i < 20; i++) {
+			onTest.listPayments(TOKEN);
+		}
+
+		verify(primary, never()).listPayments(TOKEN);
+	}
+
+	@Test
+	public void testReadsAvoidBusyRoute() throws Exception {
+		record(primaryRoute, 10);
+		record(secondaryRoute, 10);
+		primaryRoute.start();
+
+		for (int i = 0; i < 20; i++) {
+			onTest.listRecipients(TOKEN);
+		}
+
+		verify(primary, never()).listRecipients(TOKEN);
+	}
+
+	@Test
+	public void testReadsMeasureLatency() throws Exception {
+		when(primary.listPayments(TOKEN)).thenAnswer(invocation -> {
+			clock.addAndGet(40);
+			return null;
+		});
+		when(secondary.listPayments(TOKEN)).thenAnswer(invocation -> {
+			clock.addAndGet(40);
+			return null;
+		});
+
+		onTest.listPayments(TOKEN);
+
+		assertThat(Math.min(primaryRoute.getLatencyNanos(), secondaryRoute.getLatencyNanos())).isEqualTo(40);
+	}
+
+	@Test
+	public void testStreamLatencyExcludesDownstreamWrites() throws Exception {
+		onTest = new RoutingPaymentProvider(Collections.singletonList(primaryRoute), clock::get);
+		doAnswer(invocation -> {
+			clock.addAndGet(40);
+			Consumer<Payment> consumer = invocation.getArgument(1);
+			consumer.accept(new Payment());
+			consumer.accept(new Payment());
+			return null;
+		}).when(primary).streamPayments(eq(TOKEN), any());
+
+		onTest.streamPayments(TOKEN, payment -> clock.addAndGet(1000));
+
+		assertThat(primaryRoute.getLatencyNanos()).isEqualTo(40);
+	}
+
+	@Test
+	public void testWritesArePinnedPerToken() throws Exception {
+		ProviderRoute pinned = onTest.pinned(TOKEN);
+		record(pinned, 1000);
+
+		for (int i = 0; i < 20; i++) {
+			assertThat(onTest.pinned(TOKEN)).isSameAs(pinned);
+		}
+	}
+
+	@Test
+	public void testWritesSpreadAcrossRoutes() throws Exception {
+		Set<ProviderRoute> used = new HashSet<>();
+		for (int i = 0; i < 100; i++) {
+			used.add(onTest.pinned(TOKEN + i));
+		}
+
+		assertThat(used).containsExactlyInAnyOrder(primaryRoute, secondaryRoute);
+	}
+
+	@Test
+	public void testCreatePaymentGoesToPinnedRoute() throws Exception {
+		Payment payment = new Payment();
+		PaymentProvider pinned = onTest.pinned(TOKEN).getProvider();
+		when(pinned.createPayment(TOKEN, payment)).thenReturn(payment);
+
+		assertThat(onTest.createPayment(TOKEN, payment)).isSameAs(payment);
+	}
+
+	@Test
+	public void testLoginIsPinnedPerUsername() throws Exception {
+		LoginRequest loginRequest = new LoginRequest();
+		loginRequest.setUsername("user");
+
+		onTest.login(loginRequest);
+
+		verify(onTest.pinned("user").getProvider()).login(loginRequest);
+	}
+
+	@Test
+	public void testEjectedRouteIsSkippedUntilReinstated() throws Exception {
+		ProviderRoute pinned = onTest.pinned(TOKEN);
+		ProviderRoute other = pinned == primaryRoute ? secondaryRoute : primaryRoute;
+		when(pinned.getProvider().createPayment(any(), any())).thenThrow(new ServiceException());
+		for (int i = 0; i < 3; i++) {
+			assertThatThrownBy(() -> onTest.createPayment(TOKEN, new Payment())).isInstanceOf(ServiceException.class);
+		}
+
+		assertThat(pinned.isAvailable()).isFalse();
+		assertThat(onTest.pinned(TOKEN)).isSameAs(other);
+		for (int i = 0; i < 20; i++) {
+			assertThat(onTest.balanced()).isSameAs(other);
+		}
+
+		clock.addAndGet(5000);
+		assertThat(onTest.pinned(TOKEN)).isSameAs(pinned);
+	}
+
+	@Test
+	public void testClientErrorsDoNotEject() throws Exception {
+		ProviderRoute pinned = onTest.pinned(TOKEN);
+		when(pinned.getProvider().createRecipient(any(), any())).thenThrow(new UnauthorizedException());
+		for (int i = 0; i < 5; i++) {
+			assertThatThrownBy(() -> onTest.createRecipient(TOKEN, null)).isInstanceOf(UnauthorizedException.class);
+		}
+
+		assertThat(pinned.isAvailable()).isTrue();
+		assertThat(pinned.getErrorRate()).isZero();
+		assertThat(pinned.getInFlight()).isZero();
+	}
+
+	@Test
+	public void testLocalSheddingDoesNotEject() throws Exception {
+		ProviderRoute pinned = onTest.pinned(TOKEN);
+		when(pinned.getProvider().createPayment(any(), any())).thenThrow(new ServiceUnavailableException("shed"));
+		for (int i = 0; i < 5; i++) {
+			assertThatThrownBy(() -> onTest.createPayment(TOKEN, new Payment())).isInstanceOf(ServiceUnavailableException.class);
+		}
+
+		assertThat(pinned.isAvailable()).isTrue();
+		assertThat(pinned.getErrorRate()).isZero();
+	}
+
+	@Test
+	public void testAllRoutesEjectedStillRoutes() throws Exception {
+		for (int i = 0; i < 3; i++) {
+			primaryRoute.start();
+			primaryRoute.complete(10, true);
+			secondaryRoute.start();
+			secondaryRoute.complete(10, true);
+		}
+
+		assertThat(onTest.balanced()).isNotNull();
+		assertThat(onTest.pinned(TOKEN)).isNotNull();
+	}
+
+	@Test
+	public void testUncoalescedReadsShareRouteHealth() throws Exception {
+		PaymentProvider uncoalesced = mock(PaymentProvider.class);
+		ProviderRoute route = new ProviderRoute("primary", primary, uncoalesced, 100, 1000, 3, 5000, clock::get);
+		onTest = new RoutingPaymentProvider(Collections.singletonList(route), clock::get);
+		when(uncoalesced.listPayments(TOKEN)).thenThrow(new ServiceException());
+
+		for (int i = 0; i < 3; i++) {
+			assertThatThrownBy(() -> onTest.uncoalesced().listPayments(TOKEN)).isInstanceOf(ServiceException.class);
+		}
+
+		verify(primary, never()).listPayments(TOKEN);
+		assertThat(route.isAvailable()).isFalse();
+		assertThat(onTest.uncoalesced().uncoalesced()).isSameAs(onTest.uncoalesced());
+	}
+
+	private ProviderRoute route(String name, PaymentProvider provider) {
+		return new ProviderRoute(name, provider, 100, 1000, 3, 5000, clock::get);
+	}
+
+	private static void record(ProviderRoute route, long latencyNanos) {
+		route.start();
+		route.complete(latencyNanos, false);
+	}
+
+}
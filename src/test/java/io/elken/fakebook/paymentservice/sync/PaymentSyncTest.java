@@ -0,0 +1,382 @@
+package io.elken.fakebook.paymentservice.sync;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.elken.fakebook.paymentservice.domain.ChangeType;
+import io.elken.fakebook.paymentservice.domain.Currency;
+import io.elken.fakebook.paymentservice.domain.Payment;
+import io.elken.fakebook.paymentservice.domain.PaymentChange;
+import io.elken.fakebook.paymentservice.domain.PaymentCursor;
+import io.elken.fakebook.paymentservice.domain.PaymentPage;
+import io.elken.fakebook.paymentservice.domain.PaymentQuery;
+import io.elken.fakebook.paymentservice.domain.Status;
+import io.elken.fakebook.paymentservice.exception.ServiceException;
+import io.elken.fakebook.paymentservice.exception.ServiceUnavailableException;
+import io.elken.fakebook.paymentservice.exception.UnauthorizedException;
+import io.elken.fakebook.paymentservice.index.PaymentIndex;
+import io.elken.fakebook.paymentservice.provider.PaymentProvider;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.AdditionalAnswers.returnsElementsOf;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PaymentSyncTest {
+
+	private static final String TOKEN = "token";
+	private static final long MIN_INTERVAL = 1000;
+	private static final long MAX_INTERVAL = 8000;
+	private static final long RETENTION = 20000;
+
+	private AtomicLong clock;
+	private PaymentProvider paymentProvider;
+	private AsyncCache<String, PaymentIndex> paymentsCache;
+	private Deque<Runnable> scheduled;
+	private Deque<Long> delays;
+
+	private PaymentSync onTest;
+
+	@Before
+	public void setup() throws Exception {
+		clock = new AtomicLong();
+		paymentProvider = mock(PaymentProvider.class);
+		paymentsCache = Caffeine.newBuilder().buildAsync();
+		scheduled = new ArrayDeque<>();
+		delays = new ArrayDeque<>();
+		ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+		when(scheduler.schedule(any(Runnable.class), anyLong(), any(TimeUnit.class))).thenAnswer(invocation -> {
+			scheduled.add(invocation.getArgument(0));
+			delays.add(invocation.getArgument(1));
+			return null;
+		});
+		onTest = new PaymentSync(paymentProvider, paymentsCache, scheduler, Runnable::run, MIN_INTERVAL, MAX_INTERVAL, 2.0,
+				RETENTION, 2, clock::get);
+	}
+
+	@Test
+	public void testFirstPollEmitsAllPaymentsAsCreated() throws Exception {
+		when(paymentProvider.listPayments(TOKEN)).thenReturn(Arrays.asList(payment("1", 500), payment("2", 1099)));
+		RecordingListener listener = new RecordingListener();
+
+		onTest.subscribe(TOKEN, null, listener);
+		assertThat(delays.peekLast()).isZero();
+		poll();
+
+		assertThat(listener.versions).containsExactly(1L);
+		assertThat(listener.changes.get(0)).extracting(PaymentChange::getType, change -> change.getPayment().getId())
+				.containsExactly(tuple(ChangeType.created, "1"), tuple(ChangeType.created, "2"));
+		assertThat(onTest.getPayments()).isEqualTo(2);
+	}
+
+	@Test
+	public void testLaterPollsEmitOnlyDeltas() throws Exception {
+		when(paymentProvider.listPayments(TOKEN))
+				.thenReturn(Arrays.asList(payment("1", 500), payment("2", 1099), payment("3", 1099)))
+				.thenReturn(Arrays.asList(payment("1", 1099), payment("2", 1099), payment("4", 500)));
+		RecordingListener listener = new RecordingListener();
+		onTest.subscribe(TOKEN, null, listener);
+		poll();
+
+		poll();
+
+		assertThat(listener.versions).containsExactly(1L, 2L);
+		assertThat(listener.changes.get(1)).extracting(PaymentChange::getType, change -> change.getPayment().getId())
+				.containsExactly(tuple(ChangeType.updated, "1"), tuple(ChangeType.created, "4"), tuple(ChangeType.removed, "3"));
+		assertThat(onTest.getChanges()).isEqualTo(6);
+	}
+
+	@Test
+	public void testIdleTokensBackOffAndActiveTokensSpeedUp() throws Exception {
+		List<Payment> unchanged = Collections.singletonList(payment("1", 1099));
+		List<List<Payment>> responses = new ArrayList<>(Collections.nCopies(6, unchanged));
+		responses.add(Collections.singletonList(payment("1", 200)));
+		when(paymentProvider.listPayments(TOKEN)).thenAnswer(returnsElementsOf(responses));
+		onTest.subscribe(TOKEN, null, new RecordingListener());
+
+		List<Long> intervals = new ArrayList<>();
+		for (int i = 0; i < 7; i++) {
+			poll();
+			intervals.add(delays.peekLast());
+		}
+
+		assertThat(intervals).containsExactly(MIN_INTERVAL, 2000L, 4000L, MAX_INTERVAL, MAX_INTERVAL, MAX_INTERVAL, MIN_INTERVAL);
+	}
+
+	@Test
+	public void testFailedPollsBackOff() throws Exception {
+		when(paymentProvider.listPayments(TOKEN)).thenThrow(new ServiceException());
+		onTest.subscribe(TOKEN, null, new RecordingListener());
+
+		poll();
+		poll();
+
+		assertThat(delays.peekLast()).isEqualTo(4000L);
+		assertThat(onTest.getTokens()).isEqualTo(1);
+	}
+
+	@Test
+	public void testLateSubscriberReceivesSnapshotUnlessCurrent() throws Exception {
+		when(paymentProvider.listPayments(TOKEN)).thenReturn(Arrays.asList(payment("1", 1099), payment("2", 1099)));
+		RecordingListener first = new RecordingListener();
+		onTest.subscribe(TOKEN, null, first);
+		poll();
+
+		RecordingListener stale = new RecordingListener();
+		RecordingListener current = new RecordingListener();
+		onTest.subscribe(TOKEN, "0-0", stale);
+		onTest.subscribe(TOKEN, first.eventIds.get(0), current);
+
+		assertThat(stale.versions).containsExactly(1L);
+		assertThat(stale.changes.get(0)).extracting(PaymentChange::getType).containsOnly(ChangeType.created).hasSize(2);
+		assertThat(current.versions).isEmpty();
+		assertThat(scheduled).hasSize(1);
+	}
+
+	@Test
+	public void testRejectedTokenStopsSync() throws Exception {
+		UnauthorizedException unauthorized = new UnauthorizedException();
+		when(paymentProvider.listPayments(TOKEN)).thenThrow(unauthorized);
+		RecordingListener listener = new RecordingListener();
+		onTest.subscribe(TOKEN, null, listener);
+
+		poll();
+
+		assertThat(listener.errors).containsExactly(unauthorized);
+		assertThat(scheduled).isEmpty();
+		assertThat(onTest.getTokens()).isZero();
+	}
+
+	@Test
+	public void testIdleTokenIsRetainedThenDropped() throws Exception {
+		when(paymentProvider.listPayments(TOKEN)).thenReturn(Collections.singletonList(payment("1", 1099)));
+		RecordingListener listener = new RecordingListener();
+		onTest.subscribe(TOKEN, null, listener);
+		poll();
+		onTest.unsubscribe(TOKEN, listener);
+
+		clock.addAndGet(RETENTION - 1);
+		poll();
+		assertThat(onTest.getTokens()).isEqualTo(1);
+
+		RecordingListener reconnected = new RecordingListener();
+		onTest.subscribe(TOKEN, listener.eventIds.get(0), reconnected);
+		onTest.unsubscribe(TOKEN, reconnected);
+		clock.addAndGet(RETENTION);
+		poll();
+
+		assertThat(reconnected.versions).isEmpty();
+		assertThat(scheduled).isEmpty();
+		assertThat(onTest.getTokens()).isZero();
+	}
+
+	@Test
+	public void testFailingListenerIsDropped() throws Exception {
+		when(paymentProvider.listPayments(TOKEN))
+				.thenReturn(Collections.singletonList(payment("1", 1099)))
+				.thenReturn(Arrays.asList(payment("1", 1099), payment("2", 1099)));
+		RecordingListener healthy = new RecordingListener();
+		RecordingListener broken = new RecordingListener();
+		broken.failing = true;
+		onTest.subscribe(TOKEN, null, broken);
+		onTest.subscribe(TOKEN, null, healthy);
+
+		poll();
+		poll();
+
+		assertThat(broken.versions).containsExactly(1L);
+		assertThat(healthy.versions).containsExactly(1L, 2L);
+	}
+
+	@Test
+	public void testRecreatedAccountDoesNotReuseEventIds() throws Exception {
+		when(paymentProvider.listPayments(TOKEN)).thenReturn(Collections.singletonList(payment("1", 1099)));
+		RecordingListener previous = new RecordingListener();
+		onTest.subscribe(TOKEN, null, previous);
+		poll();
+		onTest.unsubscribe(TOKEN, previous);
+		clock.addAndGet(RETENTION);
+		poll();
+		assertThat(onTest.getTokens()).isZero();
+
+		RecordingListener current = new RecordingListener();
+		onTest.subscribe(TOKEN, null, current);
+		poll();
+		RecordingListener reconnected = new RecordingListener();
+		onTest.subscribe(TOKEN, previous.eventIds.get(0), reconnected);
+
+		assertThat(current.versions).containsExactly(1L);
+		assertThat(current.eventIds).doesNotContainAnyElementsOf(previous.eventIds);
+		assertThat(reconnected.eventIds).isEqualTo(current.eventIds);
+	}
+
+	@Test
+	public void testListenersAreCalledWithoutHoldingTheAccount() throws Exception {
+		when(paymentProvider.listPayments(TOKEN)).thenReturn(Collections.singletonList(payment("1", 1099)));
+		ExecutorService reader = Executors.newSingleThreadExecutor();
+		List<Integer> seen = new ArrayList<>();
+		try {
+			onTest.subscribe(TOKEN, null, new RecordingListener() {
+				@Override
+				public void onChanges(String eventId, List<PaymentChange> changes) {
+					try {
+						seen.add(reader.submit(onTest::getPayments).get(5, TimeUnit.SECONDS));
+					} catch (Exception e) {
+						throw new IllegalStateException(e);
+					}
+				}
+			});
+			poll();
+		} finally {
+			reader.shutdownNow();
+		}
+
+		assertThat(seen).containsExactly(1);
+	}
+
+	@Test
+	public void testSlowListenerIsDroppedWhenItFallsBehind() throws Exception {
+		AtomicLong amount = new AtomicLong();
+		when(paymentProvider.listPayments(TOKEN)).thenAnswer(invocation -> Collections.singletonList(payment("1", amount.incrementAndGet())));
+		CountDownLatch sending = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		RecordingListener slow = new RecordingListener() {
+			@Override
+			public void onChanges(String eventId, List<PaymentChange> changes) {
+				super.onChanges(eventId, changes);
+				sending.countDown();
+				try {
+					release.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+		onTest.subscribe(TOKEN, null, slow);
+		ExecutorService sender = Executors.newSingleThreadExecutor();
+		try {
+			Future<?> first = sender.submit(this::poll);
+			assertThat(sending.await(5, TimeUnit.SECONDS)).isTrue();
+			for (int i = 0; i < 100 && slow.errors.isEmpty(); i++) {
+				poll();
+			}
+			release.countDown();
+			first.get(5, TimeUnit.SECONDS);
+		} finally {
+			sender.shutdownNow();
+		}
+
+		assertThat(slow.errors).hasSize(1).allMatch(ServiceUnavailableException.class::isInstance);
+		assertThat(slow.versions).hasSizeLessThan((int) amount.get());
+	}
+
+	@Test
+	public void testChangesRefreshCachedIndex() throws Exception {
+		paymentsCache.synchronous().put(TOKEN, new PaymentIndex(Collections.singletonList(payment("1", 500))));
+		when(paymentProvider.listPayments(TOKEN)).thenReturn(Arrays.asList(payment("1", 1099), payment("2", 1099)));
+		onTest.subscribe(TOKEN, null, new RecordingListener());
+
+		poll();
+
+		assertThat(paymentsCache.synchronous().getIfPresent(TOKEN).asList()).extracting(Payment::getAmount).containsExactly(1099L, 1099L);
+	}
+
+	@Test
+	public void testChangesAreAppliedToCachedIndexInPlace() throws Exception {
+		PaymentIndex index = new PaymentIndex(Arrays.asList(payment("1", 500), payment("2", 500), payment("3", 500)));
+		paymentsCache.synchronous().put(TOKEN, index);
+		PaymentPage first = index.find(new PaymentQuery(null, 1, null, null, null, null, null));
+		when(paymentProvider.listPayments(TOKEN))
+				.thenReturn(Arrays.asList(payment("1", 500), payment("2", 500), payment("3", 500)))
+				.thenReturn(Arrays.asList(payment("1", 500), payment("2", 1099), payment("3", 500), payment("4", 500), payment("5", 500)));
+		RecordingListener listener = new RecordingListener();
+		onTest.subscribe(TOKEN, null, listener);
+		poll();
+		index.add(payment("4", 500));
+
+		poll();
+
+		assertThat(paymentsCache.synchronous().getIfPresent(TOKEN)).isSameAs(index);
+		assertThat(index.asList()).extracting(Payment::getId, Payment::getAmount)
+				.containsExactly(tuple("1", 500L), tuple("2", 1099L), tuple("3", 500L), tuple("4", 500L), tuple("5", 500L));
+		assertThat(index.find(new PaymentQuery(PaymentCursor.parse(first.getNextCursor()), 1, null, null, null, null, null)).getPayments())
+				.extracting(Payment::getId).containsExactly("2");
+		assertThat(listener.changes.get(1)).extracting(PaymentChange::getType, change -> change.getPayment().getId())
+				.containsExactly(tuple(ChangeType.updated, "2"), tuple(ChangeType.created, "4"), tuple(ChangeType.created, "5"));
+	}
+
+	@Test
+	public void testRemovedPaymentsReplaceCachedIndex() throws Exception {
+		PaymentIndex index = new PaymentIndex(Arrays.asList(payment("1", 500), payment("2", 500)));
+		paymentsCache.synchronous().put(TOKEN, index);
+		when(paymentProvider.listPayments(TOKEN)).thenReturn(Collections.singletonList(payment("2", 500)));
+		onTest.subscribe(TOKEN, null, new RecordingListener());
+
+		poll();
+
+		assertThat(paymentsCache.synchronous().getIfPresent(TOKEN)).isNotSameAs(index);
+		assertThat(paymentsCache.synchronous().getIfPresent(TOKEN).asList()).extracting(Payment::getId).containsExactly("2");
+	}
+
+	@Test
+	public void testLimitsSyncedTokens() throws Exception {
+		onTest.subscribe("a", null, new RecordingListener());
+		onTest.subscribe("b", null, new RecordingListener());
+
+		assertThatThrownBy(() -> onTest.subscribe("c", null, new RecordingListener())).isInstanceOf(ServiceUnavailableException.class);
+		onTest.subscribe("a", null, new RecordingListener());
+	}
+
+	private void poll() {
+		scheduled.removeFirst().run();
+	}
+
+	private static Payment payment(String id, long amount) {
+		return new Payment(id, Status.paid, "recipient", Currency.GBP, amount);
+	}
+
+	private static class RecordingListener implements ChangeListener {
+
+		private final List<String> eventIds = new ArrayList<>();
+		private final List<Long> versions = new ArrayList<>();
+		private final List<List<PaymentChange>> changes = new ArrayList<>();
+		private final List<RuntimeException> errors = new ArrayList<>();
+		private boolean failing;
+
+		@Override
+		public void onChanges(String eventId, List<PaymentChange> changes) {
+			eventIds.add(eventId);
+			versions.add(Long.parseLong(eventId.substring(eventId.indexOf('-') + 1)));
+			this.changes.add(changes);
+			if (failing) {
+				throw new IllegalStateException("closed");
+			}
+		}
+
+		@Override
+		public void onError(RuntimeException e) {
+			errors.add(e);
+		}
+
+	}
+
+}